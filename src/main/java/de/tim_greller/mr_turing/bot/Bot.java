@@ -1,13 +1,20 @@
 package de.tim_greller.mr_turing.bot;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
 import org.reactivestreams.Publisher;
 
 import de.tim_greller.mr_turing.bot.commands.BotCommand;
-import de.tim_greller.mr_turing.turing_machine.DeterministicTuringMachine;
 import de.tim_greller.mr_turing.turing_machine.TuringMachine;
 import discord4j.common.util.Snowflake;
 import discord4j.core.DiscordClientBuilder;
@@ -15,6 +22,7 @@ import discord4j.core.GatewayDiscordClient;
 import discord4j.core.event.ReactiveEventAdapter;
 import discord4j.core.event.domain.lifecycle.ReadyEvent;
 import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.object.entity.Attachment;
 import discord4j.core.object.entity.Message;
 import discord4j.core.object.presence.Activity;
 import discord4j.core.object.presence.Presence;
@@ -23,6 +31,8 @@ import discord4j.core.spec.EmbedCreateSpec;
 import discord4j.rest.util.Color;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
 
 /**
  * This is the bot class that communicates with discord using Discord4J and uses the
@@ -36,6 +46,9 @@ public class Bot extends ReactiveEventAdapter {
     /** The cross emoji with which the bot will react to messages with wrong syntax. */
     private static final ReactionEmoji CROSS = ReactionEmoji.unicode("\u274c");
     
+    /** The maximum size of an attached script in bytes. */
+    private static final int MAX_SCRIPT_SIZE = 8 << 20;
+    
     /** The prefix before every command that should get interpreted by this bot. */
     private final String prefix = "!tm";
     
@@ -48,19 +61,28 @@ public class Bot extends ReactiveEventAdapter {
     /** The commands of the bot, mapped with their corresponding trigger. */
     private Map<String, BotCommand> commands;
     
-    /** The individual Turing machine of each channel. */
-    private Map<Snowflake, TuringMachine> turingMachines;
+    /**
+     * The individual Turing machine of each channel. Machines are loaded from their
+     * store when their channel uses the bot and dropped when they were not used for a
+     * while.
+     */
+    private final MachineCache turingMachines;
+    
+    /** Executes the commands of each channel in order and of channels in parallel. */
+    private final ChannelDispatcher dispatcher =
+            new ChannelDispatcher(Schedulers.boundedElastic());
     
     /**
      * Creates a new Bot instance with the given token. In order for the bot to start,
      * you have to log it in using {@link Bot#login()}.
      * 
      * @param token The token that will be needed to build the bot and log it in.
+     * @param turingMachines The cache providing the Turing machines of the channels.
      */
-    Bot(String token) {
+    Bot(String token, MachineCache turingMachines) {
         this.token = token;
+        this.turingMachines = turingMachines;
         
-        turingMachines = new HashMap<>();
         commands = new HashMap<>();
         
         /*
@@ -130,34 +152,34 @@ public class Bot extends ReactiveEventAdapter {
      * trigger and the argument part and executes the specified command.
      * 
      * @param message The message which should be interpreted and executed.
+     * @param tm The Turing machine of the channel the message was sent in.
      * @return The publisher that completes when the called command has finished 
      *            execution.
      * @throws InvalidCommandSyntaxException Thrown if the message does not contain a
      *                                       command in a valid syntax.
      */
-    private Publisher<?> parseAndExecute(Message message) 
+    private Publisher<?> parseAndExecute(Message message, TuringMachine tm) 
             throws InvalidCommandSyntaxException {
         
         final String content = message.getContent();
         final String contentWithoutPrefix = content.substring(prefix.length()).trim();
         
-        return parseAndExecutePartly(message, contentWithoutPrefix);
+        return parseAndExecutePartly(message, contentWithoutPrefix, tm);
     }
     
     /**
      * Takes a command-line that should be interpreted and executed.
      * 
+     * @param message The message the command-line is part of.
      * @param commandline The string that will be interpreted as command.
-     * @param message The message which will be used to determine the referenced TM.
+     * @param tm The Turing machine of the channel the message was sent in.
      * @return The publisher that completes when the called command has finished 
      *            execution.
      * @throws InvalidCommandSyntaxException Thrown if the command-line does not contain a
      *                                       command in a valid syntax.
      */
-    private Publisher<?> parseAndExecutePartly(Message message, String commandline) 
-            throws InvalidCommandSyntaxException {
-        
-        final Snowflake channelId = message.getChannelId();
+    private Publisher<?> parseAndExecutePartly(Message message, String commandline,
+            TuringMachine tm) throws InvalidCommandSyntaxException {
         
         if (commandline.isBlank()) {
             throw new InvalidCommandSyntaxException("No command provided.");
@@ -183,12 +205,6 @@ public class Bot extends ReactiveEventAdapter {
                     "Unknown command: \"" + commandName + "\"");
         }
         
-        TuringMachine tm = turingMachines.get(channelId);
-        if (tm == null) {
-            tm = new DeterministicTuringMachine();
-            turingMachines.put(channelId, tm);
-        }
-        
         return command.execute(message, commandParameter, tm);
     }
     
@@ -213,7 +229,8 @@ public class Bot extends ReactiveEventAdapter {
                         + "after another.\nUsing execute all, you can define a whole "
                         + "Turing machine using one message, making it easy to save and "
                         + "share your creations!\nYou can also wrap the commands in code"
-                        + "-blocks for better readability.";
+                        + "-blocks for better readability and add comments starting "
+                        + "with `//`. Larger scripts can be attached as a text file.";
             }
 
             @Override
@@ -225,32 +242,116 @@ public class Bot extends ReactiveEventAdapter {
             public Publisher<?> execute(Message msg, String arg, TuringMachine tm)
                     throws InvalidCommandSyntaxException {
                 
-                /*
-                 * This publisher is used to concatenate all possibly generated Publishers
-                 * of the executed commands.
-                 */
-                Publisher<?> combinedPublisher = Mono.empty();
+                final List<Attachment> attachments = List.copyOf(msg.getAttachments());
+                if (!arg.isBlank() || attachments.isEmpty()) {
+                    return executeScript(msg, new StringReader(arg), tm);
+                }
                 
-                /*
-                 * Splits the argument on each new line and ignores blank lines; then
-                 * executes each line individually.
-                 */
-                for (String cmdln : arg.split("(\s*[\r\n]\s*)+")) {
-                    
-                    // Skips code-block endings or beginnings and comments.
-                    if (cmdln.equals("```") || cmdln.startsWith("//")) continue;
-                    
-                    combinedPublisher = Flux.concat(
-                            combinedPublisher,
-                            Bot.this.parseAndExecutePartly(msg, cmdln)
-                    );
+                final Attachment attachment = attachments.get(0);
+                if (attachment.getSize() > MAX_SCRIPT_SIZE) {
+                    throw tooLarge(MAX_SCRIPT_SIZE);
                 }
                 
-                return combinedPublisher;
+                return download(attachment.getUrl(), MAX_SCRIPT_SIZE)
+                        .publishOn(Schedulers.boundedElastic())
+                        .flatMapMany(bytes -> Flux.defer(() -> {
+                            try {
+                                return executeScript(msg, new InputStreamReader(
+                                        new ByteArrayInputStream(bytes),
+                                        StandardCharsets.UTF_8), tm);
+                            } catch (InvalidCommandSyntaxException e) {
+                                return Flux.error(e);
+                            }
+                        }));
             }
         };
     }
     
+    /**
+     * Executes a script of commands. The definition commands at its start are parsed
+     * in one pass and applied to the Turing machine at once, then the remaining lines
+     * are executed one after another.
+     * 
+     * @param message The message containing the script.
+     * @param script The reader providing the script.
+     * @param tm The Turing machine of the channel the message was sent in.
+     * @return The publisher that completes when all commands have finished execution.
+     * @throws InvalidCommandSyntaxException Thrown if the script contains errors.
+     */
+    private Publisher<?> executeScript(Message message, Reader script, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+        
+        final DefinitionParser.Script parsed;
+        try {
+            parsed = DefinitionParser.parse(script);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "The script could not be read: " + e.getMessage());
+        }
+        
+        if (parsed.changesDefinition()) {
+            if (!parsed.isReplacing() && !tm.isUnbuilt()) {
+                throw new IllegalStateException(
+                        "The TM has to be in its modifiable state to do that.");
+            }
+            tm.define(parsed.applyTo(tm.getDefinition()));
+        }
+        
+        /*
+         * This publisher is used to concatenate all possibly generated Publishers
+         * of the executed commands.
+         */
+        Publisher<?> combinedPublisher = Mono.empty();
+        
+        for (String cmdln : parsed.getCommands()) {
+            combinedPublisher = Flux.concat(
+                    combinedPublisher,
+                    parseAndExecutePartly(message, cmdln, tm)
+            );
+        }
+        
+        return combinedPublisher;
+    }
+    
+    /**
+     * Downloads the content of an attached script. The size reported by Discord is not
+     * trusted, so the download fails as soon as it received more bytes than allowed.
+     * 
+     * @param url The URL of the attachment.
+     * @param maxBytes The maximum size of the script in bytes.
+     * @return The content of the file.
+     */
+    static Mono<byte[]> download(String url, int maxBytes) {
+        return HttpClient.create()
+                .get()
+                .uri(url)
+                .responseContent()
+                .map(buffer -> {
+                    final byte[] chunk = new byte[buffer.readableBytes()];
+                    buffer.readBytes(chunk);
+                    return chunk;
+                })
+                .reduceWith(ByteArrayOutputStream::new, (content, chunk) -> {
+                    if (content.size() + (long) chunk.length > maxBytes) {
+                        throw tooLarge(maxBytes);
+                    }
+                    content.write(chunk, 0, chunk.length);
+                    return content;
+                })
+                .map(ByteArrayOutputStream::toByteArray);
+    }
+    
+    /**
+     * Creates the error for a script that exceeds its maximum size.
+     * 
+     * @param maxBytes The maximum size of the script in bytes.
+     * @return The error.
+     */
+    private static IllegalArgumentException tooLarge(int maxBytes) {
+        return new IllegalArgumentException("The script can be at most "
+                + maxBytes + " bytes large.");
+    }
+    
     /**
      * Generates the help command of this bot. The command will provide information about
      * the bot and its usage.
@@ -321,32 +422,92 @@ public class Bot extends ReactiveEventAdapter {
             return Mono.empty();
         }
         
+        /*
+         * Immediate commands do not use the Turing machine of the channel, so they do
+         * not wait for the commands that are queued or executed in the channel.
+         */
+        if (isImmediate(message)) {
+            return Flux.defer(() -> handle(message, null))
+                       .subscribeOn(Schedulers.boundedElastic());
+        }
+        
+        /*
+         * The commands of one channel are executed one after another on a worker thread,
+         * so they never access the Turing machine of the channel at the same time and
+         * never block the thread that dispatches the events.
+         */
+        final Snowflake channelId = message.getChannelId();
+        return dispatcher.dispatch(channelId, () -> {
+            final TuringMachine tm = turingMachines.acquire(channelId);
+            return Flux.defer(() -> handle(message, tm))
+                       .doFinally(signal -> turingMachines.release(channelId));
+        });
+    }
+    
+    /**
+     * Returns whether the command of the given message is executed immediately instead
+     * of in the order of the commands of its channel.
+     * 
+     * @param message The message containing the command.
+     * @return {@code true} if the message calls an immediate command.
+     */
+    private boolean isImmediate(Message message) {
+        final String commandline = message.getContent().substring(prefix.length()).trim();
+        final String commandName = commandline.split("[\s\r\n]+", 2)[0].toLowerCase();
+        final BotCommand command = commands.get(commandName);
+        
+        return command != null && command.isImmediate();
+    }
+    
+    /**
+     * Executes the command of the given message and reacts to the message according to
+     * the outcome.
+     * 
+     * @param message The message containing the command.
+     * @param tm The Turing machine of the channel the message was sent in.
+     * @return The publisher of the command or the publisher showing its error.
+     */
+    private Publisher<?> handle(Message message, TuringMachine tm) {
         try {
             
             /*
              * Parse and execute the message and - if successful - react with the
-             * checkmark. Then return the concatenation of both publishers.
+             * checkmark. Then return the concatenation of both publishers. Commands
+             * that execute asynchronously can still fail later, which is shown the
+             * same way.
              */
-            Publisher<?> possibleResponse = parseAndExecute(message);
-            return Flux.concat(message.addReaction(CHECKMARK), possibleResponse);
+            Publisher<?> possibleResponse = parseAndExecute(message, tm);
+            return Flux.concat(message.addReaction(CHECKMARK), possibleResponse)
+                       .onErrorResume(e -> e instanceof IllegalArgumentException
+                               || e instanceof IllegalStateException
+                               || e instanceof InvalidCommandSyntaxException,
+                               e -> showError(message, e));
             
         } catch (InvalidCommandSyntaxException | IllegalArgumentException 
                 | IllegalStateException e) {
             
-            /*
-             * Signalize the wrong syntax / command usage by reacting with a red cross and
-             * showing the reason for the exception.
-             */
-            return Flux.concat(
-                    message.addReaction(CROSS), 
-                    message.getChannel().flatMap(c -> {
-                        return c.createEmbed(s -> 
-                                   s.setTitle("Error")
-                                    .setDescription(e.getMessage())
-                                    .setColor(Color.RED)
-                        );
-                    })
-            );
+            return showError(message, e);
         }
     }
+    
+    /**
+     * Signalizes the wrong syntax / command usage by reacting with a red cross and
+     * showing the reason for the exception.
+     * 
+     * @param message The message containing the failed command.
+     * @param e The reason why the command failed.
+     * @return The publisher showing the error.
+     */
+    private Flux<?> showError(Message message, Throwable e) {
+        return Flux.concat(
+                message.addReaction(CROSS), 
+                message.getChannel().flatMap(c -> {
+                    return c.createEmbed(s -> 
+                               s.setTitle("Error")
+                                .setDescription(e.getMessage())
+                                .setColor(Color.RED)
+                    );
+                })
+        );
+    }
 }
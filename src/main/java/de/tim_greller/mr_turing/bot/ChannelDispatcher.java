@@ -0,0 +1,168 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import discord4j.common.util.Snowflake;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Executes the commands of each channel strictly one after another, while the commands
+ * of different channels are executed in parallel.
+ * <p>
+ * Each channel with pending commands has a mailbox. A command is only started once the
+ * publisher of the previous command of its channel completed, so commands that access
+ * the Turing machine of the channel lazily are serialized as well. Mailboxes are
+ * removed as soon as they are empty, so only channels with pending commands take
+ * memory. All changes of a mailbox happen inside the atomic operations of the
+ * concurrent map, which makes them thread-safe without further locks.
+ */
+final class ChannelDispatcher {
+
+    /** The scheduler the commands are executed on. */
+    private final Scheduler scheduler;
+
+    /** The mailboxes of the channels with pending commands. */
+    private final Map<Snowflake, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * The pending commands of one channel.
+     */
+    private final class Mailbox {
+
+        /** The channel of this mailbox. */
+        final Snowflake channel;
+
+        /** The commands that were not started yet. */
+        final Queue<Job> jobs = new ArrayDeque<>();
+
+        /** Whether a command of this mailbox is executed currently. */
+        boolean running = false;
+
+        /**
+         * Creates a new empty mailbox.
+         *
+         * @param channel The channel of the mailbox.
+         */
+        Mailbox(Snowflake channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Starts the next command of this mailbox or removes the mailbox if no command
+         * is left.
+         */
+        void runNext() {
+            final Job[] next = new Job[1];
+            mailboxes.computeIfPresent(channel, (key, mailbox) -> {
+                next[0] = mailbox.jobs.poll();
+                if (next[0] == null) {
+                    mailbox.running = false;
+                    return null;
+                }
+                return mailbox;
+            });
+
+            if (next[0] != null) {
+                next[0].run(() -> scheduler.schedule(this::runNext));
+            }
+        }
+    }
+
+    /**
+     * A command waiting in a mailbox together with the subscriber waiting for its
+     * completion.
+     */
+    private static final class Job {
+
+        /** Creates the publisher of the command. */
+        final Supplier<? extends Publisher<?>> command;
+
+        /** Signals the completion of the command. */
+        final MonoSink<Void> sink;
+
+        /**
+         * Creates a new job.
+         *
+         * @param command Creates the publisher of the command.
+         * @param sink Signals the completion of the command.
+         */
+        Job(Supplier<? extends Publisher<?>> command, MonoSink<Void> sink) {
+            this.command = command;
+            this.sink = sink;
+        }
+
+        /**
+         * Executes the command and subscribes to its publisher.
+         *
+         * @param onTerminate Called once the publisher completed or failed.
+         */
+        void run(Runnable onTerminate) {
+            Mono<Void> execution;
+            try {
+                execution = Flux.from(command.get()).then();
+            } catch (RuntimeException e) {
+                execution = Mono.error(e);
+            }
+
+            execution.subscribe(
+                    null,
+                    e -> {
+                        sink.error(e);
+                        onTerminate.run();
+                    },
+                    () -> {
+                        sink.success();
+                        onTerminate.run();
+                    });
+        }
+    }
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param scheduler The scheduler the commands are executed on. Commands may block,
+     *                  so the scheduler should allow blocking calls.
+     */
+    ChannelDispatcher(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queues a command of a channel. It is executed once all previously queued commands
+     * of the channel completed.
+     *
+     * @param channel The channel the command was sent in.
+     * @param command Executes the command and returns its publisher, which is
+     *                subscribed to by the dispatcher.
+     * @return A publisher that completes when the publisher of the command completed.
+     */
+    Mono<Void> dispatch(Snowflake channel, Supplier<? extends Publisher<?>> command) {
+        return Mono.create(sink -> {
+            final Job job = new Job(command, sink);
+            final Mailbox[] started = new Mailbox[1];
+
+            mailboxes.compute(channel, (key, mailbox) -> {
+                final Mailbox target = (mailbox == null) ? new Mailbox(key) : mailbox;
+                target.jobs.add(job);
+                if (!target.running) {
+                    target.running = true;
+                    started[0] = target;
+                }
+                return target;
+            });
+
+            if (started[0] != null) {
+                scheduler.schedule(started[0]::runNext);
+            }
+        });
+    }
+}
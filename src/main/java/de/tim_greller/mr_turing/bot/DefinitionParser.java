@@ -0,0 +1,518 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.tim_greller.mr_turing.turing_machine.BlankSymbol;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * Parses scripts of the execute-command in a single pass. The definition commands at
+ * the start of a script ({@code new}, {@code add}, {@code input}, {@code blank},
+ * {@code accept} and {@code mode}) are collected into one {@link Script}, so the whole
+ * machine can be defined at once using {@link TuringMachine#define(MachineDefinition)}.
+ * The first other command and all lines after it are kept as they are, to be executed
+ * one after another like single commands.
+ * <p>
+ * Blank lines, lines starting with {@code //} and the borders of code-blocks are
+ * skipped. Transitions can also be followed by a comment. Instead of stopping at the
+ * first invalid line, the parser continues and reports every error with its line and
+ * column.
+ */
+final class DefinitionParser {
+
+    /** The maximum amount of errors that are listed in the exception. */
+    private static final int MAX_LISTED_ERRORS = 20;
+
+    /** The errors found so far, each one prefixed with its position. */
+    private final List<String> errors = new ArrayList<>();
+
+    /** The states of the script, mapped by their name, so each one is created once. */
+    private final Map<String, State> states = new HashMap<>();
+
+    /** The symbols of the script, mapped by their name, so each one is created once. */
+    private final Map<String, Symbol> symbols = new HashMap<>();
+
+    /** The transitions of the script, used to find the ones that are added twice. */
+    private final Set<Transition> added = new HashSet<>();
+
+    /** Whether the script replaces the machine because it contains {@code new}. */
+    private boolean replacing;
+
+    /** The transitions in the order they are added. */
+    private final List<Transition> transitions = new ArrayList<>();
+
+    /** The accepting states or {@code null} if they are not changed. */
+    private List<State> acceptingStates;
+
+    /** The blank symbol or {@code null} if it is not changed. */
+    private BlankSymbol blank;
+
+    /** The input word or {@code null} if it is not changed. */
+    private String input;
+
+    /** The execution mode or {@code null} if it is not changed. */
+    private ExecutionMode executionMode;
+
+    /** The lines that are executed as single commands after the definition. */
+    private final List<String> commands = new ArrayList<>();
+
+    /** The content of the current line. */
+    private String line;
+
+    /** The number of the current line, starting at 1. */
+    private int lineNumber;
+
+    /** The position of the next character of the current line. */
+    private int position;
+
+    /** Creates a parser for one script. */
+    private DefinitionParser() {
+    }
+
+    /**
+     * Reads and parses a whole script.
+     *
+     * @param script The reader providing the script.
+     * @return The parsed script.
+     * @throws IOException Thrown if the script cannot be read.
+     * @throws InvalidCommandSyntaxException Thrown if the script contains errors. The
+     *                                       message lists all of them.
+     */
+    static Script parse(Reader script) throws IOException, InvalidCommandSyntaxException {
+        final DefinitionParser parser = new DefinitionParser();
+        final BufferedReader lines = (script instanceof BufferedReader)
+                ? (BufferedReader) script
+                : new BufferedReader(script);
+
+        String next;
+        while ((next = lines.readLine()) != null) {
+            parser.parseLine(next);
+        }
+
+        return parser.finish();
+    }
+
+    /**
+     * Parses one line of the script.
+     *
+     * @param content The content of the line.
+     */
+    private void parseLine(String content) {
+        line = content;
+        lineNumber++;
+        position = 0;
+
+        skipWhitespace();
+        if (position == line.length() || line.startsWith("//", position)
+                || line.startsWith("```", position)) {
+            return;
+        }
+        if (!commands.isEmpty()) {
+            commands.add(line.trim());
+            return;
+        }
+
+        final int start = position;
+        while (position < line.length()
+                && !Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        final String name = line.substring(start, position).toLowerCase();
+        skipWhitespace();
+        final String argument = line.substring(position).trim();
+
+        switch (name) {
+        case "new":
+            clear();
+            break;
+
+        case "add":
+            parseTransition(start);
+            break;
+
+        case "input":
+            input = unquote(argument);
+            break;
+
+        case "blank":
+            if (argument.isEmpty()) {
+                error(position, "No blank symbol given.");
+            } else {
+                blank = new BlankSymbol(unquote(argument));
+            }
+            break;
+
+        case "accept":
+            parseAcceptingStates();
+            break;
+
+        case "mode":
+            if (argument.isEmpty()) {
+                error(position, "No execution mode given.");
+                break;
+            }
+            try {
+                executionMode = ExecutionMode.from(argument);
+            } catch (IllegalArgumentException e) {
+                error(position, e.getMessage());
+            }
+            break;
+
+        default:
+            commands.add(line.trim());
+        }
+    }
+
+    /**
+     * Forgets everything that was defined so far, because the machine is replaced.
+     */
+    private void clear() {
+        replacing = true;
+        transitions.clear();
+        added.clear();
+        acceptingStates = null;
+        blank = null;
+        input = null;
+        executionMode = null;
+    }
+
+    /**
+     * Parses a transition in the form
+     * {@code (currentState, scannedSymbol) -> (nextState, printSymbol, tapeMotion)}.
+     *
+     * @param start The position of the command on the line.
+     */
+    private void parseTransition(int start) {
+        if (!expect('(')) {
+            return;
+        }
+        final String current = name("current state");
+        if (current == null || !expect(',')) {
+            return;
+        }
+        final String scanned = name("scanned symbol");
+        if (scanned == null || !expect(')') || !expect('-') || !expect('>')
+                || !expect('(')) {
+            return;
+        }
+        final String next = name("next state");
+        if (next == null || !expect(',')) {
+            return;
+        }
+        final String print = name("print symbol");
+        if (print == null || !expect(',')) {
+            return;
+        }
+        final int motionStart = position;
+        final String motionName = name("tape motion");
+        if (motionName == null) {
+            return;
+        }
+        final TapeMove motion;
+        try {
+            motion = TapeMove.from(motionName);
+        } catch (IllegalArgumentException e) {
+            skipWhitespace(motionStart);
+            error(position, "Unknown tape motion \"" + motionName
+                    + "\". A tape motion can be LEFT, RIGHT or NONE or L, R and N.");
+            return;
+        }
+        if (!expect(')')) {
+            return;
+        }
+        skipWhitespace();
+        if (position < line.length() && !line.startsWith("//", position)) {
+            error(position, "Unexpected text after the transition.");
+            return;
+        }
+
+        final Transition transition = new Transition(state(current), symbol(scanned),
+                symbol(print), motion, state(next));
+        if (!added.add(transition)) {
+            error(start, "This transition was already added.");
+            return;
+        }
+        transitions.add(transition);
+    }
+
+    /**
+     * Parses the accepting states, which are separated by whitespaces and/or commas.
+     */
+    private void parseAcceptingStates() {
+        final List<State> accepting = new ArrayList<>();
+        while (position < line.length()) {
+            final char c = line.charAt(position);
+            if (c == ',' || Character.isWhitespace(c)) {
+                position++;
+                continue;
+            }
+            final int start = position;
+            while (position < line.length() && line.charAt(position) != ','
+                    && !Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            accepting.add(state(line.substring(start, position)));
+        }
+
+        if (accepting.isEmpty()) {
+            error(position, "No states given.");
+        } else {
+            acceptingStates = accepting;
+        }
+    }
+
+    /**
+     * Skips whitespace and reads a name, which consists of letters, digits and
+     * underscores.
+     *
+     * @param description What the name stands for, used in the error message.
+     * @return The name or {@code null} if there is none, which is reported as error.
+     */
+    private String name(String description) {
+        skipWhitespace();
+        final int start = position;
+        while (position < line.length() && isNameCharacter(line.charAt(position))) {
+            position++;
+        }
+        if (position == start) {
+            error(position, "Expected the " + description + ".");
+            return null;
+        }
+        return line.substring(start, position);
+    }
+
+    /**
+     * Skips whitespace and reads the expected character.
+     *
+     * @param expected The character that has to follow.
+     * @return {@code true} if the character was read, {@code false} if another one
+     *         follows, which is reported as error.
+     */
+    private boolean expect(char expected) {
+        skipWhitespace();
+        if (position < line.length() && line.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        error(position, "Expected \"" + expected + "\".");
+        return false;
+    }
+
+    /**
+     * Moves the position to the next character of the current line that is no
+     * whitespace.
+     */
+    private void skipWhitespace() {
+        skipWhitespace(position);
+    }
+
+    /**
+     * Moves the position to the first character at or after the given one that is no
+     * whitespace.
+     *
+     * @param from The position to start at.
+     */
+    private void skipWhitespace(int from) {
+        position = from;
+        while (position < line.length()
+                && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Adds an error at the given position of the current line.
+     *
+     * @param at The position of the error on the line.
+     * @param reason The reason of the error.
+     */
+    private void error(int at, String reason) {
+        errors.add("Line " + lineNumber + ", column " + (at + 1) + ": " + reason);
+    }
+
+    /**
+     * Returns the state with the given name, creating it only once.
+     *
+     * @param name The name of the state.
+     * @return The state.
+     */
+    private State state(String name) {
+        return states.computeIfAbsent(name, State::new);
+    }
+
+    /**
+     * Returns the symbol with the given name, creating it only once.
+     *
+     * @param name The name of the symbol.
+     * @return The symbol.
+     */
+    private Symbol symbol(String name) {
+        return symbols.computeIfAbsent(name, Symbol::new);
+    }
+
+    /**
+     * Creates the parsed script or reports the errors.
+     *
+     * @return The parsed script.
+     * @throws InvalidCommandSyntaxException Thrown if errors were found.
+     */
+    private Script finish() throws InvalidCommandSyntaxException {
+        if (errors.isEmpty()) {
+            return new Script(this);
+        }
+
+        final StringBuilder message = new StringBuilder("The script contains ")
+                .append(errors.size())
+                .append(errors.size() == 1 ? " error:" : " errors:");
+        errors.stream().limit(MAX_LISTED_ERRORS)
+                .forEach(error -> message.append('\n').append(error));
+        if (errors.size() > MAX_LISTED_ERRORS) {
+            message.append("\nand ").append(errors.size() - MAX_LISTED_ERRORS)
+                   .append(" more.");
+        }
+        throw new InvalidCommandSyntaxException(message.toString());
+    }
+
+    /**
+     * Checks whether a character can be part of the name of a state or symbol.
+     *
+     * @param c The character.
+     * @return {@code true} if it is an ASCII letter, a digit or an underscore.
+     */
+    private static boolean isNameCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_';
+    }
+
+    /**
+     * Returns the text between the first and the last quote of the argument, so
+     * leading and trailing whitespace can be given. Without quotes, the argument is
+     * returned as it is.
+     *
+     * @param argument The argument.
+     * @return The argument without its quotes.
+     */
+    private static String unquote(String argument) {
+        final int first = argument.indexOf('"');
+        final int last = argument.lastIndexOf('"');
+        return (first >= 0 && last > first + 1)
+                ? argument.substring(first + 1, last)
+                : argument;
+    }
+
+    /**
+     * The outcome of parsing a script: the changes of the definition and the commands
+     * that are executed afterwards.
+     */
+    static final class Script {
+
+        /** Whether the script replaces the machine instead of changing it. */
+        private final boolean replacing;
+
+        /** The transitions that are added. */
+        private final List<Transition> transitions;
+
+        /** The accepting states or {@code null} if they are not changed. */
+        private final List<State> acceptingStates;
+
+        /** The blank symbol or {@code null} if it is not changed. */
+        private final BlankSymbol blank;
+
+        /** The input word or {@code null} if it is not changed. */
+        private final String input;
+
+        /** The execution mode or {@code null} if it is not changed. */
+        private final ExecutionMode executionMode;
+
+        /** The lines that are executed as single commands after the definition. */
+        private final List<String> commands;
+
+        /**
+         * Creates the script from the state of a parser that has finished.
+         *
+         * @param parser The parser.
+         */
+        private Script(DefinitionParser parser) {
+            replacing = parser.replacing;
+            transitions = parser.transitions;
+            acceptingStates = parser.acceptingStates;
+            blank = parser.blank;
+            input = parser.input;
+            executionMode = parser.executionMode;
+            commands = parser.commands;
+        }
+
+        /**
+         * Checks whether the script contains any definition commands.
+         *
+         * @return {@code true} if the script changes the definition of the machine.
+         */
+        boolean changesDefinition() {
+            return replacing || !transitions.isEmpty() || acceptingStates != null
+                    || blank != null || input != null || executionMode != null;
+        }
+
+        /**
+         * Checks whether the script replaces the machine because it contains
+         * {@code new}.
+         *
+         * @return {@code true} if the machine is replaced.
+         */
+        boolean isReplacing() {
+            return replacing;
+        }
+
+        /**
+         * Applies the definition commands of the script to the given definition.
+         *
+         * @param base The current definition of the machine. It is ignored if the
+         *             script replaces the machine.
+         * @return The resulting definition.
+         */
+        MachineDefinition applyTo(MachineDefinition base) {
+            final List<Transition> all;
+            if (replacing) {
+                all = transitions;
+            } else {
+                all = new ArrayList<>(base.getTransitions().size() + transitions.size());
+                all.addAll(base.getTransitions());
+                all.addAll(transitions);
+            }
+
+            return new MachineDefinition(all,
+                    replacing ? List.of() : base.getInitialStates(),
+                    (acceptingStates != null) ? acceptingStates
+                            : replacing ? List.of() : base.getAcceptingStates(),
+                    (blank != null || replacing) ? blank : base.getBlankSymbol(),
+                    (input != null) ? input : replacing ? "" : base.getInput(),
+                    (executionMode != null) ? executionMode
+                            : replacing ? ExecutionMode.INTERPRETED
+                                    : base.getExecutionMode(),
+                    !replacing && base.isOptimized());
+        }
+
+        /**
+         * Returns the lines that are executed as single commands after the definition
+         * was applied.
+         *
+         * @return The command lines in their order.
+         */
+        List<String> getCommands() {
+            return commands;
+        }
+    }
+}
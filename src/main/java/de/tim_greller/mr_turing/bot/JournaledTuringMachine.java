@@ -0,0 +1,643 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import de.tim_greller.mr_turing.bot.Mutation.Type;
+import de.tim_greller.mr_turing.turing_machine.AnalysisResult;
+import de.tim_greller.mr_turing.turing_machine.BatchResult;
+import de.tim_greller.mr_turing.turing_machine.BlankSymbol;
+import de.tim_greller.mr_turing.turing_machine.EnumerationResult;
+import de.tim_greller.mr_turing.turing_machine.Evaluation;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineConfiguration;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.NonHaltingDecider;
+import de.tim_greller.mr_turing.turing_machine.RunResult;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+
+/**
+ * A Turing machine of a channel that appends each of its changes to the journal of the
+ * channel, so the machine can be restored after the bot was restarted. All calls are
+ * passed on to the wrapped machine.
+ * <p>
+ * Besides the journal, the machine keeps the shortest list of mutations that restores
+ * its current state, for example only the last input that was set. Once the journal
+ * grew much longer than this list, the list is written as the new snapshot of the
+ * channel and the journal starts over.
+ * <p>
+ * Steps are journaled as the new step count, which is repeated when the machine is
+ * restored. The whole configuration is only written once the machine moved too far
+ * from the last stored configuration and when a snapshot is written, because reading
+ * it takes time proportional to the tape.
+ * <p>
+ * If a change cannot be appended to the journal, a new snapshot is written instead,
+ * so the stored machine never misses a change that was applied.
+ */
+final class JournaledTuringMachine implements TuringMachine {
+
+    /** The minimum amount of mutations in a journal before it is compacted. */
+    private static final int COMPACTION_THRESHOLD = 256;
+
+    /**
+     * The amount of bytes after which a journal is compacted, no matter how many
+     * mutations it contains, because it keeps growing with each stored configuration.
+     */
+    private static final long MAX_JOURNAL_BYTES = 4 << 20;
+
+    /**
+     * The maximum amount of steps between the stored configuration and the step count
+     * of the machine, which are repeated when the machine is restored.
+     */
+    private static final long CONFIGURATION_INTERVAL = 1 << 20;
+
+    /** The estimated amount of bytes a machine takes without tape and transitions. */
+    private static final long BASE_WEIGHT = 4096;
+
+    /** The estimated amount of bytes a cell of the tape takes. */
+    private static final long CELL_WEIGHT = 32;
+
+    /** The estimated amount of bytes a transition takes, including its table entries. */
+    private static final long TRANSITION_WEIGHT = 160;
+
+    /** The machine all calls are passed on to. */
+    private final TuringMachine delegate;
+
+    /** The store containing the files of the channel. */
+    private final MachineStore store;
+
+    /** The channel this machine belongs to. */
+    private final Snowflake channel;
+
+    /** The shortest known list of mutations that restores the current machine. */
+    private final List<Mutation> mutations = new ArrayList<>();
+
+    /** The amount of transitions that were added since the machine was cleared. */
+    private int transitionCount;
+
+    /** The generation of the snapshot the journal continues. */
+    private long generation;
+
+    /** The amount of mutations in the journal. */
+    private int journalLength;
+
+    /** The amount of bytes appended to the journal since it was compacted. */
+    private long journalBytes;
+
+    /** The opened journal or {@code null} if it was not opened yet. */
+    private DataOutputStream journal;
+
+    /**
+     * The step count of the latest stored configuration, or {@code 0} if the steps are
+     * repeated from the start.
+     */
+    private long configurationSteps;
+
+    /**
+     * Whether a change could not be journaled, so a new snapshot has to be written
+     * before the journal is used again.
+     */
+    private boolean dirty;
+
+    /**
+     * Creates a new journaled machine.
+     *
+     * @param delegate The machine all calls are passed on to.
+     * @param store The store containing the files of the channel.
+     * @param channel The channel the machine belongs to.
+     * @param generation The generation of the current snapshot of the channel.
+     */
+    JournaledTuringMachine(TuringMachine delegate, MachineStore store, Snowflake channel,
+            long generation) {
+        this.delegate = delegate;
+        this.store = store;
+        this.channel = channel;
+        this.generation = generation;
+    }
+
+    /**
+     * Applies a stored mutation while the machine is restored, without writing it
+     * again.
+     *
+     * @param mutation The stored mutation.
+     * @param journaled Whether the mutation was read from the journal instead of the
+     *                  snapshot.
+     */
+    void replay(Mutation mutation, boolean journaled) {
+        mutation.applyTo(delegate);
+        compact(mutation);
+        if (journaled) {
+            journalLength++;
+        }
+    }
+
+    /**
+     * Estimates how much memory the wrapped machine takes, based on the amount of its
+     * transitions and the visited cells of its tape.
+     *
+     * @return The estimated amount of bytes.
+     */
+    long estimateWeight() {
+        long weight = BASE_WEIGHT + transitionCount * TRANSITION_WEIGHT;
+        if (!delegate.isUnbuilt()) {
+            final long cells = (long) delegate.getRightmostIndex()
+                    - delegate.getLeftmostIndex() + 1;
+            weight += cells * CELL_WEIGHT;
+        }
+        return weight;
+    }
+
+    /**
+     * Writes the current machine as the snapshot of the channel, if the journal
+     * contains any mutations, and closes the journal. Afterwards the machine can be
+     * dropped and restored quickly from the snapshot.
+     *
+     * @throws IOException Thrown if the snapshot cannot be written.
+     */
+    void spill() throws IOException {
+        close();
+        if (journalLength > 0 || dirty) {
+            rewrite();
+        }
+    }
+
+    /**
+     * Writes the current machine as the new snapshot of the channel and starts an empty
+     * journal. The journal has to be closed. Repeated steps are replaced by the current
+     * configuration if the machine can restore it.
+     *
+     * @throws IOException Thrown if the snapshot or the journal cannot be written.
+     */
+    private void rewrite() throws IOException {
+        if (!delegate.isUnbuilt() && configurationSteps != delegate.getStepCount()) {
+            final MachineConfiguration configuration = delegate.getConfiguration();
+            if (configuration != null) {
+                compact(Mutation.configuration(configuration));
+                configurationSteps = configuration.getSteps();
+            }
+        }
+
+        store.writeSnapshot(channel, generation + 1, mutations);
+        generation++;
+        store.createJournal(channel, generation).close();
+        journalLength = 0;
+        journalBytes = 0;
+        dirty = false;
+    }
+
+    /**
+     * Closes the journal. It is opened again if the machine is changed later.
+     *
+     * @throws IOException Thrown if the journal cannot be closed.
+     */
+    void close() throws IOException {
+        if (journal != null) {
+            final DataOutputStream out = journal;
+            journal = null;
+            out.close();
+        }
+    }
+
+    /**
+     * Appends a mutation of this machine to the journal and compacts the journal if it
+     * became too long. If the journal cannot be written, a new snapshot is written
+     * instead.
+     *
+     * @param mutation The mutation that was applied to the wrapped machine.
+     * @throws IllegalStateException Thrown if neither the journal nor a new snapshot
+     *                               could be written. The mutation stays applied and
+     *                               the next change tries to write the snapshot again.
+     */
+    private void record(Mutation mutation) {
+        compact(mutation);
+
+        try {
+            if (dirty) {
+                spill();
+                return;
+            }
+            append(mutation);
+        } catch (IOException e) {
+            // The journal misses the mutation, so it must not be continued.
+            dirty = true;
+            try {
+                spill();
+            } catch (IOException | RuntimeException retry) {
+                throw new IllegalStateException(
+                        "The Turing machine of this channel could not be saved: "
+                        + retry.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends a mutation to the journal and compacts the journal if it became too long.
+     *
+     * @param mutation The mutation that was applied to the wrapped machine.
+     * @throws IOException Thrown if the journal cannot be written.
+     */
+    private void append(Mutation mutation) throws IOException {
+        if (journal == null) {
+            journal = store.openJournal(channel, generation);
+        }
+        final int sizeBefore = journal.size();
+        mutation.write(journal);
+        journal.flush();
+        journalLength++;
+        journalBytes += journal.size() - sizeBefore;
+
+        if ((journalLength > COMPACTION_THRESHOLD
+                && journalLength > 2 * mutations.size())
+                || journalBytes > MAX_JOURNAL_BYTES) {
+            spill();
+        }
+    }
+
+    /**
+     * Adds a mutation to the list that restores the machine and removes the mutations
+     * it makes obsolete.
+     *
+     * @param mutation The new mutation.
+     */
+    private void compact(Mutation mutation) {
+        switch (mutation.type) {
+        case CLEAR:
+            mutations.clear();
+            transitionCount = 0;
+            configurationSteps = 0;
+            return;
+
+        case ADD_TRANSITION:
+            transitionCount++;
+            break;
+
+        case RESTART:
+            // Restarting returns to the state right after building.
+            mutations.removeIf(m -> m.type == Type.SEEK || m.type == Type.CONFIGURATION);
+            configurationSteps = 0;
+            return;
+
+        case SET_ACCEPTING_STATES:
+            mutations.removeIf(m -> m.type == Type.ADD_ACCEPTING_STATE
+                    || m.type == Type.SET_ACCEPTING_STATES);
+            break;
+
+        case SET_INPUT:
+        case SET_BLANK_SYMBOL:
+        case SET_EXECUTION_MODE:
+        case SET_OPTIMIZED:
+            mutations.removeIf(m -> m.type == mutation.type);
+            break;
+
+        case SEEK:
+            // The steps are repeated from the latest configuration.
+            mutations.removeIf(m -> m.type == Type.SEEK);
+            break;
+
+        case CONFIGURATION:
+            mutations.removeIf(m -> m.type == Type.SEEK || m.type == Type.CONFIGURATION);
+            configurationSteps = mutation.configuration.getSteps();
+            break;
+
+        default:
+            break;
+        }
+        mutations.add(mutation);
+    }
+
+    /**
+     * Records the step count of the machine if it changed, so the steps since the latest
+     * stored configuration are repeated when the machine is restored. The configuration
+     * itself is recorded instead if the machine went back before the stored
+     * configuration or too far beyond it, and the machine can restore configurations.
+     *
+     * @param stepsBefore The step count before the machine was run.
+     */
+    private void recordSteps(long stepsBefore) {
+        final long steps = delegate.getStepCount();
+        if (steps == stepsBefore) {
+            return;
+        }
+
+        if (steps < configurationSteps
+                || steps - configurationSteps > CONFIGURATION_INTERVAL) {
+            final MachineConfiguration configuration = delegate.getConfiguration();
+            if (configuration != null) {
+                record(Mutation.configuration(configuration));
+                return;
+            }
+        }
+        record(Mutation.of(Type.SEEK, steps));
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        record(Mutation.of(Type.CLEAR));
+    }
+
+    @Override
+    public void restart() {
+        delegate.restart();
+        record(Mutation.of(Type.RESTART));
+    }
+
+    @Override
+    public void build() {
+        delegate.build();
+        record(Mutation.of(Type.BUILD));
+    }
+
+    @Override
+    public boolean addTransition(Transition transition) {
+        final boolean added = delegate.addTransition(transition);
+        if (added) {
+            record(Mutation.addTransition(transition));
+        }
+        return added;
+    }
+
+    @Override
+    public boolean addAcceptingState(State state) {
+        final boolean added = delegate.addAcceptingState(state);
+        if (added) {
+            record(Mutation.states(Type.ADD_ACCEPTING_STATE, state));
+        }
+        return added;
+    }
+
+    @Override
+    public boolean setAcceptingStates(State... states) {
+        final boolean added = delegate.setAcceptingStates(states);
+        record(Mutation.states(Type.SET_ACCEPTING_STATES, states));
+        return added;
+    }
+
+    @Override
+    public boolean addInitialState(State state) {
+        final boolean added = delegate.addInitialState(state);
+        if (added) {
+            record(Mutation.states(Type.ADD_INITIAL_STATE, state));
+        }
+        return added;
+    }
+
+    @Override
+    public void setInput(String input) {
+        delegate.setInput(input);
+        record(Mutation.of(Type.SET_INPUT, input));
+    }
+
+    @Override
+    public void setBlankSymbol(BlankSymbol blank) {
+        delegate.setBlankSymbol(blank);
+        record(Mutation.of(Type.SET_BLANK_SYMBOL, blank.toString()));
+    }
+
+    @Override
+    public void setExecutionMode(ExecutionMode mode) {
+        delegate.setExecutionMode(mode);
+        record(Mutation.of(Type.SET_EXECUTION_MODE, mode.name()));
+    }
+
+    @Override
+    public ExecutionMode getExecutionMode() {
+        return delegate.getExecutionMode();
+    }
+
+    @Override
+    public void setOptimized(boolean optimized) {
+        delegate.setOptimized(optimized);
+        record(Mutation.of(Type.SET_OPTIMIZED, optimized ? 1 : 0));
+    }
+
+    @Override
+    public boolean isOptimized() {
+        return delegate.isOptimized();
+    }
+
+    @Override
+    public AnalysisResult getAnalysisResult() {
+        return delegate.getAnalysisResult();
+    }
+
+    @Override
+    public MachineDefinition getDefinition() {
+        return delegate.getDefinition();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Instead of appending each part of the definition to the journal, the new machine
+     * is written as a snapshot at once.
+     */
+    @Override
+    public void define(MachineDefinition definition) {
+        delegate.define(definition);
+        compact(Mutation.of(Type.CLEAR));
+        for (Mutation mutation : Mutation.define(definition)) {
+            compact(mutation);
+        }
+
+        try {
+            close();
+            rewrite();
+        } catch (IOException e) {
+            dirty = true;
+            throw new IllegalStateException(
+                    "The Turing machine of this channel could not be saved: "
+                    + e.getMessage());
+        }
+    }
+
+    @Override
+    public BlankSymbol getDefaultBlankSymbol() {
+        return delegate.getDefaultBlankSymbol();
+    }
+
+    @Override
+    public State getDefaultAcceptingState() {
+        return delegate.getDefaultAcceptingState();
+    }
+
+    @Override
+    public State getDefaultInitialState() {
+        return delegate.getDefaultInitialState();
+    }
+
+    @Override
+    public void performStep() {
+        final long steps = delegate.getStepCount();
+        try {
+            delegate.performStep();
+        } finally {
+            recordSteps(steps);
+        }
+    }
+
+    @Override
+    public RunResult run(long maxSteps) {
+        final long steps = delegate.getStepCount();
+        try {
+            return delegate.run(maxSteps);
+        } finally {
+            recordSteps(steps);
+        }
+    }
+
+    @Override
+    public RunResult run(long maxSteps, boolean detectCycles) {
+        final long steps = delegate.getStepCount();
+        try {
+            return delegate.run(maxSteps, detectCycles);
+        } finally {
+            recordSteps(steps);
+        }
+    }
+
+    @Override
+    public BatchResult evaluate(List<String> inputs, long maxSteps,
+            Consumer<Evaluation> listener, BooleanSupplier cancelled) {
+        return delegate.evaluate(inputs, maxSteps, listener, cancelled);
+    }
+
+    @Override
+    public EnumerationResult enumerate(String alphabet, int maxLength, long maxSteps,
+            Predicate<String> reference, int maxSamples, BooleanSupplier cancelled) {
+        return delegate.enumerate(alphabet, maxLength, maxSteps, reference, maxSamples,
+                cancelled);
+    }
+
+    @Override
+    public long getStepCount() {
+        return delegate.getStepCount();
+    }
+
+    @Override
+    public void stepBack(long steps) {
+        final long stepsBefore = delegate.getStepCount();
+        try {
+            delegate.stepBack(steps);
+        } finally {
+            recordSteps(stepsBefore);
+        }
+    }
+
+    @Override
+    public void seek(long step) {
+        final long steps = delegate.getStepCount();
+        try {
+            delegate.seek(step);
+        } finally {
+            recordSteps(steps);
+        }
+    }
+
+    @Override
+    public MachineConfiguration getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    @Override
+    public void setConfiguration(MachineConfiguration configuration) {
+        delegate.setConfiguration(configuration);
+        record(Mutation.configuration(configuration));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Deciders are not stored, so they are lost when the bot is restarted.
+     */
+    @Override
+    public void addNonHaltingDecider(NonHaltingDecider decider) {
+        delegate.addNonHaltingDecider(decider);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The copy is not journaled.
+     */
+    @Override
+    public TuringMachine fork() {
+        return delegate.fork();
+    }
+
+    @Override
+    public Deque<Symbol> getTapeContent() {
+        return delegate.getTapeContent();
+    }
+
+    @Override
+    public Stream<Symbol> streamTapeContent() {
+        return delegate.streamTapeContent();
+    }
+
+    @Override
+    public Stream<Symbol> streamTapeContent(int from, int to) {
+        return delegate.streamTapeContent(from, to);
+    }
+
+    @Override
+    public void appendTapeContent(StringBuilder builder, String separator) {
+        delegate.appendTapeContent(builder, separator);
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return delegate.getHeadIndex();
+    }
+
+    @Override
+    public int getLeftmostIndex() {
+        return delegate.getLeftmostIndex();
+    }
+
+    @Override
+    public int getRightmostIndex() {
+        return delegate.getRightmostIndex();
+    }
+
+    @Override
+    public State getCurrentState() {
+        return delegate.getCurrentState();
+    }
+
+    @Override
+    public boolean isAccepting() {
+        return delegate.isAccepting();
+    }
+
+    @Override
+    public boolean isDenying() {
+        return delegate.isDenying();
+    }
+
+    @Override
+    public boolean isUnbuilt() {
+        return delegate.isUnbuilt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public Deque<Symbol> getInput() {
+        return delegate.getInput();
+    }
+}
@@ -0,0 +1,547 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tim_greller.mr_turing.turing_machine.BlankSymbol;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineConfiguration;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TMState;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * A Turing machine in a compact binary format, which can be exchanged as a file. The
+ * archive contains the definition of the machine and, if it was built, its
+ * configuration, so it is restored directly without repeating its steps. The tape is
+ * stored as runs of identical symbols. Machines that cannot provide their configuration
+ * are restored in their initial configuration.
+ * <p>
+ * The file starts with a magic number, the version of the format and a byte of flags.
+ * All names of states and symbols are stored once in a table, and the rest of the file
+ * refers to them by their position in the table. Numbers are stored as variable-length
+ * integers, so small machines take only a few bytes per transition.
+ */
+public final class MachineArchive {
+
+    /** The number every archive starts with, "MRTM" in ASCII. */
+    private static final int MAGIC = 0x4D52544D;
+
+    /** The version of the format. */
+    private static final byte VERSION = 2;
+
+    /** The flag signalizing that the machine is optimized. */
+    private static final int OPTIMIZED = 1;
+
+    /** The flag signalizing that the machine has a custom blank symbol. */
+    private static final int CUSTOM_BLANK = 2;
+
+    /** The flag signalizing that the machine was built. */
+    private static final int BUILT = 4;
+
+    /** The flag signalizing that the configuration of the built machine is stored. */
+    private static final int CONFIGURATION = 8;
+
+    /** The tape motions, indexed by their number in the format. */
+    private static final TapeMove[] MOVES = TapeMove.values();
+
+    /** The statuses of machines, indexed by their number in the format. */
+    private static final TMState[] STATUSES = TMState.values();
+
+    /** The definition of the machine. */
+    private final MachineDefinition definition;
+
+    /** Whether the machine was built. */
+    private final boolean built;
+
+    /** The configuration of the built machine or {@code null} if it is not stored. */
+    private final MachineConfiguration configuration;
+
+    /**
+     * Creates a new archive.
+     *
+     * @param definition The definition of the machine.
+     * @param built Whether the machine was built.
+     * @param configuration The configuration of the built machine or {@code null} if
+     *                      it should be restored in its initial configuration.
+     */
+    public MachineArchive(MachineDefinition definition, boolean built,
+            MachineConfiguration configuration) {
+        if (configuration != null && !built) {
+            throw new IllegalArgumentException(
+                    "Only built machines have a configuration.");
+        }
+        this.definition = definition;
+        this.built = built;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Creates an archive of the given machine in its current configuration.
+     *
+     * @param tm The machine.
+     * @return The archive of the machine.
+     */
+    public static MachineArchive of(TuringMachine tm) {
+        final boolean built = !tm.isUnbuilt();
+        return new MachineArchive(tm.getDefinition(), built,
+                built ? tm.getConfiguration() : null);
+    }
+
+    /**
+     * Returns the definition of the machine.
+     *
+     * @return The definition.
+     */
+    public MachineDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Returns the configuration of the machine.
+     *
+     * @return The configuration or {@code null} if the machine was not built or its
+     *         configuration is not stored.
+     */
+    public MachineConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the amount of steps the machine performed.
+     *
+     * @return The step count, which is {@code 0} if the configuration is not stored,
+     *         or {@code -1} if the machine was not built.
+     */
+    public long getSteps() {
+        if (!built) {
+            return -1;
+        }
+        return (configuration == null) ? 0 : configuration.getSteps();
+    }
+
+    /**
+     * Replaces the given machine by the machine of this archive. If the archived
+     * machine was built, the given machine is built and its configuration is restored.
+     *
+     * @param tm The machine that should be replaced.
+     * @throws IllegalArgumentException Thrown if the machine does not accept the
+     *                                  definition or the configuration.
+     */
+    public void applyTo(TuringMachine tm) {
+        tm.define(definition);
+        if (built) {
+            tm.build();
+            if (configuration != null) {
+                tm.setConfiguration(configuration);
+            }
+        }
+    }
+
+    /**
+     * Encodes this archive in the binary format.
+     *
+     * @return The bytes of the archive.
+     */
+    public byte[] toBytes() {
+        final Map<String, Integer> names = new LinkedHashMap<>();
+        for (Transition transition : definition.getTransitions()) {
+            names.putIfAbsent(transition.currentState.getName(), names.size());
+            names.putIfAbsent(transition.scannedSymbol.toString(), names.size());
+            names.putIfAbsent(transition.printSymbol.toString(), names.size());
+            names.putIfAbsent(transition.nextState.getName(), names.size());
+        }
+        for (State state : definition.getInitialStates()) {
+            names.putIfAbsent(state.getName(), names.size());
+        }
+        for (State state : definition.getAcceptingStates()) {
+            names.putIfAbsent(state.getName(), names.size());
+        }
+        final BlankSymbol blank = definition.getBlankSymbol();
+        if (blank != null) {
+            names.putIfAbsent(blank.toString(), names.size());
+        }
+        if (configuration != null) {
+            names.putIfAbsent(configuration.getState().getName(), names.size());
+            for (Symbol symbol : configuration.getRunSymbols()) {
+                names.putIfAbsent(symbol.toString(), names.size());
+            }
+        }
+
+        int flags = 0;
+        flags |= definition.isOptimized() ? OPTIMIZED : 0;
+        flags |= (blank != null) ? CUSTOM_BLANK : 0;
+        flags |= built ? BUILT : 0;
+        flags |= (configuration != null) ? CONFIGURATION : 0;
+
+        final int runs = (configuration == null) ? 0 : configuration.getRunCount();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64
+                + 8 * names.size() + 8 * definition.getTransitions().size() + 8 * runs);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(flags);
+            writeString(out, definition.getExecutionMode().name());
+
+            writeNumber(out, names.size());
+            for (String name : names.keySet()) {
+                writeString(out, name);
+            }
+            if (blank != null) {
+                writeNumber(out, names.get(blank.toString()));
+            }
+            writeStates(out, names, definition.getInitialStates());
+            writeStates(out, names, definition.getAcceptingStates());
+            writeString(out, definition.getInput());
+
+            writeNumber(out, definition.getTransitions().size());
+            for (Transition transition : definition.getTransitions()) {
+                writeNumber(out, names.get(transition.currentState.getName()));
+                writeNumber(out, names.get(transition.scannedSymbol.toString()));
+                writeNumber(out, names.get(transition.printSymbol.toString()));
+                out.writeByte(transition.tapeMotion.ordinal());
+                writeNumber(out, names.get(transition.nextState.getName()));
+            }
+
+            if (configuration != null) {
+                writeConfiguration(out, names);
+            }
+        } catch (IOException e) {
+            throw new AssertionError("Writing to memory cannot fail.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an archive from the binary format.
+     *
+     * @param bytes The bytes of the archive.
+     * @return The decoded archive.
+     * @throws IOException Thrown if the bytes are no valid archive.
+     */
+    public static MachineArchive fromBytes(byte[] bytes) throws IOException {
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (EOFException e) {
+            throw new IOException("The file ends unexpectedly.");
+        }
+    }
+
+    /**
+     * Reads an archive in the binary format.
+     *
+     * @param in The input of the archive.
+     * @return The decoded archive.
+     * @throws IOException Thrown if the input is no valid archive.
+     */
+    private static MachineArchive read(DataInputStream in) throws IOException {
+        if (in.available() < Integer.BYTES + 2 || in.readInt() != MAGIC) {
+            throw new IOException("The file does not contain a Turing machine.");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + ".");
+        }
+        final int flags = in.readUnsignedByte();
+        final ExecutionMode mode;
+        try {
+            mode = ExecutionMode.valueOf(readString(in));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown execution mode.");
+        }
+
+        final String[] names = new String[readCount(in)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString(in);
+        }
+        final State[] states = new State[names.length];
+        final Symbol[] symbols = new Symbol[names.length];
+
+        final BlankSymbol blank = ((flags & CUSTOM_BLANK) != 0)
+                ? new BlankSymbol(names[readIndex(in, names.length)])
+                : null;
+        final List<State> initialStates = readStates(in, names, states);
+        final List<State> acceptingStates = readStates(in, names, states);
+        final String input = readString(in);
+
+        final int transitionCount = readCount(in);
+        final List<Transition> transitions = new ArrayList<>(transitionCount);
+        for (int i = 0; i < transitionCount; i++) {
+            final State current = state(names, states, readIndex(in, names.length));
+            final Symbol scanned = symbol(names, symbols, readIndex(in, names.length));
+            final Symbol print = symbol(names, symbols, readIndex(in, names.length));
+            final int move = in.readUnsignedByte();
+            if (move >= MOVES.length) {
+                throw new IOException("Unknown tape motion " + move + ".");
+            }
+            final State next = state(names, states, readIndex(in, names.length));
+            transitions.add(new Transition(current, scanned, print, MOVES[move], next));
+        }
+
+        final boolean built = (flags & BUILT) != 0;
+        if ((flags & CONFIGURATION) != 0 && !built) {
+            throw new IOException("The configuration of an unbuilt machine is stored.");
+        }
+        final MachineConfiguration configuration = ((flags & CONFIGURATION) != 0)
+                ? readConfiguration(in, names, states, symbols)
+                : null;
+        if (in.available() > 0) {
+            throw new IOException("The file contains unexpected data at its end.");
+        }
+
+        return new MachineArchive(new MachineDefinition(transitions, initialStates,
+                acceptingStates, blank, input, mode, (flags & OPTIMIZED) != 0), built,
+                configuration);
+    }
+
+    /**
+     * Writes the configuration of the machine. Its status, step count and state are
+     * followed by the visited part of the tape: The distances of the head and the
+     * most left visited cell from the cell with index 0 and the runs of identical
+     * symbols, from left to right.
+     *
+     * @param out The output of the archive.
+     * @param names The positions of the names.
+     * @throws IOException Thrown if the configuration cannot be written.
+     */
+    private void writeConfiguration(DataOutputStream out, Map<String, Integer> names)
+            throws IOException {
+        out.writeByte(configuration.getStatus().ordinal());
+        writeNumber(out, configuration.getSteps());
+        writeNumber(out, names.get(configuration.getState().getName()));
+        writeNumber(out, (long) configuration.getHeadIndex()
+                - configuration.getLeftmostIndex());
+        writeNumber(out, -(long) configuration.getLeftmostIndex());
+
+        final List<Symbol> symbols = configuration.getRunSymbols();
+        writeNumber(out, symbols.size());
+        for (int run = 0; run < symbols.size(); run++) {
+            writeNumber(out, names.get(symbols.get(run).toString()));
+            writeNumber(out, configuration.getRunLength(run));
+        }
+    }
+
+    /**
+     * Reads a configuration written by
+     * {@link #writeConfiguration(DataOutputStream, Map)}.
+     *
+     * @param in The input of the archive.
+     * @param names The table of names.
+     * @param states The states that were created for the names so far.
+     * @param symbols The symbols that were created for the names so far.
+     * @return The configuration.
+     * @throws IOException Thrown if the configuration is invalid.
+     */
+    private static MachineConfiguration readConfiguration(DataInputStream in,
+            String[] names, State[] states, Symbol[] symbols) throws IOException {
+        final int ordinal = in.readUnsignedByte();
+        if (ordinal >= STATUSES.length) {
+            throw new IOException("Unknown status " + ordinal + ".");
+        }
+        final long steps = readNumber(in);
+        final State state = state(names, states, readIndex(in, names.length));
+        final long headOffset = readNumber(in);
+        final long leftmostDistance = readNumber(in);
+        if (headOffset > Integer.MAX_VALUE || leftmostDistance > Integer.MAX_VALUE) {
+            throw new IOException("Invalid head position.");
+        }
+
+        final int runs = readCount(in);
+        final List<Symbol> runSymbols = new ArrayList<>(runs);
+        final int[] runLengths = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            runSymbols.add(symbol(names, symbols, readIndex(in, names.length)));
+            final long length = readNumber(in);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid run length " + length + ".");
+            }
+            runLengths[run] = (int) length;
+        }
+
+        try {
+            return new MachineConfiguration(STATUSES[ordinal], steps, state,
+                    (int) (headOffset - leftmostDistance), (int) -leftmostDistance,
+                    runSymbols, runLengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid configuration: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a list of states as their positions in the table of names.
+     *
+     * @param out The output of the archive.
+     * @param names The positions of the names.
+     * @param states The states.
+     * @throws IOException Thrown if the states cannot be written.
+     */
+    private static void writeStates(DataOutputStream out, Map<String, Integer> names,
+            List<State> states) throws IOException {
+        writeNumber(out, states.size());
+        for (State state : states) {
+            writeNumber(out, names.get(state.getName()));
+        }
+    }
+
+    /**
+     * Reads a list of states written by
+     * {@link #writeStates(DataOutputStream, Map, List)}.
+     *
+     * @param in The input of the archive.
+     * @param names The table of names.
+     * @param states The states that were created for the names so far.
+     * @return The states.
+     * @throws IOException Thrown if the states are invalid.
+     */
+    private static List<State> readStates(DataInputStream in, String[] names,
+            State[] states) throws IOException {
+        final int count = readCount(in);
+        final List<State> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(state(names, states, readIndex(in, names.length)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the state with the name at the given position, creating it only once.
+     *
+     * @param names The table of names.
+     * @param states The states that were created for the names so far.
+     * @param index The position of the name.
+     * @return The state.
+     */
+    private static State state(String[] names, State[] states, int index) {
+        if (states[index] == null) {
+            states[index] = new State(names[index]);
+        }
+        return states[index];
+    }
+
+    /**
+     * Returns the symbol with the name at the given position, creating it only once.
+     *
+     * @param names The table of names.
+     * @param symbols The symbols that were created for the names so far.
+     * @param index The position of the name.
+     * @return The symbol.
+     */
+    private static Symbol symbol(String[] names, Symbol[] symbols, int index) {
+        if (symbols[index] == null) {
+            symbols[index] = new Symbol(names[index]);
+        }
+        return symbols[index];
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param out The output of the archive.
+     * @param string The string.
+     * @throws IOException Thrown if the string cannot be written.
+     */
+    private static void writeString(DataOutputStream out, String string)
+            throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeNumber(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in The input of the archive.
+     * @return The string.
+     * @throws IOException Thrown if the string is invalid.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a non-negative number using seven bits per byte. The highest bit of each
+     * byte signalizes whether another byte follows.
+     *
+     * @param out The output of the archive.
+     * @param number The number.
+     * @throws IOException Thrown if the number cannot be written.
+     */
+    private static void writeNumber(DataOutputStream out, long number)
+            throws IOException {
+        while ((number & ~0x7FL) != 0) {
+            out.writeByte((int) (number & 0x7F) | 0x80);
+            number >>>= 7;
+        }
+        out.writeByte((int) number);
+    }
+
+    /**
+     * Reads a number written by {@link #writeNumber(DataOutputStream, long)}.
+     *
+     * @param in The input of the archive.
+     * @return The number.
+     * @throws IOException Thrown if the number is invalid.
+     */
+    private static long readNumber(DataInputStream in) throws IOException {
+        long number = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final int part = in.readUnsignedByte();
+            number |= (long) (part & 0x7F) << shift;
+            if ((part & 0x80) == 0) {
+                if (number < 0) {
+                    break;
+                }
+                return number;
+            }
+        }
+        throw new IOException("Invalid number.");
+    }
+
+    /**
+     * Reads the amount of following elements. Each element takes at least one byte, so
+     * a count that exceeds the remaining bytes is rejected before anything is
+     * allocated.
+     *
+     * @param in The input of the archive.
+     * @return The amount of elements.
+     * @throws IOException Thrown if the count is invalid.
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        final long count = readNumber(in);
+        if (count > in.available()) {
+            throw new IOException("Invalid count " + count + ".");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Reads a position in the table of names.
+     *
+     * @param in The input of the archive.
+     * @param size The size of the table.
+     * @return The position.
+     * @throws IOException Thrown if the position is outside of the table.
+     */
+    private static int readIndex(DataInputStream in, int size) throws IOException {
+        final long index = readNumber(in);
+        if (index >= size) {
+            throw new IOException("Invalid name " + index + ".");
+        }
+        return (int) index;
+    }
+}
@@ -0,0 +1,279 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps the Turing machines of the recently active channels in memory. The amount of
+ * machines and their estimated memory usage are limited, and machines that were not
+ * used for a while are dropped as well. The least recently used machines are dropped
+ * first.
+ * <p>
+ * A dropped machine is spilled to its {@link MachineStore} as a snapshot and loaded
+ * again when its channel uses the bot the next time. Machines are never dropped while
+ * they are acquired, so a command can use its machine without interruption while other
+ * channels acquire theirs.
+ * <p>
+ * The bookkeeping is synchronized, but loading and spilling machines is not, so a
+ * channel whose machine is read from disk does not delay the other channels. While a
+ * machine is loaded, its entry holds a future that other acquirers of the same channel
+ * wait for. While a machine is spilled, loading it again waits until the spilling
+ * completed.
+ * <p>
+ * Machines are dropped whenever a machine is acquired. Idle machines of a quiet bot are
+ * dropped by {@link #sweep() sweeps}, which can be repeated periodically using
+ * {@link #startSweeping(Duration)}.
+ */
+public class MachineCache {
+
+    /** The store the machines are loaded from and spilled to. */
+    private final MachineStore store;
+
+    /** The maximum amount of machines in memory. */
+    private final int maxMachines;
+
+    /** The maximum estimated amount of bytes the machines in memory take together. */
+    private final long maxWeight;
+
+    /** The time after which an unused machine is dropped. */
+    private final Duration maxIdle;
+
+    /** The machines in memory, from the least to the most recently used one. */
+    private final Map<Snowflake, Entry> machines = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The machines that are spilled currently, completed once they were spilled. */
+    private final Map<Snowflake, CompletableFuture<Void>> spills = new HashMap<>();
+
+    /**
+     * A machine in memory together with the time it was used last.
+     */
+    private static class Entry {
+
+        /** The machine of the channel, which is completed once it was loaded. */
+        final CompletableFuture<JournaledTuringMachine> tm = new CompletableFuture<>();
+
+        /** The time the machine was used last in nanoseconds. */
+        long lastUse;
+
+        /** How often the machine is acquired currently. */
+        int users;
+
+        /**
+         * The estimated amount of bytes the machine took when it was released last.
+         * Machines in use are not inspected, because they are changed concurrently.
+         */
+        long weight;
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param store The store the machines are loaded from and spilled to.
+     * @param maxMachines The maximum amount of machines in memory.
+     * @param maxWeight The maximum estimated amount of bytes of all machines in memory.
+     * @param maxIdle The time after which an unused machine is dropped.
+     */
+    public MachineCache(MachineStore store, int maxMachines, long maxWeight,
+            Duration maxIdle) {
+        if (maxMachines < 1) {
+            throw new IllegalArgumentException("At least one machine has to fit.");
+        }
+        this.store = store;
+        this.maxMachines = maxMachines;
+        this.maxWeight = maxWeight;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the Turing machine of the given channel, loading it from the store if it
+     * is not in memory. Other machines are dropped if the limits are exceeded. The
+     * returned machine is not dropped until it was {@link #release(Snowflake) released},
+     * even if it exceeds the limits on its own.
+     * <p>
+     * The machine is loaded and the other machines are spilled without holding the lock
+     * of the cache, so only acquirers of the same channel wait for the loading.
+     *
+     * @param channel The channel whose machine is requested.
+     * @return The machine of the channel.
+     */
+    TuringMachine acquire(Snowflake channel) {
+        final Entry entry;
+        final boolean load;
+        final CompletableFuture<Void> pendingSpill;
+        final List<Map.Entry<Snowflake, Entry>> evicted;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            final Entry cached = machines.get(channel);
+            load = (cached == null);
+            entry = load ? new Entry() : cached;
+            pendingSpill = load ? spills.get(channel) : null;
+            if (load) {
+                machines.put(channel, entry);
+            }
+            entry.lastUse = now;
+            entry.users++;
+            evicted = evict(now);
+        }
+
+        if (load) {
+            try {
+                if (pendingSpill != null) {
+                    pendingSpill.join();
+                }
+                final JournaledTuringMachine tm = store.open(channel);
+                synchronized (this) {
+                    entry.weight = tm.estimateWeight();
+                }
+                entry.tm.complete(tm);
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    machines.remove(channel, entry);
+                }
+                entry.tm.completeExceptionally(e);
+            }
+        }
+        spill(evicted);
+
+        try {
+            return entry.tm.join();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entry.users--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the machines that were not used for too long and the least recently used
+     * ones if the limits are exceeded, like {@link #acquire(Snowflake)} does. The
+     * machines are spilled without holding the lock of the cache.
+     */
+    void sweep() {
+        final List<Map.Entry<Snowflake, Entry>> evicted;
+        synchronized (this) {
+            evicted = evict(System.nanoTime());
+        }
+        spill(evicted);
+    }
+
+    /**
+     * Starts to {@link #sweep() sweep} the cache periodically in the background.
+     *
+     * @param interval The time between two sweeps.
+     * @return Stops the sweeps when disposed.
+     */
+    public Disposable startSweeping(Duration interval) {
+        return Flux.interval(interval, interval, Schedulers.boundedElastic())
+                .subscribe(tick -> {
+                    try {
+                        sweep();
+                    } catch (RuntimeException e) {
+                        // The next sweep tries again.
+                        System.err.println("The machine cache could not be swept: " + e);
+                    }
+                });
+    }
+
+    /**
+     * Signals that a machine returned by {@link #acquire(Snowflake)} is no longer used,
+     * so it can be dropped again.
+     *
+     * @param channel The channel of the machine.
+     */
+    synchronized void release(Snowflake channel) {
+        final Entry entry = machines.get(channel);
+        if (entry != null && entry.users > 0 && entry.tm.isDone()
+                && !entry.tm.isCompletedExceptionally()) {
+            entry.users--;
+            entry.lastUse = System.nanoTime();
+            entry.weight = entry.tm.join().estimateWeight();
+        }
+    }
+
+    /**
+     * Returns the amount of machines in memory.
+     *
+     * @return The amount of cached machines.
+     */
+    synchronized int size() {
+        return machines.size();
+    }
+
+    /**
+     * Removes the least recently used machines that are not acquired until the limits
+     * are met or only acquired machines are left. The removed machines have to be
+     * {@link #spill(List) spilled} afterwards, which is registered already, so loading
+     * them again waits for it.
+     *
+     * @param now The current time in nanoseconds.
+     * @return The removed machines together with their channels.
+     */
+    private List<Map.Entry<Snowflake, Entry>> evict(long now) {
+        final List<Map.Entry<Snowflake, Entry>> evicted = new ArrayList<>();
+        long weight = 0;
+        for (Entry entry : machines.values()) {
+            weight += entry.weight;
+        }
+
+        final Iterator<Map.Entry<Snowflake, Entry>> iterator =
+                machines.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Snowflake, Entry> eldest = iterator.next();
+            final Entry entry = eldest.getValue();
+            final boolean idle = now - entry.lastUse > maxIdle.toNanos();
+
+            if (!idle && machines.size() <= maxMachines && weight <= maxWeight) {
+                break;
+            }
+            if (entry.users > 0) {
+                continue;
+            }
+
+            weight -= entry.weight;
+            iterator.remove();
+            evicted.add(Map.entry(eldest.getKey(), entry));
+            spills.put(eldest.getKey(), new CompletableFuture<>());
+        }
+        return evicted;
+    }
+
+    /**
+     * Spills machines removed by {@link #evict(long)} to the store and signals the
+     * completion to the acquirers that wait to load them again. Must be called without
+     * holding the lock of the cache.
+     *
+     * @param evicted The removed machines together with their channels.
+     */
+    private void spill(List<Map.Entry<Snowflake, Entry>> evicted) {
+        for (Map.Entry<Snowflake, Entry> machine : evicted) {
+            final Snowflake channel = machine.getKey();
+            try {
+                machine.getValue().tm.join().spill();
+            } catch (IOException e) {
+                // The journal still contains every change, only loading takes longer.
+                System.err.println("The Turing machine of channel "
+                        + channel.asString() + " could not be spilled: " + e);
+            } finally {
+                final CompletableFuture<Void> done;
+                synchronized (this) {
+                    done = spills.remove(channel);
+                }
+                done.complete(null);
+            }
+        }
+    }
+}
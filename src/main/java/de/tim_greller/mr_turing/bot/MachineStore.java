@@ -0,0 +1,311 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.tim_greller.mr_turing.turing_machine.DeterministicTuringMachine;
+import discord4j.common.util.Snowflake;
+
+/**
+ * Stores the Turing machines of the channels in a directory, so they survive restarts
+ * of the bot. Each channel has a snapshot, containing the mutations that restore its
+ * machine, and a journal, containing the mutations since the snapshot was written.
+ * <p>
+ * Machines are only loaded when their channel uses the bot for the first time after a
+ * start, so starting the bot takes the same time no matter how many channels are
+ * stored.
+ * <p>
+ * Both files start with the same header: a magic number, the version of the format and
+ * the generation of the snapshot. A journal only continues the snapshot of the same
+ * generation, so a journal that was not reset after a new snapshot was written is
+ * ignored. Mutations at the end of the journal that were not written completely are
+ * discarded.
+ * <p>
+ * If a stored mutation cannot be applied, for example because the machine behaves
+ * differently after an update of the bot, the machine keeps the state before it. The
+ * journal is truncated at the failed mutation. A failed mutation of the snapshot
+ * replaces the snapshot by the mutations before it and discards the journal, and the
+ * original files are kept for inspection.
+ */
+public class MachineStore {
+
+    /** The number every file of the store starts with, "MRTJ" in ASCII. */
+    private static final int MAGIC = 0x4D52544A;
+
+    /** The version of the file format. */
+    private static final byte VERSION = 1;
+
+    /** The length of the header of the files in bytes. */
+    private static final int HEADER_LENGTH = Integer.BYTES + Byte.BYTES + Long.BYTES;
+
+    /** The directory containing the files of all channels. */
+    private final Path directory;
+
+    /**
+     * Creates a new store. The directory is created as soon as the first machine is
+     * stored.
+     *
+     * @param directory The directory containing the files of all channels.
+     */
+    public MachineStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the Turing machine of the given channel. If nothing was stored for the
+     * channel, a new deterministic Turing machine is returned. If the stored files
+     * cannot be read at all, they are renamed, so they are kept for inspection, and a
+     * new machine is returned as well.
+     *
+     * @param channel The channel whose machine should be loaded.
+     * @return The machine, which stores its changes in this store.
+     */
+    JournaledTuringMachine open(Snowflake channel) {
+        try {
+            return load(channel);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("The Turing machine of channel " + channel.asString()
+                    + " could not be loaded: " + e);
+            try {
+                moveAside(snapshotFile(channel));
+                moveAside(journalFile(channel));
+            } catch (IOException ignored) {
+                // The next compaction overwrites the files anyway.
+            }
+            return new JournaledTuringMachine(
+                    new DeterministicTuringMachine(), this, channel, 0);
+        }
+    }
+
+    /**
+     * Loads the snapshot and the journal of a channel and restores its machine.
+     *
+     * @param channel The channel whose machine should be loaded.
+     * @return The restored machine.
+     * @throws IOException Thrown if the files cannot be read or are invalid.
+     */
+    private JournaledTuringMachine load(Snowflake channel) throws IOException {
+        final Path snapshotFile = snapshotFile(channel);
+        final Path journalFile = journalFile(channel);
+
+        long generation = 0;
+        final List<Mutation> snapshot = new ArrayList<>();
+        if (Files.exists(snapshotFile)) {
+            final DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(Files.readAllBytes(snapshotFile)));
+            generation = readHeader(in);
+            while (in.available() > 0) {
+                snapshot.add(Mutation.read(in));
+            }
+        }
+
+        final JournaledTuringMachine tm = new JournaledTuringMachine(
+                new DeterministicTuringMachine(), this, channel, generation);
+        for (int i = 0; i < snapshot.size(); i++) {
+            try {
+                tm.replay(snapshot.get(i), false);
+            } catch (RuntimeException e) {
+                System.err.println("The snapshot of channel " + channel.asString()
+                        + " could not be replayed past mutation " + i + ": " + e);
+                Files.copy(snapshotFile, corruptFile(snapshotFile),
+                        StandardCopyOption.REPLACE_EXISTING);
+                moveAside(journalFile);
+                writeSnapshot(channel, generation + 1, snapshot.subList(0, i));
+                createJournal(channel, generation + 1).close();
+                return load(channel);
+            }
+        }
+
+        if (Files.exists(journalFile)) {
+            final byte[] bytes = Files.readAllBytes(journalFile);
+            final DataInputStream in =
+                    new DataInputStream(new ByteArrayInputStream(bytes));
+
+            if (bytes.length < HEADER_LENGTH || readHeader(in) != generation) {
+                // The journal belongs to an older snapshot, which already contains it.
+                createJournal(channel, generation).close();
+                return tm;
+            }
+
+            int valid = HEADER_LENGTH;
+            boolean failed = false;
+            while (in.available() > 0) {
+                final Mutation mutation;
+                try {
+                    mutation = Mutation.read(in);
+                } catch (IOException e) {
+                    break;
+                }
+                try {
+                    tm.replay(mutation, true);
+                } catch (RuntimeException e) {
+                    System.err.println("The journal of channel " + channel.asString()
+                            + " could not be replayed past byte " + valid + ": " + e);
+                    failed = true;
+                    break;
+                }
+                valid = bytes.length - in.available();
+            }
+
+            if (valid < bytes.length) {
+                try (FileChannel file = FileChannel.open(journalFile,
+                        StandardOpenOption.WRITE)) {
+                    file.truncate(valid);
+                }
+            }
+            if (failed) {
+                // The failed mutation may have been applied partially, so the ones
+                // before it are replayed on a new machine.
+                return load(channel);
+            }
+        }
+
+        return tm;
+    }
+
+    /**
+     * Opens the journal of a channel to append mutations to it. The journal is created
+     * if it does not exist yet.
+     *
+     * @param channel The channel of the journal.
+     * @param generation The generation of the current snapshot of the channel.
+     * @return The stream appending to the journal.
+     * @throws IOException Thrown if the journal cannot be opened.
+     */
+    DataOutputStream openJournal(Snowflake channel, long generation) throws IOException {
+        final Path file = journalFile(channel);
+        if (!Files.exists(file)) {
+            return createJournal(channel, generation);
+        }
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Creates an empty journal for a channel, replacing the existing one.
+     *
+     * @param channel The channel of the journal.
+     * @param generation The generation of the snapshot the journal continues.
+     * @return The stream appending to the journal.
+     * @throws IOException Thrown if the journal cannot be created.
+     */
+    DataOutputStream createJournal(Snowflake channel, long generation)
+            throws IOException {
+        Files.createDirectories(directory);
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(journalFile(channel))));
+        writeHeader(out, generation);
+        out.flush();
+        return out;
+    }
+
+    /**
+     * Replaces the snapshot of a channel. The snapshot is written to a temporary file
+     * first, so a crash never leaves an incomplete snapshot behind.
+     *
+     * @param channel The channel of the snapshot.
+     * @param generation The generation of the new snapshot.
+     * @param mutations The mutations that restore the machine of the channel.
+     * @throws IOException Thrown if the snapshot cannot be written.
+     */
+    void writeSnapshot(Snowflake channel, long generation, List<Mutation> mutations)
+            throws IOException {
+        Files.createDirectories(directory);
+        final Path file = snapshotFile(channel);
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary)))) {
+            writeHeader(out, generation);
+            for (Mutation mutation : mutations) {
+                mutation.write(out);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the header of a file.
+     *
+     * @param out The output of the file.
+     * @param generation The generation of the snapshot.
+     * @throws IOException Thrown if the header cannot be written.
+     */
+    private static void writeHeader(DataOutputStream out, long generation)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(generation);
+    }
+
+    /**
+     * Reads and checks the header of a file.
+     *
+     * @param in The input of the file.
+     * @return The generation of the snapshot.
+     * @throws IOException Thrown if the header is invalid.
+     */
+    private static long readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The file does not belong to the machine store.");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + ".");
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Renames a file that cannot be read, if it exists.
+     *
+     * @param file The file.
+     * @throws IOException Thrown if the file cannot be renamed.
+     */
+    private static void moveAside(Path file) throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, corruptFile(file), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the path a file that cannot be read is kept at for inspection.
+     *
+     * @param file The file.
+     * @return The path of the kept file.
+     */
+    private static Path corruptFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".corrupt");
+    }
+
+    /**
+     * Returns the snapshot file of a channel.
+     *
+     * @param channel The channel.
+     * @return The path of the snapshot.
+     */
+    private Path snapshotFile(Snowflake channel) {
+        return directory.resolve(channel.asString() + ".snapshot");
+    }
+
+    /**
+     * Returns the journal file of a channel.
+     *
+     * @param channel The channel.
+     * @return The path of the journal.
+     */
+    private Path journalFile(Snowflake channel) {
+        return directory.resolve(channel.asString() + ".journal");
+    }
+}
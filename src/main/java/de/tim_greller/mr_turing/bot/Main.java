@@ -1,5 +1,8 @@
 package de.tim_greller.mr_turing.bot;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 import de.tim_greller.mr_turing.bot.commands.*;
 
 /**
@@ -30,7 +33,13 @@ public class Main {
      * @return The fully configured bot, ready to be logged in.
      */
     private static Bot createBot(String token) {
-        Bot bot = new Bot(token);
+        final MachineCache machines = new MachineCache(new MachineStore(
+                Path.of("machines")), 1_000, 256L << 20, Duration.ofHours(1));
+        machines.startSweeping(Duration.ofMinutes(5));
+        Bot bot = new Bot(token, machines);
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final RunScheduler runs = new RunScheduler(processors, 1_000_000,
+                Duration.ofSeconds(30), 2, Duration.ofMinutes(5), Duration.ofHours(1));
         
         bot.addCommands(
             new TuringMachineCreationCommand(),
@@ -39,9 +48,18 @@ public class Main {
             new BuildTuringMachineCommand(),
             new PrintConfigurationCommand(),
             new DoStepCommand(),
-            new RunTuringMachineCommand(200),
+            new StepBackCommand(),
+            new RunTuringMachineCommand(runs, 100_000_000, Duration.ofSeconds(3)),
+            new CancelRunCommand(runs),
+            new QuotaCommand(runs),
+            new RunBatchCommand(runs, 100_000, 500_000),
+            new EnumerateLanguageCommand(runs, 10_000, 1_000_000),
+            new BusyBeaverCommand(runs, Path.of("busy-beaver"), 6, 10_000),
             new SetAcceptingStatesCommand(),
-            new SetBlankSymbolCommand()
+            new SetBlankSymbolCommand(),
+            new SetExecutionModeCommand(),
+            new ExportMachineCommand(),
+            new ImportMachineCommand(8 << 20, 16 << 20)
         );
         
         return bot;
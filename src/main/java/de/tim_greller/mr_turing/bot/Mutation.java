@@ -0,0 +1,427 @@
+package de.tim_greller.mr_turing.bot;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tim_greller.mr_turing.turing_machine.BlankSymbol;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineConfiguration;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TMState;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * A single change of a Turing machine, as it is stored in the journal and the snapshot
+ * of a channel. Applying all mutations of a channel in order to a new Turing machine
+ * restores the machine of the channel.
+ * <p>
+ * A mutation is stored as the ordinal of its type followed by its arguments, each one
+ * as its length and its UTF-8 bytes, and a number. A {@link Type#CONFIGURATION} is
+ * followed by the head index, the index of the most left visited cell, the amount of
+ * runs of the tape and the symbol and length of each run. Its arguments are the status,
+ * the current state and the symbols the runs refer to by their position.
+ */
+final class Mutation {
+
+    /**
+     * The kinds of changes. The order of the constants is part of the file format, so
+     * new types have to be appended.
+     */
+    enum Type {
+        /** {@link TuringMachine#clear()}. */
+        CLEAR,
+        /** {@link TuringMachine#addTransition(Transition)}. */
+        ADD_TRANSITION,
+        /** {@link TuringMachine#addAcceptingState(State)}. */
+        ADD_ACCEPTING_STATE,
+        /** {@link TuringMachine#setAcceptingStates(State...)}. */
+        SET_ACCEPTING_STATES,
+        /** {@link TuringMachine#addInitialState(State)}. */
+        ADD_INITIAL_STATE,
+        /** {@link TuringMachine#setInput(String)}. */
+        SET_INPUT,
+        /** {@link TuringMachine#setBlankSymbol(BlankSymbol)}. */
+        SET_BLANK_SYMBOL,
+        /** {@link TuringMachine#setExecutionMode(ExecutionMode)}. */
+        SET_EXECUTION_MODE,
+        /** {@link TuringMachine#setOptimized(boolean)}. */
+        SET_OPTIMIZED,
+        /** {@link TuringMachine#build()}. */
+        BUILD,
+        /** {@link TuringMachine#restart()}. */
+        RESTART,
+        /**
+         * Steps or goes back until the TM performed the given amount of steps, starting
+         * from the latest {@link #CONFIGURATION} if there is one.
+         */
+        SEEK,
+        /** {@link TuringMachine#setConfiguration(MachineConfiguration)}. */
+        CONFIGURATION
+    }
+
+    /** All types, indexed by their ordinal. */
+    private static final Type[] TYPES = Type.values();
+
+    /** The kind of this change. */
+    final Type type;
+
+    /** The names of the states and symbols or the input word of this change. */
+    private final String[] arguments;
+
+    /**
+     * The step count of a {@link Type#SEEK} or the flag of a {@link Type#SET_OPTIMIZED}.
+     */
+    private final long value;
+
+    /** The configuration of a {@link Type#CONFIGURATION} or {@code null}. */
+    final MachineConfiguration configuration;
+
+    /**
+     * Creates a new mutation.
+     *
+     * @param type The kind of the change.
+     * @param value The number of the change or {@code 0}.
+     * @param arguments The textual arguments of the change.
+     */
+    private Mutation(Type type, long value, String... arguments) {
+        this(type, value, null, arguments);
+    }
+
+    /**
+     * Creates a new mutation with a configuration.
+     *
+     * @param type The kind of the change.
+     * @param value The number of the change or {@code 0}.
+     * @param configuration The configuration of the change or {@code null}.
+     * @param arguments The textual arguments of the change.
+     */
+    private Mutation(Type type, long value, MachineConfiguration configuration,
+            String... arguments) {
+        this.type = type;
+        this.value = value;
+        this.configuration = configuration;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Creates a mutation without arguments, like {@link Type#BUILD}.
+     *
+     * @param type The kind of the change.
+     * @return The mutation.
+     */
+    static Mutation of(Type type) {
+        return new Mutation(type, 0);
+    }
+
+    /**
+     * Creates a mutation that adds a transition.
+     *
+     * @param transition The added transition.
+     * @return The mutation.
+     */
+    static Mutation addTransition(Transition transition) {
+        return new Mutation(Type.ADD_TRANSITION, 0,
+                transition.currentState.getName(),
+                transition.scannedSymbol.toString(),
+                transition.printSymbol.toString(),
+                transition.tapeMotion.name(),
+                transition.nextState.getName());
+    }
+
+    /**
+     * Creates a mutation that restores a configuration.
+     *
+     * @param configuration The configuration.
+     * @return The mutation.
+     */
+    static Mutation configuration(MachineConfiguration configuration) {
+        return new Mutation(Type.CONFIGURATION, 0, configuration);
+    }
+
+    /**
+     * Creates the mutations that restore a whole definition on a cleared machine.
+     *
+     * @param definition The definition.
+     * @return The mutations in the order they have to be applied.
+     */
+    static List<Mutation> define(MachineDefinition definition) {
+        final List<Mutation> mutations =
+                new ArrayList<>(definition.getTransitions().size() + 6);
+        for (Transition transition : definition.getTransitions()) {
+            mutations.add(addTransition(transition));
+        }
+        for (State state : definition.getInitialStates()) {
+            mutations.add(states(Type.ADD_INITIAL_STATE, state));
+        }
+        if (!definition.getAcceptingStates().isEmpty()) {
+            mutations.add(states(Type.SET_ACCEPTING_STATES,
+                    definition.getAcceptingStates().toArray(new State[0])));
+        }
+        if (definition.getBlankSymbol() != null) {
+            mutations.add(of(Type.SET_BLANK_SYMBOL,
+                    definition.getBlankSymbol().toString()));
+        }
+        mutations.add(of(Type.SET_INPUT, definition.getInput()));
+        mutations.add(of(Type.SET_EXECUTION_MODE, definition.getExecutionMode().name()));
+        mutations.add(of(Type.SET_OPTIMIZED, definition.isOptimized() ? 1 : 0));
+        return mutations;
+    }
+
+    /**
+     * Creates a mutation that adds or sets states, like the initial or accepting states.
+     *
+     * @param type The kind of the change.
+     * @param states The states.
+     * @return The mutation.
+     */
+    static Mutation states(Type type, State... states) {
+        final String[] names = new String[states.length];
+        for (int i = 0; i < states.length; i++) {
+            names[i] = states[i].getName();
+        }
+        return new Mutation(type, 0, names);
+    }
+
+    /**
+     * Creates a mutation with one textual argument, like {@link Type#SET_INPUT}.
+     *
+     * @param type The kind of the change.
+     * @param argument The argument.
+     * @return The mutation.
+     */
+    static Mutation of(Type type, String argument) {
+        return new Mutation(type, 0, argument);
+    }
+
+    /**
+     * Creates a mutation with a number, like {@link Type#SEEK}.
+     *
+     * @param type The kind of the change.
+     * @param value The number.
+     * @return The mutation.
+     */
+    static Mutation of(Type type, long value) {
+        return new Mutation(type, value);
+    }
+
+    /**
+     * Applies this change to the given Turing machine.
+     *
+     * @param tm The Turing machine that is restored.
+     */
+    void applyTo(TuringMachine tm) {
+        switch (type) {
+        case CLEAR:
+            tm.clear();
+            break;
+
+        case ADD_TRANSITION:
+            tm.addTransition(new Transition(new State(arguments[0]),
+                    new Symbol(arguments[1]), new Symbol(arguments[2]),
+                    TapeMove.valueOf(arguments[3]), new State(arguments[4])));
+            break;
+
+        case ADD_ACCEPTING_STATE:
+            tm.addAcceptingState(new State(arguments[0]));
+            break;
+
+        case SET_ACCEPTING_STATES:
+            final State[] states = new State[arguments.length];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = new State(arguments[i]);
+            }
+            tm.setAcceptingStates(states);
+            break;
+
+        case ADD_INITIAL_STATE:
+            tm.addInitialState(new State(arguments[0]));
+            break;
+
+        case SET_INPUT:
+            tm.setInput(arguments[0]);
+            break;
+
+        case SET_BLANK_SYMBOL:
+            tm.setBlankSymbol(new BlankSymbol(arguments[0]));
+            break;
+
+        case SET_EXECUTION_MODE:
+            tm.setExecutionMode(ExecutionMode.valueOf(arguments[0]));
+            break;
+
+        case SET_OPTIMIZED:
+            tm.setOptimized(value != 0);
+            break;
+
+        case BUILD:
+            tm.build();
+            break;
+
+        case RESTART:
+            tm.restart();
+            break;
+
+        case SEEK:
+            final long steps = value - tm.getStepCount();
+            if (steps > 0) {
+                tm.run(steps, false);
+            } else if (steps < 0) {
+                tm.seek(value);
+            }
+            break;
+
+        case CONFIGURATION:
+            tm.setConfiguration(configuration);
+            break;
+
+        default:
+            throw new IllegalStateException("Unknown mutation: " + type);
+        }
+    }
+
+    /**
+     * Writes this mutation.
+     *
+     * @param out The output the mutation is appended to.
+     * @throws IOException Thrown if the output cannot be written.
+     */
+    void write(DataOutput out) throws IOException {
+        if (configuration != null) {
+            writeConfiguration(out);
+            return;
+        }
+
+        out.writeByte(type.ordinal());
+        out.writeShort(arguments.length);
+        for (String argument : arguments) {
+            final byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeLong(value);
+    }
+
+    /**
+     * Writes this {@link Type#CONFIGURATION}. The symbols of the runs are replaced by
+     * their position among the arguments, so each distinct symbol is written once.
+     *
+     * @param out The output the mutation is appended to.
+     * @throws IOException Thrown if the output cannot be written.
+     */
+    private void writeConfiguration(DataOutput out) throws IOException {
+        final List<String> names = new ArrayList<>();
+        names.add(configuration.getStatus().name());
+        names.add(configuration.getState().getName());
+
+        final Map<Symbol, Integer> known = new HashMap<>();
+        final List<Symbol> symbols = configuration.getRunSymbols();
+        final int[] positions = new int[symbols.size()];
+        for (int run = 0; run < positions.length; run++) {
+            final Symbol symbol = symbols.get(run);
+            Integer position = known.get(symbol);
+            if (position == null) {
+                position = names.size();
+                names.add(symbol.toString());
+                known.put(symbol, position);
+            }
+            positions[run] = position;
+        }
+
+        new Mutation(type, configuration.getSteps(), names.toArray(new String[0]))
+                .write(out);
+        out.writeInt(configuration.getHeadIndex());
+        out.writeInt(configuration.getLeftmostIndex());
+        out.writeInt(positions.length);
+        for (int run = 0; run < positions.length; run++) {
+            out.writeInt(positions[run]);
+            out.writeInt(configuration.getRunLength(run));
+        }
+    }
+
+    /**
+     * Reads a mutation that was written by {@link #write(DataOutput)}. The input has to
+     * know how many bytes are available, so corrupted lengths are detected.
+     *
+     * @param in The input containing the mutation.
+     * @return The mutation.
+     * @throws IOException Thrown if the input cannot be read or contains no valid
+     *                     mutation.
+     */
+    static Mutation read(DataInputStream in) throws IOException {
+        final int ordinal = in.readUnsignedByte();
+        if (ordinal >= TYPES.length) {
+            throw new IOException("Unknown mutation type " + ordinal + ".");
+        }
+
+        final String[] arguments = new String[in.readUnsignedShort()];
+        for (int i = 0; i < arguments.length; i++) {
+            final int length = in.readInt();
+            if (length < 0 || length > in.available()) {
+                throw new IOException("Invalid argument length " + length + ".");
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            arguments[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final Type type = TYPES[ordinal];
+        final long value = in.readLong();
+        if (type == Type.CONFIGURATION) {
+            return new Mutation(type, 0, readConfiguration(in, arguments, value));
+        }
+        return new Mutation(type, value, arguments);
+    }
+
+    /**
+     * Reads the rest of a {@link Type#CONFIGURATION} that was written by
+     * {@link #writeConfiguration(DataOutput)}.
+     *
+     * @param in The input containing the runs of the configuration.
+     * @param arguments The status, the state and the symbols of the configuration.
+     * @param steps The step count of the configuration.
+     * @return The configuration.
+     * @throws IOException Thrown if the input cannot be read or contains no valid
+     *                     configuration.
+     */
+    private static MachineConfiguration readConfiguration(DataInputStream in,
+            String[] arguments, long steps) throws IOException {
+        if (arguments.length < 2) {
+            throw new IOException("The configuration has no state.");
+        }
+
+        final int headIndex = in.readInt();
+        final int leftmostIndex = in.readInt();
+        final int runs = in.readInt();
+        if (runs < 0 || runs > in.available() / (2 * Integer.BYTES)) {
+            throw new IOException("Invalid amount of runs " + runs + ".");
+        }
+
+        final List<Symbol> symbols = new ArrayList<>(runs);
+        final int[] lengths = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            final int position = in.readInt();
+            if (position < 2 || position >= arguments.length) {
+                throw new IOException("Invalid symbol " + position + ".");
+            }
+            symbols.add(new Symbol(arguments[position]));
+            lengths[run] = in.readInt();
+        }
+
+        try {
+            return new MachineConfiguration(TMState.valueOf(arguments[0]), steps,
+                    new State(arguments[1]), headIndex, leftmostIndex, symbols, lengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid configuration: " + e.getMessage());
+        }
+    }
+}
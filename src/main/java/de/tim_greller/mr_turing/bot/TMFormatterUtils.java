@@ -28,7 +28,7 @@ public final class TMFormatterUtils {
      */
     public static String getTerminationMessageContent(TuringMachine tm) {
         final String originalInput = formatWord(tm.getInput(), "");
-        final String resultingTape = formatWord(tm.getTapeContent(), "");
+        final String resultingTape = formatTape(tm, "");
         
         if (tm.isAccepting()) {
             return "It accepted the input word \"" + originalInput 
@@ -42,6 +42,21 @@ public final class TMFormatterUtils {
         return null;
     }
     
+    /**
+     * Formats the content of the given Turing machine's tape using the given separator.
+     * The tape is streamed directly into the resulting String without copying it first.
+     * 
+     * @param tm The Turing machine whose tape should be formatted.
+     * @param separator The separator between each Symbol.
+     * @return The formatted string representation of the tape content.
+     * @see #formatWord(Deque, String)
+     */
+    public static String formatTape(TuringMachine tm, String separator) {
+        StringBuilder output = new StringBuilder();
+        tm.appendTapeContent(output, separator);
+        return output.toString();
+    }
+    
     /**
      * Formats a word using the given separator. Each {@link Symbol} will be
      * shown ordered from left to right and separated by the given separator.
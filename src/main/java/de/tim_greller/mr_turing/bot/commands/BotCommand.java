@@ -35,7 +35,18 @@ public interface BotCommand {
      * @return The name which which should trigger this command.
      */
     String getCallName();
-    
+
+    /**
+     * Whether the command is executed as soon as it is received instead of after the
+     * previous commands of its channel completed. Such commands can interrupt running
+     * commands, but they do not get the {@link TuringMachine} of the channel.
+     *
+     * @return {@code true} if the command does not wait for the other commands.
+     */
+    default boolean isImmediate() {
+        return false;
+    }
+
     /**
      * This method should parse the given arguments to extract needed data. It can then
      * execute operations on the {@link TuringMachine} and respond to the user.
@@ -43,7 +54,8 @@ public interface BotCommand {
      * @param message The message that triggered this command. This will be used to give
      *                 results and feedback to the user.
      * @param argument The argument the user provided for this command call.
-     * @param tm The {@link TuringMachine} of the corresponding channel.
+     * @param tm The {@link TuringMachine} of the corresponding channel or {@code null}
+     *           if the command is {@link #isImmediate() immediate}.
      * 
      * @return A publisher that completes when this command has finished execution.
      * 
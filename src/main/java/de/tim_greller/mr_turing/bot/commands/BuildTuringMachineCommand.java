@@ -3,8 +3,10 @@ package de.tim_greller.mr_turing.bot.commands;
 import org.reactivestreams.Publisher;
 
 import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.AnalysisResult;
 import de.tim_greller.mr_turing.turing_machine.TuringMachine;
 import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
 import reactor.core.publisher.Mono;
 
 /**
@@ -22,7 +24,10 @@ public class BuildTuringMachineCommand implements BotCommand {
     public String getDescription() {
         return "Builds the Turing machine using the defined data. Once a TM was built, "
                 + "it can no longer be modified. If data like initial/accepting states "
-                + "or the blank symbol was not specified, the default will be used.";
+                + "or the blank symbol was not specified, the default will be used. Use "
+                + "`build optimize` to remove unreachable states and merge identical "
+                + "states first. The optimized TM accepts the same inputs, but denies as "
+                + "soon as it enters a state from which no accepting state can be reached.";
     }
 
     @Override
@@ -34,9 +39,29 @@ public class BuildTuringMachineCommand implements BotCommand {
     public Publisher<?> execute(Message message, String argument, TuringMachine tm)
             throws InvalidCommandSyntaxException {
         
+        final String option = argument.trim();
+        if (!option.isEmpty() && !option.equalsIgnoreCase("optimize")) {
+            throw new InvalidCommandSyntaxException(
+                    "Expected nothing or `optimize` after `build`.");
+        }
+        
+        tm.setOptimized(!option.isEmpty());
         tm.build();
         
-        return Mono.empty();
+        final AnalysisResult result = tm.getAnalysisResult();
+        if (result == null) {
+            return Mono.empty();
+        }
+        
+        return message.getChannel().flatMap(c -> c.createEmbed(s ->
+                s.setTitle("The Turing machine was optimized.")
+                 .addField("Unreachable states:", "`" + result.getUnreachableStates() + "`",
+                         true)
+                 .addField("Dead states:", "`" + result.getDeadStates() + "`", true)
+                 .addField("Merged states:", "`" + result.getMergedStates() + "`", true)
+                 .addField("Transitions:", "`" + result.getRemainingTransitions() + " of "
+                         + result.getOriginalTransitions() + "`", true)
+                 .setColor(Color.DISCORD_WHITE)));
     }
 
 }
@@ -0,0 +1,181 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinTask;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.BusyBeaverResult;
+import de.tim_greller.mr_turing.turing_machine.BusyBeaverSearch;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+import reactor.core.publisher.Mono;
+
+/**
+ * This command searches all Turing machines of a given size for the busy beavers, the
+ * machines that run the longest before they terminate. The outcomes are stored in a
+ * results file per search, so a search that was interrupted continues where it stopped
+ * and a finished search is answered from the file. The search is executed as a job of
+ * a {@link RunScheduler}, so it counts against the quotas of the server and can be
+ * cancelled.
+ */
+public class BusyBeaverCommand implements BotCommand {
+
+    /** The step limit per machine if none is given. */
+    private static final long DEFAULT_MAX_STEPS = 1_000;
+
+    /** The directory containing the results files. */
+    private final Path directory;
+
+    /** Defines how many preconditions the searched machines can have at most. */
+    private final int maxPreconditions;
+
+    /** Defines how many steps each machine can be run at most. */
+    private final long maxStepsPerMachine;
+
+    /** Executes the searches away from the threads handling the Discord events. */
+    private final RunScheduler scheduler;
+
+    /**
+     * Constructs a new busy beaver command.
+     *
+     * @param scheduler The scheduler executing the searches.
+     * @param directory The directory the results files are stored in.
+     * @param maxPreconditions The maximum product of the amounts of states and symbols.
+     * @param maxStepsPerMachine The maximum step limit per machine.
+     */
+    public BusyBeaverCommand(RunScheduler scheduler, Path directory,
+            int maxPreconditions, long maxStepsPerMachine) {
+        this.scheduler = scheduler;
+        this.directory = directory;
+        this.maxPreconditions = maxPreconditions;
+        this.maxStepsPerMachine = maxStepsPerMachine;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Search busy beavers";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Searches all Turing machines with the given amount of states and symbols, "
+                + "like `beaver 3 2`, for the ones that run the longest and write the most "
+                + "non-blank symbols before they terminate on a blank tape. Optionally, add "
+                + "the step limit per machine, which is " + DEFAULT_MAX_STEPS + " by "
+                + "default and at most " + maxStepsPerMachine + ". States times symbols "
+                + "can be at most " + maxPreconditions + ". The current Turing machine is "
+                + "not changed. Use `cancel` to stop the search, it continues where it "
+                + "stopped when it is started again.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "beaver";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+
+        final String[] parts = argument.trim().split("\\s+");
+
+        if (parts.length < 2 || parts.length > 3) {
+            throw new InvalidCommandSyntaxException(
+                    "Expected the amount of states and symbols, like `beaver 3 2`.");
+        }
+
+        final int states = (int) parseNumber(parts[0]);
+        final int symbols = (int) parseNumber(parts[1]);
+        final long maxSteps = (parts.length == 3) ? parseNumber(parts[2]) : DEFAULT_MAX_STEPS;
+
+        if ((long) states * symbols > maxPreconditions) {
+            throw new IllegalArgumentException("States times symbols can be at most "
+                    + maxPreconditions + ".");
+        }
+        if (maxSteps > maxStepsPerMachine) {
+            throw new IllegalArgumentException("The step limit can be at most "
+                    + maxStepsPerMachine + ".");
+        }
+
+        final BusyBeaverSearch search = new BusyBeaverSearch(states, symbols, maxSteps);
+        final Path file =
+                directory.resolve(states + "x" + symbols + "-" + maxSteps + ".txt");
+        final Snowflake channelId = message.getChannelId();
+        final Snowflake guildId = message.getGuildId().orElse(channelId);
+
+        return scheduler.submitJob(guildId, channelId, cancelled -> {
+                    try {
+                        Files.createDirectories(directory);
+                        return search.search(file, ForkJoinTask.getPool(), cancelled);
+                    } catch (IOException | UncheckedIOException e) {
+                        throw new IllegalStateException(
+                                "The results file could not be accessed: "
+                                + e.getMessage());
+                    }
+                })
+                .flatMap(job -> (job.getResult() == null)
+                        ? JobMessages.sendStopped(message, job, "search")
+                        : send(message, job.getResult()));
+    }
+
+    /**
+     * Sends the records and counts of the search to the channel.
+     *
+     * @param message The message that called this command.
+     * @param result The outcome of the search.
+     * @return The publisher that sends the outcome.
+     */
+    private static Mono<Message> send(Message message, BusyBeaverResult result) {
+        return message.getChannel().flatMap(c -> c.createEmbed(s ->
+                s.setTitle("The search is finished.")
+                 .addField("Longest run:", describe(result.getLongestRun(),
+                         result.getMostSteps() + " steps"), false)
+                 .addField("Most non-blank symbols:", describe(result.getMostOnesMachine(),
+                         result.getMostOnes() + " symbols"), false)
+                 .addField("Terminating:", "`" + result.getHalted() + "`", true)
+                 .addField("Running forever:", "`" + result.getProven() + "`", true)
+                 .addField("Undecided:", "`" + result.getUndecided() + "`", true)
+                 .addField("Time:", "`" + result.getElapsedNanos() / 1_000_000 + " ms`",
+                         true)
+                 .addField("Resumed:", "`" + result.getResumed() + " of "
+                         + result.getSubtrees() + " subtrees`", true)
+                 .setColor(Color.DISCORD_WHITE)));
+    }
+
+    /**
+     * Describes a record holder.
+     *
+     * @param machine The record holder or {@code null}.
+     * @param record The value of the record.
+     * @return The description.
+     */
+    private static String describe(String machine, String record) {
+        return (machine == null)
+                ? "No machine terminated."
+                : "`" + machine + "` with " + record;
+    }
+
+    /**
+     * Parses a positive number.
+     *
+     * @param argument The String containing the number.
+     * @return The number.
+     * @throws InvalidCommandSyntaxException Thrown if the String is no valid number.
+     */
+    private static long parseNumber(String argument) throws InvalidCommandSyntaxException {
+        try {
+            return Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new InvalidCommandSyntaxException(
+                    "\"" + argument + "\" is not a valid number.");
+        }
+    }
+
+}
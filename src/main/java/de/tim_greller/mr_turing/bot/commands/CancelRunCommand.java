@@ -0,0 +1,57 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Message;
+import reactor.core.publisher.Mono;
+
+/**
+ * This command cancels the run or job of the Turing machine of a channel. It is executed
+ * immediately, while the run is still in progress.
+ */
+public class CancelRunCommand implements BotCommand {
+
+    /** The scheduler executing the runs. */
+    private final RunScheduler scheduler;
+
+    /**
+     * Constructs a new Cancel-command for the runs of the given scheduler.
+     *
+     * @param scheduler The scheduler executing the runs.
+     */
+    public CancelRunCommand(RunScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Cancel the run";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Stops the current run of the Turing machine. The Turing machine keeps "
+                + "the configuration it reached, so it can be inspected or run again. "
+                + "Batches, enumerations and busy beaver searches are stopped as well.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "cancel";
+    }
+
+    @Override
+    public boolean isImmediate() {
+        return true;
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm) {
+        if (!scheduler.cancel(message.getChannelId())) {
+            throw new IllegalStateException("The Turing machine is not running.");
+        }
+
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,257 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.EnumerationResult;
+import de.tim_greller.mr_turing.turing_machine.Evaluation;
+import de.tim_greller.mr_turing.turing_machine.TMState;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * This command runs the Turing machine on every word over an alphabet up to a maximum
+ * length, to show which language the Turing machine decides. The words are evaluated as
+ * a job of a {@link RunScheduler}, so they count against the quotas of the server and
+ * can be cancelled.
+ */
+public class EnumerateLanguageCommand implements BotCommand {
+
+    /** The maximum amount of accepted words that are attached to the answer. */
+    private static final int MAX_ACCEPTED_WORDS = 10_000;
+
+    /** The maximum amount of counterexamples that are shown. */
+    private static final int MAX_COUNTEREXAMPLES = 10;
+
+    /**
+     * Defines how many computation steps can maximally be done per word.
+     * {@code 0} signalizes no limitation.
+     */
+    private final long maxStepsPerWord;
+
+    /** Defines how many words an enumeration can contain at most. */
+    private final long maxWords;
+
+    /** Executes the enumerations away from the threads handling the Discord events. */
+    private final RunScheduler scheduler;
+
+    /**
+     * Constructs a new enumeration command.
+     *
+     * @param scheduler The scheduler executing the enumerations.
+     * @param maxStepsPerWord The maximum amount of steps per word. {@code 0} for no
+     *                        limit.
+     * @param maxWords The maximum amount of words per enumeration.
+     */
+    public EnumerateLanguageCommand(RunScheduler scheduler, long maxStepsPerWord,
+            long maxWords) {
+        this.scheduler = scheduler;
+        this.maxStepsPerWord = maxStepsPerWord;
+        this.maxWords = maxWords;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Enumerate the language";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Runs the Turing machine on every word over the given alphabet up to the "
+                + "given length, like `enumerate ab 8`. Shows how many words of each "
+                + "length were accepted and attaches the accepted words. Optionally, add "
+                + "a regular expression describing the expected language, like "
+                + "`enumerate ab 8 (ab)*`, to get the first words that are decided "
+                + "differently. Each word can take at most " + maxStepsPerWord + " steps "
+                + "and at most " + maxWords + " words can be enumerated. Use `cancel` to "
+                + "stop the enumeration.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "enumerate";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+
+        final String[] parts = argument.trim().split("\\s+", 3);
+
+        if (parts.length < 2) {
+            throw new InvalidCommandSyntaxException(
+                    "Expected an alphabet and a maximum length, like `enumerate ab 8`.");
+        }
+
+        final String alphabet = parts[0];
+        final int maxLength = parseLength(alphabet, parts[1]);
+        final Predicate<String> reference = (parts.length == 3)
+                ? parseReference(parts[2])
+                : null;
+
+        Publisher<?> infoMessage = Mono.empty();
+
+        if (tm.isUnbuilt()) {
+            tm.build();
+            infoMessage = message.getChannel().flatMap(c -> c.createEmbed(s ->
+                    s.setTitle("Info")
+                     .setDescription("Executed Turing machine build automatically.")
+                     .setColor(Color.YELLOW)));
+        }
+
+        /*
+         * The job is submitted once the info message was sent, so nothing can fail
+         * while it is executed. Direct messages are accounted like a server of their
+         * own.
+         */
+        final Snowflake channelId = message.getChannelId();
+        final Snowflake guildId = message.getGuildId().orElse(channelId);
+        final Mono<Message> enumeration = Mono.defer(() ->
+                scheduler.submitJob(guildId, channelId, cancelled -> tm.enumerate(
+                        alphabet, maxLength, maxStepsPerWord, reference,
+                        MAX_ACCEPTED_WORDS, cancelled)))
+                .flatMap(job -> (job.getResult() == null)
+                        ? JobMessages.sendStopped(message, job, "enumeration")
+                        : send(message, job.getResult()));
+
+        return Flux.concat(infoMessage, enumeration);
+    }
+
+    /**
+     * Sends the counts and samples of the enumeration to the channel.
+     *
+     * @param message The message that called this command.
+     * @param result The result of the enumeration.
+     * @return The publisher that sends the result.
+     */
+    private static Mono<Message> send(Message message, EnumerationResult result) {
+        final StringBuilder counts = new StringBuilder("```\nlength  accepted  denied");
+        final boolean limited = result.getUnfinished() > 0;
+        if (limited) {
+            counts.append("  step limit");
+        }
+
+        for (int length = 0; length <= result.getMaxLength(); length++) {
+            counts.append(String.format("%n%6d  %8d  %6d", length,
+                    result.getAccepted(length), result.getDenied(length)));
+            if (limited) {
+                counts.append(String.format("  %10d", result.getUnfinished(length)));
+            }
+        }
+        counts.append("\n```");
+
+        final StringBuilder accepted = new StringBuilder();
+        for (String word : result.getAcceptedWords()) {
+            accepted.append('"').append(word).append("\"\n");
+        }
+        if (!result.isComplete()) {
+            accepted.append("The remaining accepted words were left out.\n");
+        }
+        final byte[] file = accepted.toString().getBytes(StandardCharsets.UTF_8);
+
+        return message.getChannel().flatMap(c -> c.createMessage(m ->
+                m.setEmbed(s -> {
+                    s.setTitle("The enumeration is finished.")
+                     .addField("Words:", "`" + result.getTotal() + "`", true)
+                     .addField("Accepted:", "`" + result.getAccepted() + "`", true)
+                     .addField("Time:", "`" + result.getElapsedNanos() / 1_000_000
+                             + " ms`", true)
+                     .addField("Outcomes per length:", counts.toString(), false)
+                     .setColor(Color.DISCORD_WHITE);
+
+                    if (result.isCompared()) {
+                        s.addField("Counterexamples:",
+                                describe(result.getCounterexamples()), false);
+                    }
+                 })
+                 .addFile("accepted.txt", new ByteArrayInputStream(file))));
+    }
+
+    /**
+     * Lists the first counterexamples.
+     *
+     * @param counterexamples The counterexamples in shortlex order.
+     * @return The description of the counterexamples.
+     */
+    private static String describe(Iterable<Evaluation> counterexamples) {
+        final StringBuilder description = new StringBuilder();
+        int amount = 0;
+
+        for (Evaluation evaluation : counterexamples) {
+            if (amount++ == MAX_COUNTEREXAMPLES) {
+                break;
+            }
+            description.append("`\"").append(evaluation.getInput()).append("\"` ")
+                       .append(evaluation.getStatus() == TMState.ACCEPTING
+                               ? "was accepted, but is not expected."
+                               : "was denied, but is expected.")
+                       .append('\n');
+        }
+
+        return (amount == 0)
+                ? "No word was decided differently than expected."
+                : description.toString();
+    }
+
+    /**
+     * Parses the maximum length of the enumerated words and checks that the amount of
+     * words is within the limit.
+     *
+     * @param alphabet The alphabet of the words.
+     * @param argument The String containing the maximum length.
+     * @return The maximum length.
+     * @throws InvalidCommandSyntaxException Thrown if the String is no valid length.
+     */
+    private int parseLength(String alphabet, String argument)
+            throws InvalidCommandSyntaxException {
+
+        final int maxLength;
+        try {
+            maxLength = Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new InvalidCommandSyntaxException(
+                    "\"" + argument + "\" is not a valid length.");
+        }
+
+        long words = 0;
+        long count = 1;
+        for (int length = 0; length <= maxLength; length++) {
+            words += count;
+            if (words > maxWords) {
+                throw new IllegalArgumentException("At most " + maxWords
+                        + " words can be enumerated, try a shorter length.");
+            }
+            count *= alphabet.length();
+        }
+
+        return maxLength;
+    }
+
+    /**
+     * Parses the regular expression describing the expected language.
+     *
+     * @param argument The regular expression.
+     * @return The predicate that tests whether a word is in the expected language.
+     * @throws InvalidCommandSyntaxException Thrown if the regular expression is invalid.
+     */
+    private static Predicate<String> parseReference(String argument)
+            throws InvalidCommandSyntaxException {
+        try {
+            return Pattern.compile(argument).asMatchPredicate();
+        } catch (PatternSyntaxException e) {
+            throw new InvalidCommandSyntaxException(
+                    "\"" + argument + "\" is not a valid regular expression.");
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.io.ByteArrayInputStream;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.MachineArchive;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+
+/**
+ * This command sends the Turing machine of the channel as a file in the compact binary
+ * format of {@link MachineArchive}, which can be loaded again using the Import-command.
+ */
+public class ExportMachineCommand implements BotCommand {
+
+    /** The name of the sent file. */
+    private static final String FILE_NAME = "machine.tm";
+
+    @Override
+    public String getTitle() {
+        return "Export the Turing machine";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Sends the Turing machine as a file, which can be loaded into any channel "
+                + "using `import`. If the Turing machine was built, the file also "
+                + "contains its configuration.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "export";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm) {
+        final MachineArchive archive = MachineArchive.of(tm);
+        final MachineDefinition definition = archive.getDefinition();
+        final byte[] file = archive.toBytes();
+
+        return message.getChannel().flatMap(c -> c.createMessage(m ->
+                m.setEmbed(s ->
+                    s.setTitle("The Turing machine was exported.")
+                     .addField("Transitions:",
+                             "`" + definition.getTransitions().size() + "`", true)
+                     .addField("Steps:", archive.getSteps() < 0
+                             ? "`not built`" : "`" + archive.getSteps() + "`", true)
+                     .addField("Size:", "`" + file.length + " bytes`", true)
+                     .setColor(Color.DISCORD_WHITE))
+                 .addFile(FILE_NAME, new ByteArrayInputStream(file))));
+    }
+}
@@ -0,0 +1,166 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.bot.MachineArchive;
+import de.tim_greller.mr_turing.turing_machine.MachineConfiguration;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Attachment;
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * This command replaces the Turing machine of the channel by the one contained in an
+ * attached file, which was created by the Export-command.
+ */
+public class ImportMachineCommand implements BotCommand {
+
+    /** The maximum size of an attached file in bytes. */
+    private final int maxFileSize;
+
+    /**
+     * Defines how many cells the visited part of the tape of an imported Turing machine
+     * can have at most, because the tape is expanded when it is restored.
+     */
+    private final long maxTapeLength;
+
+    /**
+     * Constructs a new Import-command.
+     *
+     * @param maxFileSize The maximum size of an attached file in bytes.
+     * @param maxTapeLength The maximum amount of visited cells of an imported Turing
+     *                      machine.
+     */
+    public ImportMachineCommand(int maxFileSize, long maxTapeLength) {
+        this.maxFileSize = maxFileSize;
+        this.maxTapeLength = maxTapeLength;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Import a Turing machine";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Replaces the Turing machine by the one in the attached file, which was "
+                + "created using `export`. A built Turing machine is restored to the "
+                + "configuration it had, if it visited at most " + maxTapeLength
+                + " cells of its tape. The file can be at most " + maxFileSize
+                + " bytes large.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "import";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+
+        final List<Attachment> attachments = List.copyOf(message.getAttachments());
+        if (attachments.isEmpty()) {
+            throw new InvalidCommandSyntaxException(
+                    "No file given. Attach a file created using `export`.");
+        }
+
+        final Attachment attachment = attachments.get(0);
+        if (attachment.getSize() > maxFileSize) {
+            throw tooLarge();
+        }
+
+        return download(attachment)
+                .publishOn(Schedulers.boundedElastic())
+                .map(bytes -> load(bytes, tm))
+                .flatMap(archive -> message.getChannel().flatMap(c ->
+                    c.createEmbed(s ->
+                        s.setTitle("The Turing machine was imported.")
+                         .addField("Transitions:", "`"
+                                 + archive.getDefinition().getTransitions().size() + "`",
+                                 true)
+                         .addField("Steps:", archive.getSteps() < 0
+                                 ? "`not built`" : "`" + archive.getSteps() + "`", true)
+                         .setColor(Color.DISCORD_WHITE)
+                    )
+                ));
+    }
+
+    /**
+     * Decodes the file and replaces the Turing machine by the one it contains.
+     *
+     * @param bytes The content of the file.
+     * @param tm The Turing machine that gets replaced.
+     * @return The decoded archive.
+     * @throws IllegalArgumentException Thrown if the file is invalid or the Turing
+     *                                  machine cannot be restored.
+     */
+    private MachineArchive load(byte[] bytes, TuringMachine tm) {
+        final MachineArchive archive;
+        try {
+            archive = MachineArchive.fromBytes(bytes);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "The attachment is no valid machine file: " + e.getMessage());
+        }
+
+        final MachineConfiguration configuration = archive.getConfiguration();
+        if (configuration != null) {
+            final long cells = (long) configuration.getRightmostIndex()
+                    - configuration.getLeftmostIndex() + 1;
+            if (cells > maxTapeLength) {
+                throw new IllegalArgumentException("The Turing machine visited " + cells
+                        + " cells of its tape, but at most " + maxTapeLength
+                        + " can be restored.");
+            }
+        }
+
+        archive.applyTo(tm);
+        return archive;
+    }
+
+    /**
+     * Downloads the content of an attached file. The size reported by Discord is not
+     * trusted, so the download fails as soon as it received more bytes than allowed.
+     *
+     * @param attachment The attachment.
+     * @return The content of the file.
+     */
+    private Mono<byte[]> download(Attachment attachment) {
+        return HttpClient.create()
+                .get()
+                .uri(attachment.getUrl())
+                .responseContent()
+                .map(buffer -> {
+                    final byte[] chunk = new byte[buffer.readableBytes()];
+                    buffer.readBytes(chunk);
+                    return chunk;
+                })
+                .reduceWith(ByteArrayOutputStream::new, (content, chunk) -> {
+                    if (content.size() + (long) chunk.length > maxFileSize) {
+                        throw tooLarge();
+                    }
+                    content.write(chunk, 0, chunk.length);
+                    return content;
+                })
+                .map(ByteArrayOutputStream::toByteArray);
+    }
+
+    /**
+     * Creates the error for a file that exceeds the maximum size.
+     *
+     * @return The error.
+     */
+    private IllegalArgumentException tooLarge() {
+        return new IllegalArgumentException(
+                "The file can be at most " + maxFileSize + " bytes large.");
+    }
+}
@@ -0,0 +1,56 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the messages of commands whose computation is executed as a
+ * {@link ScheduledJob}.
+ */
+final class JobMessages {
+
+    /**
+     * This class only contains static methods.
+     */
+    private JobMessages() {
+    }
+
+    /**
+     * Sends why a job stopped before its computation completed.
+     *
+     * @param message The message that called the command.
+     * @param job The stopped job.
+     * @param name The name of the computation, like "batch".
+     * @return The publisher that sends the message.
+     */
+    static Mono<Message> sendStopped(Message message, ScheduledJob<?> job, String name) {
+        final String title;
+        final String description;
+        final Color color;
+
+        switch (job.getStop()) {
+        case CANCELLED:
+            title = "The " + name + " was cancelled.";
+            description = "Run the command again to start over.";
+            color = Color.YELLOW;
+            break;
+        case QUOTA:
+            title = "This server used up its computing time.";
+            description = "The " + name + " was stopped. Use `quota` to see when it can "
+                    + "continue.";
+            color = Color.RED;
+            break;
+        default:
+            title = "Limitation of " + job.getMaxTime().getSeconds()
+                    + " seconds per run reached.";
+            description = "The " + name + " was stopped.";
+            color = Color.RED;
+        }
+
+        return message.getChannel().flatMap(c -> c.createEmbed(s ->
+                s.setTitle(title)
+                 .setDescription(description)
+                 .setColor(color)));
+    }
+}
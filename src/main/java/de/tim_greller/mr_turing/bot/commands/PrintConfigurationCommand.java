@@ -19,8 +19,8 @@ public class PrintConfigurationCommand implements BotCommand {
 
     @Override
     public String getDescription() {
-        return "Prints out the current configuration, including the state, tape content "
-                + "and head position of the Turing machine.";
+        return "Prints out the current configuration, including the state, tape content, "
+                + "head position and step count of the Turing machine.";
     }
 
     @Override
@@ -32,9 +32,10 @@ public class PrintConfigurationCommand implements BotCommand {
     public Publisher<?> execute(Message message, String argument, TuringMachine tm)
             throws InvalidCommandSyntaxException {
         
-        final String tapeContent = TMFormatterUtils.formatWord(tm.getTapeContent(), " | ");
+        final String tapeContent = TMFormatterUtils.formatTape(tm, " | ");
         final int headIndex = tm.getHeadIndex();
         final String currentState = tm.getCurrentState().toString();
+        final long stepCount = tm.getStepCount();
         
         return message.getChannel().flatMap(c -> 
                 c.createEmbed(s ->
@@ -42,6 +43,7 @@ public class PrintConfigurationCommand implements BotCommand {
                      .addField("Tape content:", "```" + tapeContent.trim() + "```", true)
                      .addField("Head index:", "`" + headIndex + "`", true)
                      .addField("Current state:", "`" + currentState + "`", true)
+                     .addField("Step:", "`" + stepCount + "`", true)
                 )
         );
     }
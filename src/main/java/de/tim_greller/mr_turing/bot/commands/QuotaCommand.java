@@ -0,0 +1,65 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Message;
+
+/**
+ * This command shows how much of its quotas the server of a channel has used. It is
+ * executed immediately, so it can be used while runs are in progress.
+ */
+public class QuotaCommand implements BotCommand {
+
+    /** The scheduler executing the runs. */
+    private final RunScheduler scheduler;
+
+    /**
+     * Constructs a new Quota-command for the runs of the given scheduler.
+     *
+     * @param scheduler The scheduler executing the runs.
+     */
+    public QuotaCommand(RunScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Show the quotas";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Shows how many runs this server has in progress and how much computing "
+                + "time its runs used, compared to the limits of the server.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "quota";
+    }
+
+    @Override
+    public boolean isImmediate() {
+        return true;
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm) {
+        final RunScheduler.Usage usage = scheduler.getUsage(
+                message.getGuildId().orElse(message.getChannelId()));
+
+        return message.getChannel().flatMap(c ->
+                c.createEmbed(s ->
+                    s.setTitle("The quotas of this server:")
+                     .addField("Runs in progress:",
+                             "`" + usage.getRuns() + " of " + usage.getMaxRuns() + "`",
+                             true)
+                     .addField("Computing time:", "`" + usage.getUsed().toMillis()
+                             + " of " + usage.getQuota().toMillis() + " ms`", true)
+                     .addField("Reset in:",
+                             "`" + usage.getReset().getSeconds() + " seconds`", true)
+                )
+        );
+    }
+}
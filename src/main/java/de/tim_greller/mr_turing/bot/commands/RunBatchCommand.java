@@ -0,0 +1,245 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.BatchResult;
+import de.tim_greller.mr_turing.turing_machine.Evaluation;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import discord4j.core.object.entity.Attachment;
+import discord4j.core.object.entity.Message;
+import discord4j.rest.util.Color;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * This command runs the Turing machine on a whole list of input words at once. The
+ * words are evaluated as a job of a {@link RunScheduler}, so they count against the
+ * quotas of the server and can be cancelled. The outcome of each word is sent back as a
+ * file.
+ */
+public class RunBatchCommand implements BotCommand {
+
+    /** The maximum amount of characters of the file containing the outcomes. */
+    private static final int MAX_RESULTS_LENGTH = 7_000_000;
+
+    /** The pattern of an input word wrapped in quotes. */
+    private static final Pattern QUOTED = Pattern.compile("\"(.*)\"");
+
+    /**
+     * Defines how many computation steps can maximally be done per input word.
+     * {@code 0} signalizes no limitation.
+     */
+    private final long maxStepsPerInput;
+
+    /** Defines how many input words a batch can contain at most. */
+    private final int maxInputs;
+
+    /** Executes the batches away from the threads handling the Discord events. */
+    private final RunScheduler scheduler;
+
+    /**
+     * Constructs a new batch command.
+     *
+     * @param scheduler The scheduler executing the batches.
+     * @param maxStepsPerInput The maximum amount of steps per input word. {@code 0} for
+     *                         no limit.
+     * @param maxInputs The maximum amount of input words per batch.
+     */
+    public RunBatchCommand(RunScheduler scheduler, long maxStepsPerInput, int maxInputs) {
+        this.scheduler = scheduler;
+        this.maxStepsPerInput = maxStepsPerInput;
+        this.maxInputs = maxInputs;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Run a batch of inputs";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Runs the Turing machine on every given input word, starting from its "
+                + "initial configuration each time. Put each word on its own line after "
+                + "the command or attach a text file with one word per line, using `\"\"` "
+                + "for the empty word. Shows how many words were accepted and attaches "
+                + "the outcome and output of every word. Each word can take at most "
+                + maxStepsPerInput + " steps and a batch can contain " + maxInputs
+                + " words. Use `cancel` to stop the batch.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "batch";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+
+        final List<Attachment> attachments = new ArrayList<>(message.getAttachments());
+
+        if (attachments.isEmpty() && argument.isBlank()) {
+            throw new InvalidCommandSyntaxException(
+                    "No input words given. Add them after the command or attach a file.");
+        }
+
+        Publisher<?> infoMessage = Mono.empty();
+
+        if (tm.isUnbuilt()) {
+            tm.build();
+            infoMessage = message.getChannel().flatMap(c -> c.createEmbed(s ->
+                    s.setTitle("Info")
+                     .setDescription("Executed Turing machine build automatically.")
+                     .setColor(Color.YELLOW)));
+        }
+
+        final Mono<String> content = attachments.isEmpty()
+                ? Mono.just(argument)
+                : download(attachments.get(0));
+
+        return Flux.concat(infoMessage, content
+                .map(this::parseInputs)
+                .flatMap(inputs -> evaluate(message, inputs, tm))
+                .onErrorResume(e -> message.getChannel().flatMap(c ->
+                    c.createEmbed(s ->
+                        s.setTitle("Error")
+                         .setDescription(e.getMessage())
+                         .setColor(Color.RED)
+                    )
+                )));
+    }
+
+    /**
+     * Runs the Turing machine on the input words and sends the results to the channel.
+     *
+     * @param message The message that called this command.
+     * @param inputs The input words.
+     * @param tm The Turing machine.
+     * @return The publisher that sends the results.
+     */
+    private Mono<Message> evaluate(Message message, List<String> inputs, TuringMachine tm) {
+        final StringBuilder outcomes = new StringBuilder();
+        final Snowflake channelId = message.getChannelId();
+        final Snowflake guildId = message.getGuildId().orElse(channelId);
+
+        return scheduler.submitJob(guildId, channelId, cancelled ->
+                tm.evaluate(inputs, maxStepsPerInput, evaluation -> {
+                    synchronized (outcomes) {
+                        append(outcomes, evaluation);
+                    }
+                }, cancelled))
+                .flatMap(job -> (job.getResult() == null)
+                        ? JobMessages.sendStopped(message, job, "batch")
+                        : send(message, job.getResult(), outcomes));
+    }
+
+    /**
+     * Sends the counts and outcomes of a finished batch to the channel.
+     *
+     * @param message The message that called this command.
+     * @param result The counts of the outcomes.
+     * @param outcomes The outcomes of the input words.
+     * @return The publisher that sends the results.
+     */
+    private static Mono<Message> send(Message message, BatchResult result,
+            StringBuilder outcomes) {
+        final byte[] file;
+        synchronized (outcomes) {
+            file = outcomes.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        return message.getChannel().flatMap(c -> c.createMessage(m ->
+                m.setEmbed(s ->
+                    s.setTitle("The batch is finished.")
+                     .addField("Inputs:", "`" + result.getTotal() + "`", true)
+                     .addField("Accepted:", "`" + result.getAccepted() + "`", true)
+                     .addField("Denied:", "`" + result.getDenied() + "`", true)
+                     .addField("Step limit reached:", "`" + result.getUnfinished() + "`",
+                             true)
+                     .addField("Time:", "`" + result.getElapsedNanos() / 1_000_000 + " ms`",
+                             true)
+                     .setColor(Color.DISCORD_WHITE))
+                 .addFile("results.txt", new ByteArrayInputStream(file))));
+    }
+
+    /**
+     * Appends a line describing the outcome of an input word, unless the outcomes got
+     * too long already.
+     *
+     * @param outcomes The builder containing the outcomes.
+     * @param evaluation The outcome of an input word.
+     */
+    private static void append(StringBuilder outcomes, Evaluation evaluation) {
+        if (outcomes.length() > MAX_RESULTS_LENGTH) {
+            return;
+        }
+
+        outcomes.append('"').append(evaluation.getInput()).append("\"\t")
+                .append(evaluation.getStatus()).append('\t')
+                .append(evaluation.getSteps()).append('\t')
+                .append('"').append(evaluation.getOutput()).append("\"\n");
+
+        if (outcomes.length() > MAX_RESULTS_LENGTH) {
+            outcomes.append("The remaining outcomes were left out.\n");
+        }
+    }
+
+    /**
+     * Splits the content into the input words. Each line contains one word, which can
+     * be wrapped in quotes. Blank lines and the borders of code-blocks are skipped.
+     *
+     * @param content The lines containing the input words.
+     * @return The input words.
+     */
+    private List<String> parseInputs(String content) {
+        final List<String> inputs = new ArrayList<>();
+
+        for (String line : content.split("\s*[\r\n]+\s*")) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("```")) {
+                continue;
+            }
+
+            final Matcher quoteMatcher = QUOTED.matcher(trimmed);
+            inputs.add(quoteMatcher.matches() ? quoteMatcher.group(1) : trimmed);
+
+            if (inputs.size() > maxInputs) {
+                throw new IllegalArgumentException(
+                        "A batch can contain at most " + maxInputs + " input words.");
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input words given.");
+        }
+
+        return inputs;
+    }
+
+    /**
+     * Downloads the content of an attached text file.
+     *
+     * @param attachment The attachment.
+     * @return The content of the file.
+     */
+    private static Mono<String> download(Attachment attachment) {
+        return HttpClient.create()
+                .get()
+                .uri(attachment.getUrl())
+                .responseContent()
+                .aggregate()
+                .asString(StandardCharsets.UTF_8)
+                .defaultIfEmpty("");
+    }
+
+}
@@ -0,0 +1,583 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Executes the runs of Turing machines on a dedicated pool of threads, so long runs
+ * never block the threads handling the Discord events.
+ * <p>
+ * Runs are executed in slices of steps. After each slice, the run goes back to the queue
+ * and the next slice is chosen fairly: The server whose runs used the least computing
+ * time in relation to its weight gets the next slice, and the runs of the channels of
+ * one server take turns. A server that starts using the bot gets no credit for the time
+ * it was idle, so it cannot take over the threads for a while either.
+ * <p>
+ * Each run is limited by its amount of steps and the computing time of its slices, and
+ * it can be cancelled while it waits or is executed. Each server can have a limited
+ * amount of runs in progress and may use a limited amount of computing time per quota
+ * window. Runs of a server that used up its computing time are stopped.
+ * <p>
+ * Other computations on Turing machines are submitted as {@link ScheduledJob}s. They
+ * count as runs and use the computing time of their server as well, but they cannot be
+ * paused, so they are executed at once instead of in slices. A job therefore bypasses
+ * the fair sharing: Once it was chosen, it keeps its thread of the scheduler until it
+ * stopped, and the pool it computes on has as many threads as the scheduler. The CPU
+ * time of the job is charged to its server afterwards, so the server waits accordingly
+ * longer for its next slices.
+ * <p>
+ * A run or job whose execution fails, even with an {@link Error}, is removed and its
+ * publisher emits the failure, so the thread of the scheduler keeps working.
+ */
+public class RunScheduler {
+
+    /** The amount of threads executing slices and jobs. */
+    private final int threads;
+
+    /** The amount of steps executed per slice. */
+    private final long stepsPerSlice;
+
+    /** The maximum computing time of a run. */
+    private final Duration maxRunTime;
+
+    /** The maximum amount of runs in progress per server. */
+    private final int maxRunsPerGuild;
+
+    /** The computing time a server may use per quota window. */
+    private final Duration cpuQuota;
+
+    /** The time after which the used computing time of a server is reset. */
+    private final Duration quotaWindow;
+
+    /** The runs in progress, mapped with the channel they belong to. */
+    private final Map<Snowflake, Task> runs = new HashMap<>();
+
+    /** The accounts of the servers that have runs in progress or used computing time. */
+    private final Map<Snowflake, Account> accounts = new HashMap<>();
+
+    /** The weights of the servers which do not have the default weight of one. */
+    private final Map<Snowflake, Integer> weights = new HashMap<>();
+
+    /** The virtual time of the server that got the last slice. */
+    private double virtualClock = 0;
+
+    /**
+     * A run or job in progress together with the channel and account it belongs to.
+     */
+    private static final class Task {
+
+        /** The run or {@code null} if this task executes a job. */
+        final ScheduledRun run;
+
+        /** The job or {@code null} if this task executes a run. */
+        final ScheduledJob<?> job;
+
+        /** The channel of the run. */
+        final Snowflake channel;
+
+        /** The account of the server of the run. */
+        final Account account;
+
+        /** Emits the task once it stopped. */
+        final MonoProcessor<Task> completion = MonoProcessor.create();
+
+        /**
+         * Creates a new task.
+         *
+         * @param run The run or {@code null}.
+         * @param job The job or {@code null}, if a run is given.
+         * @param channel The channel of the run.
+         * @param account The account of the server of the run.
+         */
+        Task(ScheduledRun run, ScheduledJob<?> job, Snowflake channel, Account account) {
+            this.run = run;
+            this.job = job;
+            this.channel = channel;
+            this.account = account;
+        }
+    }
+
+    /**
+     * The runs and the used computing time of a server.
+     */
+    private static final class Account {
+
+        /** The server. */
+        final Snowflake guild;
+
+        /** The runs of the server that wait for their next slice. */
+        final Queue<Task> ready = new ArrayDeque<>();
+
+        /** The amount of runs of the server in progress. */
+        int runs = 0;
+
+        /** The computing time used by the server, divided by its weight. */
+        double virtualTime = 0;
+
+        /** The start of the current quota window in nanoseconds. */
+        long windowStart = System.nanoTime();
+
+        /** The computing time used in the current quota window in nanoseconds. */
+        long usedNanos = 0;
+
+        /**
+         * Creates a new account without any usage.
+         *
+         * @param guild The server.
+         */
+        Account(Snowflake guild) {
+            this.guild = guild;
+        }
+    }
+
+    /**
+     * The current usage of a server, compared to its quotas.
+     */
+    public static final class Usage {
+
+        /** The amount of runs in progress. */
+        private final int runs;
+
+        /** The maximum amount of runs in progress. */
+        private final int maxRuns;
+
+        /** The computing time used in the current quota window. */
+        private final Duration used;
+
+        /** The computing time that may be used per quota window. */
+        private final Duration quota;
+
+        /** The time until the quota window is reset. */
+        private final Duration reset;
+
+        /**
+         * Creates a new usage report.
+         *
+         * @param runs The amount of runs in progress.
+         * @param maxRuns The maximum amount of runs in progress.
+         * @param used The computing time used in the current quota window.
+         * @param quota The computing time that may be used per quota window.
+         * @param reset The time until the quota window is reset.
+         */
+        Usage(int runs, int maxRuns, Duration used, Duration quota, Duration reset) {
+            this.runs = runs;
+            this.maxRuns = maxRuns;
+            this.used = used;
+            this.quota = quota;
+            this.reset = reset;
+        }
+
+        /**
+         * Returns the amount of runs in progress.
+         *
+         * @return The amount of runs.
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * Returns the maximum amount of runs in progress.
+         *
+         * @return The limit of runs.
+         */
+        public int getMaxRuns() {
+            return maxRuns;
+        }
+
+        /**
+         * Returns the computing time used in the current quota window.
+         *
+         * @return The used computing time.
+         */
+        public Duration getUsed() {
+            return used;
+        }
+
+        /**
+         * Returns the computing time that may be used per quota window.
+         *
+         * @return The computing time quota.
+         */
+        public Duration getQuota() {
+            return quota;
+        }
+
+        /**
+         * Returns the time until the used computing time is reset.
+         *
+         * @return The time until the reset.
+         */
+        public Duration getReset() {
+            return reset;
+        }
+    }
+
+    /**
+     * Creates a new scheduler and starts its threads.
+     *
+     * @param threads The amount of slices that can be executed at the same time.
+     * @param stepsPerSlice The amount of steps executed per slice.
+     * @param maxRunTime The maximum computing time of a run.
+     * @param maxRunsPerGuild The maximum amount of runs in progress per server.
+     * @param cpuQuota The computing time a server may use per quota window.
+     * @param quotaWindow The time after which the used computing time of a server is
+     *                    reset.
+     */
+    public RunScheduler(int threads, long stepsPerSlice, Duration maxRunTime,
+            int maxRunsPerGuild, Duration cpuQuota, Duration quotaWindow) {
+        if (threads < 1 || stepsPerSlice < 1 || maxRunsPerGuild < 1) {
+            throw new IllegalArgumentException("Threads, slices and runs per server "
+                    + "have to be positive.");
+        }
+
+        this.threads = threads;
+        this.stepsPerSlice = stepsPerSlice;
+        this.maxRunTime = maxRunTime;
+        this.maxRunsPerGuild = maxRunsPerGuild;
+        this.cpuQuota = cpuQuota;
+        this.quotaWindow = quotaWindow;
+
+        for (int i = 1; i <= threads; i++) {
+            final Thread thread = new Thread(this::work, "turing-machine-run-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the maximum computing time of a run.
+     *
+     * @return The time limit per run.
+     */
+    public Duration getMaxRunTime() {
+        return maxRunTime;
+    }
+
+    /**
+     * Sets the weight of a server. While several servers wait for slices, each of them
+     * gets computing time in proportion to its weight.
+     *
+     * @param guild The server.
+     * @param weight The weight of the server. The default weight is one.
+     */
+    public synchronized void setWeight(Snowflake guild, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight has to be positive.");
+        }
+
+        if (weight == 1) {
+            weights.remove(guild);
+        } else {
+            weights.put(guild, weight);
+        }
+    }
+
+    /**
+     * Queues a run of the given Turing machine of a channel. The run continues until the
+     * Turing machine terminates, loops forever or one of the limits is reached. The
+     * Turing machine must not be used by anything else until the run stopped.
+     *
+     * @param guild The server the channel belongs to.
+     * @param channel The channel the Turing machine belongs to.
+     * @param tm The Turing machine that should be run. It has to be built.
+     * @param maxSteps The maximum amount of steps of the run. {@code 0} for no limit.
+     * @return A publisher emitting the run once it stopped. The run is emitted on a
+     *         scheduler that allows blocking, not on the threads of this scheduler.
+     * @throws IllegalStateException Thrown if the channel already has a run in progress
+     *                               or the server reached one of its quotas.
+     */
+    public synchronized Mono<ScheduledRun> submit(Snowflake guild, Snowflake channel,
+            TuringMachine tm, long maxSteps) {
+        final ScheduledRun run = new ScheduledRun(tm, maxSteps, maxRunTime);
+        return start(new Task(run, null, channel, admit(guild, channel)))
+                .thenReturn(run);
+    }
+
+    /**
+     * Queues a job of a channel, like the evaluation of many input words by its Turing
+     * machine. The job counts against the same quotas as runs and is executed on a
+     * pool with as many threads as this scheduler once it is chosen. It can be cancelled
+     * like a run, and it is stopped once it took longer than the maximum time of a run
+     * or used up the computing time of its server.
+     *
+     * @param <T> The type of the result of the job.
+     * @param guild The server the channel belongs to.
+     * @param channel The channel the job belongs to.
+     * @param work The computation of the job. It may use the pool of the thread it is
+     *             called on, but no other threads, and it should check regularly
+     *             whether it was cancelled.
+     * @return A publisher emitting the job once it stopped. The job is emitted on a
+     *         scheduler that allows blocking, not on the threads of this scheduler.
+     *         If the computation failed, its exception is emitted instead.
+     * @throws IllegalStateException Thrown if the channel already has a run in progress
+     *                               or the server reached one of its quotas.
+     */
+    public synchronized <T> Mono<ScheduledJob<T>> submitJob(Snowflake guild,
+            Snowflake channel, ScheduledJob.Work<T> work) {
+        final ScheduledJob<T> job = new ScheduledJob<>(work, threads, maxRunTime);
+        return start(new Task(null, job, channel, admit(guild, channel)))
+                .thenReturn(job);
+    }
+
+    /**
+     * Registers a run or job as in progress and queues it.
+     *
+     * @param task The run or job.
+     * @return A publisher emitting the task once it stopped, on a scheduler that allows
+     *         blocking.
+     */
+    private Mono<Task> start(Task task) {
+        runs.put(task.channel, task);
+        task.account.runs++;
+        enqueue(task);
+        return task.completion.publishOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Checks whether a channel may start a run or job.
+     *
+     * @param guild The server the channel belongs to.
+     * @param channel The channel.
+     * @return The account of the server.
+     * @throws IllegalStateException Thrown if the channel already has a run in progress
+     *                               or the server reached one of its quotas.
+     */
+    private Account admit(Snowflake guild, Snowflake channel) {
+        final long now = System.nanoTime();
+        removeIdleAccounts(now);
+
+        if (runs.containsKey(channel)) {
+            throw new IllegalStateException(
+                    "The Turing machine of this channel is already running.");
+        }
+
+        final Account account = accounts.computeIfAbsent(guild, Account::new);
+        refreshWindow(account, now);
+        if (account.runs >= maxRunsPerGuild) {
+            throw new IllegalStateException("This server already has " + account.runs
+                    + " runs in progress. Wait for one of them or cancel it.");
+        }
+        if (account.usedNanos >= cpuQuota.toNanos()) {
+            throw new IllegalStateException("This server used up its computing time. "
+                    + "It is available again in " + remainingSeconds(account, now)
+                    + " seconds.");
+        }
+        return account;
+    }
+
+    /**
+     * Returns the progress of the run of the given channel.
+     *
+     * @param channel The channel whose run is requested.
+     * @return The progress after the last slice of the run or {@code null} if no run is
+     *         in progress or no slice was completed yet.
+     */
+    public synchronized ScheduledRun.Progress getProgress(Snowflake channel) {
+        final Task task = runs.get(channel);
+        return (task == null || task.run == null) ? null : task.run.getProgress();
+    }
+
+    /**
+     * Cancels the run or job of the given channel. A run stops after its current slice
+     * of steps.
+     *
+     * @param channel The channel whose run should be cancelled.
+     * @return {@code true} if a run or job was in progress, {@code false} otherwise.
+     */
+    public synchronized boolean cancel(Snowflake channel) {
+        final Task task = runs.get(channel);
+        if (task == null) {
+            return false;
+        }
+
+        if (task.run != null) {
+            task.run.cancel();
+        } else {
+            task.job.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current usage of the given server.
+     *
+     * @param guild The server.
+     * @return The runs in progress and the used computing time of the server.
+     */
+    public synchronized Usage getUsage(Snowflake guild) {
+        final long now = System.nanoTime();
+        final Account account = accounts.get(guild);
+        if (account == null) {
+            return new Usage(0, maxRunsPerGuild, Duration.ZERO, cpuQuota, Duration.ZERO);
+        }
+
+        refreshWindow(account, now);
+        return new Usage(account.runs, maxRunsPerGuild,
+                Duration.ofNanos(account.usedNanos), cpuQuota,
+                Duration.ofNanos(quotaWindow.toNanos() - (now - account.windowStart)));
+    }
+
+    /**
+     * Executes slices of the queued runs and the queued jobs forever.
+     */
+    private void work() {
+        while (true) {
+            final Task task;
+            final long remainingNanos;
+            synchronized (this) {
+                task = next();
+                remainingNanos = cpuQuota.toNanos() - task.account.usedNanos;
+            }
+
+            final long start = System.nanoTime();
+            boolean stopped = true;
+            Throwable failure = null;
+            try {
+                if (remainingNanos <= 0 && task.run != null) {
+                    task.run.stop(ScheduledRun.Stop.QUOTA);
+                } else if (remainingNanos <= 0) {
+                    task.job.stop(ScheduledRun.Stop.QUOTA);
+                } else if (task.run != null) {
+                    stopped = task.run.executeSlice(stepsPerSlice);
+                } else {
+                    task.job.execute(remainingNanos);
+                }
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                // A failed task is unregistered as well, so its channel can start again.
+                final long nanos = (task.job != null)
+                        ? task.job.getCpuNanos()
+                        : System.nanoTime() - start;
+                finish(task, nanos, stopped || failure != null);
+            }
+
+            if (failure != null) {
+                task.completion.onError(failure);
+            } else if (stopped) {
+                task.completion.onNext(task);
+            }
+        }
+    }
+
+    /**
+     * Waits for a run that is ready and removes it from its queue. The run of the
+     * server with the lowest virtual time is chosen.
+     *
+     * @return The run whose next slice should be executed.
+     */
+    private Task next() {
+        while (true) {
+            Account chosen = null;
+            for (Account account : accounts.values()) {
+                if (!account.ready.isEmpty() && (chosen == null
+                        || account.virtualTime < chosen.virtualTime)) {
+                    chosen = account;
+                }
+            }
+
+            if (chosen != null) {
+                virtualClock = Math.max(virtualClock, chosen.virtualTime);
+                return chosen.ready.poll();
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // The threads of the scheduler are never interrupted on purpose.
+            }
+        }
+    }
+
+    /**
+     * Charges the computing time of a slice or job to the server of the run and queues
+     * the run again unless it stopped.
+     *
+     * @param task The run whose slice was executed or the executed job.
+     * @param nanos The time the slice took or the CPU time of the job in nanoseconds.
+     * @param stopped Whether the run stopped.
+     */
+    private synchronized void finish(Task task, long nanos, boolean stopped) {
+        final Account account = task.account;
+        refreshWindow(account, System.nanoTime());
+        account.usedNanos += nanos;
+        account.virtualTime += (double) nanos / weights.getOrDefault(account.guild, 1);
+
+        if (stopped) {
+            runs.remove(task.channel, task);
+            account.runs--;
+        } else {
+            enqueue(task);
+        }
+    }
+
+    /**
+     * Adds a run to the queue of its server and wakes up a waiting thread. A server
+     * whose queue was empty continues at the current virtual time, so it gets no credit
+     * for the time it was idle.
+     *
+     * @param task The run that is ready for its next slice.
+     */
+    private void enqueue(Task task) {
+        final Account account = task.account;
+        if (account.ready.isEmpty()) {
+            account.virtualTime = Math.max(account.virtualTime, virtualClock);
+        }
+        account.ready.add(task);
+        notify();
+    }
+
+    /**
+     * Starts a new quota window for the given server if the current one is over.
+     *
+     * @param account The account of the server.
+     * @param now The current time in nanoseconds.
+     */
+    private void refreshWindow(Account account, long now) {
+        if (now - account.windowStart >= quotaWindow.toNanos()) {
+            account.windowStart = now;
+            account.usedNanos = 0;
+        }
+    }
+
+    /**
+     * Returns the seconds until the quota window of the given server is reset.
+     *
+     * @param account The account of the server.
+     * @param now The current time in nanoseconds.
+     * @return The remaining seconds of the quota window, rounded up.
+     */
+    private long remainingSeconds(Account account, long now) {
+        final long remaining = quotaWindow.toNanos() - (now - account.windowStart);
+        return (remaining + 999_999_999) / 1_000_000_000;
+    }
+
+    /**
+     * Forgets the servers that have no runs in progress and whose quota window is over.
+     *
+     * @param now The current time in nanoseconds.
+     */
+    private void removeIdleAccounts(long now) {
+        final Iterator<Account> iterator = accounts.values().iterator();
+        while (iterator.hasNext()) {
+            final Account account = iterator.next();
+            if (account.runs == 0 && now - account.windowStart >= quotaWindow.toNanos()) {
+                iterator.remove();
+            }
+        }
+    }
+}
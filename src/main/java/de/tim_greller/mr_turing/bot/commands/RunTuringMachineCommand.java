@@ -1,34 +1,54 @@
 package de.tim_greller.mr_turing.bot.commands;
 
+import java.time.Duration;
+
 import org.reactivestreams.Publisher;
 
 import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
 import de.tim_greller.mr_turing.bot.TMFormatterUtils;
+import de.tim_greller.mr_turing.turing_machine.RunResult;
 import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
 import discord4j.core.object.entity.Message;
+import discord4j.core.spec.EmbedCreateSpec;
 import discord4j.rest.util.Color;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
- * This command runs a Turing machine until it terminates.
+ * This command runs a Turing machine until it terminates. If a configuration of the
+ * Turing machine repeats, the run is stopped early because it would never terminate.
+ * The run is executed by a {@link RunScheduler}, so it can be cancelled and is limited in
+ * time as well. While the run is in progress, its status message shows its progress.
  */
 public class RunTuringMachineCommand implements BotCommand {
     
+    /** Executes the runs away from the threads handling the Discord events. */
+    private final RunScheduler scheduler;
+    
+    /** The minimum time between two updates of the progress of a run. */
+    private final Duration progressInterval;
+    
     /**
      * Defines how many computation steps can maximally be done per run.
      * {@code 0} signalizes no limitation.
      */
-    private int maxStepsPerRun = 0;
+    private long maxStepsPerRun = 0;
     
     /**
      * Constructs a new Run-command that will execute the given maximum amount of steps
      * per run. Using this constructor, the bot can prohibit infinite loops.
      * 
+     * @param scheduler The scheduler executing the runs.
      * @param maxStepsPerRun The maximum amount of steps per run. {@code 0} for no limit.
+     * @param progressInterval The minimum time between two updates of the status
+     *                         message of a run.
      */
-    public RunTuringMachineCommand(int maxStepsPerRun) {
+    public RunTuringMachineCommand(RunScheduler scheduler, long maxStepsPerRun,
+            Duration progressInterval) {
+        this.scheduler = scheduler;
         this.maxStepsPerRun = maxStepsPerRun;
+        this.progressInterval = progressInterval;
     }
 
     @Override
@@ -38,13 +58,16 @@ public class RunTuringMachineCommand implements BotCommand {
 
     @Override
     public String getDescription() {
-        String limitationInfo = "";
+        String limitationInfo = " or runs for " + formatTime(scheduler.getMaxRunTime());
         
         if (maxStepsPerRun != 0) {
-            limitationInfo = " or reaches the maximum of " + maxStepsPerRun + " steps per run.";
+            limitationInfo += " or reaches the maximum of " + maxStepsPerRun 
+                    + " steps per run";
         }
         
-        return "Executes the Turing machine until it terminates" + limitationInfo + ".";
+        return "Executes the Turing machine until it terminates" + limitationInfo 
+                + ". Stops early if the Turing machine is caught in an infinite loop. "
+                + "Use `cancel` to stop the run.";
     }
 
     @Override
@@ -57,7 +80,6 @@ public class RunTuringMachineCommand implements BotCommand {
             throws InvalidCommandSyntaxException {
         
         Publisher<?> infoMessage = Mono.empty();
-        int stepsDone = 0;
         
         if (tm.isUnbuilt()) {
             tm.build();
@@ -67,28 +89,150 @@ public class RunTuringMachineCommand implements BotCommand {
                      .setColor(Color.YELLOW)));
         }
         
-        do {
-            tm.performStep();
-            
-            if (++stepsDone == maxStepsPerRun) {
-                return Flux.concat(infoMessage, message.getChannel().flatMap(
-                        c -> c.createEmbed(s -> 
-                            s.setTitle("Limitation of " + maxStepsPerRun + " steps per "
-                                    + "run reached.")
-                             .setDescription("Maybe you created an infinite loop?")
-                             .setColor(Color.RED)
-                    )));
-            }
-        } while (tm.isRunning());
+        /*
+         * The run is queued right away, so exceeded quotas are reported as errors of this
+         * command. The status message is edited with the progress of the run at most
+         * once per interval. Once the run stopped, its outcome replaces the progress.
+         * Direct messages are accounted like a server of their own. If the messages
+         * fail, the run is cancelled and awaited before the error is passed on, because
+         * the Turing machine is released once this command completed.
+         */
+        final Snowflake channelId = message.getChannelId();
+        final Snowflake guildId = message.getGuildId().orElse(channelId);
+        final Mono<ScheduledRun> run =
+                scheduler.submit(guildId, channelId, tm, maxStepsPerRun);
+        final Mono<?> response = message.getChannel()
+                .flatMap(c -> c.createEmbed(s -> 
+                    s.setTitle("The Turing machine is running.")
+                     .setDescription("Use `cancel` to stop the run.")
+                     .setColor(Color.YELLOW)))
+                .flatMap(status -> Flux.interval(progressInterval)
+                        .onBackpressureDrop()
+                        .takeUntilOther(run)
+                        .concatMap(tick -> 
+                                Mono.justOrEmpty(scheduler.getProgress(channelId)))
+                        .concatMap(progress -> status.edit(e -> 
+                                e.setEmbed(s -> describeProgress(s, progress))))
+                        .then(run)
+                        .flatMap(stopped -> status.edit(e -> 
+                                e.setEmbed(s -> describeOutcome(s, stopped, tm))))
+                        .onErrorResume(error -> status.delete()
+                                .onErrorResume(deleteError -> Mono.empty())
+                                .then(Mono.error(error))));
+        
+        return Flux.concat(infoMessage, response)
+                   .onErrorResume(error -> awaitCancelled(channelId, run)
+                           .then(Mono.error(error)));
+    }
+
+    /**
+     * Cancels the run of the given channel and waits until it stopped. Errors of the
+     * run itself are ignored.
+     * 
+     * @param channelId The channel of the run.
+     * @param run The publisher emitting the run once it stopped.
+     * @return A publisher that completes once the run stopped.
+     */
+    private Mono<Void> awaitCancelled(Snowflake channelId, Mono<ScheduledRun> run) {
+        return Mono.fromRunnable(() -> scheduler.cancel(channelId))
+                   .then(run.onErrorResume(runError -> Mono.empty()))
+                   .then();
+    }
 
-        final String title = "The Turing machine terminated after " + stepsDone + " steps.";
-        final String terminateMessage = TMFormatterUtils.getTerminationMessageContent(tm);
-        return Flux.concat(infoMessage, message.getChannel().flatMap(
-                c -> c.createEmbed(s -> 
-                    s.setTitle(title)
-                     .setDescription(terminateMessage)
-                     .setColor(Color.DISCORD_WHITE)
-                )));
+    /**
+     * Fills the status message of a run that is still in progress.
+     * 
+     * @param spec The embed of the status message.
+     * @param progress The progress of the run.
+     */
+    private void describeProgress(EmbedCreateSpec spec, ScheduledRun.Progress progress) {
+        spec.setTitle("The Turing machine is running.")
+            .setDescription("Use `cancel` to stop the run.")
+            .addField("Steps:", "`" + progress.getSteps() + "`", true)
+            .addField("Steps per second:", "`" + progress.getStepsPerSecond() + "`", true)
+            .addField("Current state:", "`" + progress.getState() + "`", true)
+            .addField("Head index:", "`" + progress.getHeadIndex() + "`", true)
+            .addField("Tape extent:", "`" + progress.getLeftmostIndex() + " to " 
+                    + progress.getRightmostIndex() + "`", true)
+            .setColor(Color.YELLOW);
     }
 
+    /**
+     * Fills the status message of a run that stopped with its outcome.
+     * 
+     * @param spec The embed of the status message.
+     * @param run The stopped run.
+     * @param tm The Turing machine of the run.
+     */
+    private void describeOutcome(EmbedCreateSpec spec, ScheduledRun run,
+            TuringMachine tm) {
+        final RunResult result = run.getResult();
+        
+        switch (run.getStop()) {
+        case LOOPING:
+            spec.setTitle("The Turing machine runs forever.")
+                .setDescription(describeLoop(result))
+                .setColor(Color.RED);
+            break;
+        case STEP_LIMIT:
+            spec.setTitle("Limitation of " + maxStepsPerRun + " steps per run reached.")
+                .setDescription("Maybe you created an infinite loop?")
+                .setColor(Color.RED);
+            break;
+        case TIME_LIMIT:
+            spec.setTitle("Limitation of " + formatTime(run.getMaxTime()) 
+                    + " per run reached.")
+                .setDescription("The Turing machine stopped after " + result.getSteps() 
+                    + " steps. Run it again to continue.")
+                .setColor(Color.RED);
+            break;
+        case QUOTA:
+            spec.setTitle("This server used up its computing time.")
+                .setDescription("The Turing machine stopped after " + result.getSteps() 
+                    + " steps. Use `quota` to see when it can continue.")
+                .setColor(Color.RED);
+            break;
+        case CANCELLED:
+            spec.setTitle("The run was cancelled.")
+                .setDescription("The Turing machine stopped after " + result.getSteps() 
+                    + " steps. Run it again to continue.")
+                .setColor(Color.YELLOW);
+            break;
+        default:
+            spec.setTitle("The Turing machine terminated after " + result.getSteps() 
+                    + " steps.")
+                .setDescription(TMFormatterUtils.getTerminationMessageContent(tm))
+                .setColor(Color.DISCORD_WHITE);
+        }
+    }
+
+    /**
+     * Formats a time limit for the messages of this command.
+     * 
+     * @param time The time limit.
+     * @return The time in seconds, like "10 seconds".
+     */
+    private static String formatTime(Duration time) {
+        return time.getSeconds() + " seconds";
+    }
+
+    /**
+     * Describes why the Turing machine runs forever.
+     * 
+     * @param result The result of the run in which the loop was found.
+     * @return The description of the loop.
+     */
+    private static String describeLoop(RunResult result) {
+        if (result.getCyclePeriod() > 0 && result.getCycleStart() < 0) {
+            return "Already before this run, the configuration started repeating every "
+                    + result.getCyclePeriod() + " steps.";
+        } else if (result.getCyclePeriod() > 0) {
+            return "After step " + result.getCycleStart() + " of this run, the "
+                    + "configuration repeats every " + result.getCyclePeriod() + " steps.";
+        }
+        
+        return "After " + result.getSteps() + " steps of this run, the " 
+                + result.getProvenBy() + " decider proved that the Turing machine never "
+                + "terminates.";
+    }
 }
@@ -0,0 +1,322 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A computation other than a run, like the evaluation of a batch of input words, that
+ * was submitted to a {@link RunScheduler}. It counts against the runs and the computing
+ * time of its server like a {@link ScheduledRun} and can be cancelled as well.
+ * <p>
+ * The computation cannot be paused, so it is executed at once on a pool of its own with
+ * as many threads as the scheduler has, while the thread of the scheduler waits for it.
+ * The computation is given a flag it checks regularly, which is raised as soon as the
+ * job is cancelled, exceeds its time or uses up the computing time of its server, so
+ * its running tasks stop promptly. The computing time of the job is the CPU time of the
+ * threads of its pool.
+ *
+ * @param <T> The type of the result of the computation.
+ */
+public class ScheduledJob<T> {
+
+    /**
+     * A computation that stops as soon as possible once it was cancelled.
+     *
+     * @param <T> The type of the result of the computation.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+
+        /**
+         * Executes the computation. It may use the pool of the job, which it can get
+         * using {@link ForkJoinTask#getPool()}, but no other threads.
+         *
+         * @param cancelled Returns whether the job should stop. It may be checked from
+         *                  multiple threads at once.
+         * @return The result of the computation.
+         * @throws Exception Thrown if the computation failed or was cancelled.
+         */
+        T compute(BooleanSupplier cancelled) throws Exception;
+    }
+
+    /** The time between two checks whether the job should stop in nanoseconds. */
+    private static final long CHECK_INTERVAL_NANOS = 50_000_000;
+
+    /** Measures the CPU time of the threads of the pools. */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** The computation, which is called on the pool of the job. */
+    private final Work<T> work;
+
+    /** The amount of threads of the pool of the job. */
+    private final int parallelism;
+
+    /** The maximum time the job may take. */
+    private final Duration maxTime;
+
+    /** Whether the job was cancelled. */
+    private volatile boolean cancelled = false;
+
+    /** The time the job took in nanoseconds. */
+    private long executionNanos = 0;
+
+    /** The CPU time the threads of the job used in nanoseconds. */
+    private long cpuNanos = 0;
+
+    /** The result of the computation or {@code null} if it did not complete. */
+    private T result;
+
+    /** The reason why the job stopped or {@code null} if it did not stop yet. */
+    private volatile ScheduledRun.Stop stop;
+
+    /**
+     * Measures the CPU time used by the threads of a pool, including the threads that
+     * terminated already.
+     */
+    private static final class CpuClock implements ForkJoinWorkerThreadFactory {
+
+        /** The threads of the pool that did not terminate yet. */
+        private final Set<Thread> alive = ConcurrentHashMap.newKeySet();
+
+        /** The CPU time of the terminated threads in nanoseconds. */
+        private final LongAdder terminated = new LongAdder();
+
+        /** The amount of threads of the pool, used if CPU time cannot be measured. */
+        private final int parallelism;
+
+        /** The time the pool was started in nanoseconds. */
+        private final long start = System.nanoTime();
+
+        /**
+         * Creates a new clock.
+         *
+         * @param parallelism The amount of threads of the pool.
+         */
+        CpuClock(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            final ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+                @Override
+                protected void onTermination(Throwable exception) {
+                    if (measurable()) {
+                        terminated.add(THREADS.getCurrentThreadCpuTime());
+                    }
+                    alive.remove(this);
+                    super.onTermination(exception);
+                }
+            };
+            thread.setName("turing-machine-job-" + thread.getPoolIndex());
+            alive.add(thread);
+            return thread;
+        }
+
+        /**
+         * Returns the CPU time the threads of the pool used so far. If the CPU time of
+         * threads cannot be measured, all threads are assumed to be busy since the pool
+         * was started.
+         *
+         * @return The CPU time in nanoseconds.
+         */
+        long cpuNanos() {
+            if (!measurable()) {
+                return (System.nanoTime() - start) * parallelism;
+            }
+
+            long nanos = terminated.sum();
+            for (Thread thread : alive) {
+                nanos += Math.max(0, THREADS.getThreadCpuTime(thread.getId()));
+            }
+            return nanos;
+        }
+
+        /**
+         * Checks whether the CPU time of threads can be measured.
+         *
+         * @return {@code true} if it can be measured.
+         */
+        private static boolean measurable() {
+            return THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+        }
+    }
+
+    /**
+     * Creates a new job that was not started yet.
+     *
+     * @param work The computation.
+     * @param parallelism The amount of threads the computation may use.
+     * @param maxTime The maximum time the job may take.
+     */
+    ScheduledJob(Work<T> work, int parallelism, Duration maxTime) {
+        this.work = work;
+        this.parallelism = parallelism;
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Executes the job and waits until it stopped.
+     *
+     * @param maxNanos The computing time the server of the job has left in nanoseconds.
+     * @throws ExecutionException Thrown if the computation failed.
+     */
+    void execute(long maxNanos) throws ExecutionException {
+        final long start = System.nanoTime();
+        final CpuClock clock = new CpuClock(parallelism);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism, clock, null, false);
+        final ForkJoinTask<T> task =
+                pool.submit(() -> work.compute(() -> cancelled || stop != null));
+
+        try {
+            while (true) {
+                try {
+                    final T value = task.get(CHECK_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+                    if (stop == null) {
+                        result = value;
+                        stop = ScheduledRun.Stop.TERMINATED;
+                    }
+                    return;
+                } catch (TimeoutException e) {
+                    if (stop == null) {
+                        stop = checkLimits(System.nanoTime() - start, clock.cpuNanos(),
+                                maxNanos);
+                    }
+                } catch (ExecutionException | CancellationException e) {
+                    // A computation that was stopped may fail because of it, even before
+                    // the limits were checked again.
+                    if (stop == null) {
+                        stop = checkLimits(System.nanoTime() - start, clock.cpuNanos(),
+                                maxNanos);
+                    }
+                    if (stop == null) {
+                        throw (e instanceof ExecutionException)
+                                ? (ExecutionException) e
+                                : new ExecutionException(e);
+                    }
+                    return;
+                } catch (InterruptedException e) {
+                    // The threads of the scheduler are never interrupted on purpose.
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+            executionNanos = System.nanoTime() - start;
+            cpuNanos = clock.cpuNanos();
+        }
+    }
+
+    /**
+     * Checks whether the job should stop.
+     *
+     * @param elapsedNanos The time since the job started in nanoseconds.
+     * @param usedNanos The CPU time the job used in nanoseconds.
+     * @param maxNanos The computing time the server of the job had left when the job
+     *                 started in nanoseconds.
+     * @return The reason why the job should stop or {@code null} if it may continue.
+     */
+    private ScheduledRun.Stop checkLimits(long elapsedNanos, long usedNanos,
+            long maxNanos) {
+        if (cancelled) {
+            return ScheduledRun.Stop.CANCELLED;
+        } else if (elapsedNanos >= maxTime.toNanos()) {
+            return ScheduledRun.Stop.TIME_LIMIT;
+        } else if (usedNanos >= maxNanos) {
+            return ScheduledRun.Stop.QUOTA;
+        }
+        return null;
+    }
+
+    /**
+     * Waits until the running tasks of a pool that was shut down completed.
+     *
+     * @param pool The pool.
+     */
+    private static void awaitTermination(ForkJoinPool pool) {
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // The threads of the scheduler are never interrupted on purpose.
+            }
+        }
+    }
+
+    /**
+     * Stops the job without executing it.
+     *
+     * @param reason The reason why the job stopped.
+     */
+    void stop(ScheduledRun.Stop reason) {
+        stop = reason;
+    }
+
+    /**
+     * Requests the job to stop as soon as possible. The running tasks of the
+     * computation see the request the next time they check their flag.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the maximum time the job may take.
+     *
+     * @return The time limit.
+     */
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Returns the time the job took.
+     *
+     * @return The execution time in nanoseconds.
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Returns the CPU time the threads of the job used, which is charged to the server
+     * of the job.
+     *
+     * @return The CPU time in nanoseconds.
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Returns the result of the computation.
+     *
+     * @return The result or {@code null} if the computation did not complete.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * Returns why the job stopped. A job whose computation completed stopped with
+     * {@link ScheduledRun.Stop#TERMINATED}.
+     *
+     * @return The reason or {@code null} if the job did not stop yet.
+     */
+    public ScheduledRun.Stop getStop() {
+        return stop;
+    }
+}
@@ -0,0 +1,309 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import java.time.Duration;
+
+import de.tim_greller.mr_turing.turing_machine.RunResult;
+import de.tim_greller.mr_turing.turing_machine.TMState;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * A run of a Turing machine that was submitted to a {@link RunScheduler}. The run is
+ * executed in slices of steps, and after each slice it is checked whether the run was
+ * cancelled or took longer than allowed. The progress of the run is recorded after each
+ * slice as well, so it can be reported while the run continues.
+ */
+public class ScheduledRun {
+
+    /**
+     * The reason why a run stopped.
+     */
+    public enum Stop {
+
+        /** The Turing machine accepted or denied its input. */
+        TERMINATED,
+
+        /** The Turing machine was proven to run forever. */
+        LOOPING,
+
+        /** The maximum amount of steps per run was executed. */
+        STEP_LIMIT,
+
+        /** The run took longer than the maximum time per run. */
+        TIME_LIMIT,
+
+        /** The run was cancelled by a user. */
+        CANCELLED,
+
+        /** The server of the run used up its computing time. */
+        QUOTA
+    }
+
+    /**
+     * The configuration of the Turing machine after a slice of the run. The progress
+     * can be read from any thread, while the Turing machine itself must not be accessed
+     * until the run stopped.
+     */
+    public static class Progress {
+
+        /** The amount of steps executed since the run started. */
+        private final long steps;
+
+        /** The time since the run was submitted in nanoseconds. */
+        private final long elapsedNanos;
+
+        /** The name of the current state. */
+        private final String state;
+
+        /** The index of the cell the head is pointing at. */
+        private final int headIndex;
+
+        /** The index of the most left visited cell. */
+        private final int leftmostIndex;
+
+        /** The index of the most right visited cell. */
+        private final int rightmostIndex;
+
+        /**
+         * Records the progress of a run.
+         *
+         * @param tm The Turing machine of the run, which must not be running.
+         * @param steps The amount of steps executed since the run started.
+         * @param elapsedNanos The time since the run was submitted in nanoseconds.
+         */
+        Progress(TuringMachine tm, long steps, long elapsedNanos) {
+            this.steps = steps;
+            this.elapsedNanos = elapsedNanos;
+            this.state = String.valueOf(tm.getCurrentState());
+            this.headIndex = tm.getHeadIndex();
+            this.leftmostIndex = tm.getLeftmostIndex();
+            this.rightmostIndex = tm.getRightmostIndex();
+        }
+
+        /**
+         * Returns the amount of steps executed since the run started.
+         *
+         * @return The step count of the run.
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * Returns the time since the run was submitted.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the average speed of the run.
+         *
+         * @return The executed steps per second.
+         */
+        public long getStepsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : (long) (steps * 1e9 / elapsedNanos);
+        }
+
+        /**
+         * Returns the name of the current state.
+         *
+         * @return The current state.
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Returns the position of the head on the tape.
+         *
+         * @return The index of the cell the head is pointing at.
+         */
+        public int getHeadIndex() {
+            return headIndex;
+        }
+
+        /**
+         * Returns the index of the most left visited cell.
+         *
+         * @return The left end of the used tape.
+         */
+        public int getLeftmostIndex() {
+            return leftmostIndex;
+        }
+
+        /**
+         * Returns the index of the most right visited cell.
+         *
+         * @return The right end of the used tape.
+         */
+        public int getRightmostIndex() {
+            return rightmostIndex;
+        }
+    }
+
+    /** The Turing machine that is run. */
+    private final TuringMachine tm;
+
+    /** The maximum amount of steps of the run. {@code 0} signalizes no limitation. */
+    private final long maxSteps;
+
+    /** The maximum time the slices of the run may take together. */
+    private final Duration maxTime;
+
+    /** The time the run was submitted in nanoseconds. */
+    private final long start = System.nanoTime();
+
+    /** The time the slices of the run took so far in nanoseconds. */
+    private long executionNanos = 0;
+
+    /** The status of the Turing machine after the last slice. */
+    private TMState status = TMState.RUNNING;
+
+    /** Whether the run should stop after the current slice. */
+    private volatile boolean cancelled = false;
+
+    /** The amount of steps executed so far. */
+    private volatile long steps = 0;
+
+    /** The progress after the last slice or {@code null} if no slice completed yet. */
+    private volatile Progress progress;
+
+    /** The combined result of all slices or {@code null} if the run did not stop yet. */
+    private RunResult result;
+
+    /** The reason why the run stopped or {@code null} if it did not stop yet. */
+    private Stop stop;
+
+    /**
+     * Creates a new run that was not started yet.
+     *
+     * @param tm The Turing machine that should be run.
+     * @param maxSteps The maximum amount of steps of the run. {@code 0} for no limit.
+     * @param maxTime The maximum time the slices of the run may take together.
+     */
+    ScheduledRun(TuringMachine tm, long maxSteps, Duration maxTime) {
+        this.tm = tm;
+        this.maxSteps = maxSteps;
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Executes the next slice of the run on the current thread.
+     *
+     * @param stepsPerSlice The maximum amount of steps of the slice.
+     * @return {@code true} if the run stopped, {@code false} if it should continue.
+     */
+    boolean executeSlice(long stepsPerSlice) {
+        final long sliceStart = System.nanoTime();
+        final long sliceSteps = (maxSteps == 0)
+                ? stepsPerSlice
+                : Math.min(stepsPerSlice, maxSteps - steps);
+        final long offset = steps;
+        final RunResult slice = tm.run(sliceSteps, true);
+        steps = offset + slice.getSteps();
+        status = slice.getStatus();
+        executionNanos += System.nanoTime() - sliceStart;
+
+        if (slice.isLooping()) {
+            stop = Stop.LOOPING;
+            // The cycle may have started in an earlier slice of the run.
+            final long cycleStart = (slice.getCyclePeriod() < 0)
+                    ? -1
+                    : offset + slice.getCycleStart();
+            result = new RunResult(status, steps, executionNanos, cycleStart,
+                    slice.getCyclePeriod(), slice.getProvenBy());
+            return true;
+        }
+
+        if (slice.hasTerminated()) {
+            stop(Stop.TERMINATED);
+        } else if (maxSteps != 0 && steps >= maxSteps) {
+            stop(Stop.STEP_LIMIT);
+        } else if (cancelled) {
+            stop(Stop.CANCELLED);
+        } else if (executionNanos >= maxTime.toNanos()) {
+            stop(Stop.TIME_LIMIT);
+        } else {
+            progress = new Progress(tm, steps, System.nanoTime() - start);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the run without executing further slices.
+     *
+     * @param reason The reason why the run stopped.
+     */
+    void stop(Stop reason) {
+        stop = reason;
+        result = new RunResult(status, steps, executionNanos);
+    }
+
+    /**
+     * Requests the run to stop after the current slice.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the amount of steps executed so far. This can be called while the run is
+     * executed.
+     *
+     * @return The current step count of the run.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the progress of the run after its last slice. This can be called while
+     * the run is executed.
+     *
+     * @return The progress or {@code null} if no slice was completed yet.
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Returns the maximum amount of steps of the run.
+     *
+     * @return The step limit. {@code 0} signalizes no limitation.
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Returns the maximum time the slices of the run may take together. The time the
+     * run waits for its next slice is not counted.
+     *
+     * @return The time limit.
+     */
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Returns the combined result of all slices. Cycle starts are counted from the start
+     * of the whole run.
+     *
+     * @return The result or {@code null} if the run did not stop yet.
+     */
+    public RunResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns why the run stopped.
+     *
+     * @return The reason or {@code null} if the run did not stop yet.
+     */
+    public Stop getStop() {
+        return stop;
+    }
+}
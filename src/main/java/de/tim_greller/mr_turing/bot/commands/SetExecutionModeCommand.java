@@ -0,0 +1,48 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Message;
+import reactor.core.publisher.Mono;
+
+/**
+ * This command sets the execution mode the Turing machine uses when it is run.
+ */
+public class SetExecutionModeCommand implements BotCommand {
+
+    @Override
+    public String getTitle() {
+        return "Set the execution mode";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Sets how the Turing machine executes its steps when it is run. The mode "
+                + "can be `interpreted` (default), `compiled`, which generates "
+                + "specialized code for the machine when it is built, `macro`, which "
+                + "executes whole blocks of the tape at once, or `rle`, which stores the "
+                + "tape as runs of equal symbols and skips loops over such runs.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "mode";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+        
+        if (argument.isBlank()) {
+            throw new InvalidCommandSyntaxException("No execution mode given.");
+        }
+        
+        tm.setExecutionMode(ExecutionMode.from(argument));
+        
+        return Mono.empty();
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import org.reactivestreams.Publisher;
+
+import de.tim_greller.mr_turing.bot.InvalidCommandSyntaxException;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.core.object.entity.Message;
+import reactor.core.publisher.Mono;
+
+/**
+ * This command brings the Turing machine back to one of its earlier configurations.
+ */
+public class StepBackCommand implements BotCommand {
+
+    @Override
+    public String getTitle() {
+        return "Go back in time";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Undoes the given amount of calculation steps of the Turing machine, or "
+                + "one step if no amount is given. Use `back to <step>` to go back to the "
+                + "configuration after the given step instead. Everything that happened "
+                + "after that configuration is forgotten.";
+    }
+
+    @Override
+    public String getCallName() {
+        return "back";
+    }
+
+    @Override
+    public Publisher<?> execute(Message message, String argument, TuringMachine tm)
+            throws InvalidCommandSyntaxException {
+        
+        final String[] parts = argument.trim().split("\\s+", 2);
+        
+        if (parts[0].isEmpty()) {
+            tm.stepBack(1);
+        } else if (parts[0].equalsIgnoreCase("to") && parts.length == 2) {
+            tm.seek(parseSteps(parts[1]));
+        } else {
+            tm.stepBack(parseSteps(argument));
+        }
+        
+        return Mono.empty();
+    }
+    
+    /**
+     * Parses an amount of steps or a step count.
+     * 
+     * @param argument The String containing the number.
+     * @return The number.
+     * @throws InvalidCommandSyntaxException Thrown if the String is no valid number.
+     */
+    private static long parseSteps(String argument) throws InvalidCommandSyntaxException {
+        try {
+            return Long.parseLong(argument.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidCommandSyntaxException(
+                    "\"" + argument.trim() + "\" is not a valid amount of steps.");
+        }
+    }
+
+}
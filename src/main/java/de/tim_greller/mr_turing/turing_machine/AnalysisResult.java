@@ -0,0 +1,97 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * The outcome of simplifying the transitions of a Turing machine when it was built with
+ * {@link TuringMachine#setOptimized(boolean) optimization} enabled.
+ */
+public class AnalysisResult {
+
+    /** The amount of states that cannot be reached from an initial state. */
+    private final int unreachableStates;
+
+    /** The amount of reachable states from which no accepting state can be reached. */
+    private final int deadStates;
+
+    /** The amount of states that were merged into an identical state. */
+    private final int mergedStates;
+
+    /** The amount of transitions before the simplification. */
+    private final int originalTransitions;
+
+    /** The amount of transitions after the simplification. */
+    private final int remainingTransitions;
+
+    /**
+     * Creates a new result of an analysis.
+     *
+     * @param unreachableStates The amount of unreachable states.
+     * @param deadStates The amount of dead states.
+     * @param mergedStates The amount of merged states.
+     * @param originalTransitions The amount of transitions before the simplification.
+     * @param remainingTransitions The amount of transitions after the simplification.
+     */
+    public AnalysisResult(int unreachableStates, int deadStates, int mergedStates,
+            int originalTransitions, int remainingTransitions) {
+        this.unreachableStates = unreachableStates;
+        this.deadStates = deadStates;
+        this.mergedStates = mergedStates;
+        this.originalTransitions = originalTransitions;
+        this.remainingTransitions = remainingTransitions;
+    }
+
+    /**
+     * Returns the amount of states that cannot be reached from an initial state. They
+     * were removed together with their transitions.
+     *
+     * @return The amount of unreachable states.
+     */
+    public int getUnreachableStates() {
+        return unreachableStates;
+    }
+
+    /**
+     * Returns the amount of reachable states from which no accepting state can be
+     * reached. Their transitions were removed, so the TM denies after entering them.
+     *
+     * @return The amount of dead states.
+     */
+    public int getDeadStates() {
+        return deadStates;
+    }
+
+    /**
+     * Returns the amount of states that were merged into an identical state.
+     *
+     * @return The amount of merged states.
+     */
+    public int getMergedStates() {
+        return mergedStates;
+    }
+
+    /**
+     * Returns the amount of transitions the TM was defined with.
+     *
+     * @return The amount of transitions before the simplification.
+     */
+    public int getOriginalTransitions() {
+        return originalTransitions;
+    }
+
+    /**
+     * Returns the amount of transitions the TM is run with.
+     *
+     * @return The amount of transitions after the simplification.
+     */
+    public int getRemainingTransitions() {
+        return remainingTransitions;
+    }
+
+    /**
+     * Returns the amount of transitions that were removed.
+     *
+     * @return The difference of the original and the remaining transitions.
+     */
+    public int getRemovedTransitions() {
+        return originalTransitions - remainingTransitions;
+    }
+}
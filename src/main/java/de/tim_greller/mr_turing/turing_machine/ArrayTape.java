@@ -0,0 +1,259 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link Tape} which stores the ids of its symbols in a primitive array. The array
+ * grows geometrically at the end the head is leaving it. Because the array can also grow
+ * to the left, the position of the cell with index 0 is stored as an offset.
+ */
+public class ArrayTape extends Tape {
+
+    /** The amount of cells the array can hold initially. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The symbol ids of the cells. Cells that were never visited contain the blank. */
+    private int[] cells;
+
+    /** The position in the array of the cell with the index 0. */
+    private int origin;
+
+    /** The position in the array of the cell the head is pointing at. */
+    private int head;
+
+    /** The position in the array of the most left visited cell. */
+    private int leftmost;
+
+    /** The position in the array of the most right visited cell. */
+    private int rightmost;
+
+    /**
+     * Creates a new Tape, which is initially filled with the given {@link BlankSymbol}.
+     *
+     * @param blank The blank symbol which will be on every position of the tape.
+     * @param symbols The registry that assigns the ids of the symbols.
+     */
+    ArrayTape(BlankSymbol blank, Registry<Symbol> symbols) {
+        super(blank, symbols);
+        cells = new int[INITIAL_CAPACITY];
+        Arrays.fill(cells, blankId);
+        origin = INITIAL_CAPACITY / 2;
+        head = origin;
+        leftmost = origin;
+        rightmost = origin;
+    }
+
+    @Override
+    public void moveHead(TapeMove direction) {
+        switch (direction) {
+        case LEFT:
+            moveLeft();
+            break;
+
+        case RIGHT:
+            moveRight();
+            break;
+
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void writeWord(Deque<Symbol> word) {
+        if (word.isEmpty()) {
+            return;
+        }
+
+        ensureCapacityRight(head + word.size() - 1);
+
+        int position = head;
+        for (Symbol symbol : word) {
+            cells[position++] = symbols.idOf(symbol);
+        }
+        rightmost = Math.max(rightmost, position - 1);
+    }
+
+    @Override
+    public Deque<Symbol> getContent() {
+        final Deque<Symbol> content = new LinkedList<>();
+
+        for (int position = leftmost; position <= rightmost; position++) {
+            content.addLast(symbols.get(cells[position]));
+        }
+
+        return content;
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder, String separator) {
+        for (int position = leftmost; position <= rightmost; position++) {
+            builder.append(separator).append(symbols.get(cells[position]));
+        }
+        builder.append(separator);
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return head - origin;
+    }
+
+    @Override
+    public int getLeftmostIndex() {
+        return leftmost - origin;
+    }
+
+    @Override
+    public int getRightmostIndex() {
+        return rightmost - origin;
+    }
+
+    @Override
+    int readId() {
+        return cells[head];
+    }
+
+    @Override
+    void writeId(int id) {
+        cells[head] = id;
+    }
+
+    @Override
+    void restoreRange(int leftmost, int rightmost) {
+        this.leftmost = origin + leftmost;
+        this.rightmost = origin + rightmost;
+    }
+
+    @Override
+    PrimitiveIterator.OfInt ids(int from, int to) {
+        return IntStream.range(from, Math.max(from, to)).map(this::idAt).iterator();
+    }
+
+    @Override
+    ArrayTape copy(Registry<Symbol> symbols) {
+        final ArrayTape copy = new ArrayTape(blank, symbols);
+        copy.cells = cells.clone();
+        copy.origin = origin;
+        copy.head = head;
+        copy.leftmost = leftmost;
+        copy.rightmost = rightmost;
+        return copy;
+    }
+
+    /**
+     * Returns the id of the symbol in the cell with the given index.
+     *
+     * @param index The index of the cell.
+     * @return The id of the cells content or the id of the blank if the cell is outside
+     *         of the array.
+     */
+    private int idAt(int index) {
+        final int position = origin + index;
+        return (position >= 0 && position < cells.length) ? cells[position] : blankId;
+    }
+
+    /**
+     * Replaces the content of this tape. The given cells become the visited cells and
+     * all other cells become blank.
+     *
+     * @param from The index of the first given cell.
+     * @param ids The symbol ids of the visited cells, ordered from left to right.
+     * @param headIndex The index of the cell the head should point at. It has to be one
+     *                  of the given cells.
+     */
+    void replace(int from, int[] ids, int headIndex) {
+        cells = new int[Math.max(INITIAL_CAPACITY, 2 * ids.length)];
+        Arrays.fill(cells, blankId);
+
+        leftmost = (cells.length - ids.length) / 2;
+        rightmost = leftmost + ids.length - 1;
+        origin = leftmost - from;
+        head = origin + headIndex;
+        System.arraycopy(ids, 0, cells, leftmost, ids.length);
+    }
+
+    /**
+     * Clears the visited cells and writes a new input word, so the tape can be reused
+     * for another run. The head is moved back to the index 0, where the word starts. The
+     * array keeps its size, so reusing the tape does not allocate memory.
+     *
+     * @param ids The symbol ids of the input word.
+     * @param length The length of the input word, which is stored at the start of the
+     *               given array.
+     */
+    void reset(int[] ids, int length) {
+        Arrays.fill(cells, leftmost, rightmost + 1, blankId);
+        head = origin;
+        leftmost = origin;
+        rightmost = origin;
+
+        if (length > 0) {
+            ensureCapacityRight(origin + length - 1);
+            System.arraycopy(ids, 0, cells, origin, length);
+            rightmost = origin + length - 1;
+        }
+    }
+
+    /**
+     * Moves the head one cell to the left and grows the array if necessary.
+     */
+    void moveLeft() {
+        if (head == 0) {
+            growLeft();
+        }
+
+        if (--head < leftmost) {
+            leftmost = head;
+        }
+    }
+
+    /**
+     * Moves the head one cell to the right and grows the array if necessary.
+     */
+    void moveRight() {
+        if (head == cells.length - 1) {
+            ensureCapacityRight(head + 1);
+        }
+
+        if (++head > rightmost) {
+            rightmost = head;
+        }
+    }
+
+    /**
+     * Doubles the size of the array by adding blank cells in front of it.
+     */
+    private void growLeft() {
+        final int shift = cells.length;
+        final int[] grown = new int[cells.length + shift];
+
+        Arrays.fill(grown, 0, shift, blankId);
+        System.arraycopy(cells, 0, grown, shift, cells.length);
+
+        cells = grown;
+        origin += shift;
+        head += shift;
+        leftmost += shift;
+        rightmost += shift;
+    }
+
+    /**
+     * Grows the array to the right until it contains the given position. The size is at
+     * least doubled, so moving the head to the right costs amortized constant time.
+     *
+     * @param position The position that should be part of the array.
+     */
+    private void ensureCapacityRight(int position) {
+        if (position < cells.length) {
+            return;
+        }
+
+        final int oldLength = cells.length;
+        cells = Arrays.copyOf(cells, Math.max(oldLength * 2, position + 1));
+        Arrays.fill(cells, oldLength, cells.length, blankId);
+    }
+}
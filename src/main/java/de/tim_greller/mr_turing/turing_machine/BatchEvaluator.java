@@ -0,0 +1,380 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs a deterministic Turing machine on many input words in parallel. All runs share
+ * one compiled transition table. The input words are split into chunks that are
+ * evaluated on a {@link ForkJoinPool}, each chunk reuses one {@link ArrayTape} for all
+ * of its words. Every run checks regularly whether the batch was cancelled, so a
+ * cancelled batch stops within a fraction of a second even if its runs are long.
+ */
+final class BatchEvaluator {
+
+    /** The amount of input words below which a chunk is not split further. */
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+
+    /** The amount of enumerated words below which a range is not split further. */
+    private static final int RANGE_THRESHOLD = 1024;
+
+    /**
+     * The mask of the step counts at which a run checks whether the batch was
+     * cancelled, which happens every 65536 steps.
+     */
+    private static final long CANCELLATION_MASK = 0xFFFF;
+
+    /** The compiled transitions of the TM, which are only read. */
+    private final TransitionTable table;
+
+    /** The ids of the accepting states. */
+    private final BitSet accepting;
+
+    /** The id of the initial state. */
+    private final int initialState;
+
+    /** The blank symbol of the tapes. */
+    private final BlankSymbol blank;
+
+    /** The pool the input words are evaluated on. */
+    private final ForkJoinPool pool;
+
+    /** Returns whether the evaluation was cancelled. */
+    private final BooleanSupplier cancelled;
+
+    /**
+     * Creates a new evaluator. The table must not be modified while the evaluator is
+     * used.
+     *
+     * @param table The compiled transitions of the TM.
+     * @param accepting The ids of the accepting states.
+     * @param initialState The id of the initial state.
+     * @param blank The blank symbol of the tapes.
+     * @param pool The pool the input words are evaluated on.
+     * @param cancelled Returns whether the evaluation was cancelled.
+     */
+    BatchEvaluator(TransitionTable table, BitSet accepting, int initialState,
+            BlankSymbol blank, ForkJoinPool pool, BooleanSupplier cancelled) {
+        this.table = table;
+        this.accepting = accepting;
+        this.initialState = initialState;
+        this.blank = blank;
+        this.pool = pool;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Evaluates all given input words.
+     *
+     * @param inputs The input words.
+     * @param maxSteps The maximum amount of steps per input word. {@code 0} signalizes
+     *                 no limitation.
+     * @param listener Receives each evaluation as soon as it is complete. It is called
+     *                 from multiple threads at once.
+     * @return The counts of the outcomes.
+     * @throws CancellationException Thrown if the evaluation was cancelled.
+     */
+    BatchResult evaluate(List<String> inputs, long maxSteps, Consumer<Evaluation> listener) {
+        final long start = System.nanoTime();
+        final long limit = (maxSteps == 0) ? Long.MAX_VALUE : maxSteps;
+        final Tally tally = new Tally();
+        final List<String> words = List.copyOf(inputs);
+
+        pool.invoke(new Chunk(words, 0, words.size(), limit, evaluation -> {
+            tally.add(evaluation);
+            listener.accept(evaluation);
+        }));
+
+        return tally.toResult(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs the TM on every word over the alphabet up to the maximum length of the
+     * enumeration. The words of each length are split into ranges that are evaluated in
+     * parallel, each range generates its words one after another on a single tape.
+     *
+     * @param enumeration Collects the outcomes.
+     * @param maxSteps The maximum amount of steps per word. {@code 0} signalizes no
+     *                 limitation.
+     * @return The result of the enumeration.
+     * @throws CancellationException Thrown if the enumeration was cancelled.
+     */
+    EnumerationResult enumerate(LanguageEnumeration enumeration, long maxSteps) {
+        final long start = System.nanoTime();
+        final long limit = (maxSteps == 0) ? Long.MAX_VALUE : maxSteps;
+        final String alphabet = enumeration.getAlphabet();
+        final int[] symbolIds = new int[alphabet.length()];
+
+        for (int i = 0; i < symbolIds.length; i++) {
+            symbolIds[i] = table.symbols.idOf(Symbol.of(alphabet.charAt(i)));
+        }
+
+        for (int length = 0; length <= enumeration.getMaxLength(); length++) {
+            pool.invoke(new WordRange(enumeration, symbolIds, length, 0,
+                    enumeration.count(length), limit));
+        }
+
+        return enumeration.toResult(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs the TM on input words one after another, reusing the same tape for every
+     * run. A worker must only be used by one thread at a time.
+     */
+    private final class Worker {
+
+        /** The tape of the runs. */
+        private final ArrayTape tape = new ArrayTape(blank, table.symbols);
+
+        /** The symbol ids of the current input word. */
+        private int[] word = new int[16];
+
+        /** The status of the TM after the latest run. */
+        private TMState status;
+
+        /** The amount of steps of the latest run. */
+        private long steps;
+
+        /**
+         * Runs the TM on the given input word.
+         *
+         * @param input The input word.
+         * @param limit The maximum amount of steps.
+         * @return The outcome of the run.
+         */
+        Evaluation evaluate(String input, long limit) {
+            if (word.length < input.length()) {
+                word = new int[input.length()];
+            }
+            for (int i = 0; i < input.length(); i++) {
+                word[i] = table.symbols.idOf(Symbol.of(input.charAt(i)));
+            }
+
+            run(word, input.length(), limit);
+            return new Evaluation(input, status, steps, tape.toWord());
+        }
+
+        /**
+         * Runs the TM on the given input word, storing the outcome in this worker.
+         *
+         * @param ids The symbol ids of the input word.
+         * @param length The length of the input word.
+         * @param limit The maximum amount of steps.
+         * @throws CancellationException Thrown if the evaluation was cancelled.
+         */
+        void run(int[] ids, int length, long limit) {
+            tape.reset(ids, length);
+            status = TMState.RUNNING;
+            steps = 0;
+            int state = initialState;
+
+            while (steps < limit) {
+                if ((steps & CANCELLATION_MASK) == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException("The evaluation was cancelled.");
+                }
+
+                final int position = table.find(state, tape.readId());
+                steps++;
+
+                if (position == TransitionTable.NO_TRANSITION) {
+                    status = accepting.get(state) ? TMState.ACCEPTING : TMState.DENYING;
+                    break;
+                }
+
+                tape.writeId(table.printSymbol(position));
+                state = table.nextState(position);
+                tape.moveHead(table.move(position));
+
+                if (accepting.get(state)) {
+                    status = TMState.ACCEPTING;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the outcomes of evaluations, which may be added from multiple threads.
+     */
+    static final class Tally {
+
+        /** The amount of evaluations. */
+        private final LongAdder total = new LongAdder();
+
+        /** The amount of accepted input words. */
+        private final LongAdder accepted = new LongAdder();
+
+        /** The amount of denied input words. */
+        private final LongAdder denied = new LongAdder();
+
+        /** The amount of executed steps. */
+        private final LongAdder steps = new LongAdder();
+
+        /**
+         * Counts the given evaluation.
+         *
+         * @param evaluation The outcome of a run.
+         */
+        void add(Evaluation evaluation) {
+            total.increment();
+            steps.add(evaluation.getSteps());
+
+            if (evaluation.getStatus() == TMState.ACCEPTING) {
+                accepted.increment();
+            } else if (evaluation.getStatus() == TMState.DENYING) {
+                denied.increment();
+            }
+        }
+
+        /**
+         * Creates the result of the batch from the counts.
+         *
+         * @param elapsedNanos The time the batch took in nanoseconds.
+         * @return The result of the batch.
+         */
+        BatchResult toResult(long elapsedNanos) {
+            return new BatchResult(total.sum(), accepted.sum(), denied.sum(), steps.sum(),
+                    elapsedNanos);
+        }
+    }
+
+    /**
+     * Evaluates a range of the input words, splitting it in half until it is small
+     * enough.
+     */
+    private final class Chunk extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = -3290515426473095184L;
+
+        /** All input words of the batch. */
+        private final List<String> inputs;
+
+        /** The index of the first input word of this chunk. */
+        private final int from;
+
+        /** The index after the last input word of this chunk. */
+        private final int to;
+
+        /** The maximum amount of steps per input word. */
+        private final long limit;
+
+        /** Receives each evaluation as soon as it is complete. */
+        private final Consumer<Evaluation> listener;
+
+        /**
+         * Creates a new chunk.
+         *
+         * @param inputs All input words of the batch.
+         * @param from The index of the first input word (inclusive).
+         * @param to The index after the last input word (exclusive).
+         * @param limit The maximum amount of steps per input word.
+         * @param listener Receives each evaluation as soon as it is complete.
+         */
+        Chunk(List<String> inputs, int from, int to, long limit,
+                Consumer<Evaluation> listener) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                final Worker worker = new Worker();
+                for (int i = from; i < to; i++) {
+                    listener.accept(worker.evaluate(inputs.get(i), limit));
+                }
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(inputs, from, middle, limit, listener),
+                    new Chunk(inputs, middle, to, limit, listener));
+        }
+    }
+
+    /**
+     * Evaluates a range of the words of one length, splitting it in half until it is
+     * small enough. The words are generated from their indices, so they are never
+     * stored.
+     */
+    private final class WordRange extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 6120419622478563907L;
+
+        /** Collects the outcomes. */
+        private final LanguageEnumeration enumeration;
+
+        /** The id of each symbol of the alphabet. */
+        private final int[] symbolIds;
+
+        /** The length of the words. */
+        private final int length;
+
+        /** The index of the first word of this range. */
+        private final long from;
+
+        /** The index after the last word of this range. */
+        private final long to;
+
+        /** The maximum amount of steps per word. */
+        private final long limit;
+
+        /**
+         * Creates a new range.
+         *
+         * @param enumeration Collects the outcomes.
+         * @param symbolIds The id of each symbol of the alphabet.
+         * @param length The length of the words.
+         * @param from The index of the first word (inclusive).
+         * @param to The index after the last word (exclusive).
+         * @param limit The maximum amount of steps per word.
+         */
+        WordRange(LanguageEnumeration enumeration, int[] symbolIds, int length, long from,
+                long to, long limit) {
+            this.enumeration = enumeration;
+            this.symbolIds = symbolIds;
+            this.length = length;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RANGE_THRESHOLD) {
+                final Worker worker = new Worker();
+                final int[] digits = new int[length];
+                final int[] ids = new int[length];
+                enumeration.decode(from, digits);
+
+                for (long index = from; index < to; index++) {
+                    for (int i = 0; i < length; i++) {
+                        ids[i] = symbolIds[digits[i]];
+                    }
+
+                    worker.run(ids, length, limit);
+                    enumeration.add(index, digits, worker.status, worker.steps,
+                            worker.tape);
+                    enumeration.increment(digits);
+                }
+                return;
+            }
+
+            final long middle = (from + to) >>> 1;
+            invokeAll(
+                    new WordRange(enumeration, symbolIds, length, from, middle, limit),
+                    new WordRange(enumeration, symbolIds, length, middle, to, limit));
+        }
+    }
+}
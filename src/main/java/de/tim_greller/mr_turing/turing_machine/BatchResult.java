@@ -0,0 +1,96 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * The outcome of running a Turing machine on a batch of input words using
+ * {@link TuringMachine#evaluate(java.util.List, long, java.util.function.Consumer)}.
+ */
+public class BatchResult {
+
+    /** The amount of input words that were evaluated. */
+    private final long total;
+
+    /** The amount of input words the Turing machine accepted. */
+    private final long accepted;
+
+    /** The amount of input words the Turing machine denied. */
+    private final long denied;
+
+    /** The amount of calculation steps that were executed for all input words. */
+    private final long steps;
+
+    /** The time the batch took in nanoseconds. */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a new result of a batch.
+     *
+     * @param total The amount of evaluated input words.
+     * @param accepted The amount of accepted input words.
+     * @param denied The amount of denied input words.
+     * @param steps The amount of executed calculation steps.
+     * @param elapsedNanos The time the batch took in nanoseconds.
+     */
+    public BatchResult(long total, long accepted, long denied, long steps,
+            long elapsedNanos) {
+        this.total = total;
+        this.accepted = accepted;
+        this.denied = denied;
+        this.steps = steps;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the amount of input words that were evaluated.
+     *
+     * @return The size of the batch.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the amount of input words the Turing machine accepted.
+     *
+     * @return The amount of accepted words.
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the amount of input words the Turing machine denied.
+     *
+     * @return The amount of denied words.
+     */
+    public long getDenied() {
+        return denied;
+    }
+
+    /**
+     * Returns the amount of input words for which the Turing machine reached the step
+     * limit without terminating.
+     *
+     * @return The amount of unfinished words.
+     */
+    public long getUnfinished() {
+        return total - accepted - denied;
+    }
+
+    /**
+     * Returns the amount of calculation steps that were executed for all input words.
+     *
+     * @return The amount of executed steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the time the batch took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,589 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * This decider detects bouncers. A bouncer moves its head back and forth between the
+ * edges of a growing part of the tape, which grows by the same word every time. Its
+ * configurations at the records, the steps in which the head visits a new cell at an
+ * edge, have the form {@code u w^n v} for a growing {@code n}.
+ * <p>
+ * The decider guesses such a formula from three records in the same state and proves it
+ * by symbolic execution: The repeated part {@code w^n} is treated as one block, and
+ * whenever the head enters the block, the TM has to cross one copy of the word and leave
+ * it on the other side in the state it entered with. Then it crosses all copies the same
+ * way, no matter how many there are. If the execution ends in the formula for
+ * {@code n + 1}, the TM grows the tape forever.
+ */
+public final class BouncerDecider extends NonHaltingDecider {
+
+    /** The amount of steps that are simulated by default. */
+    public static final long DEFAULT_MAX_STEPS = 100_000;
+
+    /** The maximum width of the visited part of the tape that is stored for a record. */
+    private static final int MAX_WIDTH = 2048;
+
+    /** The amount of most recent records per state and edge that are compared. */
+    private static final int RECORDS_PER_STATE = 8;
+
+    /** The maximum amount of formulas that are tried to be proven. */
+    private static final int MAX_ATTEMPTS = 256;
+
+    /** The maximum amount of symbolic steps of a proof. */
+    private static final int MAX_PROOF_STEPS = 10_000;
+
+    /** The maximum amount of steps to cross one copy of the repeated word. */
+    private static final int MAX_CROSSING_STEPS = 1_000;
+
+    /** The marker of the block in a symbolic tape. */
+    private static final int BLOCK = -1;
+
+    /** The maximum amount of steps that are simulated. */
+    private final long maxSteps;
+
+    /**
+     * Creates a new bouncer decider.
+     *
+     * @param maxSteps The maximum amount of steps that are simulated.
+     */
+    public BouncerDecider(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    @Override
+    public String getName() {
+        return "bouncer";
+    }
+
+    @Override
+    boolean decide(TransitionTable table, BitSet accepting, Tape original, int state) {
+        final Tape tape = original.copy();
+        final Snapshot[][] records = new Snapshot[2 * table.stateCount()][RECORDS_PER_STATE];
+        final int[] counts = new int[records.length];
+        int attempts = 0;
+
+        for (long time = 1; time <= maxSteps; time++) {
+            final int leftmost = tape.getLeftmostIndex();
+            final int rightmost = tape.getRightmostIndex();
+            final int position = table.find(state, tape.readId());
+
+            if (position == TransitionTable.NO_TRANSITION) {
+                return false;
+            }
+
+            tape.writeId(table.printSymbol(position));
+            state = table.nextState(position);
+            tape.moveHead(table.move(position));
+
+            if (accepting.get(state)) {
+                return false;
+            }
+
+            final int head = tape.getHeadIndex();
+            final boolean record = (head > rightmost || head < leftmost);
+            final long width = (long) tape.getRightmostIndex() - tape.getLeftmostIndex() + 1;
+            if (!record || width > MAX_WIDTH) {
+                continue;
+            }
+
+            final int slot = 2 * state + ((head > rightmost) ? 1 : 0);
+            final Snapshot[] earlier = records[slot];
+            final Snapshot current = new Snapshot(tape, time);
+
+            for (Snapshot first : earlier) {
+                for (Snapshot second : earlier) {
+                    if (first == null || second == null || first.time >= second.time
+                            || !current.continues(first, second)) {
+                        continue;
+                    }
+                    if (++attempts > MAX_ATTEMPTS) {
+                        return false;
+                    }
+                    if (prove(table, accepting, state, tape.blankId, first, second, current)) {
+                        return true;
+                    }
+                }
+            }
+
+            earlier[counts[slot]++ % RECORDS_PER_STATE] = current;
+        }
+
+        return false;
+    }
+
+    /**
+     * Guesses formulas that match three records and tries to prove them.
+     *
+     * @param table The compiled transitions of the TM.
+     * @param accepting The ids of the accepting states.
+     * @param state The id of the state of the records.
+     * @param blankId The id of the blank symbol.
+     * @param first The first record.
+     * @param second The second record.
+     * @param third The third record.
+     * @return {@code true} if one of the formulas was proven.
+     */
+    private static boolean prove(TransitionTable table, BitSet accepting, int state,
+            int blankId, Snapshot first, Snapshot second, Snapshot third) {
+        final int[] a = first.cells;
+        final int[] b = second.cells;
+        final int growth = b.length - a.length;
+
+        int prefix = 0;
+        while (prefix < a.length && a[prefix] == b[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length && a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        // Every split point at which the second tape is the first one with a word inserted.
+        for (int split = a.length - suffix; split <= prefix; split++) {
+            final int[] word = Arrays.copyOfRange(b, split, split + growth);
+            final Formula formula = new Formula(a, split, word, first.head, state, blankId);
+
+            if (formula.matches(second, 1) && formula.matches(third, 2)
+                    && formula.provesGrowth(table, accepting)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The visited part of the tape at a record.
+     */
+    private static final class Snapshot {
+
+        /** The step in which the record was made. */
+        private final long time;
+
+        /** The symbol ids of the visited cells from left to right. */
+        private final int[] cells;
+
+        /** The position of the head in {@link #cells}. */
+        private final int head;
+
+        /**
+         * Creates a snapshot of the visited part of the given tape.
+         *
+         * @param tape The tape.
+         * @param time The step in which the record was made.
+         */
+        Snapshot(Tape tape, long time) {
+            this.time = time;
+            final int leftmost = tape.getLeftmostIndex();
+            cells = new int[tape.getRightmostIndex() - leftmost + 1];
+            head = tape.getHeadIndex() - leftmost;
+
+            final PrimitiveIterator.OfInt ids = tape.ids(leftmost, leftmost + cells.length);
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = ids.nextInt();
+            }
+        }
+
+        /**
+         * Checks whether the widths of two earlier snapshots and this one grow by the
+         * same positive amount.
+         *
+         * @param first The first snapshot.
+         * @param second The second snapshot.
+         * @return {@code true} if the three snapshots may belong to a bouncer.
+         */
+        boolean continues(Snapshot first, Snapshot second) {
+            final int growth = second.cells.length - first.cells.length;
+            return growth > 0 && cells.length - second.cells.length == growth;
+        }
+    }
+
+    /**
+     * A family of configurations of the form {@code u w^n v}, with the state and the
+     * position of the head being fixed in {@code u} or {@code v}.
+     */
+    private static final class Formula {
+
+        /** The symbol ids of the first configuration from left to right. */
+        private final int[] cells;
+
+        /** The position in {@link #cells} where the copies of the word are inserted. */
+        private final int split;
+
+        /** The repeated word. */
+        private final int[] word;
+
+        /** The position of the head in {@link #cells}. */
+        private final int head;
+
+        /** The id of the state. */
+        private final int state;
+
+        /** The id of the blank symbol. */
+        private final int blankId;
+
+        /**
+         * Creates a new formula.
+         *
+         * @param cells The symbol ids of the first configuration.
+         * @param split The position where the copies of the word are inserted.
+         * @param word The repeated word.
+         * @param head The position of the head in the first configuration.
+         * @param state The id of the state.
+         * @param blankId The id of the blank symbol.
+         */
+        Formula(int[] cells, int split, int[] word, int head, int state, int blankId) {
+            this.cells = cells;
+            this.split = split;
+            this.word = word;
+            this.head = head;
+            this.state = state;
+            this.blankId = blankId;
+        }
+
+        /**
+         * Checks whether a snapshot is the configuration of this formula with the given
+         * amount of copies of the word.
+         *
+         * @param snapshot The snapshot.
+         * @param copies The amount of copies of the word.
+         * @return {@code true} if the snapshot matches.
+         */
+        boolean matches(Snapshot snapshot, int copies) {
+            if (snapshot.head != ((head < split) ? head : head + copies * word.length)) {
+                return false;
+            }
+
+            for (int i = 0; i < snapshot.cells.length; i++) {
+                final int expected;
+                if (i < split) {
+                    expected = cells[i];
+                } else if (i < split + copies * word.length) {
+                    expected = word[(i - split) % word.length];
+                } else {
+                    expected = cells[i - copies * word.length];
+                }
+
+                if (snapshot.cells[i] != expected) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Proves by symbolic execution that the configuration with {@code n} copies
+         * leads to the configuration with {@code n + 1} copies for every {@code n}.
+         *
+         * @param table The compiled transitions of the TM.
+         * @param accepting The ids of the accepting states.
+         * @return {@code true} if the proof succeeded.
+         */
+        boolean provesGrowth(TransitionTable table, BitSet accepting) {
+            final SymbolicTape tape = new SymbolicTape(cells, split, word, head, blankId);
+            final SymbolicTape target = tape.copy();
+            target.copies++;
+            target.normalize();
+            tape.normalize();
+
+            int current = state;
+            for (int step = 0; step < MAX_PROOF_STEPS; step++) {
+                final int position = table.find(current, tape.read());
+                if (position == TransitionTable.NO_TRANSITION) {
+                    return false;
+                }
+
+                current = table.nextState(position);
+                if (accepting.get(current)) {
+                    return false;
+                }
+
+                tape.write(table.printSymbol(position));
+                if (!tape.move(table.move(position), current, table, accepting)) {
+                    return false;
+                }
+
+                // Like the configurations of the formula, the target has to be a record.
+                if (current == state && tape.extended) {
+                    final SymbolicTape normalized = tape.copy();
+                    normalized.normalize();
+                    if (normalized.equals(target)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * A tape containing a block of {@code n + copies} copies of a word for an arbitrary
+     * {@code n}. All cells outside the stored ones are blank.
+     */
+    private static final class SymbolicTape {
+
+        /** The stored cells from left to right with {@link #BLOCK} marking the block. */
+        private final List<Integer> cells;
+
+        /** The repeated word of the block. */
+        private int[] word;
+
+        /** The amount of copies of the word in the block in addition to {@code n}. */
+        private int copies;
+
+        /** The position of the head in {@link #cells}. It is never on the block. */
+        private int head;
+
+        /** The id of the blank symbol. */
+        private final int blankId;
+
+        /** Whether the last move of the head visited a new cell at an end of the tape. */
+        private boolean extended;
+
+        /**
+         * Creates a symbolic tape from concrete cells with the block inserted.
+         *
+         * @param concrete The concrete cells from left to right.
+         * @param split The position at which the block is inserted.
+         * @param word The repeated word.
+         * @param head The position of the head in the concrete cells.
+         * @param blankId The id of the blank symbol.
+         */
+        SymbolicTape(int[] concrete, int split, int[] word, int head, int blankId) {
+            this(new ArrayList<>(concrete.length + 1), word, 0,
+                    (head < split) ? head : head + 1, blankId);
+
+            for (int i = 0; i < concrete.length; i++) {
+                if (i == split) {
+                    cells.add(BLOCK);
+                }
+                cells.add(concrete[i]);
+            }
+            if (split == concrete.length) {
+                cells.add(BLOCK);
+            }
+        }
+
+        /**
+         * Creates a symbolic tape from its parts.
+         *
+         * @param cells The stored cells.
+         * @param word The repeated word.
+         * @param copies The additional copies of the word.
+         * @param head The position of the head.
+         * @param blankId The id of the blank symbol.
+         */
+        private SymbolicTape(List<Integer> cells, int[] word, int copies, int head,
+                int blankId) {
+            this.cells = cells;
+            this.word = word;
+            this.copies = copies;
+            this.head = head;
+            this.blankId = blankId;
+        }
+
+        /**
+         * Reads the symbol at the head.
+         *
+         * @return The id of the scanned symbol.
+         */
+        int read() {
+            return cells.get(head);
+        }
+
+        /**
+         * Writes a symbol at the head.
+         *
+         * @param symbol The id of the symbol.
+         */
+        void write(int symbol) {
+            cells.set(head, symbol);
+        }
+
+        /**
+         * Moves the head. If the head enters the block, it crosses all copies of the
+         * word at once.
+         *
+         * @param direction The direction of the head.
+         * @param state The id of the state after the step.
+         * @param table The compiled transitions of the TM.
+         * @param accepting The ids of the accepting states.
+         * @return {@code false} if the block cannot be crossed.
+         */
+        boolean move(TapeMove direction, int state, TransitionTable table,
+                BitSet accepting) {
+            extended = false;
+
+            switch (direction) {
+            case RIGHT:
+                head++;
+                if (head < cells.size() && cells.get(head) == BLOCK) {
+                    word = cross(word, true, state, table, accepting);
+                    head++;
+                }
+                if (head == cells.size()) {
+                    cells.add(blankId);
+                    extended = true;
+                }
+                break;
+
+            case LEFT:
+                head--;
+                if (head >= 0 && cells.get(head) == BLOCK) {
+                    word = cross(word, false, state, table, accepting);
+                    head--;
+                }
+                if (head < 0) {
+                    cells.add(0, blankId);
+                    head = 0;
+                    extended = true;
+                }
+                break;
+
+            default:
+                break;
+            }
+
+            return word != null;
+        }
+
+        /**
+         * Simulates the TM on a single copy of the word, entering at one side.
+         *
+         * @param copy The word.
+         * @param fromLeft Whether the head enters at the left side.
+         * @param state The id of the state when entering.
+         * @param table The compiled transitions of the TM.
+         * @param accepting The ids of the accepting states.
+         * @return The new word, if the head leaves it at the opposite side in the state
+         *         it entered with, otherwise {@code null}.
+         */
+        private static int[] cross(int[] copy, boolean fromLeft, int state,
+                TransitionTable table, BitSet accepting) {
+            if (copy == null) {
+                return null;
+            }
+
+            final int[] result = copy.clone();
+            int position = fromLeft ? 0 : result.length - 1;
+            int current = state;
+
+            for (int step = 0; step < MAX_CROSSING_STEPS; step++) {
+                final int transition = table.find(current, result[position]);
+                if (transition == TransitionTable.NO_TRANSITION) {
+                    return null;
+                }
+
+                current = table.nextState(transition);
+                if (accepting.get(current)) {
+                    return null;
+                }
+
+                result[position] = table.printSymbol(transition);
+                switch (table.move(transition)) {
+                case RIGHT:
+                    position++;
+                    break;
+
+                case LEFT:
+                    position--;
+                    break;
+
+                default:
+                    break;
+                }
+
+                if (position < 0 || position >= result.length) {
+                    final boolean leftRight = (position >= result.length);
+                    return (leftRight == fromLeft && current == state) ? result : null;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Creates an independent copy of this tape.
+         *
+         * @return The copy.
+         */
+        SymbolicTape copy() {
+            return new SymbolicTape(new ArrayList<>(cells), word, copies, head, blankId);
+        }
+
+        /**
+         * Brings this tape into a normal form, so that equal tapes have equal cells:
+         * Copies of the word next to the block are moved into it and blank cells at the
+         * outer ends are removed, as long as the head is not on them.
+         */
+        void normalize() {
+            int block = cells.indexOf(BLOCK);
+
+            while (block >= word.length
+                    && (head < block - word.length || head > block)
+                    && matchesWord(block - word.length)) {
+                cells.subList(block - word.length, block).clear();
+                if (head > block) {
+                    head -= word.length;
+                }
+                block -= word.length;
+                copies++;
+            }
+
+            while (block + word.length < cells.size()
+                    && (head <= block || head > block + word.length)
+                    && matchesWord(block + 1)) {
+                cells.subList(block + 1, block + 1 + word.length).clear();
+                if (head > block) {
+                    head -= word.length;
+                }
+                copies++;
+            }
+
+            while (head > 0 && cells.get(0) == blankId) {
+                cells.remove(0);
+                head--;
+            }
+            while (head < cells.size() - 1 && cells.get(cells.size() - 1) == blankId) {
+                cells.remove(cells.size() - 1);
+            }
+        }
+
+        /**
+         * Checks whether the cells starting at the given position are a copy of the
+         * word.
+         *
+         * @param from The position of the first cell.
+         * @return {@code true} if the cells match the word.
+         */
+        private boolean matchesWord(int from) {
+            for (int i = 0; i < word.length; i++) {
+                if (cells.get(from + i) != word[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SymbolicTape)) {
+                return false;
+            }
+
+            final SymbolicTape other = (SymbolicTape) obj;
+            return head == other.head && copies == other.copies
+                    && Arrays.equals(word, other.word) && cells.equals(other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return cells.hashCode();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * The outcome of a {@link BusyBeaverSearch}. Machines are written in the standard text
+ * format, see {@link BusyBeaverSearch}.
+ */
+public class BusyBeaverResult {
+
+    /** The amount of states of the machines. */
+    private final int states;
+
+    /** The amount of symbols of the machines. */
+    private final int symbols;
+
+    /** The maximum amount of steps per machine. */
+    private final long maxSteps;
+
+    /** The terminating machine that did the most steps or {@code null}. */
+    private final String longestRun;
+
+    /** The amount of steps of the longest run. */
+    private final long mostSteps;
+
+    /** The terminating machine that left the most non-blank symbols or {@code null}. */
+    private final String mostOnesMachine;
+
+    /** The amount of non-blank symbols the record holder left. */
+    private final long mostOnes;
+
+    /** The amount of machines that terminated. */
+    private final long halted;
+
+    /** The amount of machines that provably run forever. */
+    private final long proven;
+
+    /** The amount of machines that reached the step limit without a proof. */
+    private final long undecided;
+
+    /** The amount of subtrees the search tree was split into. */
+    private final int subtrees;
+
+    /** The amount of subtrees whose outcomes were read from the results file. */
+    private final int resumed;
+
+    /** The time the search took in nanoseconds. */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a new result of a search.
+     *
+     * @param states The amount of states of the machines.
+     * @param symbols The amount of symbols of the machines.
+     * @param maxSteps The maximum amount of steps per machine.
+     * @param longestRun The terminating machine that did the most steps.
+     * @param mostSteps The amount of steps of the longest run.
+     * @param mostOnesMachine The terminating machine that left the most non-blank
+     *                        symbols.
+     * @param mostOnes The amount of non-blank symbols the record holder left.
+     * @param halted The amount of terminating machines.
+     * @param proven The amount of machines that provably run forever.
+     * @param undecided The amount of machines that reached the step limit without a
+     *                  proof.
+     * @param subtrees The amount of subtrees the search tree was split into.
+     * @param resumed The amount of subtrees read from the results file.
+     * @param elapsedNanos The time the search took in nanoseconds.
+     */
+    public BusyBeaverResult(int states, int symbols, long maxSteps, String longestRun,
+            long mostSteps, String mostOnesMachine, long mostOnes, long halted,
+            long proven, long undecided, int subtrees, int resumed, long elapsedNanos) {
+        this.states = states;
+        this.symbols = symbols;
+        this.maxSteps = maxSteps;
+        this.longestRun = longestRun;
+        this.mostSteps = mostSteps;
+        this.mostOnesMachine = mostOnesMachine;
+        this.mostOnes = mostOnes;
+        this.halted = halted;
+        this.proven = proven;
+        this.undecided = undecided;
+        this.subtrees = subtrees;
+        this.resumed = resumed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the amount of states of the searched machines.
+     *
+     * @return The amount of states.
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * Returns the amount of symbols of the searched machines, including the blank.
+     *
+     * @return The amount of symbols.
+     */
+    public int getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the maximum amount of steps each machine was run.
+     *
+     * @return The step limit.
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Returns the terminating machine that did the most steps.
+     *
+     * @return The record holder or {@code null} if no machine terminated.
+     */
+    public String getLongestRun() {
+        return longestRun;
+    }
+
+    /**
+     * Returns the amount of steps of the longest run, including the terminating step.
+     *
+     * @return The amount of steps.
+     */
+    public long getMostSteps() {
+        return mostSteps;
+    }
+
+    /**
+     * Returns the terminating machine that left the most non-blank symbols.
+     *
+     * @return The record holder or {@code null} if no machine terminated.
+     */
+    public String getMostOnesMachine() {
+        return mostOnesMachine;
+    }
+
+    /**
+     * Returns the amount of non-blank symbols the record holder left, assuming its
+     * terminating transition prints a non-blank symbol.
+     *
+     * @return The amount of non-blank symbols.
+     */
+    public long getMostOnes() {
+        return mostOnes;
+    }
+
+    /**
+     * Returns the amount of machines that terminated.
+     *
+     * @return The amount of terminating machines.
+     */
+    public long getHalted() {
+        return halted;
+    }
+
+    /**
+     * Returns the amount of machines that were proven to run forever.
+     *
+     * @return The amount of proven machines.
+     */
+    public long getProven() {
+        return proven;
+    }
+
+    /**
+     * Returns the amount of machines that reached the step limit and could not be
+     * proven to run forever. They are listed in the results file.
+     *
+     * @return The amount of undecided machines.
+     */
+    public long getUndecided() {
+        return undecided;
+    }
+
+    /**
+     * Returns the amount of subtrees the search tree was split into.
+     *
+     * @return The amount of subtrees.
+     */
+    public int getSubtrees() {
+        return subtrees;
+    }
+
+    /**
+     * Returns the amount of subtrees whose outcomes were read from the results file
+     * instead of being searched again.
+     *
+     * @return The amount of resumed subtrees.
+     */
+    public int getResumed() {
+        return resumed;
+    }
+
+    /**
+     * Returns the time the search took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
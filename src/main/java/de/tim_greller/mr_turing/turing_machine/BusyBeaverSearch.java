@@ -0,0 +1,855 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches all deterministic Turing machines with a given amount of states and symbols
+ * for the ones that run the longest and write the most non-blank symbols before they
+ * terminate, when they are started on a blank tape.
+ * <p>
+ * The machines are enumerated in tree normal form: A machine starts without any
+ * transitions and is run until it reaches a precondition without a transition. This
+ * machine terminates there, so it is a candidate. Afterwards, each possible transition
+ * for the precondition is added, creating the children of the machine, which continue
+ * the run from the same configuration. Transitions that are never reached are never
+ * filled in, and a child only uses states and symbols that are already used or the
+ * next unused one, so machines that only differ by renaming states or symbols are
+ * skipped. The first transition is always {@code 1RB}, which skips mirrored machines.
+ * <p>
+ * Machines that reach the step limit are checked by the default kinds of
+ * {@link NonHaltingDecider}s, with a simulation budget relative to the step limit. The
+ * ones that cannot be proven to run forever are undecided.
+ * <p>
+ * The search tree is distributed over a {@link ForkJoinPool}. It is split into subtrees
+ * whose outcomes are appended to a results file as soon as a subtree is complete. When
+ * the search is started again with the same file, complete subtrees are skipped, so an
+ * interrupted search continues where it stopped. A cancelled search stops before it
+ * explores the next machine, and the subtrees it did not complete are explored again
+ * when it is resumed.
+ */
+public class BusyBeaverSearch {
+
+    /**
+     * The amount of transitions the machines at the roots of the subtrees have. The
+     * outcomes of the machines with fewer transitions are stored as an own subtree.
+     */
+    private static final int SPLIT_DEPTH = 3;
+
+    /** The id of the subtree containing the machines with fewer transitions. */
+    private static final String ROOT = "root";
+
+    /** Marks a precondition without a transition. */
+    private static final int UNDEFINED = -1;
+
+    /**
+     * The amount of steps the deciders simulate relative to the step limit. Most
+     * machines that run forever repeat themselves early, so the deciders do not need
+     * their default budgets, which would dominate the search.
+     */
+    private static final int DECIDER_STEPS_FACTOR = 16;
+
+    /** The maximum amount of steps the deciders simulate. */
+    private static final long DEFAULT_DECIDER_STEPS = TranslatedCyclerDecider.DEFAULT_MAX_STEPS;
+
+    /** The amount of states of the machines. */
+    private final int states;
+
+    /** The amount of symbols of the machines, including the blank. */
+    private final int symbols;
+
+    /** The maximum amount of steps per machine. */
+    private final long maxSteps;
+
+    /** Assigns the ids of the symbols, which are the digits from {@code 0}. */
+    private final Registry<Symbol> registry = new Registry<>();
+
+    /** The blank symbol {@code 0}. */
+    private final BlankSymbol blank = new BlankSymbol("0");
+
+    /** The deciders checking the machines that reach the step limit. */
+    private final List<NonHaltingDecider> deciders;
+
+    /**
+     * Creates a new search.
+     *
+     * @param states The amount of states of the machines, at most 26.
+     * @param symbols The amount of symbols of the machines including the blank, at most
+     *                10.
+     * @param maxSteps The maximum amount of steps each machine is run.
+     */
+    public BusyBeaverSearch(int states, int symbols, long maxSteps) {
+        if (states < 1 || states > 26 || symbols < 2 || symbols > 10) {
+            throw new IllegalArgumentException(
+                    "The machines need 1 to 26 states and 2 to 10 symbols.");
+        }
+        if (maxSteps < 1) {
+            throw new IllegalArgumentException("The step limit has to be positive.");
+        }
+
+        this.states = states;
+        this.symbols = symbols;
+        this.maxSteps = maxSteps;
+
+        // The bouncer decider is the most expensive one, so it is consulted last.
+        final long deciderSteps = (maxSteps > DEFAULT_DECIDER_STEPS / DECIDER_STEPS_FACTOR)
+                ? DEFAULT_DECIDER_STEPS
+                : maxSteps * DECIDER_STEPS_FACTOR;
+        this.deciders = List.of(
+                new TranslatedCyclerDecider(deciderSteps),
+                new ClosedTapeLanguageDecider(ClosedTapeLanguageDecider.DEFAULT_MAX_SIZE),
+                new BouncerDecider(deciderSteps));
+
+        registry.idOf(blank);
+        for (int symbol = 1; symbol < symbols; symbol++) {
+            registry.idOf(new Symbol(Integer.toString(symbol)));
+        }
+    }
+
+    /**
+     * Runs the search, appending the outcomes of the subtrees to the given file. If the
+     * file already contains outcomes of the same search, their subtrees are skipped.
+     *
+     * @param file The results file, which is created if it does not exist.
+     * @param pool The pool the search tree is distributed over.
+     * @return The outcome of the whole search, including the resumed outcomes.
+     * @throws IOException Thrown if the results file cannot be read or written.
+     */
+    public BusyBeaverResult search(Path file, ForkJoinPool pool) throws IOException {
+        return search(file, pool, () -> false);
+    }
+
+    /**
+     * Runs the search like {@link #search(Path, ForkJoinPool)}, but stops as soon as
+     * possible once it was cancelled. The outcomes of the subtrees that were completed
+     * until then are kept in the results file.
+     *
+     * @param file The results file, which is created if it does not exist.
+     * @param pool The pool the search tree is distributed over.
+     * @param cancelled Returns whether the search was cancelled. It is checked before
+     *                  each machine is explored, from multiple threads at once.
+     * @return The outcome of the whole search, including the resumed outcomes.
+     * @throws IOException Thrown if the results file cannot be read or written.
+     * @throws CancellationException Thrown if the search was cancelled before it
+     *                               completed.
+     */
+    public BusyBeaverResult search(Path file, ForkJoinPool pool,
+            BooleanSupplier cancelled) throws IOException {
+        final long start = System.nanoTime();
+        final Tally total = new Tally();
+        final boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        final Set<String> done = fresh ? new HashSet<>() : resume(file, total);
+
+        // The machines with fewer transitions are explored sequentially, they lead to
+        // the roots of the subtrees.
+        final Tally root = new Tally();
+        final List<Node> frontier = new ArrayList<>();
+        final Deque<Node> pending = new ArrayDeque<>(List.of(new Node()));
+
+        while (!pending.isEmpty()) {
+            for (Node child : expand(pending.pop(), root)) {
+                if (child.defined < SPLIT_DEPTH) {
+                    pending.push(child);
+                } else {
+                    frontier.add(child);
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            if (fresh) {
+                writer.write(header());
+                writer.newLine();
+                writer.flush();
+            }
+
+            final List<Subtree> subtrees = new ArrayList<>();
+            if (!done.contains(ROOT)) {
+                subtrees.add(new Subtree(ROOT, null, root, writer, total, cancelled));
+            }
+            for (Node node : frontier) {
+                if (!done.contains(node.path)) {
+                    subtrees.add(new Subtree(node.path, node, new Tally(), writer, total,
+                            cancelled));
+                }
+            }
+
+            // All subtrees are awaited before the file is closed, even if one of them
+            // failed or the search was cancelled.
+            subtrees.forEach(pool::execute);
+            subtrees.forEach(ForkJoinTask::quietlyJoin);
+            subtrees.forEach(ForkJoinTask::join);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return total.toResult(states, symbols, maxSteps, frontier.size() + 1,
+                done.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the exploration of the search tree if the search was cancelled.
+     *
+     * @param cancelled Returns whether the search was cancelled.
+     * @throws CancellationException Thrown if the search was cancelled.
+     */
+    private static void throwIfCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("The search was cancelled.");
+        }
+    }
+
+    /**
+     * Returns the first line of the results file, describing this search.
+     *
+     * @return The header.
+     */
+    private String header() {
+        return "# busy beaver search: states=" + states + " symbols=" + symbols
+                + " maxSteps=" + maxSteps;
+    }
+
+    /**
+     * Reads the outcomes of the subtrees that are stored in the results file. Lines of
+     * a subtree whose outcome was not written completely are ignored.
+     *
+     * @param file The results file.
+     * @param total Receives the stored outcomes.
+     * @return The ids of the complete subtrees.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    private Set<String> resume(Path file, Tally total) throws IOException {
+        final Set<String> done = new HashSet<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!header().equals(reader.readLine())) {
+                throw new IllegalArgumentException(
+                        "The results file belongs to a different search.");
+            }
+
+            final Tally block = new Tally();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t");
+
+                switch (fields[0]) {
+                case "halt":
+                    block.consider(new Record(fields[3], Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2])));
+                    break;
+
+                case "done":
+                    total.addCounts(Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                            Long.parseLong(fields[4]));
+                    total.addRecords(block);
+                    block.clearRecords();
+                    done.add(fields[1]);
+                    break;
+
+                default:
+                    break;
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Runs a machine until it reaches a precondition without a transition or the step
+     * limit, counts the outcome and creates its children.
+     *
+     * @param node The machine, which continues its run.
+     * @param tally Receives the outcome.
+     * @return The children of the machine, which is empty if it has none.
+     */
+    private List<Node> expand(Node node, Tally tally) {
+        final int precondition = node.run();
+
+        if (precondition == UNDEFINED) {
+            if (proveNonHalting(node)) {
+                tally.proven.increment();
+            } else {
+                tally.undecided(node.toString());
+            }
+            return List.of();
+        }
+
+        tally.halted(new Record(node.toString(), node.steps + 1, node.ones()));
+
+        // At least one precondition has to stay without a transition, otherwise the
+        // machine could never terminate.
+        if (node.defined + 1 >= states * symbols) {
+            return List.of();
+        }
+
+        if (node.defined == 0) {
+            return List.of(node.child(precondition, 1, TapeMove.RIGHT,
+                    Math.min(1, states - 1), 0));
+        }
+
+        final List<Node> children = new ArrayList<>();
+        final int maxState = Math.min(states - 1, node.maxState + 1);
+        final int maxSymbol = Math.min(symbols - 1, node.maxSymbol + 1);
+        for (int next = 0; next <= maxState; next++) {
+            for (int print = 0; print <= maxSymbol; print++) {
+                children.add(node.child(precondition, print, TapeMove.LEFT, next,
+                        children.size()));
+                children.add(node.child(precondition, print, TapeMove.RIGHT, next,
+                        children.size()));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Asks the deciders whether the machine runs forever from its current
+     * configuration. Its preconditions without a transition count as terminating, so a
+     * proof holds for every way to fill them in.
+     *
+     * @param node The machine that reached the step limit.
+     * @return {@code true} if the machine provably runs forever.
+     */
+    private boolean proveNonHalting(Node node) {
+        final TransitionTable table = new TransitionTable();
+        for (int state = 0; state < states; state++) {
+            table.states.idOf(stateOf(state));
+        }
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            table.symbols.idOf(registry.get(symbol));
+        }
+
+        for (int precondition = 0; precondition < node.nextStates.length; precondition++) {
+            if (node.nextStates[precondition] != UNDEFINED) {
+                table.add(new Transition(
+                        stateOf(precondition / symbols),
+                        registry.get(precondition % symbols),
+                        registry.get(node.printSymbols[precondition]),
+                        node.moves[precondition],
+                        stateOf(node.nextStates[precondition])));
+            }
+        }
+        table.compile();
+
+        for (NonHaltingDecider decider : deciders) {
+            if (decider.decide(table, new BitSet(), node.tape, node.state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state with the given id, which is named by a capital letter.
+     *
+     * @param id The id of the state.
+     * @return The state.
+     */
+    private static State stateOf(int id) {
+        return new State(Character.toString('A' + id));
+    }
+
+    /**
+     * A machine in the search tree together with the configuration its run reached.
+     */
+    private final class Node {
+
+        /** The printed symbol of the transition of each precondition. */
+        private final int[] printSymbols;
+
+        /** The tape motion of the transition of each precondition. */
+        private final TapeMove[] moves;
+
+        /**
+         * The next state of the transition of each precondition or {@link #UNDEFINED}.
+         * The precondition of state {@code q} and symbol {@code s} is at
+         * {@code q * symbols + s}.
+         */
+        private final int[] nextStates;
+
+        /** The amount of preconditions with a transition. */
+        private final int defined;
+
+        /** The highest id of a state the machine uses. */
+        private final int maxState;
+
+        /** The highest id of a symbol the machine prints. */
+        private final int maxSymbol;
+
+        /** The position of this machine in the search tree, used as id of subtrees. */
+        private final String path;
+
+        /** The tape of the run. */
+        private final ArrayTape tape;
+
+        /** The id of the current state of the run. */
+        private int state;
+
+        /** The amount of steps the run did. */
+        private long steps;
+
+        /**
+         * Creates the machine without transitions on a blank tape.
+         */
+        Node() {
+            this.printSymbols = new int[states * symbols];
+            this.moves = new TapeMove[printSymbols.length];
+            this.nextStates = new int[printSymbols.length];
+            this.defined = 0;
+            this.maxState = 0;
+            this.maxSymbol = 0;
+            this.path = "";
+            this.tape = new ArrayTape(blank, registry);
+            Arrays.fill(nextStates, UNDEFINED);
+        }
+
+        /**
+         * Creates a child of the given machine, continuing its run.
+         *
+         * @param parent The machine the transition is added to.
+         * @param precondition The precondition of the new transition.
+         * @param print The printed symbol of the new transition.
+         * @param move The tape motion of the new transition.
+         * @param next The next state of the new transition.
+         * @param index The position of the child among its siblings.
+         */
+        private Node(Node parent, int precondition, int print, TapeMove move, int next,
+                int index) {
+            this.printSymbols = parent.printSymbols.clone();
+            this.moves = parent.moves.clone();
+            this.nextStates = parent.nextStates.clone();
+            this.printSymbols[precondition] = print;
+            this.moves[precondition] = move;
+            this.nextStates[precondition] = next;
+            this.defined = parent.defined + 1;
+            this.maxState = Math.max(parent.maxState, next);
+            this.maxSymbol = Math.max(parent.maxSymbol, print);
+            this.path = parent.path.isEmpty()
+                    ? Integer.toString(index)
+                    : parent.path + "." + index;
+            this.tape = parent.tape.copy(registry);
+            this.state = parent.state;
+            this.steps = parent.steps;
+        }
+
+        /**
+         * Creates a child of this machine with an additional transition.
+         *
+         * @param precondition The precondition of the new transition.
+         * @param print The printed symbol of the new transition.
+         * @param move The tape motion of the new transition.
+         * @param next The next state of the new transition.
+         * @param index The position of the child among its siblings.
+         * @return The child.
+         */
+        Node child(int precondition, int print, TapeMove move, int next, int index) {
+            return new Node(this, precondition, print, move, next, index);
+        }
+
+        /**
+         * Continues the run until a precondition without a transition or the step limit
+         * is reached.
+         *
+         * @return The precondition without a transition or {@link #UNDEFINED} if the
+         *         step limit was reached.
+         */
+        int run() {
+            while (steps < maxSteps) {
+                final int precondition = state * symbols + tape.readId();
+                if (nextStates[precondition] == UNDEFINED) {
+                    return precondition;
+                }
+
+                tape.writeId(printSymbols[precondition]);
+                tape.moveHead(moves[precondition]);
+                state = nextStates[precondition];
+                steps++;
+            }
+            return UNDEFINED;
+        }
+
+        /**
+         * Returns the amount of non-blank symbols on the tape after the machine
+         * terminated, assuming the terminating transition prints a non-blank symbol.
+         *
+         * @return The amount of non-blank symbols.
+         */
+        long ones() {
+            long ones = (tape.readId() == tape.blankId) ? 1 : 0;
+            final int from = tape.getLeftmostIndex();
+            final PrimitiveIterator.OfInt ids =
+                    tape.ids(from, tape.getRightmostIndex() + 1);
+
+            while (ids.hasNext()) {
+                if (ids.nextInt() != tape.blankId) {
+                    ones++;
+                }
+            }
+            return ones;
+        }
+
+        /**
+         * Returns the transitions of the machine in the standard text format. The
+         * transitions of each state are separated by {@code _}, each transition
+         * consists of the printed symbol, the tape motion and the next state.
+         * Preconditions without a transition are shown as {@code ---}.
+         *
+         * @return The text representation of the machine.
+         */
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            for (int precondition = 0; precondition < nextStates.length; precondition++) {
+                if (precondition > 0 && precondition % symbols == 0) {
+                    builder.append('_');
+                }
+
+                if (nextStates[precondition] == UNDEFINED) {
+                    builder.append("---");
+                } else {
+                    builder.append(printSymbols[precondition])
+                           .append(moves[precondition] == TapeMove.LEFT ? 'L' : 'R')
+                           .append((char) ('A' + nextStates[precondition]));
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Explores a subtree of the search tree and writes its outcome to the results file
+     * once it is complete.
+     */
+    private final class Subtree extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = 4386602125087813645L;
+
+        /** The id of the subtree. */
+        private final String id;
+
+        /** The root of the subtree or {@code null} if it was explored already. */
+        private final Node root;
+
+        /** Collects the outcomes of the subtree. */
+        private final Tally tally;
+
+        /** The results file. */
+        private final BufferedWriter writer;
+
+        /** Collects the outcomes of the whole search. */
+        private final Tally total;
+
+        /** Returns whether the search was cancelled. */
+        private final BooleanSupplier cancelled;
+
+        /**
+         * Creates a new subtree.
+         *
+         * @param id The id of the subtree.
+         * @param root The root of the subtree or {@code null} if it was explored
+         *             already.
+         * @param tally Collects the outcomes of the subtree.
+         * @param writer The results file.
+         * @param total Collects the outcomes of the whole search.
+         * @param cancelled Returns whether the search was cancelled.
+         */
+        Subtree(String id, Node root, Tally tally, BufferedWriter writer, Tally total,
+                BooleanSupplier cancelled) {
+            this.id = id;
+            this.root = root;
+            this.tally = tally;
+            this.writer = writer;
+            this.total = total;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            // A cancelled subtree is not written, so it is explored again on resume.
+            if (root != null) {
+                new Explore(root, tally, cancelled).compute();
+            }
+            throwIfCancelled(cancelled);
+
+            final String block = tally.toLines() + "done\t" + id
+                    + "\t" + tally.halted.sum()
+                    + "\t" + tally.proven.sum()
+                    + "\t" + tally.undecided.sum()
+                    + System.lineSeparator();
+
+            synchronized (writer) {
+                try {
+                    writer.write(block);
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            total.addCounts(tally.halted.sum(), tally.proven.sum(), tally.undecided.sum());
+            total.addRecords(tally);
+        }
+    }
+
+    /**
+     * Explores a machine and all of its descendants, exploring the children in
+     * parallel.
+     */
+    private final class Explore extends RecursiveAction {
+
+        /** The serial version UID. */
+        private static final long serialVersionUID = -2043870150468137265L;
+
+        /** The machine that is explored. */
+        private final Node node;
+
+        /** Collects the outcomes. */
+        private final Tally tally;
+
+        /** Returns whether the search was cancelled. */
+        private final BooleanSupplier cancelled;
+
+        /**
+         * Creates a new exploration.
+         *
+         * @param node The machine that is explored.
+         * @param tally Collects the outcomes.
+         * @param cancelled Returns whether the search was cancelled.
+         */
+        Explore(Node node, Tally tally, BooleanSupplier cancelled) {
+            this.node = node;
+            this.tally = tally;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            throwIfCancelled(cancelled);
+
+            final List<Explore> children = new ArrayList<>();
+            for (Node child : expand(node, tally)) {
+                children.add(new Explore(child, tally, cancelled));
+            }
+            invokeAll(children);
+        }
+    }
+
+    /**
+     * A terminating machine together with its outcome.
+     */
+    private static final class Record {
+
+        /** The text representation of the machine. */
+        private final String machine;
+
+        /** The amount of steps until the machine terminated. */
+        private final long steps;
+
+        /** The amount of non-blank symbols the machine left. */
+        private final long ones;
+
+        /**
+         * Creates a new record.
+         *
+         * @param machine The text representation of the machine.
+         * @param steps The amount of steps until the machine terminated.
+         * @param ones The amount of non-blank symbols the machine left.
+         */
+        Record(String machine, long steps, long ones) {
+            this.machine = machine;
+            this.steps = steps;
+            this.ones = ones;
+        }
+
+        /**
+         * Returns whether this record beats the other one in the given value. Ties are
+         * broken by the text representation, so the outcome does not depend on the
+         * order machines are found in.
+         *
+         * @param other The other record or {@code null}.
+         * @param value The value of this record.
+         * @param otherValue The value of the other record.
+         * @return {@code true} if this record is better.
+         */
+        boolean beats(Record other, long value, long otherValue) {
+            return other == null || value > otherValue
+                    || (value == otherValue && machine.compareTo(other.machine) < 0);
+        }
+
+        /**
+         * Returns the line of the results file describing this record.
+         *
+         * @return The line.
+         */
+        String toLine() {
+            return "halt\t" + steps + "\t" + ones + "\t" + machine
+                    + System.lineSeparator();
+        }
+    }
+
+    /**
+     * Collects outcomes of machines, which may be added from multiple threads.
+     */
+    private static final class Tally {
+
+        /** The amount of machines that terminated. */
+        private final LongAdder halted = new LongAdder();
+
+        /** The amount of machines that provably run forever. */
+        private final LongAdder proven = new LongAdder();
+
+        /** The amount of machines that reached the step limit without a proof. */
+        private final LongAdder undecided = new LongAdder();
+
+        /** The machines that reached the step limit without a proof. */
+        private final Queue<String> undecidedMachines = new ConcurrentLinkedQueue<>();
+
+        /** The terminating machine that did the most steps. */
+        private Record mostSteps;
+
+        /** The terminating machine that left the most non-blank symbols. */
+        private Record mostOnes;
+
+        /**
+         * Counts a machine that terminated and keeps it if it is a record holder.
+         *
+         * @param record The machine and its outcome.
+         */
+        void halted(Record record) {
+            halted.increment();
+            consider(record);
+        }
+
+        /**
+         * Keeps the given machine if it is a record holder, without counting it.
+         *
+         * @param record The machine and its outcome.
+         */
+        synchronized void consider(Record record) {
+            if (record.beats(mostSteps, record.steps,
+                    mostSteps == null ? 0 : mostSteps.steps)) {
+                mostSteps = record;
+            }
+            if (record.beats(mostOnes, record.ones, mostOnes == null ? 0 : mostOnes.ones)) {
+                mostOnes = record;
+            }
+        }
+
+        /**
+         * Counts a machine that reached the step limit without a proof.
+         *
+         * @param machine The text representation of the machine.
+         */
+        void undecided(String machine) {
+            undecided.increment();
+            undecidedMachines.add(machine);
+        }
+
+        /**
+         * Adds counts of outcomes.
+         *
+         * @param halted The amount of terminating machines.
+         * @param proven The amount of machines that provably run forever.
+         * @param undecided The amount of undecided machines.
+         */
+        void addCounts(long halted, long proven, long undecided) {
+            this.halted.add(halted);
+            this.proven.add(proven);
+            this.undecided.add(undecided);
+        }
+
+        /**
+         * Takes over the record holders of another tally if they are better.
+         *
+         * @param other The other tally.
+         */
+        void addRecords(Tally other) {
+            final Record steps;
+            final Record ones;
+            synchronized (other) {
+                steps = other.mostSteps;
+                ones = other.mostOnes;
+            }
+
+            if (steps != null) {
+                consider(steps);
+                consider(ones);
+            }
+        }
+
+        /**
+         * Removes the record holders.
+         */
+        synchronized void clearRecords() {
+            mostSteps = null;
+            mostOnes = null;
+        }
+
+        /**
+         * Creates the lines of the results file describing the record holders and the
+         * undecided machines.
+         *
+         * @return The lines.
+         */
+        synchronized String toLines() {
+            final StringBuilder lines = new StringBuilder();
+            if (mostSteps != null) {
+                lines.append(mostSteps.toLine());
+                if (mostOnes != mostSteps) {
+                    lines.append(mostOnes.toLine());
+                }
+            }
+            for (String machine : undecidedMachines) {
+                lines.append("undecided\t").append(machine).append(System.lineSeparator());
+            }
+            return lines.toString();
+        }
+
+        /**
+         * Creates the result of the search from the counts.
+         *
+         * @param states The amount of states of the machines.
+         * @param symbols The amount of symbols of the machines.
+         * @param maxSteps The maximum amount of steps per machine.
+         * @param subtrees The amount of subtrees of the search tree.
+         * @param resumed The amount of subtrees that were read from the results file.
+         * @param elapsedNanos The time the search took in nanoseconds.
+         * @return The result of the search.
+         */
+        synchronized BusyBeaverResult toResult(int states, int symbols, long maxSteps,
+                int subtrees, int resumed, long elapsedNanos) {
+            return new BusyBeaverResult(states, symbols, maxSteps,
+                    mostSteps == null ? null : mostSteps.machine,
+                    mostSteps == null ? 0 : mostSteps.steps,
+                    mostOnes == null ? null : mostOnes.machine,
+                    mostOnes == null ? 0 : mostOnes.ones,
+                    halted.sum(), proven.sum(), undecided.sum(), subtrees, resumed,
+                    elapsedNanos);
+        }
+    }
+}
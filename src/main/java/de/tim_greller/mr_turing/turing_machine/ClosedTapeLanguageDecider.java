@@ -0,0 +1,305 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * This decider searches for a closed tape language: a set of configurations which
+ * contains the current configuration, is closed under the steps of the TM and contains
+ * no configuration in which the TM terminates. If such a set exists, the TM can never
+ * terminate.
+ * <p>
+ * The set is described by n-grams. Each configuration is abstracted to its state, the
+ * scanned symbol and the n cells on each side of the head. Additionally, all sequences
+ * of n adjacent cells that can occur on each side of the head are collected. When the
+ * head moves, the cell that becomes visible at the border of the abstraction can be
+ * every symbol that continues one of the collected sequences. The abstraction is
+ * expanded until nothing changes anymore, trying increasing values of n.
+ */
+public final class ClosedTapeLanguageDecider extends NonHaltingDecider {
+
+    /** The maximum amount of abstract configurations that are explored by default. */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    /** The longest n-grams that are tried. */
+    private static final int MAX_GRAM_LENGTH = 4;
+
+    /** The maximum amount of abstract configurations that are explored per n. */
+    private final int maxSize;
+
+    /**
+     * Creates a new closed tape language decider.
+     *
+     * @param maxSize The maximum amount of abstract configurations that are explored for
+     *                each length of the n-grams.
+     */
+    public ClosedTapeLanguageDecider(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String getName() {
+        return "closed tape language";
+    }
+
+    @Override
+    boolean decide(TransitionTable table, BitSet accepting, Tape tape, int state) {
+        for (int length = 1; length <= MAX_GRAM_LENGTH; length++) {
+            final Exploration exploration = Exploration.create(table, accepting, length);
+            if (exploration == null) {
+                return false;
+            }
+            if (exploration.isClosed(tape, state, maxSize)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The expansion of the abstraction for one length of the n-grams. The cells of an
+     * n-gram are ordered from the head outwards and encoded as a number with the base
+     * of the amount of symbols, where the cell next to the head is the least significant
+     * digit.
+     */
+    private static final class Exploration {
+
+        /** The compiled transitions of the TM. */
+        private final TransitionTable table;
+
+        /** The ids of the accepting states. */
+        private final BitSet accepting;
+
+        /** The length of the n-grams. */
+        private final int length;
+
+        /** The amount of symbols, which is the base of the encoding. */
+        private final int base;
+
+        /** The amount of different n-grams. */
+        private final long grams;
+
+        /** The sequences of cells that can occur left of the head, read outwards. */
+        private final Set<Long> leftGrams = new HashSet<>();
+
+        /** The sequences of cells that can occur right of the head, read outwards. */
+        private final Set<Long> rightGrams = new HashSet<>();
+
+        /** All abstract configurations that were found. */
+        private final Set<Long> known = new HashSet<>();
+
+        /** All abstract configurations in the order they were found. */
+        private final List<Long> configurations = new ArrayList<>();
+
+        /** Whether an n-gram was added during the current pass. */
+        private boolean grown;
+
+        /**
+         * Creates a new exploration.
+         *
+         * @param table The compiled transitions of the TM.
+         * @param accepting The ids of the accepting states.
+         * @param length The length of the n-grams.
+         * @param grams The amount of different n-grams.
+         */
+        private Exploration(TransitionTable table, BitSet accepting, int length,
+                long grams) {
+            this.table = table;
+            this.accepting = accepting;
+            this.length = length;
+            this.base = table.symbolCount();
+            this.grams = grams;
+        }
+
+        /**
+         * Creates a new exploration, if the abstract configurations can be encoded.
+         *
+         * @param table The compiled transitions of the TM.
+         * @param accepting The ids of the accepting states.
+         * @param length The length of the n-grams.
+         * @return The exploration or {@code null} if the encoding would overflow.
+         */
+        static Exploration create(TransitionTable table, BitSet accepting, int length) {
+            final long base = Math.max(1, table.symbolCount());
+            long grams = 1;
+            for (int i = 0; i < length; i++) {
+                grams *= base;
+            }
+
+            final double size = (double) Math.max(1, table.stateCount()) * base * grams * grams;
+            if (size >= Long.MAX_VALUE) {
+                return null;
+            }
+            return new Exploration(table, accepting, length, grams);
+        }
+
+        /**
+         * Expands the abstraction of the given configuration until it is closed.
+         *
+         * @param tape The current tape of the TM.
+         * @param state The id of the current state.
+         * @param maxSize The maximum amount of abstract configurations.
+         * @return {@code true} if the abstraction is closed and never terminates.
+         */
+        boolean isClosed(Tape tape, int state, int maxSize) {
+            final int head = tape.getHeadIndex();
+            final long left = collect(tape, head - 1, -1, tape.getLeftmostIndex(), leftGrams);
+            final long right = collect(tape, head + 1, 1, tape.getRightmostIndex(),
+                    rightGrams);
+            add(state, tape.readId(), left, right);
+
+            do {
+                grown = false;
+                for (int i = 0; i < configurations.size(); i++) {
+                    if (configurations.size() > maxSize || !expand(configurations.get(i))) {
+                        return false;
+                    }
+                }
+            } while (grown);
+
+            return true;
+        }
+
+        /**
+         * Collects all n-grams of one side of the tape, including the ones reaching into
+         * the blank cells beyond the visited part.
+         *
+         * @param tape The tape.
+         * @param from The index of the cell next to the head.
+         * @param direction The direction in which the cells are read.
+         * @param edge The index of the last visited cell in this direction.
+         * @param target The set the n-grams are added to.
+         * @return The n-gram next to the head.
+         */
+        private long collect(Tape tape, int from, int direction, int edge, Set<Long> target) {
+            final int count = Math.max(0, (edge - from) * direction + 1);
+            final int[] cells = new int[count + length];
+            final int lowest = (direction > 0) ? from : from - count + 1;
+            final PrimitiveIterator.OfInt ids = tape.ids(lowest, lowest + count);
+
+            for (int i = 0; i < count; i++) {
+                final int id = ids.nextInt();
+                cells[(direction > 0) ? i : count - 1 - i] = id;
+            }
+            for (int i = count; i < cells.length; i++) {
+                cells[i] = tape.blankId;
+            }
+
+            long first = 0;
+            for (int start = count; start >= 0; start--) {
+                long gram = 0;
+                for (int i = length - 1; i >= 0; i--) {
+                    gram = gram * base + cells[start + i];
+                }
+                target.add(gram);
+                first = gram;
+            }
+            return first;
+        }
+
+        /**
+         * Applies the transition of an abstract configuration and adds all possible
+         * successors.
+         *
+         * @param configuration The encoded abstract configuration.
+         * @return {@code false} if the TM can terminate in this configuration.
+         */
+        private boolean expand(long configuration) {
+            final long right = configuration % grams;
+            final long left = (configuration / grams) % grams;
+            final int scanned = (int) ((configuration / grams / grams) % base);
+            final int state = (int) (configuration / grams / grams / base);
+
+            final int position = table.find(state, scanned);
+            if (position == TransitionTable.NO_TRANSITION) {
+                return false;
+            }
+
+            final int next = table.nextState(position);
+            if (accepting.get(next)) {
+                return false;
+            }
+
+            final int print = table.printSymbol(position);
+            switch (table.move(position)) {
+            case LEFT:
+                final long pushedRight = push(right, print);
+                grown |= rightGrams.add(pushedRight);
+                addContinuations(next, (int) (left % base), left / base, leftGrams,
+                        pushedRight, false);
+                break;
+
+            case RIGHT:
+                final long pushedLeft = push(left, print);
+                grown |= leftGrams.add(pushedLeft);
+                addContinuations(next, (int) (right % base), right / base, rightGrams,
+                        pushedLeft, true);
+                break;
+
+            default:
+                add(next, print, left, right);
+                break;
+            }
+
+            return true;
+        }
+
+        /**
+         * Adds the successors of a head movement for every symbol that can become visible
+         * at the border of the abstraction on the side the head moves to.
+         *
+         * @param state The id of the next state.
+         * @param scanned The id of the symbol the head moves onto.
+         * @param rest The remaining n-1 cells ahead of the head.
+         * @param aheadGrams The n-grams that can occur ahead of the head.
+         * @param behind The n-gram behind the head after the move.
+         * @param right Whether the head moves to the right.
+         */
+        private void addContinuations(int state, int scanned, long rest,
+                Set<Long> aheadGrams, long behind, boolean right) {
+            final long weight = grams / base;
+
+            for (int symbol = 0; symbol < base; symbol++) {
+                final long ahead = rest + symbol * weight;
+                if (aheadGrams.contains(ahead)) {
+                    if (right) {
+                        add(state, scanned, behind, ahead);
+                    } else {
+                        add(state, scanned, ahead, behind);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Puts a cell next to the head into an n-gram, dropping its outermost cell.
+         *
+         * @param gram The n-gram.
+         * @param symbol The id of the new cell next to the head.
+         * @return The new n-gram.
+         */
+        private long push(long gram, int symbol) {
+            return (gram % (grams / base)) * base + symbol;
+        }
+
+        /**
+         * Adds an abstract configuration if it is not known yet.
+         *
+         * @param state The id of the state.
+         * @param scanned The id of the scanned symbol.
+         * @param left The n-gram left of the head.
+         * @param right The n-gram right of the head.
+         */
+        private void add(int state, int scanned, long left, long right) {
+            final long configuration = ((state * (long) base + scanned) * grams + left)
+                    * grams + right;
+            if (known.add(configuration)) {
+                configurations.add(configuration);
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * This class proves that a deterministic Turing machine runs forever by finding a
+ * configuration that repeats exactly. The TM is executed in segments by whatever executor
+ * it was built with, and the detector samples the configuration whenever the amount of
+ * observed steps reaches the next multiple of its stride. It applies Brent's cycle
+ * detection algorithm to the samples: A snapshot is stored whenever the amount of samples
+ * since the last snapshot reaches the next power of two, and every following sample is
+ * compared with it. So only one snapshot is needed, and once a sample equals the
+ * snapshot, the exact period and start of the cycle are found by stepping copies of the
+ * snapshot and of the first observed configuration.
+ * <p>
+ * The stride is at least as large as the visited part of the tape, so hashing a sample
+ * costs at most one operation per executed step. If the tape grows beyond the stride,
+ * the stride is doubled and the search starts over from the current sample, because the
+ * samples only repeat at a fixed distance. The tape of a TM that loops forever stops
+ * growing eventually, so the stride settles.
+ * <p>
+ * To make the comparisons cheap, each configuration is summarized by a Zobrist style
+ * fingerprint. Only if the fingerprints match, the configurations are compared exactly,
+ * so a reported cycle is always real.
+ */
+final class CycleDetector {
+
+    /** The period of a cycle if none was found yet. */
+    static final long NO_CYCLE = -1;
+
+    /** The smallest amount of steps between two samples. */
+    static final long MIN_STRIDE = 1 << 12;
+
+    /** The transitions of the TM. */
+    private final TransitionTable table;
+
+    /** A copy of the configuration the observation started with. */
+    private final Probe start;
+
+    /** The snapshot every following sample is compared with. */
+    private Probe saved;
+
+    /** The amount of observed steps when the snapshot was stored. */
+    private long savedStep = 0;
+
+    /** The amount of steps between two samples. */
+    private long stride;
+
+    /** The amount of samples after which the next snapshot will be stored. */
+    private long power = 1;
+
+    /** The amount of samples since the last snapshot. */
+    private long sinceSaved = 0;
+
+    /** The amount of steps observed since the observation started. */
+    private long observed = 0;
+
+    /** The amount of steps observed since the last sample. */
+    private long sinceSample = 0;
+
+    /** The amount of steps before the cycle starts or {@link #NO_CYCLE}. */
+    private long cycleStart = NO_CYCLE;
+
+    /** The period of the cycle or {@link #NO_CYCLE}. */
+    private long cyclePeriod = NO_CYCLE;
+
+    /**
+     * Creates a new detector that starts observing from the given configuration.
+     *
+     * @param table The transitions of the TM.
+     * @param tape The current tape of the TM. It is copied, not modified.
+     * @param state The id of the current state.
+     */
+    CycleDetector(TransitionTable table, Tape tape, int state) {
+        this.table = table;
+        this.start = new Probe(table, tape.copy(), state);
+        this.saved = start;
+        this.stride = strideFor(tape);
+    }
+
+    /**
+     * Returns the amount of steps the TM should execute before the next call of
+     * {@link #observe(long, Tape, int)}, so that the next sample is taken in time.
+     *
+     * @return The amount of steps until the next sample, at least 1.
+     */
+    long stepsUntilSample() {
+        return stride - sinceSample;
+    }
+
+    /**
+     * Returns the amount of steps observed since the observation started.
+     *
+     * @return The amount of observed steps.
+     */
+    long getObservedSteps() {
+        return observed;
+    }
+
+    /**
+     * Observes the configuration of the TM after it executed some more steps. The steps
+     * must not go beyond the next sample. Once a cycle was found, its start and period
+     * are available and further observations have no effect.
+     *
+     * @param steps The amount of steps the TM executed since the last observation.
+     * @param tape The current tape of the TM. It is not modified.
+     * @param state The id of the current state.
+     * @return {@code true} if it is proven that the TM runs forever.
+     */
+    boolean observe(long steps, Tape tape, int state) {
+        if (cyclePeriod != NO_CYCLE) {
+            return true;
+        }
+
+        observed += steps;
+        sinceSample += steps;
+        if (sinceSample < stride) {
+            return false;
+        }
+
+        sinceSample = 0;
+        sinceSaved++;
+        final Probe probe = new Probe(table, tape, state);
+
+        if (probe.sameAs(saved)) {
+            cyclePeriod = findPeriod(observed - savedStep);
+            cycleStart = findCycleStart(cyclePeriod);
+            return true;
+        }
+
+        final long required = strideFor(tape);
+        if (required > stride) {
+            stride = required;
+            power = 1;
+            sinceSaved = 0;
+            save(probe);
+        } else if (sinceSaved == power) {
+            power *= 2;
+            sinceSaved = 0;
+            save(probe);
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the amount of steps from the start of the observation until the first
+     * configuration that is part of the cycle.
+     *
+     * @return The start of the cycle or {@link #NO_CYCLE}.
+     */
+    long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * Returns the amount of steps after which the configurations of the cycle repeat.
+     *
+     * @return The period of the cycle or {@link #NO_CYCLE}.
+     */
+    long getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    /**
+     * Stores a copy of the given sample as the snapshot.
+     *
+     * @param probe The current sample.
+     */
+    private void save(Probe probe) {
+        saved = probe.copy();
+        savedStep = observed;
+    }
+
+    /**
+     * Finds the exact period of the cycle the snapshot is part of by stepping a copy of
+     * it until the configuration repeats.
+     *
+     * @param distance The amount of steps after which the snapshot repeated, a multiple
+     *                 of the period.
+     * @return The period of the cycle.
+     */
+    private long findPeriod(long distance) {
+        final Probe probe = saved.copy();
+
+        for (long period = 1; period < distance; period++) {
+            probe.step();
+            if (probe.sameAs(saved)) {
+                return period;
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Finds the first step that is part of the cycle by running two copies of the start
+     * configuration, one of them the period ahead, until they meet.
+     *
+     * @param period The period of the cycle.
+     * @return The amount of steps before the cycle starts.
+     */
+    private long findCycleStart(long period) {
+        final Probe behind = start.copy();
+        final Probe ahead = start.copy();
+
+        for (long i = 0; i < period; i++) {
+            ahead.step();
+        }
+
+        long steps = 0;
+        while (!behind.sameAs(ahead)) {
+            behind.step();
+            ahead.step();
+            steps++;
+        }
+
+        return steps;
+    }
+
+    /**
+     * Returns the stride for the given tape: the smallest power of two that is at least
+     * {@link #MIN_STRIDE} and the amount of visited cells.
+     *
+     * @param tape The current tape of the TM.
+     * @return The amount of steps between two samples.
+     */
+    private static long strideFor(Tape tape) {
+        final long length = (long) tape.getRightmostIndex() - tape.getLeftmostIndex() + 1;
+        return Math.max(MIN_STRIDE, Long.highestOneBit(length - 1) << 1);
+    }
+
+    /**
+     * The configuration of a running TM together with its fingerprint. A probe performs
+     * the steps of the TM on its tape and keeps the fingerprint up to date.
+     */
+    static final class Probe {
+
+        /** The transitions of the TM. */
+        private final TransitionTable table;
+
+        /** The tape of the configuration. */
+        private final Tape tape;
+
+        /** The id of the current state. */
+        private int state;
+
+        /** The combined hash of all non blank cells of the tape. */
+        private long tapeHash;
+
+        /**
+         * Creates a probe for the given configuration and computes its fingerprint.
+         *
+         * @param table The transitions of the TM.
+         * @param tape The tape of the configuration. It is modified by the probe.
+         * @param state The id of the current state.
+         */
+        Probe(TransitionTable table, Tape tape, int state) {
+            this(table, tape, state, hashOf(tape));
+        }
+
+        /**
+         * Creates a probe for the given configuration with a known tape hash.
+         *
+         * @param table The transitions of the TM.
+         * @param tape The tape of the configuration. It is modified by the probe.
+         * @param state The id of the current state.
+         * @param tapeHash The combined hash of all non blank cells of the tape.
+         */
+        private Probe(TransitionTable table, Tape tape, int state, long tapeHash) {
+            this.table = table;
+            this.tape = tape;
+            this.state = state;
+            this.tapeHash = tapeHash;
+        }
+
+        /**
+         * Performs one step of the TM. Nothing happens if no transition matches.
+         *
+         * @return The position of the applied transition or
+         *         {@link TransitionTable#NO_TRANSITION}.
+         */
+        int step() {
+            final int scanned = tape.readId();
+            final int position = table.find(state, scanned);
+
+            if (position == TransitionTable.NO_TRANSITION) {
+                return position;
+            }
+
+            final int printed = table.printSymbol(position);
+            if (printed != scanned) {
+                final int index = tape.getHeadIndex();
+                tapeHash ^= cellHash(index, scanned, tape.blankId)
+                        ^ cellHash(index, printed, tape.blankId);
+            }
+
+            tape.writeId(printed);
+            state = table.nextState(position);
+            tape.moveHead(table.move(position));
+            return position;
+        }
+
+        /**
+         * Returns the id of the current state.
+         *
+         * @return The id of the current state.
+         */
+        int getState() {
+            return state;
+        }
+
+        /**
+         * Returns the fingerprint of the whole configuration, combining the tape hash
+         * with the state and the head position.
+         *
+         * @return The fingerprint of the configuration.
+         */
+        long fingerprint() {
+            return tapeHash ^ mix(0x6A09E667F3BCC909L ^ state)
+                    ^ mix(0xBB67AE8584CAA73BL ^ tape.getHeadIndex());
+        }
+
+        /**
+         * Returns whether this probe has exactly the same configuration as the given
+         * one. The fingerprints are compared first, so this is usually cheap.
+         *
+         * @param other The probe to compare with.
+         * @return {@code true} if state, head position and tape content are equal.
+         */
+        boolean sameAs(Probe other) {
+            return fingerprint() == other.fingerprint()
+                    && state == other.state
+                    && tape.getHeadIndex() == other.tape.getHeadIndex()
+                    && tape.sameContent(other.tape);
+        }
+
+        /**
+         * Creates an independent copy of this probe and its tape.
+         *
+         * @return The copy.
+         */
+        Probe copy() {
+            return new Probe(table, tape.copy(), state, tapeHash);
+        }
+
+        /**
+         * Computes the combined hash of all non blank cells of the given tape.
+         *
+         * @param tape The tape that should be hashed.
+         * @return The tape hash.
+         */
+        private static long hashOf(Tape tape) {
+            final int from = tape.getLeftmostIndex();
+            final PrimitiveIterator.OfInt ids = tape.ids(from, tape.getRightmostIndex() + 1);
+            long hash = 0;
+
+            for (int index = from; ids.hasNext(); index++) {
+                final int id = ids.nextInt();
+                hash ^= cellHash(index, id, tape.blankId);
+            }
+
+            return hash;
+        }
+
+        /**
+         * Returns the hash of a single cell. Blank cells have the hash 0, so visiting new
+         * cells does not change the tape hash.
+         *
+         * @param index The index of the cell.
+         * @param symbol The id of the symbol in the cell.
+         * @param blank The id of the blank symbol.
+         * @return The hash of the cell.
+         */
+        private static long cellHash(int index, int symbol, int blank) {
+            return (symbol == blank) ? 0 : mix(((long) index << Integer.SIZE) ^ symbol);
+        }
+
+        /**
+         * Mixes the bits of the given value, using the finalizer of the SplitMix64
+         * generator.
+         *
+         * @param value The value that should be mixed.
+         * @return The mixed value.
+         */
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package de.tim_greller.mr_turing.turing_machine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -12,6 +23,21 @@ import java.util.stream.Stream;
  */
 public class DeterministicTuringMachine implements TuringMachine {
 
+    /**
+     * The amount of observed steps after which runs with cycle detection consult the
+     * {@link NonHaltingDecider}s.
+     */
+    private static final long DECIDER_THRESHOLD = 10_000;
+
+    /** The default maximum amount of single steps that can be undone. */
+    public static final int DEFAULT_MAX_DELTAS = 1 << 16;
+
+    /** The default amount of steps between two checkpoints of the journal. */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+
+    /** The default maximum amount of checkpoints of the journal. */
+    public static final int DEFAULT_MAX_CHECKPOINTS = 32;
+
     /** 
      * The status of the Turing machine. Signalizes whether the TM is running or not and
      * if not, if it terminated in an accepting or denying state or if it is currently
@@ -20,9 +46,10 @@ public class DeterministicTuringMachine implements TuringMachine {
     private TMState status = TMState.MODIFIABLE;
     
     /** 
-     * The current state of the automata/machine. 
+     * The id of the current state of the automata/machine or {@code -1} if the TM was not
+     * built yet.
      */
-    private State currentState;
+    private int currentState = -1;
     
     /** 
      * The initial state from which the TM starts its execution. Because this is a
@@ -32,14 +59,77 @@ public class DeterministicTuringMachine implements TuringMachine {
     private State initialState;
     
     /** 
-     * All transitions between the different states of this TM.
+     * All transitions between the different states of this TM. The table is compiled
+     * when the TM gets built.
      */
-    private final List<Transition> transitions = new LinkedList<>();
+    private TransitionTable transitions = new TransitionTable();
+    
+    /**
+     * The transitions as they were defined, if {@link #transitions} was replaced by its
+     * simplified version when the TM was built. Otherwise {@code null}.
+     */
+    private TransitionTable definition;
     
     /** 
      * If the TM is in one of this states, it instantly terminates and accepts the input.
      */
-    private final List<State> acceptingStates = new LinkedList<>();
+    private final Set<State> acceptingStates = new LinkedHashSet<>();
+    
+    /** 
+     * The ids of the accepting states. This set is computed when the TM gets built.
+     */
+    private final BitSet acceptingStateIds = new BitSet();
+    
+    /**
+     * The way this TM executes its steps when it is run.
+     */
+    private ExecutionMode executionMode = ExecutionMode.INTERPRETED;
+    
+    /**
+     * Whether the transitions are simplified when the TM gets built.
+     */
+    private boolean optimized = false;
+    
+    /**
+     * What was simplified when the TM was built or {@code null} if it was not optimized.
+     */
+    private AnalysisResult analysisResult;
+    
+    /**
+     * The executor used to run this TM. It is only present if the TM was built in the
+     * {@link ExecutionMode#COMPILED} or {@link ExecutionMode#MACRO} mode and the
+     * executor could be created for this TM.
+     */
+    private MachineExecutor executor;
+    
+    /**
+     * The configuration that is passed to the {@link #executor}, stored to avoid
+     * allocating it for each run.
+     */
+    private final int[] executorConfiguration = new int[2];
+    
+    /**
+     * The deciders that are consulted by runs with cycle detection.
+     */
+    private final List<NonHaltingDecider> deciders = 
+            new ArrayList<>(NonHaltingDecider.createDefaults());
+    
+    /**
+     * The detector observing the runs with cycle detection since the last change of the
+     * configuration by other means or {@code null} if there is no such observation.
+     */
+    private CycleDetector detector;
+    
+    /**
+     * The step count of this TM when the {@link #detector} started observing it.
+     */
+    private long detectorOrigin;
+    
+    /**
+     * Whether the {@link NonHaltingDecider}s were already consulted during the
+     * observation of the {@link #detector}.
+     */
+    private boolean decidersConsulted;
     
     /**
      * The input word that will be written on the tape once the TM is getting build.
@@ -51,15 +141,60 @@ public class DeterministicTuringMachine implements TuringMachine {
      */
     private Tape tape;
     
+    /**
+     * The amount of steps performed since the TM was built.
+     */
+    private long stepCount = 0;
+    
+    /**
+     * Remembers the past configurations, so the TM can go back to them.
+     */
+    private Journal journal;
+    
+    /**
+     * Creates a new deterministic TM that remembers its past configurations within the
+     * default limits.
+     */
+    public DeterministicTuringMachine() {
+        this(DEFAULT_MAX_DELTAS, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_CHECKPOINTS);
+    }
+    
+    /**
+     * Creates a new deterministic TM. Single steps are remembered as small deltas and
+     * every few steps, the whole configuration is stored as a checkpoint. Older entries
+     * are dropped once the limits are reached.
+     * 
+     * @param maxDeltas The maximum amount of single steps that can be undone.
+     * @param checkpointInterval The amount of steps between two checkpoints.
+     * @param maxCheckpoints The maximum amount of stored checkpoints.
+     */
+    public DeterministicTuringMachine(int maxDeltas, long checkpointInterval, 
+            int maxCheckpoints) {
+        journal = new Journal(maxDeltas, checkpointInterval, maxCheckpoints);
+    }
+    
     @Override
     public void clear() {
         status = TMState.MODIFIABLE;
         tape = null;
         input.clear();
+        if (definition != null) {
+            transitions = definition;
+            definition = null;
+        }
         transitions.clear();
         acceptingStates.clear();
-        currentState = null;
+        acceptingStateIds.clear();
+        executionMode = ExecutionMode.INTERPRETED;
+        optimized = false;
+        analysisResult = null;
+        executor = null;
+        detector = null;
+        currentState = -1;
+        stepCount = 0;
         initialState = null;
+        deciders.clear();
+        deciders.addAll(NonHaltingDecider.createDefaults());
     }
 
     @Override
@@ -67,8 +202,6 @@ public class DeterministicTuringMachine implements TuringMachine {
         builtOrThrow();
         
         status = TMState.MODIFIABLE;
-        tape = new Tape(tape.blank);
-        
         build();
     }
 
@@ -76,20 +209,42 @@ public class DeterministicTuringMachine implements TuringMachine {
     public void build() {
         modifiableOrThrow();
         
-        if (tape == null) {
-            tape = new Tape(getDefaultBlankSymbol());
-        }
-        tape.writeWord(input);
-        
         if (initialState == null) {
             initialState = getDefaultInitialState();
         }
-        currentState = initialState;
-        
         if (acceptingStates.isEmpty()) {
             acceptingStates.add(getDefaultAcceptingState());
         }
         
+        // The simplified table has to be in place before the tape registers the input.
+        if (definition != null) {
+            transitions = definition;
+            definition = null;
+        }
+        analysisResult = null;
+        if (optimized) {
+            final MachineAnalysis analysis = new MachineAnalysis(
+                    transitions, Set.of(initialState), acceptingStates);
+            definition = transitions;
+            transitions = analysis.getTable();
+            analysisResult = analysis.getResult();
+        }
+        
+        tape = createTape((tape == null) ? getDefaultBlankSymbol() : tape.blank);
+        tape.writeWord(input);
+        
+        transitions.compile();
+        currentState = transitions.states.idOf(initialState);
+        
+        acceptingStateIds.clear();
+        for (State state : acceptingStates) {
+            acceptingStateIds.set(transitions.states.idOf(state));
+        }
+        
+        executor = createExecutor();
+        detector = null;
+        stepCount = 0;
+        journal.reset(stepCount, currentState, tape);
         status = TMState.RUNNING;
     }
 
@@ -97,11 +252,7 @@ public class DeterministicTuringMachine implements TuringMachine {
     public boolean addTransition(Transition transition) {
         modifiableOrThrow();
         
-        if (getTransition(transition.currentState, transition.scannedSymbol) != null) {
-            return false;
-        } else {
-            return transitions.add(transition);
-        }
+        return transitions.add(transition);
     }
 
     @Override
@@ -149,7 +300,7 @@ public class DeterministicTuringMachine implements TuringMachine {
     public void setBlankSymbol(BlankSymbol blank) {
         modifiableOrThrow();
         
-        tape = new Tape(blank);
+        tape = createTape(blank);
     }
 
     @Override
@@ -158,10 +309,123 @@ public class DeterministicTuringMachine implements TuringMachine {
         this.input.clear();
         
         for (char c : input.toCharArray()) {
-            this.input.addLast(new Symbol(c));
+            this.input.addLast(Symbol.of(c));
         }
     }
     
+    @Override
+    public void setExecutionMode(ExecutionMode mode) {
+        modifiableOrThrow();
+        
+        executionMode = mode;
+    }
+    
+    @Override
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+    
+    @Override
+    public void setOptimized(boolean optimized) {
+        modifiableOrThrow();
+        
+        this.optimized = optimized;
+    }
+    
+    @Override
+    public boolean isOptimized() {
+        return optimized;
+    }
+    
+    @Override
+    public AnalysisResult getAnalysisResult() {
+        return analysisResult;
+    }
+    
+    @Override
+    public MachineDefinition getDefinition() {
+        final TransitionTable defined = (definition == null) ? transitions : definition;
+        final StringBuilder word = new StringBuilder();
+        input.forEach(word::append);
+        
+        return new MachineDefinition(defined.transitions(),
+                (initialState == null) ? List.of() : List.of(initialState),
+                new ArrayList<>(acceptingStates), (tape == null) ? null : tape.blank,
+                word.toString(), executionMode, optimized);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A definition with more than one initial state or multiple transitions with the
+     * same precondition is rejected, because this implementation is deterministic.
+     */
+    @Override
+    public void define(MachineDefinition definition) {
+        if (definition.getInitialStates().size() > 1) {
+            throw new IllegalArgumentException(
+                    "A deterministic Turing machine can only have one initial state.");
+        }
+        final TransitionTable table = new TransitionTable();
+        final Transition rejected = table.addAll(definition.getTransitions());
+        if (rejected != null) {
+            throw TransitionTable.rejected(rejected);
+        }
+        
+        clear();
+        transitions = table;
+        definition.getInitialStates().forEach(this::addInitialState);
+        acceptingStates.addAll(definition.getAcceptingStates());
+        if (definition.getBlankSymbol() != null) {
+            setBlankSymbol(definition.getBlankSymbol());
+        }
+        setInput(definition.getInput());
+        executionMode = definition.getExecutionMode();
+        optimized = definition.isOptimized();
+    }
+    
+    @Override
+    public void addNonHaltingDecider(NonHaltingDecider decider) {
+        deciders.add(decider);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the {@link ExecutionMode#INTERPRETED} mode, the tape is a {@link PersistentTape},
+     * so both machines share the content of the tape until they change it and forking
+     * takes constant time. The tapes of the other modes are copied completely.
+     */
+    @Override
+    public DeterministicTuringMachine fork() {
+        final DeterministicTuringMachine fork = new DeterministicTuringMachine();
+        
+        fork.status = status;
+        fork.currentState = currentState;
+        fork.stepCount = stepCount;
+        fork.initialState = initialState;
+        fork.transitions = transitions.copy();
+        fork.definition = (definition == null) ? null : definition.copy();
+        fork.optimized = optimized;
+        fork.analysisResult = analysisResult;
+        fork.acceptingStates.addAll(acceptingStates);
+        fork.acceptingStateIds.or(acceptingStateIds);
+        fork.executionMode = executionMode;
+        fork.deciders.clear();
+        fork.deciders.addAll(deciders);
+        fork.input.addAll(input);
+        
+        if (tape != null) {
+            fork.tape = tape.copy(fork.transitions.symbols);
+        }
+        fork.journal = journal.copy(fork.transitions.symbols);
+        if (executor != null) {
+            fork.executor = fork.createExecutor();
+        }
+        
+        return fork;
+    }
+    
     @Override
     public BlankSymbol getDefaultBlankSymbol() {
         return new BlankSymbol("_");
@@ -183,9 +447,15 @@ public class DeterministicTuringMachine implements TuringMachine {
             throw new IllegalStateException("The TM is not running.");
         }
         
-        Transition transition = getTransition(currentState, tape.readSymbol());
+        detector = null;
+        final int scanned = tape.readId();
+        final int position = transitions.find(currentState, scanned);
+        
+        journal.record(stepCount + 1, currentState, scanned, 
+                (position == TransitionTable.NO_TRANSITION) 
+                        ? TapeMove.NONE : transitions.move(position), tape);
         
-        if (transition == null) {
+        if (position == TransitionTable.NO_TRANSITION) {
             
             /*
              * The transition for this configuration is not explicitly defined.
@@ -195,12 +465,438 @@ public class DeterministicTuringMachine implements TuringMachine {
             status = TMState.DENYING;
             
         } else {
-            performTransition(transition);
+            performTransition(position);
         }
         
+        stepCount++;
+        journal.checkpointIfDue(stepCount, currentState, tape);
         checkIfAccepting();
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The steps are executed on the compiled transition table without any allocations.
+     * If the TM was built in another {@link ExecutionMode}, its executor is used
+     * instead.
+     */
+    @Override
+    public RunResult run(long maxSteps) {
+        return run(maxSteps, false);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * With cycle detection, the run is split into segments that end whenever the
+     * {@link CycleDetector} takes its next sample, so the steps are still executed in the
+     * {@link ExecutionMode} the TM was built in. The observation continues across runs
+     * with cycle detection until the configuration is changed in another way, and the
+     * {@link NonHaltingDecider}s are consulted once per observation, after
+     * {@link #DECIDER_THRESHOLD} steps or at the end of a shorter run.
+     */
+    @Override
+    public RunResult run(long maxSteps, boolean detectCycles) {
+        if (!isRunning()) {
+            throw new IllegalStateException("The TM is not running.");
+        }
+        
+        final long start = System.nanoTime();
+        final long limit = (maxSteps == 0) ? Long.MAX_VALUE : maxSteps;
+        
+        if (!detectCycles) {
+            detector = null;
+        } else if (detector == null) {
+            detector = new CycleDetector(transitions, tape, currentState);
+            detectorOrigin = stepCount;
+            decidersConsulted = false;
+        }
+        
+        // The run is split at the checkpoints of the journal and the samples.
+        String provenBy = null;
+        boolean looping = false;
+        long steps = 0;
+        while (steps < limit && isRunning() && !looping) {
+            long segment = 
+                    Math.min(limit - steps, journal.stepsUntilCheckpoint(stepCount));
+            if (detectCycles) {
+                segment = Math.min(segment, detector.stepsUntilSample());
+                if (!decidersConsulted 
+                        && detector.getObservedSteps() < DECIDER_THRESHOLD) {
+                    segment = Math.min(segment, 
+                            DECIDER_THRESHOLD - detector.getObservedSteps());
+                }
+            }
+            
+            final long done = runSegment(segment);
+            steps += done;
+            stepCount += done;
+            journal.checkpointIfDue(stepCount, currentState, tape);
+            
+            if (detectCycles && isRunning()) {
+                looping = detector.observe(done, tape, currentState);
+                
+                if (!looping && !decidersConsulted && (steps == limit 
+                        || detector.getObservedSteps() >= DECIDER_THRESHOLD)) {
+                    decidersConsulted = true;
+                    provenBy = consultDeciders(currentState);
+                    looping = provenBy != null;
+                }
+            }
+        }
+        
+        final long elapsed = System.nanoTime() - start;
+        if (!detectCycles || detector.getCyclePeriod() == CycleDetector.NO_CYCLE) {
+            return new RunResult(status, steps, elapsed, -1, -1, provenBy);
+        }
+        
+        final long cycleStart = 
+                detectorOrigin + detector.getCycleStart() - (stepCount - steps);
+        return new RunResult(status, steps, elapsed, cycleStart, 
+                detector.getCyclePeriod(), null);
+    }
+    
+    /**
+     * Executes one segment of a run with the executor that fits the
+     * {@link ExecutionMode} of this TM.
+     * 
+     * @param limit The maximum amount of steps that should be executed.
+     * @return The amount of executed steps.
+     */
+    private long runSegment(long limit) {
+        if (executor != null) {
+            return runExecutor(limit);
+        } else if (tape instanceof RunLengthTape) {
+            return runSweeping(limit);
+        } else {
+            return runInterpreted(limit);
+        }
+    }
+    
+    /**
+     * Runs this TM by interpreting the compiled transition table.
+     * 
+     * @param limit The maximum amount of steps that should be executed.
+     * @return The amount of executed steps.
+     */
+    private long runInterpreted(long limit) {
+        final TransitionTable table = transitions;
+        final Tape tape = this.tape;
+        int state = currentState;
+        long steps = 0;
+        
+        while (steps < limit) {
+            final int position = table.find(state, tape.readId());
+            steps++;
+            
+            if (position == TransitionTable.NO_TRANSITION) {
+                status = acceptingStateIds.get(state) ? TMState.ACCEPTING : TMState.DENYING;
+                break;
+            }
+            
+            tape.writeId(table.printSymbol(position));
+            state = table.nextState(position);
+            tape.moveHead(table.move(position));
+            
+            if (acceptingStateIds.get(state)) {
+                status = TMState.ACCEPTING;
+                break;
+            }
+        }
+        
+        currentState = state;
+        return steps;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The input words are evaluated in parallel on the pool of the calling thread, or on
+     * the common pool if it is not a worker of a pool. All runs share a copy of the
+     * compiled transition table and are interpreted on their own {@link ArrayTape}, no
+     * matter which {@link ExecutionMode} the TM was built in.
+     */
+    @Override
+    public BatchResult evaluate(List<String> inputs, long maxSteps, 
+            Consumer<Evaluation> listener, BooleanSupplier cancelled) {
+        builtOrThrow();
+        
+        final TransitionTable table = transitions.copy();
+        return new BatchEvaluator(table, (BitSet) acceptingStateIds.clone(), 
+                table.states.idOf(initialState), tape.blank, batchPool(), cancelled)
+                .evaluate(inputs, maxSteps, listener);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The words of each length are evaluated in parallel on the same pool and in the
+     * same way as {@link #evaluate(List, long, Consumer, BooleanSupplier)} does it. Each worker reuses its
+     * tape for all of its words.
+     */
+    @Override
+    public EnumerationResult enumerate(String alphabet, int maxLength, long maxSteps,
+            Predicate<String> reference, int maxSamples, BooleanSupplier cancelled) {
+        builtOrThrow();
+        
+        final LanguageEnumeration enumeration = 
+                new LanguageEnumeration(alphabet, maxLength, reference, maxSamples);
+        final TransitionTable table = transitions.copy();
+        return new BatchEvaluator(table, (BitSet) acceptingStateIds.clone(), 
+                table.states.idOf(initialState), tape.blank, batchPool(), cancelled)
+                .enumerate(enumeration, maxSteps);
+    }
+    
+    /**
+     * Returns the pool input words are evaluated on.
+     * 
+     * @return The pool of the calling thread or the common pool.
+     */
+    private static ForkJoinPool batchPool() {
+        return ForkJoinTask.inForkJoinPool() 
+                ? ForkJoinTask.getPool() 
+                : ForkJoinPool.commonPool();
+    }
+    
+    @Override
+    public long getStepCount() {
+        return stepCount;
+    }
+    
+    @Override
+    public void stepBack(long steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("The amount of steps must not be negative.");
+        }
+        
+        seek(stepCount - steps);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Recent single steps are undone one by one. Otherwise, the latest checkpoint before
+     * the step is restored and the steps since then are repeated, so this takes time
+     * proportional to the distance to the closest remembered configuration. Only the
+     * steps within the limits of the journal can be restored.
+     */
+    @Override
+    public void seek(long step) {
+        builtOrThrow();
+        
+        if (step < 0 || step > stepCount) {
+            throw new IllegalArgumentException("The TM can only go back to a step between "
+                    + "0 and " + stepCount + ".");
+        }
+        if (step == stepCount) {
+            return;
+        }
+        
+        final long earliest = journal.earliestStep(stepCount);
+        if (step < earliest) {
+            throw new IllegalStateException("The TM only remembers its configurations "
+                    + "since step " + earliest + ".");
+        }
+        
+        if (journal.prefersUndo(stepCount, step)) {
+            while (stepCount > step) {
+                currentState = journal.undo(tape);
+                stepCount--;
+            }
+        } else {
+            final Journal.Checkpoint checkpoint = journal.checkpointBefore(step);
+            tape = checkpoint.tape.copy();
+            currentState = checkpoint.state;
+            
+            // All steps before the last one of the TM had a transition.
+            for (stepCount = checkpoint.step; stepCount < step; stepCount++) {
+                performTransition(transitions.find(currentState, tape.readId()));
+            }
+        }
+        
+        journal.truncate(step);
+        detector = null;
+        status = TMState.RUNNING;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This takes time proportional to the amount of visited cells.
+     */
+    @Override
+    public MachineConfiguration getConfiguration() {
+        builtOrThrow();
+        
+        final int leftmost = tape.getLeftmostIndex();
+        final PrimitiveIterator.OfInt ids = 
+                tape.ids(leftmost, tape.getRightmostIndex() + 1);
+        final List<Symbol> symbols = new ArrayList<>();
+        int[] lengths = new int[16];
+        int runs = 0;
+        int previous = -1;
+        
+        while (ids.hasNext()) {
+            final int id = ids.nextInt();
+            if (id == previous) {
+                lengths[runs - 1]++;
+                continue;
+            }
+            if (runs == lengths.length) {
+                lengths = Arrays.copyOf(lengths, 2 * runs);
+            }
+            symbols.add(transitions.symbols.get(id));
+            lengths[runs++] = 1;
+            previous = id;
+        }
+        
+        return new MachineConfiguration(status, stepCount, getCurrentState(), 
+                tape.getHeadIndex(), leftmost, symbols, Arrays.copyOf(lengths, runs));
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A new tape is written cell by cell, so this takes time proportional to the amount
+     * of visited cells of the configuration.
+     */
+    @Override
+    public void setConfiguration(MachineConfiguration configuration) {
+        builtOrThrow();
+        
+        final int state = transitions.states.find(configuration.getState());
+        if (state < 0) {
+            throw new IllegalArgumentException("The state " + configuration.getState() 
+                    + " is not part of the Turing machine.");
+        }
+        
+        final Tape restored = createTape(tape.blank);
+        final int[] ids = new int[configuration.getRunCount()];
+        for (int run = 0; run < ids.length; run++) {
+            final Symbol symbol = configuration.getRunSymbols().get(run);
+            ids[run] = transitions.symbols.find(symbol);
+            if (ids[run] < 0) {
+                throw new IllegalArgumentException("The symbol " + symbol 
+                        + " is not part of the Turing machine.");
+            }
+        }
+        
+        // The visited cells always include the cell with index 0, where the head starts.
+        for (int index = 0; index > configuration.getLeftmostIndex(); index--) {
+            restored.moveHead(TapeMove.LEFT);
+        }
+        for (int run = 0; run < ids.length; run++) {
+            for (int cell = configuration.getRunLength(run); cell > 0; cell--) {
+                restored.writeId(ids[run]);
+                if (restored.getHeadIndex() < configuration.getRightmostIndex()) {
+                    restored.moveHead(TapeMove.RIGHT);
+                }
+            }
+        }
+        while (restored.getHeadIndex() > configuration.getHeadIndex()) {
+            restored.moveHead(TapeMove.LEFT);
+        }
+        
+        tape = restored;
+        currentState = state;
+        stepCount = configuration.getSteps();
+        status = configuration.getStatus();
+        detector = null;
+        journal.reset(stepCount, currentState, tape);
+    }
+    
+    /**
+     * Asks the {@link NonHaltingDecider}s whether this TM runs forever from the current
+     * configuration.
+     * 
+     * @param state The id of the current state.
+     * @return The name of the decider that proved it or {@code null}.
+     */
+    private String consultDeciders(int state) {
+        for (NonHaltingDecider decider : deciders) {
+            if (decider.decide(transitions, acceptingStateIds, tape, state)) {
+                return decider.getName();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Runs this TM on its {@link RunLengthTape}. Sweeping transitions are applied to the
+     * whole run of identical symbols at the head at once.
+     * 
+     * @param limit The maximum amount of steps that should be executed.
+     * @return The amount of executed steps.
+     */
+    private long runSweeping(long limit) {
+        final TransitionTable table = transitions;
+        final RunLengthTape tape = (RunLengthTape) this.tape;
+        int state = currentState;
+        long steps = 0;
+        
+        while (steps < limit) {
+            final int position = table.find(state, tape.readId());
+            
+            if (position == TransitionTable.NO_TRANSITION) {
+                steps++;
+                status = acceptingStateIds.get(state) ? TMState.ACCEPTING : TMState.DENYING;
+                break;
+            }
+            
+            /*
+             * A sweep keeps the state, which cannot be accepting as the TM would have
+             * terminated already, so no acceptance check is needed afterwards.
+             */
+            if (table.isSweep(position)) {
+                steps += tape.sweep(table.printSymbol(position), table.move(position), 
+                        limit - steps);
+                continue;
+            }
+            
+            steps++;
+            tape.writeId(table.printSymbol(position));
+            state = table.nextState(position);
+            tape.moveHead(table.move(position));
+            
+            if (acceptingStateIds.get(state)) {
+                status = TMState.ACCEPTING;
+                break;
+            }
+        }
+        
+        currentState = state;
+        return steps;
+    }
+    
+    /**
+     * Runs this TM using its executor.
+     * 
+     * @param limit The maximum amount of steps that should be executed.
+     * @return The amount of executed steps.
+     */
+    private long runExecutor(long limit) {
+        executorConfiguration[MachineExecutor.STATE] = currentState;
+        executorConfiguration[MachineExecutor.STATUS] = MachineExecutor.RUNNING;
+        
+        final long steps = executor.execute((ArrayTape) tape, executorConfiguration, limit);
+        
+        currentState = executorConfiguration[MachineExecutor.STATE];
+        switch (executorConfiguration[MachineExecutor.STATUS]) {
+        case MachineExecutor.ACCEPTING:
+            status = TMState.ACCEPTING;
+            break;
+            
+        case MachineExecutor.DENYING:
+            status = TMState.DENYING;
+            break;
+            
+        default:
+            break;
+        }
+        
+        return steps;
+    }
+    
     @Override
     public Deque<Symbol> getTapeContent() {
         builtOrThrow();
@@ -212,6 +908,24 @@ public class DeterministicTuringMachine implements TuringMachine {
         return tape.getContent();
     }
     
+    @Override
+    public Stream<Symbol> streamTapeContent() {
+        builtOrThrow();
+        return tape.stream();
+    }
+    
+    @Override
+    public Stream<Symbol> streamTapeContent(int from, int to) {
+        builtOrThrow();
+        return tape.range(from, to);
+    }
+    
+    @Override
+    public void appendTapeContent(StringBuilder builder, String separator) {
+        builtOrThrow();
+        tape.appendTo(builder, separator);
+    }
+    
     @Override
     public Deque<Symbol> getInput() {
         return new LinkedList<Symbol>(input);
@@ -222,9 +936,22 @@ public class DeterministicTuringMachine implements TuringMachine {
         return tape.getHeadIndex();
     }
     
+    @Override
+    public int getLeftmostIndex() {
+        return tape.getLeftmostIndex();
+    }
+    
+    @Override
+    public int getRightmostIndex() {
+        return tape.getRightmostIndex();
+    }
+    
     @Override
     public State getCurrentState() {
-        return currentState;
+        if (currentState < 0) {
+            return null;
+        }
+        return transitions.states.get(currentState);
     }
     
     @Override
@@ -248,29 +975,14 @@ public class DeterministicTuringMachine implements TuringMachine {
     }
     
     /**
-     * Performs the given transition on this Turing machine.
+     * Performs the compiled transition at the given position on this Turing machine.
      * 
-     * @param transition The transition, must not be {@code null}.
+     * @param position The position of the transition in the compiled transition table.
      */
-    private void performTransition(Transition transition) {
-        tape.writeSymbol(transition.printSymbol);
-        currentState = transition.nextState;
-        tape.moveHead(transition.tapeMotion);
-    }
-    
-    /**
-     * Returns the {@link Transition} for a given precondition or {@code null} if no 
-     * Transition for the precondition exists.
-     * 
-     * @param state The required current state for the precondition.
-     * @param readSymbol The symbol that should be read currently to meet the
-     *                      precondition.
-     * @return The matching transition or {@code null}.
-     */
-    private Transition getTransition(State state, Symbol scannedSymbol) {
-        // Return the first match (or null), as there  should only be 1 or 0 matches.
-        return transitions.stream().filter(t -> t.matches(state, scannedSymbol))
-                .findFirst().orElse(null);
+    private void performTransition(int position) {
+        tape.writeId(transitions.printSymbol(position));
+        currentState = transitions.nextState(position);
+        tape.moveHead(transitions.move(position));
     }
     
     /**
@@ -278,7 +990,7 @@ public class DeterministicTuringMachine implements TuringMachine {
      * {@link TMState#ACCEPTING}.
      */
     private void checkIfAccepting() {
-        if (isAcceptingState(currentState)) {
+        if (acceptingStateIds.get(currentState)) {
             status = TMState.ACCEPTING;
         }
     }
@@ -293,6 +1005,42 @@ public class DeterministicTuringMachine implements TuringMachine {
         return acceptingStates.contains(state);
     }
     
+    /**
+     * Creates a new empty tape that fits the execution mode of this TM.
+     * 
+     * @param blank The blank symbol of the tape.
+     * @return A {@link PersistentTape} in the {@link ExecutionMode#INTERPRETED} mode, a
+     *         {@link RunLengthTape} in the {@link ExecutionMode#RUN_LENGTH} mode and an
+     *         {@link ArrayTape} in all other modes.
+     */
+    private Tape createTape(BlankSymbol blank) {
+        switch (executionMode) {
+        case INTERPRETED:
+            return new PersistentTape(blank, transitions.symbols);
+            
+        case RUN_LENGTH:
+            return new RunLengthTape(blank, transitions.symbols);
+            
+        default:
+            return new ArrayTape(blank, transitions.symbols);
+        }
+    }
+    
+    /**
+     * Creates the executor for the execution mode of this TM. Executors have their own
+     * state, so each TM needs its own executor.
+     * 
+     * @return The executor or {@code null} if the TM is interpreted.
+     */
+    private MachineExecutor createExecutor() {
+        if (executionMode == ExecutionMode.COMPILED && tape instanceof ArrayTape) {
+            return MachineCompiler.compile(transitions, acceptingStateIds);
+        } else if (executionMode == ExecutionMode.MACRO && tape instanceof ArrayTape) {
+            return MacroEngine.create(transitions, acceptingStateIds);
+        }
+        return null;
+    }
+    
     /**
      * Throws an {@link IllegalStateException} if the TM is not modifiable currently.
      */
@@ -0,0 +1,194 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * The outcome of running a Turing machine on every word up to a maximum length using
+ * {@link TuringMachine#enumerate(String, int, long, java.util.function.Predicate, int)}.
+ */
+public class EnumerationResult {
+
+    /** The amount of accepted words, indexed by their length. */
+    private final long[] accepted;
+
+    /** The amount of denied words, indexed by their length. */
+    private final long[] denied;
+
+    /** The amount of words reaching the step limit, indexed by their length. */
+    private final long[] unfinished;
+
+    /** The first accepted words in shortlex order. */
+    private final List<String> acceptedWords;
+
+    /** The first words decided differently than the reference, in shortlex order. */
+    private final List<Evaluation> counterexamples;
+
+    /** Whether the outcomes were compared with a reference language. */
+    private final boolean compared;
+
+    /** The amount of calculation steps that were executed for all words. */
+    private final long steps;
+
+    /** The time the enumeration took in nanoseconds. */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a new result of an enumeration.
+     *
+     * @param accepted The amount of accepted words per length.
+     * @param denied The amount of denied words per length.
+     * @param unfinished The amount of words per length that reached the step limit.
+     * @param acceptedWords The first accepted words in shortlex order.
+     * @param counterexamples The first words decided differently than the reference.
+     * @param compared Whether the outcomes were compared with a reference language.
+     * @param steps The amount of executed calculation steps.
+     * @param elapsedNanos The time the enumeration took in nanoseconds.
+     */
+    public EnumerationResult(long[] accepted, long[] denied, long[] unfinished,
+            List<String> acceptedWords, List<Evaluation> counterexamples,
+            boolean compared, long steps, long elapsedNanos) {
+        this.accepted = accepted.clone();
+        this.denied = denied.clone();
+        this.unfinished = unfinished.clone();
+        this.acceptedWords = List.copyOf(acceptedWords);
+        this.counterexamples = List.copyOf(counterexamples);
+        this.compared = compared;
+        this.steps = steps;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the maximum length of the enumerated words.
+     *
+     * @return The maximum length.
+     */
+    public int getMaxLength() {
+        return accepted.length - 1;
+    }
+
+    /**
+     * Returns the amount of accepted words of the given length.
+     *
+     * @param length The length of the words.
+     * @return The amount of accepted words.
+     */
+    public long getAccepted(int length) {
+        return accepted[length];
+    }
+
+    /**
+     * Returns the amount of denied words of the given length.
+     *
+     * @param length The length of the words.
+     * @return The amount of denied words.
+     */
+    public long getDenied(int length) {
+        return denied[length];
+    }
+
+    /**
+     * Returns the amount of words of the given length for which the Turing machine
+     * reached the step limit without terminating.
+     *
+     * @param length The length of the words.
+     * @return The amount of unfinished words.
+     */
+    public long getUnfinished(int length) {
+        return unfinished[length];
+    }
+
+    /**
+     * Returns the amount of enumerated words.
+     *
+     * @return The amount of words of all lengths.
+     */
+    public long getTotal() {
+        return getAccepted() + getDenied() + getUnfinished();
+    }
+
+    /**
+     * Returns the amount of accepted words of all lengths.
+     *
+     * @return The amount of accepted words.
+     */
+    public long getAccepted() {
+        return LongStream.of(accepted).sum();
+    }
+
+    /**
+     * Returns the amount of denied words of all lengths.
+     *
+     * @return The amount of denied words.
+     */
+    public long getDenied() {
+        return LongStream.of(denied).sum();
+    }
+
+    /**
+     * Returns the amount of words of all lengths for which the Turing machine reached
+     * the step limit without terminating.
+     *
+     * @return The amount of unfinished words.
+     */
+    public long getUnfinished() {
+        return LongStream.of(unfinished).sum();
+    }
+
+    /**
+     * Returns the first accepted words in shortlex order. If all accepted words fit
+     * into the sample, this is the whole accepted language up to the maximum length.
+     *
+     * @return The accepted words.
+     */
+    public List<String> getAcceptedWords() {
+        return acceptedWords;
+    }
+
+    /**
+     * Returns whether the sample of accepted words contains all accepted words.
+     *
+     * @return {@code true} if no accepted word was left out.
+     */
+    public boolean isComplete() {
+        return acceptedWords.size() == getAccepted();
+    }
+
+    /**
+     * Returns whether the outcomes were compared with a reference language.
+     *
+     * @return {@code true} if a reference was given.
+     */
+    public boolean isCompared() {
+        return compared;
+    }
+
+    /**
+     * Returns the first words in shortlex order that the Turing machine accepted
+     * although the reference does not contain them, or denied although the reference
+     * contains them. Words reaching the step limit are no counterexamples.
+     *
+     * @return The counterexamples.
+     */
+    public List<Evaluation> getCounterexamples() {
+        return counterexamples;
+    }
+
+    /**
+     * Returns the amount of calculation steps that were executed for all words.
+     *
+     * @return The amount of executed steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the time the enumeration took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,72 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * The outcome of running a Turing machine on one input word of a batch using
+ * {@link TuringMachine#evaluate(java.util.List, long, java.util.function.Consumer)}.
+ */
+public class Evaluation {
+
+    /** The input word. */
+    private final String input;
+
+    /** The status of the Turing machine after the run. */
+    private final TMState status;
+
+    /** The amount of calculation steps that were executed. */
+    private final long steps;
+
+    /** The word on the tape after the run. */
+    private final String output;
+
+    /**
+     * Creates a new evaluation.
+     *
+     * @param input The input word.
+     * @param status The status of the Turing machine after the run.
+     * @param steps The amount of executed calculation steps.
+     * @param output The word on the tape after the run.
+     */
+    public Evaluation(String input, TMState status, long steps, String output) {
+        this.input = input;
+        this.status = status;
+        this.steps = steps;
+        this.output = output;
+    }
+
+    /**
+     * Returns the input word the Turing machine was run on.
+     *
+     * @return The input word.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the status of the Turing machine after the run. If the status is
+     * {@link TMState#RUNNING}, the run was stopped because the step limit was reached.
+     *
+     * @return The final status of the run.
+     */
+    public TMState getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the amount of calculation steps that were executed.
+     *
+     * @return The amount of executed steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the word on the tape after the run, without the blank cells at both ends.
+     *
+     * @return The output word.
+     */
+    public String getOutput() {
+        return output;
+    }
+}
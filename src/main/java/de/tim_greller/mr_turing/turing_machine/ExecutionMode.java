@@ -0,0 +1,64 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * This enumeration represents the different ways a Turing machine can execute its
+ * calculation steps when it is run.
+ */
+public enum ExecutionMode {
+
+    /** The steps are executed by interpreting the compiled transition table. */
+    INTERPRETED,
+
+    /**
+     * The transitions are turned into a generated class once the TM is built, so the JIT
+     * compiler can optimize the machine like hand written code. If the class cannot be
+     * generated, the TM falls back to the interpreter.
+     */
+    COMPILED,
+
+    /**
+     * The tape is grouped into blocks of multiple cells and the effect of the TM on a
+     * whole block is memoized, so sweeping over long regular tape regions is much faster.
+     * The step count and all other results stay exact.
+     */
+    MACRO,
+
+    /**
+     * The tape is stored as runs of identical symbols. Transitions that keep the state
+     * and move the head are applied to a whole run at once, so loops over long uniform
+     * tape regions take a single operation. The step count stays exact.
+     */
+    RUN_LENGTH;
+
+    /**
+     * Returns the execution mode represented by the given String. If the String is no
+     * valid execution mode, an {@link IllegalArgumentException} is thrown.
+     *
+     * @param inp The execution modes string representation.
+     * @return The corresponding execution mode.
+     */
+    public static ExecutionMode from(String inp) {
+        switch (inp.trim().toUpperCase()) {
+        case "INTERPRETED":
+        case "INTERPRETER":
+            return INTERPRETED;
+
+        case "COMPILED":
+        case "COMPILER":
+            return COMPILED;
+
+        case "MACRO":
+            return MACRO;
+
+        case "RUN_LENGTH":
+        case "RUNLENGTH":
+        case "RLE":
+            return RUN_LENGTH;
+
+        default:
+            throw new IllegalArgumentException(
+                    "The given String is not a valid execution mode. An execution mode "
+                    + "can be: INTERPRETED, COMPILED, MACRO or RUN_LENGTH.");
+        }
+    }
+}
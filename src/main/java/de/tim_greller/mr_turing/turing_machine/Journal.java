@@ -0,0 +1,325 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Remembers the past configurations of a deterministic Turing machine, so it can go
+ * back to an earlier step.
+ * <p>
+ * Single steps are recorded as compact deltas in a ring buffer. A delta contains the
+ * state before the step, the symbol that was overwritten, the tape motion and the range
+ * of visited cells before the step, which is enough to undo the step. Additionally, a full copy of the configuration is taken as a
+ * checkpoint whenever the step count reaches a multiple of the checkpoint interval.
+ * Runs do not record deltas, so steps within them are restored by repeating the steps
+ * since the last checkpoint.
+ * <p>
+ * Both the ring buffer and the amount of checkpoints are limited. If a limit is
+ * reached, the oldest entries are dropped, so the earliest reachable step moves forward.
+ */
+final class Journal {
+
+    /** The amount of bits the id of the old state is shifted by in a delta. */
+    private static final int STATE_SHIFT = Integer.SIZE;
+
+    /** The maximum amount of deltas that are stored. */
+    private final int maxDeltas;
+
+    /** The amount of steps between two checkpoints. */
+    private final long checkpointInterval;
+
+    /** The maximum amount of checkpoints that are stored. */
+    private final int maxCheckpoints;
+
+    /**
+     * The deltas of the most recent steps. Each one contains the id of the state before
+     * the step in the upper half and the id of the overwritten symbol in the lower half.
+     */
+    private long[] deltas;
+
+    /** The tape motion of each delta. */
+    private TapeMove[] moves;
+
+    /** The index of the most left visited cell before the step of each delta. */
+    private int[] leftmosts;
+
+    /** The index of the most right visited cell before the step of each delta. */
+    private int[] rightmosts;
+
+    /** The position in the ring buffer after the most recent delta. */
+    private int end = 0;
+
+    /** The amount of stored deltas. */
+    private int size = 0;
+
+    /** The step count reached by the most recent delta. */
+    private long lastDeltaStep = 0;
+
+    /** The stored checkpoints, ordered by their step counts. */
+    private final Deque<Checkpoint> checkpoints = new ArrayDeque<>();
+
+    /**
+     * Creates a new empty journal.
+     *
+     * @param maxDeltas The maximum amount of single steps that can be undone.
+     * @param checkpointInterval The amount of steps between two checkpoints.
+     * @param maxCheckpoints The maximum amount of stored checkpoints.
+     */
+    Journal(int maxDeltas, long checkpointInterval, int maxCheckpoints) {
+        if (maxDeltas < 0 || checkpointInterval < 1 || maxCheckpoints < 1) {
+            throw new IllegalArgumentException("The limits of the journal are invalid.");
+        }
+
+        this.maxDeltas = maxDeltas;
+        this.checkpointInterval = checkpointInterval;
+        this.maxCheckpoints = maxCheckpoints;
+        this.deltas = new long[Math.min(64, maxDeltas)];
+        this.moves = new TapeMove[deltas.length];
+        this.leftmosts = new int[deltas.length];
+        this.rightmosts = new int[deltas.length];
+    }
+
+    /**
+     * Removes all entries and takes a checkpoint of the given configuration.
+     *
+     * @param step The current step count.
+     * @param state The id of the current state.
+     * @param tape The current tape, which is copied.
+     */
+    void reset(long step, int state, Tape tape) {
+        end = 0;
+        size = 0;
+        lastDeltaStep = step;
+        checkpoints.clear();
+        checkpoints.addLast(new Checkpoint(step, state, tape.copy()));
+    }
+
+    /**
+     * Creates a copy of this journal with the same limits and entries, whose checkpoints
+     * use the given registry.
+     *
+     * @param symbols The registry of the copy, which has to assign the same ids.
+     * @return The copy.
+     */
+    Journal copy(Registry<Symbol> symbols) {
+        final Journal copy = new Journal(maxDeltas, checkpointInterval, maxCheckpoints);
+        copy.deltas = deltas.clone();
+        copy.moves = moves.clone();
+        copy.leftmosts = leftmosts.clone();
+        copy.rightmosts = rightmosts.clone();
+        copy.end = end;
+        copy.size = size;
+        copy.lastDeltaStep = lastDeltaStep;
+
+        for (Checkpoint checkpoint : checkpoints) {
+            copy.checkpoints.addLast(new Checkpoint(
+                    checkpoint.step, checkpoint.state, checkpoint.tape.copy(symbols)));
+        }
+        return copy;
+    }
+
+    /**
+     * Records the delta of a single step. This has to be done before the step changes
+     * the configuration.
+     *
+     * @param step The step count after the step.
+     * @param state The id of the state before the step.
+     * @param symbol The id of the symbol the step overwrites.
+     * @param move The tape motion of the step.
+     * @param tape The tape before the step, whose range of visited cells is recorded.
+     */
+    void record(long step, int state, int symbol, TapeMove move, Tape tape) {
+        if (maxDeltas == 0) {
+            return;
+        }
+        if (step != lastDeltaStep + 1) {
+            end = 0;
+            size = 0;
+        }
+
+        if (size == deltas.length && size < maxDeltas) {
+            final int length = (int) Math.min(maxDeltas, 2L * size);
+            deltas = Arrays.copyOf(deltas, length);
+            moves = Arrays.copyOf(moves, length);
+            leftmosts = Arrays.copyOf(leftmosts, length);
+            rightmosts = Arrays.copyOf(rightmosts, length);
+            end = size;
+        }
+
+        deltas[end] = ((long) state << STATE_SHIFT) | (symbol & 0xFFFFFFFFL);
+        moves[end] = move;
+        leftmosts[end] = tape.getLeftmostIndex();
+        rightmosts[end] = tape.getRightmostIndex();
+        end = (end + 1) % deltas.length;
+        size = Math.min(size + 1, deltas.length);
+        lastDeltaStep = step;
+    }
+
+    /**
+     * Returns the amount of steps until the next checkpoint is due.
+     *
+     * @param step The current step count.
+     * @return The amount of steps, which is at least {@code 1}.
+     */
+    long stepsUntilCheckpoint(long step) {
+        return checkpointInterval - (step % checkpointInterval);
+    }
+
+    /**
+     * Takes a checkpoint of the given configuration if the step count is a multiple of
+     * the checkpoint interval.
+     *
+     * @param step The current step count.
+     * @param state The id of the current state.
+     * @param tape The current tape, which is copied.
+     */
+    void checkpointIfDue(long step, int state, Tape tape) {
+        if (step % checkpointInterval != 0 || checkpoints.peekLast().step == step) {
+            return;
+        }
+
+        checkpoints.addLast(new Checkpoint(step, state, tape.copy()));
+        if (checkpoints.size() > maxCheckpoints) {
+            checkpoints.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the earliest step count that can be restored.
+     *
+     * @param step The current step count.
+     * @return The earliest reachable step.
+     */
+    long earliestStep(long step) {
+        return Math.min(checkpoints.peekFirst().step, earliestUndoableStep(step));
+    }
+
+    /**
+     * Returns whether the given step is restored faster by undoing the recorded deltas
+     * than by repeating the steps since the latest checkpoint before it.
+     *
+     * @param step The current step count.
+     * @param target The step count that should be restored.
+     * @return {@code true} if the deltas should be undone.
+     */
+    boolean prefersUndo(long step, long target) {
+        if (target < earliestUndoableStep(step)) {
+            return false;
+        }
+
+        final Checkpoint checkpoint = checkpointBefore(target);
+        return checkpoint == null || step - target <= target - checkpoint.step;
+    }
+
+    /**
+     * Undoes the most recent delta on the given tape, including the cell the step may
+     * have visited for the first time.
+     *
+     * @param tape The tape of the TM, which has to be in the configuration after the
+     *             step of the delta.
+     * @return The id of the state before the step.
+     */
+    int undo(Tape tape) {
+        end = (end - 1 + deltas.length) % deltas.length;
+        size--;
+        lastDeltaStep--;
+
+        switch (moves[end]) {
+        case LEFT:
+            tape.moveHead(TapeMove.RIGHT);
+            break;
+
+        case RIGHT:
+            tape.moveHead(TapeMove.LEFT);
+            break;
+
+        default:
+            break;
+        }
+
+        tape.writeId((int) deltas[end]);
+        tape.restoreRange(leftmosts[end], rightmosts[end]);
+        return (int) (deltas[end] >>> STATE_SHIFT);
+    }
+
+    /**
+     * Returns the latest checkpoint that was taken at or before the given step.
+     *
+     * @param target The step count.
+     * @return The checkpoint or {@code null} if no such checkpoint is stored.
+     */
+    Checkpoint checkpointBefore(long target) {
+        final Iterator<Checkpoint> iterator = checkpoints.descendingIterator();
+        while (iterator.hasNext()) {
+            final Checkpoint checkpoint = iterator.next();
+            if (checkpoint.step <= target) {
+                return checkpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets everything that happened after the given step, because the TM went back
+     * to it.
+     *
+     * @param target The step count the TM is in now.
+     */
+    void truncate(long target) {
+        while (checkpoints.size() > 1 && checkpoints.peekLast().step > target) {
+            checkpoints.removeLast();
+        }
+
+        // The deltas are only kept if they reach the step.
+        final long excess = lastDeltaStep - target;
+        if (excess < 0 || excess >= size) {
+            end = 0;
+            size = 0;
+        } else if (excess > 0) {
+            size -= (int) excess;
+            end = (int) ((end - excess % deltas.length + deltas.length) % deltas.length);
+        }
+        lastDeltaStep = target;
+    }
+
+    /**
+     * Returns the earliest step count that can be restored by undoing deltas.
+     *
+     * @param step The current step count.
+     * @return The earliest step or {@link Long#MAX_VALUE} if the deltas do not reach
+     *         the current step.
+     */
+    private long earliestUndoableStep(long step) {
+        return (lastDeltaStep == step) ? step - size : Long.MAX_VALUE;
+    }
+
+    /**
+     * A full copy of a configuration of the TM.
+     */
+    static final class Checkpoint {
+
+        /** The step count of the configuration. */
+        final long step;
+
+        /** The id of the state. */
+        final int state;
+
+        /** The copy of the tape. It must not be modified. */
+        final Tape tape;
+
+        /**
+         * Creates a new checkpoint.
+         *
+         * @param step The step count of the configuration.
+         * @param state The id of the state.
+         * @param tape The copy of the tape.
+         */
+        Checkpoint(long step, int state, Tape tape) {
+            this.step = step;
+            this.state = state;
+            this.tape = tape;
+        }
+    }
+}
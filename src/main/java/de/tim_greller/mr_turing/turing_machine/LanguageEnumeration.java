@@ -0,0 +1,311 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Collects the outcomes of running a Turing machine on every word over an alphabet up
+ * to a maximum length. The words are identified by their rank in shortlex order, so
+ * they never have to be stored: a word of a given length is the representation of its
+ * index within that length in the base of the alphabet size.
+ * <p>
+ * Only the counts per length and a limited amount of sample words are kept. Outcomes
+ * can be added from multiple threads in any order, the samples always contain the
+ * first words in shortlex order.
+ */
+final class LanguageEnumeration {
+
+    /** The symbols of the words, in the order they are enumerated in. */
+    private final String alphabet;
+
+    /** The maximum length of the enumerated words. */
+    private final int maxLength;
+
+    /** The language the outcomes are compared with or {@code null}. */
+    private final Predicate<String> reference;
+
+    /** The maximum amount of accepted words and counterexamples that are kept. */
+    private final int maxSamples;
+
+    /** The amount of accepted words per length. */
+    private final LongAdder[] accepted;
+
+    /** The amount of denied words per length. */
+    private final LongAdder[] denied;
+
+    /** The amount of words per length for which the step limit was reached. */
+    private final LongAdder[] unfinished;
+
+    /** The amount of executed steps. */
+    private final LongAdder steps = new LongAdder();
+
+    /** The first accepted words, mapped by their rank. */
+    private final TreeMap<Long, String> acceptedWords = new TreeMap<>();
+
+    /** The first words the TM decided differently than the reference, by rank. */
+    private final TreeMap<Long, Evaluation> counterexamples = new TreeMap<>();
+
+    /** Accepted words with this rank or greater cannot become samples anymore. */
+    private volatile long acceptedBound = Long.MAX_VALUE;
+
+    /** Counterexamples with this rank or greater cannot become samples anymore. */
+    private volatile long counterexampleBound = Long.MAX_VALUE;
+
+    /**
+     * Creates a new enumeration.
+     *
+     * @param alphabet The symbols of the words, in the order they are enumerated in.
+     * @param maxLength The maximum length of the words.
+     * @param reference The language the outcomes are compared with or {@code null}.
+     * @param maxSamples The maximum amount of accepted words and counterexamples that
+     *                   are kept.
+     */
+    LanguageEnumeration(String alphabet, int maxLength, Predicate<String> reference,
+            int maxSamples) {
+        if (alphabet.isEmpty()) {
+            throw new IllegalArgumentException("The alphabet must not be empty.");
+        }
+        if (alphabet.chars().distinct().count() != alphabet.length()) {
+            throw new IllegalArgumentException(
+                    "The alphabet must not contain a symbol twice.");
+        }
+        if (maxLength < 0 || maxSamples < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum length and the amount of samples must not be negative.");
+        }
+
+        this.alphabet = alphabet;
+        this.maxLength = maxLength;
+        this.reference = reference;
+        this.maxSamples = maxSamples;
+        this.accepted = new LongAdder[maxLength + 1];
+        this.denied = new LongAdder[maxLength + 1];
+        this.unfinished = new LongAdder[maxLength + 1];
+
+        for (int length = 0; length <= maxLength; length++) {
+            accepted[length] = new LongAdder();
+            denied[length] = new LongAdder();
+            unfinished[length] = new LongAdder();
+        }
+
+        // Throws if the ranks of the longest words do not fit in a long.
+        getTotal();
+    }
+
+    /**
+     * Returns the symbols of the words.
+     *
+     * @return The alphabet.
+     */
+    String getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Returns the maximum length of the words.
+     *
+     * @return The maximum length.
+     */
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the amount of words of the given length.
+     *
+     * @param length The length of the words.
+     * @return The amount of words.
+     */
+    long count(int length) {
+        long count = 1;
+        for (int i = 0; i < length; i++) {
+            count *= alphabet.length();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the amount of words up to the maximum length.
+     *
+     * @return The amount of enumerated words.
+     * @throws IllegalArgumentException if there are more words than a long can count.
+     */
+    long getTotal() {
+        long total = 0;
+        long count = 1;
+
+        try {
+            for (int length = 0; length <= maxLength; length++) {
+                total = Math.addExact(total, count);
+                if (length < maxLength) {
+                    count = Math.multiplyExact(count, alphabet.length());
+                }
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("There are too many words to enumerate.");
+        }
+        return total;
+    }
+
+    /**
+     * Writes the word with the given index within its length into the digits. Each
+     * digit is the position of a symbol in the alphabet.
+     *
+     * @param index The index of the word among the words of the same length.
+     * @param digits The digits of the word, whose length is the length of the word.
+     */
+    void decode(long index, int[] digits) {
+        long rest = index;
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (int) (rest % alphabet.length());
+            rest /= alphabet.length();
+        }
+    }
+
+    /**
+     * Changes the digits to the next word of the same length.
+     *
+     * @param digits The digits of a word, which are changed.
+     */
+    void increment(int[] digits) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < alphabet.length()) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+
+    /**
+     * Returns the word the given digits represent.
+     *
+     * @param digits The digits of a word.
+     * @return The word.
+     */
+    String toWord(int[] digits) {
+        final char[] word = new char[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            word[i] = alphabet.charAt(digits[i]);
+        }
+        return new String(word);
+    }
+
+    /**
+     * Counts the outcome of the run on a word and keeps the word as a sample if it is
+     * among the first accepted words or counterexamples.
+     *
+     * @param index The index of the word among the words of the same length.
+     * @param digits The digits of the word.
+     * @param status The status of the TM after the run.
+     * @param steps The amount of steps of the run.
+     * @param tape The tape after the run.
+     */
+    void add(long index, int[] digits, TMState status, long steps, Tape tape) {
+        final int length = digits.length;
+        final long rank = rank(length, index);
+        this.steps.add(steps);
+
+        if (status == TMState.ACCEPTING) {
+            accepted[length].increment();
+        } else if (status == TMState.DENYING) {
+            denied[length].increment();
+        } else {
+            unfinished[length].increment();
+        }
+
+        final boolean sampleAccepted = status == TMState.ACCEPTING && rank < acceptedBound;
+        if (!sampleAccepted && reference == null) {
+            return;
+        }
+
+        final String word = toWord(digits);
+
+        if (sampleAccepted) {
+            synchronized (acceptedWords) {
+                acceptedBound = keep(acceptedWords, rank, word);
+            }
+        }
+
+        if (reference != null && status != TMState.RUNNING
+                && reference.test(word) != (status == TMState.ACCEPTING)
+                && rank < counterexampleBound) {
+            final Evaluation evaluation = new Evaluation(word, status, steps,
+                    tape.toWord());
+            synchronized (counterexamples) {
+                counterexampleBound = keep(counterexamples, rank, evaluation);
+            }
+        }
+    }
+
+    /**
+     * Creates the result of the enumeration from the collected outcomes.
+     *
+     * @param elapsedNanos The time the enumeration took in nanoseconds.
+     * @return The result of the enumeration.
+     */
+    EnumerationResult toResult(long elapsedNanos) {
+        final long[][] counts = new long[3][maxLength + 1];
+        for (int length = 0; length <= maxLength; length++) {
+            counts[0][length] = accepted[length].sum();
+            counts[1][length] = denied[length].sum();
+            counts[2][length] = unfinished[length].sum();
+        }
+
+        final List<String> words;
+        synchronized (acceptedWords) {
+            words = new ArrayList<>(acceptedWords.values());
+        }
+
+        final List<Evaluation> examples;
+        synchronized (counterexamples) {
+            examples = new ArrayList<>(counterexamples.values());
+        }
+
+        return new EnumerationResult(counts[0], counts[1], counts[2], words, examples,
+                reference != null, steps.sum(), elapsedNanos);
+    }
+
+    /**
+     * Returns the position of a word in the shortlex order of all words.
+     *
+     * @param length The length of the word.
+     * @param index The index of the word among the words of the same length.
+     * @return The rank of the word.
+     */
+    private long rank(int length, long index) {
+        long rank = index;
+        long count = 1;
+        for (int shorter = 0; shorter < length; shorter++) {
+            rank += count;
+            count *= alphabet.length();
+        }
+        return rank;
+    }
+
+    /**
+     * Adds a sample and removes the one with the highest rank if there are too many.
+     *
+     * @param <T> The type of the samples.
+     * @param samples The samples mapped by their rank.
+     * @param rank The rank of the new sample.
+     * @param sample The new sample.
+     * @return The rank new samples have to be lower than.
+     */
+    private <T> long keep(TreeMap<Long, T> samples, long rank, T sample) {
+        if (maxSamples == 0) {
+            return Long.MIN_VALUE;
+        }
+
+        samples.put(rank, sample);
+        if (samples.size() > maxSamples) {
+            samples.pollLastEntry();
+        }
+
+        final Map.Entry<Long, T> last = samples.lastEntry();
+        return (samples.size() < maxSamples) ? Long.MAX_VALUE : last.getKey();
+    }
+}
@@ -0,0 +1,187 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A {@link Tape} which consists of a doubly linked list of {@link TapeCell}s. Each cell
+ * is created once it is visited for the first time.
+ */
+public class LinkedTape extends Tape {
+    
+    /** The cell on which the header is currently pointing at. */
+    private TapeCell currentCell;
+    
+    /**
+     * Creates a new Tape, which is initially filled with the given {@link BlankSymbol}.
+     * 
+     * @param blank The blank symbol which will be on every position of the tape.
+     * @param symbols The registry that assigns the ids of the symbols.
+     */
+    LinkedTape(BlankSymbol blank, Registry<Symbol> symbols) {
+        super(blank, symbols);
+        currentCell = new TapeCell(blank);
+    }
+    
+    @Override
+    public void moveHead(TapeMove direction) {
+        switch (direction) {
+        case LEFT:
+            currentCell = currentCell.getLeftCell();
+            break;
+        
+        case RIGHT:
+            currentCell = currentCell.getRightCell();
+            break;
+            
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public Symbol readSymbol() {
+        return currentCell.read();
+    }
+    
+    @Override
+    public void writeSymbol(Symbol symbol) {
+        currentCell.write(symbol);
+    }
+    
+    @Override
+    public void writeWord(Deque<Symbol> word) {
+        currentCell.writeWord(new LinkedList<>(word));
+    }
+    
+    @Override
+    public Deque<Symbol> getContent() {
+        return currentCell.collectAll();
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return currentCell.index;
+    }
+    
+    @Override
+    public int getLeftmostIndex() {
+        TapeCell cell = currentCell;
+        
+        while (cell.wasLeftCellVisited()) {
+            cell = cell.getLeftCell();
+        }
+        
+        return cell.index;
+    }
+    
+    @Override
+    public int getRightmostIndex() {
+        TapeCell cell = currentCell;
+        
+        while (cell.wasRightCellVisited()) {
+            cell = cell.getRightCell();
+        }
+        
+        return cell.index;
+    }
+    
+    @Override
+    LinkedTape copy(Registry<Symbol> symbols) {
+        final LinkedTape copy = new LinkedTape(blank, symbols);
+        final int leftmost = getLeftmostIndex();
+        
+        // The cell with index 0 always exists, so walking to the most left cell is enough.
+        for (int index = 0; index > leftmost; index--) {
+            copy.moveHead(TapeMove.LEFT);
+        }
+        copy.writeWord(currentCell.collectAll());
+        
+        for (int index = leftmost; index < getHeadIndex(); index++) {
+            copy.moveHead(TapeMove.RIGHT);
+        }
+        return copy;
+    }
+    
+    @Override
+    int readId() {
+        return symbols.idOf(currentCell.read());
+    }
+    
+    @Override
+    void writeId(int id) {
+        currentCell.write(symbols.get(id));
+    }
+    
+    @Override
+    void restoreRange(int leftmost, int rightmost) {
+        TapeCell cell = currentCell;
+        while (cell.index > leftmost) {
+            cell = cell.getLeftCell();
+        }
+        cell.forgetLeftCell();
+        
+        cell = currentCell;
+        while (cell.index < rightmost) {
+            cell = cell.getRightCell();
+        }
+        cell.forgetRightCell();
+    }
+    
+    @Override
+    PrimitiveIterator.OfInt ids(int from, int to) {
+        return new PrimitiveIterator.OfInt() {
+            
+            /** The index of the cell that is returned next. */
+            private int index = from;
+            
+            /** The visited cell that is closest to the next index. */
+            private TapeCell cell = closestCell(from);
+            
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+            
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                
+                int id = blankId;
+                if (cell.index == index) {
+                    id = symbols.idOf(cell.read());
+                    
+                    if (cell.wasRightCellVisited()) {
+                        cell = cell.getRightCell();
+                    }
+                }
+                
+                index++;
+                return id;
+            }
+        };
+    }
+    
+    /**
+     * Walks from the current cell towards the given index without creating new cells.
+     * 
+     * @param index The index of the wanted cell.
+     * @return The cell with the given index or the visited cell closest to it.
+     */
+    private TapeCell closestCell(int index) {
+        TapeCell cell = currentCell;
+        
+        while (cell.index > index && cell.wasLeftCellVisited()) {
+            cell = cell.getLeftCell();
+        }
+        while (cell.index < index && cell.wasRightCellVisited()) {
+            cell = cell.getRightCell();
+        }
+        
+        return cell;
+    }
+}
@@ -0,0 +1,316 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simplifies the transition graph of a Turing machine before it is built. The analysis
+ * works in three passes:
+ * <ol>
+ * <li>States that cannot be reached from an initial state are removed together with
+ * their transitions. Transitions leaving an accepting state are removed as well,
+ * because the TM terminates as soon as it enters such a state.</li>
+ * <li>States from which no accepting state can be reached are dead. Their transitions
+ * are removed, so a run terminates and denies right after entering one of them instead
+ * of continuing without any chance to accept.</li>
+ * <li>States that behave identically are merged. Two states are identical if both or
+ * none of them are accepting and for every scanned symbol they print the same symbols,
+ * move the same way and continue in identical states. The identical states are found
+ * by refining a partition of the states until it is stable.</li>
+ * </ol>
+ * Runs of the simplified TM accept exactly the same inputs. A run that would deny can
+ * deny earlier and a run that would never terminate in a dead state denies, so step
+ * counts and tapes can differ from the original TM in these cases.
+ */
+final class MachineAnalysis {
+
+    /** The simplified transitions. */
+    private final TransitionTable table;
+
+    /** The representative state of each state id of the original table. */
+    private final int[] representatives;
+
+    /** The registry of the states of the original table. */
+    private final Registry<State> states;
+
+    /** The counts of the simplifications. */
+    private final AnalysisResult result;
+
+    /**
+     * Analyzes the transitions of a TM and creates the simplified transitions.
+     *
+     * @param original The transitions of the TM, which are not modified.
+     * @param initial The initial states of the TM.
+     * @param accepting The accepting states of the TM.
+     */
+    MachineAnalysis(TransitionTable original, Collection<State> initial,
+            Collection<State> accepting) {
+        this.states = original.states.copy();
+
+        final BitSet initialIds = ids(initial);
+        final BitSet acceptingIds = ids(accepting);
+        final List<Transition> transitions = original.transitions();
+        final BitSet used = new BitSet();
+        for (Transition transition : transitions) {
+            used.set(states.idOf(transition.currentState));
+            used.set(states.idOf(transition.nextState));
+        }
+
+        // 1. Only transitions of reachable states that can be applied are kept.
+        final BitSet reachable = reachableStates(transitions, initialIds, acceptingIds);
+        final List<Transition> applicable = new ArrayList<>();
+        for (Transition transition : transitions) {
+            final int state = states.idOf(transition.currentState);
+            if (reachable.get(state)
+                    && (!acceptingIds.get(state) || initialIds.get(state))) {
+                applicable.add(transition);
+            }
+        }
+
+        // 2. The transitions of dead states are removed.
+        final BitSet live = liveStates(applicable, acceptingIds);
+        final List<Transition> alive = new ArrayList<>();
+        for (Transition transition : applicable) {
+            if (live.get(states.idOf(transition.currentState))) {
+                alive.add(transition);
+            }
+        }
+        final BitSet dead = (BitSet) reachable.clone();
+        dead.andNot(live);
+        dead.and(used);
+
+        // 3. Identical states are merged into one representative.
+        this.representatives = mergeIdenticalStates(alive, reachable, initialIds,
+                acceptingIds);
+
+        this.table = original.emptyCopy();
+        int merged = 0;
+        for (int state = reachable.nextSetBit(0); state >= 0;
+                state = reachable.nextSetBit(state + 1)) {
+            if (representatives[state] != state) {
+                merged++;
+            }
+        }
+        for (Transition transition : alive) {
+            final int state = states.idOf(transition.currentState);
+            if (representatives[state] == state) {
+                table.add(new Transition(transition.currentState,
+                        transition.scannedSymbol, transition.printSymbol,
+                        transition.tapeMotion, representativeOf(transition.nextState)));
+            }
+        }
+
+        final BitSet unreachable = (BitSet) used.clone();
+        unreachable.andNot(reachable);
+        this.result = new AnalysisResult(unreachable.cardinality(), dead.cardinality(),
+                merged, transitions.size(), table.transitions().size());
+    }
+
+    /**
+     * Returns the simplified transitions. They are not compiled yet.
+     *
+     * @return The table of the simplified TM.
+     */
+    TransitionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the counts of the simplifications.
+     *
+     * @return The result of the analysis.
+     */
+    AnalysisResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the state the given state was merged into.
+     *
+     * @param state A state of the original TM.
+     * @return The representative of the state, which is the state itself if it was not
+     *         merged.
+     */
+    State representativeOf(State state) {
+        final int id = states.idOf(state);
+        return (id < representatives.length) ? states.get(representatives[id]) : state;
+    }
+
+    /**
+     * Returns the ids of the given states.
+     *
+     * @param collection The states.
+     * @return The ids of the states.
+     */
+    private BitSet ids(Collection<State> collection) {
+        final BitSet ids = new BitSet();
+        for (State state : collection) {
+            ids.set(states.idOf(state));
+        }
+        return ids;
+    }
+
+    /**
+     * Finds all states that can be reached from an initial state. Accepting states are
+     * not left, because the TM terminates when it enters them.
+     *
+     * @param transitions All transitions of the TM.
+     * @param initial The ids of the initial states.
+     * @param accepting The ids of the accepting states.
+     * @return The ids of the reachable states.
+     */
+    private BitSet reachableStates(List<Transition> transitions, BitSet initial,
+            BitSet accepting) {
+        final List<List<Integer>> successors = new ArrayList<>();
+        for (Transition transition : transitions) {
+            final int from = states.idOf(transition.currentState);
+            if (!accepting.get(from) || initial.get(from)) {
+                adjacency(successors, from).add(states.idOf(transition.nextState));
+            }
+        }
+        return search(successors, initial);
+    }
+
+    /**
+     * Finds all states from which an accepting state can be reached.
+     *
+     * @param transitions The applicable transitions of the TM.
+     * @param accepting The ids of the accepting states.
+     * @return The ids of the live states.
+     */
+    private BitSet liveStates(List<Transition> transitions, BitSet accepting) {
+        final List<List<Integer>> predecessors = new ArrayList<>();
+        for (Transition transition : transitions) {
+            adjacency(predecessors, states.idOf(transition.nextState))
+                    .add(states.idOf(transition.currentState));
+        }
+        return search(predecessors, accepting);
+    }
+
+    /**
+     * Returns the list of the given state, creating it if necessary.
+     *
+     * @param <E> The type of the list elements.
+     * @param adjacency The lists indexed by state id.
+     * @param state The id of the state.
+     * @return The list of the state.
+     */
+    private static <E> List<E> adjacency(List<List<E>> adjacency, int state) {
+        while (adjacency.size() <= state) {
+            adjacency.add(new ArrayList<>());
+        }
+        return adjacency.get(state);
+    }
+
+    /**
+     * Finds all states that can be reached from the given states along the edges.
+     *
+     * @param edges The adjacency lists indexed by state id.
+     * @param start The ids of the states the search starts with.
+     * @return The ids of the found states, including the start states.
+     */
+    private static BitSet search(List<List<Integer>> edges, BitSet start) {
+        final BitSet found = (BitSet) start.clone();
+        final Deque<Integer> pending = new ArrayDeque<>();
+        start.stream().forEach(pending::add);
+
+        while (!pending.isEmpty()) {
+            final int state = pending.pop();
+            if (state >= edges.size()) {
+                continue;
+            }
+            for (int next : edges.get(state)) {
+                if (!found.get(next)) {
+                    found.set(next);
+                    pending.push(next);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Refines a partition of the reachable states until identical states are in the
+     * same class and chooses a representative of each class. Initial states are
+     * preferred as representatives, otherwise the state with the lowest id is chosen.
+     *
+     * @param transitions The transitions of the TM.
+     * @param reachable The ids of the reachable states.
+     * @param initial The ids of the initial states.
+     * @param accepting The ids of the accepting states.
+     * @return The id of the representative of each state id.
+     */
+    private int[] mergeIdenticalStates(List<Transition> transitions, BitSet reachable,
+            BitSet initial, BitSet accepting) {
+        final int count = states.size();
+        final List<List<Transition>> byState = new ArrayList<>();
+        for (Transition transition : transitions) {
+            adjacency(byState, states.idOf(transition.currentState)).add(transition);
+        }
+
+        // Initially, the accepting states form one class and all other states another.
+        int[] classes = new int[count];
+        for (int state = 0; state < count; state++) {
+            classes[state] = accepting.get(state) ? 1 : 0;
+        }
+        int classCount = -1;
+
+        while (true) {
+            final Map<List<Object>, Integer> signatures = new HashMap<>();
+            final int[] refined = new int[count];
+
+            for (int state = 0; state < count; state++) {
+                final List<Object> signature = new ArrayList<>();
+                signature.add(classes[state]);
+
+                if (state < byState.size()) {
+                    final List<String> behaviour = new ArrayList<>();
+                    for (Transition transition : byState.get(state)) {
+                        behaviour.add(transition.scannedSymbol + "\u0000"
+                                + transition.printSymbol + "\u0000"
+                                + transition.tapeMotion + "\u0000"
+                                + classes[states.idOf(transition.nextState)]);
+                    }
+                    behaviour.sort(null);
+                    signature.addAll(behaviour);
+                }
+
+                refined[state] = signatures.computeIfAbsent(signature,
+                        s -> signatures.size());
+            }
+
+            classes = refined;
+            if (signatures.size() == classCount) {
+                break;
+            }
+            classCount = signatures.size();
+        }
+
+        final int[] chosen = new int[classCount];
+        final boolean[] chosenInitial = new boolean[classCount];
+        Arrays.fill(chosen, -1);
+        for (int state = reachable.nextSetBit(0); state >= 0;
+                state = reachable.nextSetBit(state + 1)) {
+            final int c = classes[state];
+            if (chosen[c] == -1 || (initial.get(state) && !chosenInitial[c])) {
+                chosen[c] = state;
+                chosenInitial[c] = initial.get(state);
+            }
+        }
+
+        final int[] representatives = new int[count];
+        for (int state = 0; state < count; state++) {
+            representatives[state] = (reachable.get(state) && chosen[classes[state]] >= 0)
+                    ? chosen[classes[state]]
+                    : state;
+        }
+        return representatives;
+    }
+}
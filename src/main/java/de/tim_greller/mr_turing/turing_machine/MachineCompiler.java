@@ -0,0 +1,261 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * This class turns the compiled transition table of a built Turing machine into a
+ * {@link MachineExecutor}. The executor is generated as Java source code containing one
+ * method per state with a switch over the scanned symbol, compiled in memory and defined
+ * as a hidden class. Executors are cached by the definition they were generated from.
+ * <p>
+ * Generating the executor requires the system Java compiler. If it is not available or
+ * the generation fails for any other reason, no executor is returned and the Turing
+ * machine has to be interpreted instead.
+ */
+final class MachineCompiler {
+
+    /** Machines with more states are always interpreted, to stay within class limits. */
+    private static final int MAX_STATES = 4096;
+
+    /** The maximum amount of executors that are kept in the cache. */
+    private static final int CACHE_SIZE = 64;
+
+    /** The simple name of the generated classes. */
+    private static final String CLASS_NAME = "GeneratedMachineExecutor";
+
+    /** The generated executors, mapped by the source code they were compiled from. */
+    private static final Map<String, MachineExecutor> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, MachineExecutor>(16, 0.75f, true) {
+
+                /** Auto-generated serial version UID */
+                private static final long serialVersionUID = 3018573490925744012L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MachineExecutor> e) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    /** Set once it is known that no Java compiler is available at runtime. */
+    private static volatile boolean unavailable = false;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MachineCompiler() {
+        throw new AssertionError("This class should not be instantiated.");
+    }
+
+    /**
+     * Returns an executor for the given transition table and accepting states. The
+     * executor is taken from the cache if the same definition was compiled before.
+     *
+     * @param table The compiled transition table of the TM.
+     * @param accepting The ids of the accepting states of the TM.
+     * @return The executor or {@code null} if it could not be generated.
+     */
+    static MachineExecutor compile(TransitionTable table, BitSet accepting) {
+        if (unavailable || table.stateCount() > MAX_STATES) {
+            return null;
+        }
+
+        final String source = generateSource(table, accepting);
+        MachineExecutor executor = CACHE.get(source);
+
+        if (executor == null) {
+            try {
+                executor = define(source);
+            } catch (ReflectiveOperationException | IOException | LinkageError
+                    | RuntimeException e) {
+                return null;
+            }
+            CACHE.put(source, executor);
+        }
+
+        return executor;
+    }
+
+    /**
+     * Generates the source code of an executor class for the given definition.
+     *
+     * @param table The compiled transition table of the TM.
+     * @param accepting The ids of the accepting states of the TM.
+     * @return The source code of the executor class.
+     */
+    private static String generateSource(TransitionTable table, BitSet accepting) {
+        final StringBuilder loop = new StringBuilder();
+        final StringBuilder methods = new StringBuilder();
+
+        for (int state = 0; state < table.stateCount(); state++) {
+            final StringBuilder cases = new StringBuilder();
+
+            for (int symbol = 0; symbol < table.symbolCount(); symbol++) {
+                final int position = table.find(state, symbol);
+                if (position == TransitionTable.NO_TRANSITION) {
+                    continue;
+                }
+
+                final int next = table.nextState(position);
+                cases.append("        case ").append(symbol).append(": ")
+                     .append("tape.writeId(").append(table.printSymbol(position)).append(");");
+
+                switch (table.move(position)) {
+                case LEFT:
+                    cases.append(" tape.moveLeft();");
+                    break;
+
+                case RIGHT:
+                    cases.append(" tape.moveRight();");
+                    break;
+
+                default:
+                    break;
+                }
+
+                // The id of an accepting next state is returned inverted to stop the loop.
+                cases.append(" return ").append(accepting.get(next) ? "~" : "")
+                     .append(next).append(";\n");
+            }
+
+            if (cases.length() == 0) {
+                continue;
+            }
+
+            loop.append("            case ").append(state).append(": next = state")
+                .append(state).append("(tape); break;\n");
+            methods.append("    private static int state").append(state)
+                   .append("(ArrayTape tape) {\n        switch (tape.readId()) {\n")
+                   .append(cases)
+                   .append("        default: return HALT;\n        }\n    }\n\n");
+        }
+
+        final StringBuilder acceptingCases = new StringBuilder();
+        accepting.stream().forEach(state ->
+                acceptingCases.append("        case ").append(state).append(":\n"));
+
+        return "package " + MachineCompiler.class.getPackageName() + ";\n\n"
+                + "final class " + CLASS_NAME + " implements MachineExecutor {\n\n"
+                + "    private static final int HALT = Integer.MIN_VALUE;\n\n"
+                + "    @Override\n"
+                + "    public long execute(ArrayTape tape, int[] configuration, long limit) {\n"
+                + "        int state = configuration[STATE];\n"
+                + "        long steps = 0;\n"
+                + "        while (steps < limit) {\n"
+                + "            steps++;\n"
+                + "            final int next;\n"
+                + "            switch (state) {\n"
+                + loop
+                + "            default: next = HALT;\n"
+                + "            }\n"
+                + "            if (next == HALT) {\n"
+                + "                configuration[STATUS] = "
+                + "isAccepting(state) ? ACCEPTING : DENYING;\n"
+                + "                break;\n"
+                + "            }\n"
+                + "            if (next < 0) {\n"
+                + "                state = ~next;\n"
+                + "                configuration[STATUS] = ACCEPTING;\n"
+                + "                break;\n"
+                + "            }\n"
+                + "            state = next;\n"
+                + "        }\n"
+                + "        configuration[STATE] = state;\n"
+                + "        return steps;\n"
+                + "    }\n\n"
+                + methods
+                + "    private static boolean isAccepting(int state) {\n"
+                + "        switch (state) {\n"
+                + acceptingCases
+                + "            return true;\n"
+                + "        default:\n"
+                + "            return false;\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    /**
+     * Compiles the given source code in memory, defines the resulting class as a hidden
+     * class in this package and instantiates it.
+     *
+     * @param source The source code of the executor class.
+     * @return A new instance of the executor class.
+     * @throws ReflectiveOperationException If the class cannot be defined or
+     *                                      instantiated.
+     * @throws IOException If the in memory file manager fails.
+     */
+    private static MachineExecutor define(String source)
+            throws ReflectiveOperationException, IOException {
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            unavailable = true;
+            throw new IllegalStateException("No Java compiler is available.");
+        }
+
+        final ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+        final JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        try (JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, null)) {
+
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className,
+                    JavaFileObject.Kind kind, FileObject sibling) {
+
+                return new SimpleJavaFileObject(
+                        URI.create("bytes:///" + CLASS_NAME + kind.extension), kind) {
+
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return bytecode;
+                    }
+                };
+            }
+        }) {
+            final List<String> options = List.of("-proc:none", "-g:none",
+                    "-classpath", System.getProperty("java.class.path"));
+            final boolean success = compiler.getTask(null, fileManager, d -> { }, options,
+                    null, List.of(sourceFile)).call();
+
+            if (!success) {
+                throw new IllegalStateException("The generated executor did not compile.");
+            }
+        }
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup()
+                .defineHiddenClass(bytecode.toByteArray(), true);
+        try {
+            return (MachineExecutor) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            throw new ReflectiveOperationException(e);
+        }
+    }
+}
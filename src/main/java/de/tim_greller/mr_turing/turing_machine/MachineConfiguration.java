@@ -0,0 +1,201 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The configuration of a built deterministic Turing machine: its status, step count,
+ * current state, head position and the visited part of its tape. A configuration can be
+ * read from a Turing machine using {@link TuringMachine#getConfiguration()} and restored
+ * on a Turing machine with the same definition using
+ * {@link TuringMachine#setConfiguration(MachineConfiguration)}, without repeating the
+ * steps that led to it.
+ * <p>
+ * The tape is stored as runs of identical symbols from the most left to the most right
+ * visited cell, so long uniform regions take little memory.
+ */
+public final class MachineConfiguration {
+
+    /** The status of the Turing machine, which is never modifiable. */
+    private final TMState status;
+
+    /** The amount of steps performed since the Turing machine was built. */
+    private final long steps;
+
+    /** The current state. */
+    private final State state;
+
+    /** The index of the cell the head is pointing at. */
+    private final int headIndex;
+
+    /** The index of the most left visited cell. */
+    private final int leftmostIndex;
+
+    /** The index of the most right visited cell. */
+    private final int rightmostIndex;
+
+    /** The symbol of each run of the tape, ordered from left to right. */
+    private final List<Symbol> runSymbols;
+
+    /** The amount of cells of each run of the tape. */
+    private final int[] runLengths;
+
+    /**
+     * Creates a new configuration. The runs are copied.
+     *
+     * @param status The status of the Turing machine. It must not be
+     *               {@link TMState#MODIFIABLE}.
+     * @param steps The amount of steps performed since the Turing machine was built.
+     * @param state The current state.
+     * @param headIndex The index of the cell the head is pointing at.
+     * @param leftmostIndex The index of the most left visited cell. The visited cells
+     *                      always include the cell with index 0.
+     * @param runSymbols The symbol of each run of the tape, ordered from left to right.
+     * @param runLengths The amount of cells of each run, each one positive.
+     * @throws IllegalArgumentException Thrown if the values do not describe a valid
+     *                                  configuration.
+     */
+    public MachineConfiguration(TMState status, long steps, State state, int headIndex,
+            int leftmostIndex, List<Symbol> runSymbols, int[] runLengths) {
+        if (status == TMState.MODIFIABLE || steps < 0) {
+            throw new IllegalArgumentException("A configuration needs a built machine.");
+        }
+        if (runSymbols.size() != runLengths.length || runLengths.length == 0) {
+            throw new IllegalArgumentException("The tape of a configuration is invalid.");
+        }
+
+        long cells = 0;
+        for (int length : runLengths) {
+            if (length <= 0) {
+                throw new IllegalArgumentException(
+                        "The runs of a tape must not be empty.");
+            }
+            cells += length;
+        }
+
+        final long rightmostIndex = leftmostIndex + cells - 1;
+        if (leftmostIndex > 0 || rightmostIndex < 0 || rightmostIndex > Integer.MAX_VALUE
+                || headIndex < leftmostIndex || headIndex > rightmostIndex) {
+            throw new IllegalArgumentException(
+                    "The head and the tape of a configuration do not match.");
+        }
+
+        this.status = status;
+        this.steps = steps;
+        this.state = state;
+        this.headIndex = headIndex;
+        this.leftmostIndex = leftmostIndex;
+        this.rightmostIndex = (int) rightmostIndex;
+        this.runSymbols = List.copyOf(runSymbols);
+        this.runLengths = runLengths.clone();
+    }
+
+    /**
+     * Returns the status of the Turing machine.
+     *
+     * @return The status, which is never {@link TMState#MODIFIABLE}.
+     */
+    public TMState getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the amount of steps performed since the Turing machine was built.
+     *
+     * @return The step count.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return The current state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the position of the head.
+     *
+     * @return The index of the cell the head is pointing at.
+     */
+    public int getHeadIndex() {
+        return headIndex;
+    }
+
+    /**
+     * Returns the index of the most left visited cell.
+     *
+     * @return The index, which is never positive.
+     */
+    public int getLeftmostIndex() {
+        return leftmostIndex;
+    }
+
+    /**
+     * Returns the index of the most right visited cell.
+     *
+     * @return The index, which is never negative.
+     */
+    public int getRightmostIndex() {
+        return rightmostIndex;
+    }
+
+    /**
+     * Returns the symbols of the runs of the tape.
+     *
+     * @return The symbol of each run, ordered from left to right.
+     */
+    public List<Symbol> getRunSymbols() {
+        return runSymbols;
+    }
+
+    /**
+     * Returns the lengths of the runs of the tape.
+     *
+     * @return A copy of the amount of cells of each run, ordered from left to right.
+     */
+    public int[] getRunLengths() {
+        return runLengths.clone();
+    }
+
+    /**
+     * Returns the amount of runs of the tape.
+     *
+     * @return The amount of runs, at least 1.
+     */
+    public int getRunCount() {
+        return runLengths.length;
+    }
+
+    /**
+     * Returns the amount of cells of one run of the tape.
+     *
+     * @param run The position of the run, counted from the left.
+     * @return The amount of cells of the run.
+     */
+    public int getRunLength(int run) {
+        return runLengths[run];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MachineConfiguration)) {
+            return false;
+        }
+        final MachineConfiguration other = (MachineConfiguration) obj;
+        return status == other.status && steps == other.steps
+                && state.equals(other.state) && headIndex == other.headIndex
+                && leftmostIndex == other.leftmostIndex
+                && runSymbols.equals(other.runSymbols)
+                && Arrays.equals(runLengths, other.runLengths);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(steps) + headIndex) + Arrays.hashCode(runLengths);
+    }
+}
@@ -0,0 +1,123 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.List;
+
+/**
+ * Everything that defines a Turing machine before it is built: its transitions, initial
+ * and accepting states, blank symbol, input and how it is executed. A definition can be
+ * read from a Turing machine using {@link TuringMachine#getDefinition()} and applied to
+ * another one in one operation using {@link TuringMachine#define(MachineDefinition)}.
+ */
+public final class MachineDefinition {
+
+    /** The transitions in the order they were added. */
+    private final List<Transition> transitions;
+
+    /** The initial states. If it is empty, the default initial state is used. */
+    private final List<State> initialStates;
+
+    /** The accepting states. If it is empty, the default accepting state is used. */
+    private final List<State> acceptingStates;
+
+    /** The blank symbol or {@code null} if the default one is used. */
+    private final BlankSymbol blank;
+
+    /** The input word, with each character being one symbol. */
+    private final String input;
+
+    /** The way the Turing machine executes its steps. */
+    private final ExecutionMode executionMode;
+
+    /** Whether the transitions are simplified when the Turing machine gets built. */
+    private final boolean optimized;
+
+    /**
+     * Creates a new definition. The lists are copied.
+     *
+     * @param transitions The transitions in the order they were added.
+     * @param initialStates The initial states. Empty for the default initial state.
+     * @param acceptingStates The accepting states. Empty for the default accepting
+     *                        state.
+     * @param blank The blank symbol or {@code null} for the default one.
+     * @param input The input word, with each character being one symbol.
+     * @param executionMode The way the Turing machine executes its steps.
+     * @param optimized Whether the transitions are simplified when the Turing machine
+     *                  gets built.
+     */
+    public MachineDefinition(List<Transition> transitions, List<State> initialStates,
+            List<State> acceptingStates, BlankSymbol blank, String input,
+            ExecutionMode executionMode, boolean optimized) {
+        this.transitions = List.copyOf(transitions);
+        this.initialStates = List.copyOf(initialStates);
+        this.acceptingStates = List.copyOf(acceptingStates);
+        this.blank = blank;
+        this.input = input;
+        this.executionMode = executionMode;
+        this.optimized = optimized;
+    }
+
+    /**
+     * Returns the transitions in the order they were added.
+     *
+     * @return An unmodifiable list of the transitions.
+     */
+    public List<Transition> getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Returns the initial states.
+     *
+     * @return An unmodifiable list of the initial states, which is empty if the default
+     *         initial state is used.
+     */
+    public List<State> getInitialStates() {
+        return initialStates;
+    }
+
+    /**
+     * Returns the accepting states.
+     *
+     * @return An unmodifiable list of the accepting states, which is empty if the
+     *         default accepting state is used.
+     */
+    public List<State> getAcceptingStates() {
+        return acceptingStates;
+    }
+
+    /**
+     * Returns the blank symbol.
+     *
+     * @return The blank symbol or {@code null} if the default one is used.
+     */
+    public BlankSymbol getBlankSymbol() {
+        return blank;
+    }
+
+    /**
+     * Returns the input word.
+     *
+     * @return The input word, with each character being one symbol.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the way the Turing machine executes its steps.
+     *
+     * @return The execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Returns whether the transitions are simplified when the Turing machine gets built.
+     *
+     * @return {@code true} if the Turing machine is optimized.
+     */
+    public boolean isOptimized() {
+        return optimized;
+    }
+}
@@ -0,0 +1,39 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * An executor runs the calculation steps of one specific built Turing machine
+ * definition. Implementations are either generated at runtime by the
+ * {@link MachineCompiler} or accelerate the execution like the {@link MacroEngine}.
+ * <p>
+ * The configuration of the TM is passed as arguments, so generated executors are
+ * stateless and can be shared by all TMs with the same definition.
+ */
+interface MachineExecutor {
+
+    /** The index of the current state id in the configuration array. */
+    int STATE = 0;
+
+    /** The index of the status code in the configuration array. */
+    int STATUS = 1;
+
+    /** The status code of a TM that has not terminated yet. */
+    int RUNNING = 0;
+
+    /** The status code of a TM that terminated and accepts the input. */
+    int ACCEPTING = 1;
+
+    /** The status code of a TM that terminated and does not accept the input. */
+    int DENYING = 2;
+
+    /**
+     * Performs calculation steps until the TM terminates or the given limit is reached.
+     *
+     * @param tape The tape of the TM.
+     * @param configuration An array containing the id of the current state at
+     *                      {@link #STATE} and the status code at {@link #STATUS}. Both
+     *                      values are updated by the execution.
+     * @param limit The maximum amount of steps that should be executed.
+     * @return The amount of executed steps.
+     */
+    long execute(ArrayTape tape, int[] configuration, long limit);
+}
@@ -0,0 +1,569 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+
+/**
+ * This engine runs a deterministic Turing machine as a macro machine: The tape is split
+ * into blocks of a fixed amount of cells, each packed into one {@code long}. Whenever
+ * the head enters a block at one of its edges, the engine looks up what happens until
+ * the head leaves the block again (the new content of the block, the new state, the
+ * side on which the head leaves and the amount of steps this takes) and applies it in
+ * one macro step. These macro transitions are computed once by simulating the TM on the
+ * block and memoized, so sweeping over regular tape regions costs one lookup per block.
+ * <p>
+ * The results of the engine are identical to the results of the interpreter, including
+ * the exact step count, the head position and the range of visited cells.
+ */
+final class MacroEngine implements MachineExecutor {
+
+    /** The maximum amount of cells per block. */
+    static final int MAX_BLOCK_SIZE = 8;
+
+    /**
+     * The default maximum amount of slots of the memo. With 44 bytes per slot, the memo
+     * of one engine never takes more than about 3 MB.
+     */
+    static final int DEFAULT_MEMO_CAPACITY = 1 << 16;
+
+    /** The amount of slots the memo starts with. */
+    private static final int INITIAL_MEMO_CAPACITY = 1 << 10;
+
+    /** The key of an empty slot of the memo. Real keys are never negative. */
+    private static final long EMPTY = -1;
+
+    /** The head left the block on its left side. */
+    private static final int EXIT_LEFT = 0;
+
+    /** The head left the block on its right side. */
+    private static final int EXIT_RIGHT = 1;
+
+    /** The TM terminated and accepted while the head was in the block. */
+    private static final int HALT_ACCEPTING = 2;
+
+    /** The TM terminated and denied while the head was in the block. */
+    private static final int HALT_DENYING = 3;
+
+    /** The step budget was used up before the head left the block. */
+    private static final int INCOMPLETE = 4;
+
+    /** The transitions of the TM. */
+    private final TransitionTable table;
+
+    /** The ids of the accepting states of the TM. */
+    private final BitSet accepting;
+
+    /** The amount of cells per block. */
+    private final int blockSize;
+
+    /** The amount of bits used to store one symbol id in a block. */
+    private final int bits;
+
+    /** The mask for one symbol id in a block. */
+    private final long symbolMask;
+
+    /**
+     * The maximum amount of slots of the memo. Once half of them are used, the memo is
+     * cleared and filled again with the macro transitions that are currently needed.
+     */
+    private final int maxMemoCapacity;
+
+    /** The packed block consisting only of blank cells. */
+    private long blankBlock;
+
+    /** The keys of the memoized macro transitions, {@link #EMPTY} for free slots. */
+    private long[] memoKeys;
+
+    /** The resulting block content of each memoized macro transition. */
+    private long[] memoBlocks;
+
+    /** The amount of steps of each memoized macro transition. */
+    private long[] memoSteps;
+
+    /** The resulting state of each memoized macro transition. */
+    private int[] memoStates;
+
+    /** The way each memoized macro transition ends. */
+    private int[] memoExits;
+
+    /** The final head offset relative to the block of each memoized transition. */
+    private int[] memoOffsets;
+
+    /** The most left offset visited by each memoized macro transition. */
+    private int[] memoMinima;
+
+    /** The most right offset visited by each memoized macro transition. */
+    private int[] memoMaxima;
+
+    /** The amount of memoized macro transitions. */
+    private int memoSize = 0;
+
+    /** The resulting block content of the last simulation or lookup. */
+    private long resultBlock;
+
+    /** The amount of steps of the last simulation or lookup. */
+    private long resultSteps;
+
+    /** The resulting state of the last simulation or lookup. */
+    private int resultState;
+
+    /** The way the last simulation or lookup ended. */
+    private int resultExit;
+
+    /** The final head offset of the last simulation or lookup. */
+    private int resultOffset;
+
+    /** The most left offset visited by the last simulation or lookup. */
+    private int resultMin;
+
+    /** The most right offset visited by the last simulation or lookup. */
+    private int resultMax;
+
+    /** The blocks of the tape during an execution. */
+    private long[] blocks;
+
+    /** The position in {@link #blocks} of the block containing the cell with index 0. */
+    private int blockOrigin;
+
+    /**
+     * Creates a new engine for the given definition.
+     *
+     * @param table The compiled transition table of the TM.
+     * @param accepting The ids of the accepting states of the TM.
+     * @param blockSize The amount of cells per block.
+     * @param bits The amount of bits used to store one symbol id.
+     * @param maxMemoCapacity The maximum amount of slots of the memo, a power of two.
+     */
+    private MacroEngine(TransitionTable table, BitSet accepting, int blockSize, int bits,
+            int maxMemoCapacity) {
+        this.table = table;
+        this.accepting = accepting;
+        this.blockSize = blockSize;
+        this.bits = bits;
+        this.symbolMask = (1L << bits) - 1;
+        this.maxMemoCapacity = maxMemoCapacity;
+        allocateMemo(Math.min(INITIAL_MEMO_CAPACITY, maxMemoCapacity));
+    }
+
+    /**
+     * Creates a macro engine for the given definition. The block size is chosen as large
+     * as possible, so that a block, the state and the entry side fit into one key.
+     *
+     * @param table The compiled transition table of the TM.
+     * @param accepting The ids of the accepting states of the TM.
+     * @return The engine or {@code null} if blocks of at least two cells do not fit.
+     */
+    static MacroEngine create(TransitionTable table, BitSet accepting) {
+        return create(table, accepting, DEFAULT_MEMO_CAPACITY);
+    }
+
+    /**
+     * Creates a macro engine for the given definition with a memo of limited size.
+     *
+     * @param table The compiled transition table of the TM.
+     * @param accepting The ids of the accepting states of the TM.
+     * @param maxMemoCapacity The maximum amount of slots of the memo, a power of two of
+     *                        at least 2.
+     * @return The engine or {@code null} if blocks of at least two cells do not fit.
+     */
+    static MacroEngine create(TransitionTable table, BitSet accepting,
+            int maxMemoCapacity) {
+        if (maxMemoCapacity < 2 || Integer.bitCount(maxMemoCapacity) != 1) {
+            throw new IllegalArgumentException(
+                    "The memo capacity must be a power of two of at least 2.");
+        }
+
+        final int bits = bitsFor(table.symbols.size());
+        final int stateBits = bitsFor(table.states.size());
+        final int blockSize = Math.min(MAX_BLOCK_SIZE, (Long.SIZE - 2 - stateBits) / bits);
+
+        if (blockSize < 2) {
+            return null;
+        }
+
+        return new MacroEngine(table, accepting, blockSize, bits, maxMemoCapacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The content of the tape is packed into blocks before the execution and written
+     * back afterwards.
+     */
+    @Override
+    public long execute(ArrayTape tape, int[] configuration, long limit) {
+        blankBlock = 0;
+        for (int offset = 0; offset < blockSize; offset++) {
+            blankBlock = withSymbol(blankBlock, offset, tape.blankId);
+        }
+
+        int leftmost = tape.getLeftmostIndex();
+        int rightmost = tape.getRightmostIndex();
+        loadBlocks(tape, leftmost, rightmost);
+
+        final int headIndex = tape.getHeadIndex();
+        int block = Math.floorDiv(headIndex, blockSize);
+        int offset = Math.floorMod(headIndex, blockSize);
+        int state = configuration[STATE];
+        long steps = 0;
+
+        while (steps < limit) {
+            final int position = ensureBlock(block);
+            final long content = blocks[position];
+
+            if (!lookup(state, content, offset, limit - steps)) {
+                simulate(state, content, offset, limit - steps);
+                memoize(state, content, offset);
+            }
+
+            blocks[blockOrigin + block] = resultBlock;
+            state = resultState;
+            steps += resultSteps;
+            leftmost = Math.min(leftmost, block * blockSize + resultMin);
+            rightmost = Math.max(rightmost, block * blockSize + resultMax);
+            offset = resultOffset;
+
+            if (resultExit == EXIT_LEFT) {
+                block--;
+                offset = blockSize - 1;
+            } else if (resultExit == EXIT_RIGHT) {
+                block++;
+                offset = 0;
+            } else {
+                if (resultExit == HALT_ACCEPTING) {
+                    configuration[STATUS] = ACCEPTING;
+                } else if (resultExit == HALT_DENYING) {
+                    configuration[STATUS] = DENYING;
+                }
+                break;
+            }
+        }
+
+        configuration[STATE] = state;
+        storeBlocks(tape, leftmost, rightmost, block * blockSize + offset);
+        return steps;
+    }
+
+    /**
+     * Loads the memoized macro transition for the given configuration into the result
+     * fields. Only configurations with the head at the edge of the block are memoized.
+     *
+     * @param state The id of the current state.
+     * @param content The packed content of the block.
+     * @param offset The position of the head in the block.
+     * @param budget The maximum amount of steps the transition may take.
+     * @return {@code true} if a matching transition within the budget was found.
+     */
+    private boolean lookup(int state, long content, int offset, long budget) {
+        if (offset != 0 && offset != blockSize - 1) {
+            return false;
+        }
+
+        final long key = key(state, content, offset);
+        final int slot = slotOf(key);
+
+        if (memoKeys[slot] != key || memoSteps[slot] > budget) {
+            return false;
+        }
+
+        resultBlock = memoBlocks[slot];
+        resultSteps = memoSteps[slot];
+        resultState = memoStates[slot];
+        resultExit = memoExits[slot];
+        resultOffset = memoOffsets[slot];
+        resultMin = memoMinima[slot];
+        resultMax = memoMaxima[slot];
+        return true;
+    }
+
+    /**
+     * Memoizes the result fields as the macro transition of the given configuration if
+     * the head is at the edge of the block and the simulation was complete. If the memo
+     * is full, it is cleared first, so the transitions of the current region of the tape
+     * are memoized again while the memory used stays bounded.
+     *
+     * @param state The id of the state the simulation started in.
+     * @param content The packed content of the block before the simulation.
+     * @param offset The position of the head in the block before the simulation.
+     */
+    private void memoize(int state, long content, int offset) {
+        if ((offset != 0 && offset != blockSize - 1) || resultExit == INCOMPLETE) {
+            return;
+        }
+
+        if (2 * (memoSize + 1) > memoKeys.length) {
+            if (memoKeys.length < maxMemoCapacity) {
+                growMemo();
+            } else {
+                Arrays.fill(memoKeys, EMPTY);
+                memoSize = 0;
+            }
+        }
+
+        final long key = key(state, content, offset);
+        final int slot = slotOf(key);
+
+        if (memoKeys[slot] == EMPTY) {
+            memoSize++;
+        }
+
+        memoKeys[slot] = key;
+        memoBlocks[slot] = resultBlock;
+        memoSteps[slot] = resultSteps;
+        memoStates[slot] = resultState;
+        memoExits[slot] = resultExit;
+        memoOffsets[slot] = resultOffset;
+        memoMinima[slot] = resultMin;
+        memoMaxima[slot] = resultMax;
+    }
+
+    /**
+     * Simulates the TM on a single block until the head leaves it, the TM terminates or
+     * the budget is used up, and stores the outcome in the result fields.
+     *
+     * @param state The id of the current state.
+     * @param content The packed content of the block.
+     * @param offset The position of the head in the block.
+     * @param budget The maximum amount of steps that should be simulated.
+     */
+    private void simulate(int state, long content, int offset, long budget) {
+        long steps = 0;
+        int min = offset;
+        int max = offset;
+        resultExit = INCOMPLETE;
+
+        while (steps < budget) {
+            final int position = table.find(state, symbolAt(content, offset));
+            steps++;
+
+            if (position == TransitionTable.NO_TRANSITION) {
+                resultExit = accepting.get(state) ? HALT_ACCEPTING : HALT_DENYING;
+                break;
+            }
+
+            content = withSymbol(content, offset, table.printSymbol(position));
+            state = table.nextState(position);
+
+            switch (table.move(position)) {
+            case LEFT:
+                offset--;
+                break;
+
+            case RIGHT:
+                offset++;
+                break;
+
+            default:
+                break;
+            }
+
+            min = Math.min(min, offset);
+            max = Math.max(max, offset);
+
+            if (accepting.get(state)) {
+                resultExit = HALT_ACCEPTING;
+                break;
+            } else if (offset < 0) {
+                resultExit = EXIT_LEFT;
+                break;
+            } else if (offset >= blockSize) {
+                resultExit = EXIT_RIGHT;
+                break;
+            }
+        }
+
+        resultBlock = content;
+        resultSteps = steps;
+        resultState = state;
+        resultOffset = offset;
+        resultMin = min;
+        resultMax = max;
+    }
+
+    /**
+     * Packs the visited cells of the given tape into blocks.
+     *
+     * @param tape The tape of the TM.
+     * @param leftmost The index of the most left visited cell.
+     * @param rightmost The index of the most right visited cell.
+     */
+    private void loadBlocks(ArrayTape tape, int leftmost, int rightmost) {
+        final int first = Math.floorDiv(leftmost, blockSize);
+        final int last = Math.floorDiv(rightmost, blockSize);
+
+        blocks = new long[Math.max(16, 2 * (last - first + 1))];
+        Arrays.fill(blocks, blankBlock);
+        blockOrigin = (blocks.length - (last - first + 1)) / 2 - first;
+
+        final PrimitiveIterator.OfInt ids = tape.ids(leftmost, rightmost + 1);
+        for (int index = leftmost; index <= rightmost; index++) {
+            final int position = blockOrigin + Math.floorDiv(index, blockSize);
+            blocks[position] = withSymbol(
+                    blocks[position], Math.floorMod(index, blockSize), ids.nextInt());
+        }
+    }
+
+    /**
+     * Unpacks the blocks and writes the visited cells back to the given tape.
+     *
+     * @param tape The tape of the TM.
+     * @param leftmost The index of the most left visited cell.
+     * @param rightmost The index of the most right visited cell.
+     * @param headIndex The index of the cell the head is pointing at.
+     */
+    private void storeBlocks(ArrayTape tape, int leftmost, int rightmost, int headIndex) {
+        final int[] ids = new int[rightmost - leftmost + 1];
+
+        for (int index = leftmost; index <= rightmost; index++) {
+            final int position = blockOrigin + Math.floorDiv(index, blockSize);
+            
+            // The head may have left the array in the very last step.
+            final long content = (position >= 0 && position < blocks.length)
+                    ? blocks[position] : blankBlock;
+            ids[index - leftmost] = symbolAt(content, Math.floorMod(index, blockSize));
+        }
+
+        tape.replace(leftmost, ids, headIndex);
+        blocks = null;
+    }
+
+    /**
+     * Grows the block array if necessary, so it contains the block with the given index.
+     *
+     * @param block The index of the block.
+     * @return The position of the block in the array.
+     */
+    private int ensureBlock(int block) {
+        int position = blockOrigin + block;
+
+        if (position < 0) {
+            final int shift = blocks.length;
+            final long[] grown = new long[blocks.length + shift];
+            Arrays.fill(grown, 0, shift, blankBlock);
+            System.arraycopy(blocks, 0, grown, shift, blocks.length);
+            blocks = grown;
+            blockOrigin += shift;
+            position += shift;
+        } else if (position >= blocks.length) {
+            final int oldLength = blocks.length;
+            blocks = Arrays.copyOf(blocks, oldLength * 2);
+            Arrays.fill(blocks, oldLength, blocks.length, blankBlock);
+        }
+
+        return position;
+    }
+
+    /**
+     * Replaces the memo with an empty one of the given capacity.
+     *
+     * @param capacity The amount of slots, a power of two.
+     */
+    private void allocateMemo(int capacity) {
+        memoKeys = new long[capacity];
+        memoBlocks = new long[capacity];
+        memoSteps = new long[capacity];
+        memoStates = new int[capacity];
+        memoExits = new int[capacity];
+        memoOffsets = new int[capacity];
+        memoMinima = new int[capacity];
+        memoMaxima = new int[capacity];
+        Arrays.fill(memoKeys, EMPTY);
+    }
+
+    /**
+     * Doubles the capacity of the memo and rehashes all memoized transitions.
+     */
+    private void growMemo() {
+        final long[] keys = memoKeys;
+        final long[] contents = memoBlocks;
+        final long[] steps = memoSteps;
+        final int[] states = memoStates;
+        final int[] exits = memoExits;
+        final int[] offsets = memoOffsets;
+        final int[] minima = memoMinima;
+        final int[] maxima = memoMaxima;
+
+        allocateMemo(keys.length * 2);
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                final int slot = slotOf(keys[i]);
+                memoKeys[slot] = keys[i];
+                memoBlocks[slot] = contents[i];
+                memoSteps[slot] = steps[i];
+                memoStates[slot] = states[i];
+                memoExits[slot] = exits[i];
+                memoOffsets[slot] = offsets[i];
+                memoMinima[slot] = minima[i];
+                memoMaxima[slot] = maxima[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the memo that contains the given key or the free slot in which
+     * it should be inserted. The memo uses open addressing with linear probing.
+     *
+     * @param key The key of a configuration.
+     * @return The slot for the key.
+     */
+    private int slotOf(long key) {
+        final int mask = memoKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+
+        while (memoKeys[slot] != EMPTY && memoKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Combines a configuration with the head at the edge of a block into one key.
+     *
+     * @param state The id of the current state.
+     * @param content The packed content of the block.
+     * @param offset The position of the head in the block, either the first or the last.
+     * @return The key of the configuration.
+     */
+    private long key(int state, long content, int offset) {
+        final int contentBits = bits * blockSize;
+        final long side = (offset == 0) ? 0 : 1;
+        return ((long) state << (contentBits + 1)) | (side << contentBits) | content;
+    }
+
+    /**
+     * Reads the symbol id at the given offset of a packed block.
+     *
+     * @param content The packed content of the block.
+     * @param offset The offset of the cell in the block.
+     * @return The id of the symbol.
+     */
+    private int symbolAt(long content, int offset) {
+        return (int) ((content >>> (offset * bits)) & symbolMask);
+    }
+
+    /**
+     * Replaces the symbol id at the given offset of a packed block.
+     *
+     * @param content The packed content of the block.
+     * @param offset The offset of the cell in the block.
+     * @param symbol The id of the new symbol.
+     * @return The packed content of the modified block.
+     */
+    private long withSymbol(long content, int offset, int symbol) {
+        final int shift = offset * bits;
+        return (content & ~(symbolMask << shift)) | ((long) symbol << shift);
+    }
+
+    /**
+     * Returns the amount of bits needed to store the ids of the given amount of elements.
+     *
+     * @param count The amount of elements.
+     * @return The amount of bits, at least 1.
+     */
+    private static int bitsFor(int count) {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(count - 1));
+    }
+}
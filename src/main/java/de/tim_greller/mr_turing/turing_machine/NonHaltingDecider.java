@@ -0,0 +1,52 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A decider tries to prove that a deterministic Turing machine never terminates when it
+ * continues from its current configuration. Deciders are sound but incomplete: If a
+ * decider succeeds, the TM certainly runs forever, but a decider that fails does not
+ * mean anything.
+ * <p>
+ * Deciders are consulted by {@link TuringMachine#run(long, boolean)} once a run with
+ * cycle detection took a while, so machines that obviously run forever do not have to
+ * be executed until the step limit is reached. Additional deciders can be added using
+ * {@link TuringMachine#addNonHaltingDecider(NonHaltingDecider)}.
+ */
+public abstract class NonHaltingDecider {
+
+    /**
+     * Returns a short name of the technique this decider uses. It is shown to the user
+     * as the reason why the TM runs forever.
+     *
+     * @return The name of this decider.
+     */
+    public abstract String getName();
+
+    /**
+     * Tries to prove that the TM never terminates, starting from the given
+     * configuration. The given tape must not be modified.
+     *
+     * @param table The compiled transitions of the TM.
+     * @param accepting The ids of the accepting states.
+     * @param tape The current tape of the TM.
+     * @param state The id of the current state.
+     * @return {@code true} if the TM provably runs forever.
+     */
+    abstract boolean decide(TransitionTable table, BitSet accepting, Tape tape, int state);
+
+    /**
+     * Creates the deciders every Turing machine uses by default: a translated cycler
+     * decider, a bouncer decider and a closed tape language decider.
+     *
+     * @return A new list of the default deciders.
+     */
+    public static List<NonHaltingDecider> createDefaults() {
+        return Arrays.asList(
+                new TranslatedCyclerDecider(TranslatedCyclerDecider.DEFAULT_MAX_STEPS),
+                new BouncerDecider(BouncerDecider.DEFAULT_MAX_STEPS),
+                new ClosedTapeLanguageDecider(ClosedTapeLanguageDecider.DEFAULT_MAX_SIZE));
+    }
+}
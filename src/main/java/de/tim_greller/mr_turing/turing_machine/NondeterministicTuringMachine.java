@@ -0,0 +1,998 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * This is a nondeterministic implementation of a Turing machine. It can have multiple
+ * initial states and multiple transitions with the same precondition. The TM accepts its
+ * input if any sequence of transitions leads to an accepting state.
+ * <p>
+ * All possible configurations are explored breadth-first, so each calculation step
+ * advances every branch by one transition. The branches of a step are expanded in
+ * parallel on a {@link ForkJoinPool}. Configurations that were already reached before
+ * are not explored again, so branches that loop die out instead of running forever.
+ * If no branch is left, the TM denies the input.
+ * <p>
+ * Because the amount of branches can grow exponentially, the amount of configurations
+ * is limited. If a step would exceed the limits, it is aborted and the TM has to be
+ * restarted.
+ */
+public class NondeterministicTuringMachine implements TuringMachine {
+
+    /** The default maximum amount of branches that are explored in one step. */
+    public static final int DEFAULT_MAX_BRANCHES = 100_000;
+
+    /** The default maximum amount of distinct configurations that are reached. */
+    public static final int DEFAULT_MAX_CONFIGURATIONS = 1_000_000;
+
+    /** The amount of branches below which an expansion is not split further. */
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    /**
+     * The status of the Turing machine. Signalizes whether the TM is running or not and
+     * if not, if it terminated in an accepting or denying state or if it is currently
+     * modifiable.
+     */
+    private TMState status = TMState.MODIFIABLE;
+
+    /** The states from which the TM starts its execution. */
+    private final Set<State> initialStates = new LinkedHashSet<>();
+
+    /** All transitions of this TM. Multiple transitions can share a precondition. */
+    private TransitionTable transitions = new TransitionTable(false);
+
+    /**
+     * The transitions as they were defined, if {@link #transitions} was replaced by its
+     * simplified version when the TM was built. Otherwise {@code null}.
+     */
+    private TransitionTable definition;
+
+    /**
+     * If a branch reaches one of this states, the TM instantly terminates and accepts
+     * the input.
+     */
+    private final Set<State> acceptingStates = new LinkedHashSet<>();
+
+    /**
+     * The ids of the accepting states. This set is computed when the TM gets built.
+     */
+    private final BitSet acceptingStateIds = new BitSet();
+
+    /**
+     * The way this TM should execute its steps. It is only stored, because all
+     * branches are always interpreted.
+     */
+    private ExecutionMode executionMode = ExecutionMode.INTERPRETED;
+
+    /** Whether the transitions are simplified when the TM gets built. */
+    private boolean optimized = false;
+
+    /**
+     * What was simplified when the TM was built or {@code null} if it was not optimized.
+     */
+    private AnalysisResult analysisResult;
+
+    /**
+     * The input word that will be written on the tape once the TM is getting build.
+     */
+    private final Deque<Symbol> input = new LinkedList<>();
+
+    /** The blank symbol of the tapes or {@code null} if the default one is used. */
+    private BlankSymbol blank;
+
+    /** The pool the branches are expanded on. */
+    private final ForkJoinPool pool;
+
+    /** The maximum amount of branches that are explored in one step. */
+    private final int maxBranches;
+
+    /** The maximum amount of distinct configurations that are reached. */
+    private final int maxConfigurations;
+
+    /** The branches that are explored in the next step. */
+    private List<Branch> frontier = Collections.emptyList();
+
+    /** All configurations that were reached since the TM was built. */
+    private final Set<Configuration> visited = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The branch whose configuration is shown to the user: the accepting branch if the
+     * TM accepted, otherwise one of the current branches.
+     */
+    private Branch current;
+
+    /** Whether a step exceeded the limits, so the TM cannot continue. */
+    private boolean exhausted = false;
+
+    /** The amount of steps performed since the TM was built. */
+    private long stepCount = 0;
+
+    /**
+     * Creates a new nondeterministic TM with the default limits, which expands its
+     * branches on the common pool.
+     */
+    public NondeterministicTuringMachine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MAX_BRANCHES, DEFAULT_MAX_CONFIGURATIONS);
+    }
+
+    /**
+     * Creates a new nondeterministic TM.
+     *
+     * @param pool The pool on which the branches are expanded.
+     * @param maxBranches The maximum amount of branches explored in one step.
+     * @param maxConfigurations The maximum amount of distinct configurations that can
+     *                          be reached.
+     */
+    public NondeterministicTuringMachine(ForkJoinPool pool, int maxBranches,
+            int maxConfigurations) {
+        this.pool = pool;
+        this.maxBranches = maxBranches;
+        this.maxConfigurations = maxConfigurations;
+    }
+
+    @Override
+    public void clear() {
+        status = TMState.MODIFIABLE;
+        blank = null;
+        input.clear();
+        initialStates.clear();
+        if (definition != null) {
+            transitions = definition;
+            definition = null;
+        }
+        transitions.clear();
+        acceptingStates.clear();
+        acceptingStateIds.clear();
+        executionMode = ExecutionMode.INTERPRETED;
+        optimized = false;
+        analysisResult = null;
+        frontier = Collections.emptyList();
+        visited.clear();
+        current = null;
+        exhausted = false;
+        stepCount = 0;
+    }
+
+    @Override
+    public void restart() {
+        builtOrThrow();
+
+        status = TMState.MODIFIABLE;
+        build();
+    }
+
+    @Override
+    public void build() {
+        modifiableOrThrow();
+
+        if (initialStates.isEmpty()) {
+            initialStates.add(getDefaultInitialState());
+        }
+        if (acceptingStates.isEmpty()) {
+            acceptingStates.add(getDefaultAcceptingState());
+        }
+
+        // The simplified table has to be in place before the tape registers the input.
+        if (definition != null) {
+            transitions = definition;
+            definition = null;
+        }
+        analysisResult = null;
+        final Set<State> startStates = new LinkedHashSet<>(initialStates);
+        if (optimized) {
+            final MachineAnalysis analysis =
+                    new MachineAnalysis(transitions, initialStates, acceptingStates);
+            definition = transitions;
+            transitions = analysis.getTable();
+            analysisResult = analysis.getResult();
+
+            startStates.clear();
+            for (State state : initialStates) {
+                startStates.add(analysis.representativeOf(state));
+            }
+        }
+
+        final Tape tape = new PersistentTape(
+                (blank == null) ? getDefaultBlankSymbol() : blank, transitions.symbols);
+        tape.writeWord(input);
+
+        final List<Branch> initial = new ArrayList<>();
+        for (State state : startStates) {
+            initial.add(new Branch(transitions.states.idOf(state), tape.copy()));
+        }
+
+        transitions.compile();
+        acceptingStateIds.clear();
+        for (State state : acceptingStates) {
+            acceptingStateIds.set(transitions.states.idOf(state));
+        }
+
+        visited.clear();
+        for (Branch branch : initial) {
+            visited.add(new Configuration(branch));
+        }
+
+        frontier = initial;
+        current = initial.get(0);
+        exhausted = false;
+        stepCount = 0;
+        status = TMState.RUNNING;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation accepts multiple transitions with the same precondition and
+     * only rejects transitions that were already added.
+     */
+    @Override
+    public boolean addTransition(Transition transition) {
+        modifiableOrThrow();
+
+        return transitions.add(transition);
+    }
+
+    @Override
+    public boolean addAcceptingState(State state) {
+        modifiableOrThrow();
+
+        if (acceptingStates.contains(state)) {
+            return false;
+        }
+
+        return acceptingStates.add(state);
+    }
+
+    @Override
+    public boolean setAcceptingStates(State... states) {
+        modifiableOrThrow();
+
+        acceptingStates.clear();
+        return Stream.of(states).map(this::addAcceptingState).allMatch(b -> b);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation accepts any amount of initial states. Each of them starts its
+     * own branch. Only states that were already added are rejected.
+     */
+    @Override
+    public boolean addInitialState(State state) {
+        modifiableOrThrow();
+
+        if (initialStates.contains(state)) {
+            return false;
+        }
+
+        return initialStates.add(state);
+    }
+
+    @Override
+    public void setInput(String input) {
+        modifiableOrThrow();
+        this.input.clear();
+
+        for (char c : input.toCharArray()) {
+            this.input.addLast(Symbol.of(c));
+        }
+    }
+
+    @Override
+    public void setBlankSymbol(BlankSymbol blank) {
+        modifiableOrThrow();
+
+        this.blank = blank;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The mode is only stored, this implementation always interprets its branches.
+     */
+    @Override
+    public void setExecutionMode(ExecutionMode mode) {
+        modifiableOrThrow();
+
+        executionMode = mode;
+    }
+
+    @Override
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    @Override
+    public void setOptimized(boolean optimized) {
+        modifiableOrThrow();
+
+        this.optimized = optimized;
+    }
+
+    @Override
+    public boolean isOptimized() {
+        return optimized;
+    }
+
+    @Override
+    public AnalysisResult getAnalysisResult() {
+        return analysisResult;
+    }
+
+    @Override
+    public MachineDefinition getDefinition() {
+        final TransitionTable defined = (definition == null) ? transitions : definition;
+        final StringBuilder word = new StringBuilder();
+        input.forEach(word::append);
+
+        return new MachineDefinition(defined.transitions(),
+                new ArrayList<>(initialStates), new ArrayList<>(acceptingStates), blank,
+                word.toString(), executionMode, optimized);
+    }
+
+    @Override
+    public void define(MachineDefinition definition) {
+        final TransitionTable table = new TransitionTable(false);
+        final Transition rejected = table.addAll(definition.getTransitions());
+        if (rejected != null) {
+            throw TransitionTable.rejected(rejected);
+        }
+
+        clear();
+        transitions = table;
+        initialStates.addAll(definition.getInitialStates());
+        acceptingStates.addAll(definition.getAcceptingStates());
+        blank = definition.getBlankSymbol();
+        setInput(definition.getInput());
+        executionMode = definition.getExecutionMode();
+        optimized = definition.isOptimized();
+    }
+
+    @Override
+    public BlankSymbol getDefaultBlankSymbol() {
+        return new BlankSymbol("_");
+    }
+
+    @Override
+    public State getDefaultAcceptingState() {
+        return new State("F");
+    }
+
+    @Override
+    public State getDefaultInitialState() {
+        return new State("S");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every branch is advanced by one transition. Branches without a matching transition
+     * and branches that reach an already known configuration die.
+     */
+    @Override
+    public void performStep() {
+        if (!isRunning()) {
+            throw new IllegalStateException("The TM is not running.");
+        }
+        if (exhausted) {
+            throw limitExceeded();
+        }
+
+        final Expansion expansion = new Expansion(frontier, 0, frontier.size());
+        final List<Branch> next = pool.invoke(expansion);
+
+        if (expansion.exceeded.get()) {
+            exhausted = true;
+            throw limitExceeded();
+        }
+
+        stepCount++;
+        final Branch accepted = expansion.accepted.get();
+        if (accepted != null) {
+            current = accepted;
+            frontier = Collections.emptyList();
+            status = TMState.ACCEPTING;
+        } else if (next.isEmpty()) {
+            frontier = next;
+            status = TMState.DENYING;
+        } else {
+            frontier = next;
+            current = next.get(0);
+        }
+    }
+
+    @Override
+    public RunResult run(long maxSteps) {
+        return run(maxSteps, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation never reaches a configuration twice, so the TM terminates
+     * once all branches loop, no matter if cycle detection is enabled.
+     */
+    @Override
+    public RunResult run(long maxSteps, boolean detectCycles) {
+        final long start = System.nanoTime();
+        final long limit = (maxSteps == 0) ? Long.MAX_VALUE : maxSteps;
+        long steps = 0;
+
+        while (steps < limit && isRunning()) {
+            performStep();
+            steps++;
+        }
+
+        return new RunResult(status, steps, System.nanoTime() - start);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The input words are evaluated one after another on forks of this TM, because the
+     * branches of each run are already expanded in parallel. An input word whose run
+     * exceeds the limits of this TM counts as unfinished. The cancellation is checked
+     * before each input word.
+     */
+    @Override
+    public BatchResult evaluate(List<String> inputs, long maxSteps,
+            Consumer<Evaluation> listener, BooleanSupplier cancelled) {
+        builtOrThrow();
+
+        final long start = System.nanoTime();
+        final BatchEvaluator.Tally tally = new BatchEvaluator.Tally();
+
+        for (String input : inputs) {
+            throwIfCancelled(cancelled);
+            final NondeterministicTuringMachine machine = runFork(input, maxSteps);
+            final Evaluation evaluation = new Evaluation(input, machine.status,
+                    machine.stepCount, machine.current.tape.toWord());
+            tally.add(evaluation);
+            listener.accept(evaluation);
+        }
+
+        return tally.toResult(System.nanoTime() - start);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The words are evaluated one after another on forks of this TM, like
+     * {@link #evaluate(List, long, Consumer, BooleanSupplier)} does it.
+     */
+    @Override
+    public EnumerationResult enumerate(String alphabet, int maxLength, long maxSteps,
+            Predicate<String> reference, int maxSamples, BooleanSupplier cancelled) {
+        builtOrThrow();
+
+        final long start = System.nanoTime();
+        final LanguageEnumeration enumeration =
+                new LanguageEnumeration(alphabet, maxLength, reference, maxSamples);
+
+        for (int length = 0; length <= maxLength; length++) {
+            final int[] digits = new int[length];
+            final long count = enumeration.count(length);
+
+            for (long index = 0; index < count; index++) {
+                throwIfCancelled(cancelled);
+                final NondeterministicTuringMachine machine =
+                        runFork(enumeration.toWord(digits), maxSteps);
+                enumeration.add(index, digits, machine.status, machine.stepCount,
+                        machine.current.tape);
+                enumeration.increment(digits);
+            }
+        }
+
+        return enumeration.toResult(System.nanoTime() - start);
+    }
+
+    /**
+     * Stops an evaluation of many words if it was cancelled.
+     *
+     * @param cancelled Returns whether the evaluation was cancelled.
+     * @throws CancellationException Thrown if the evaluation was cancelled.
+     */
+    private static void throwIfCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("The evaluation was cancelled.");
+        }
+    }
+
+    /**
+     * Runs a fork of this TM on the given input word, starting in the initial
+     * configuration. If the run exceeds the limits of this TM, the fork stays running,
+     * because its result is unknown.
+     *
+     * @param input The input word.
+     * @param maxSteps The maximum amount of steps. {@code 0} signalizes no limitation.
+     * @return The fork after the run.
+     */
+    private NondeterministicTuringMachine runFork(String input, long maxSteps) {
+        final NondeterministicTuringMachine machine = fork();
+        machine.status = TMState.MODIFIABLE;
+        machine.setInput(input);
+        machine.build();
+
+        try {
+            machine.run(maxSteps);
+        } catch (IllegalStateException e) {
+            // The limits were exceeded, so the result stays unknown.
+        }
+        return machine;
+    }
+
+    @Override
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    @Override
+    public void stepBack(long steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("The amount of steps must not be negative.");
+        }
+
+        seek(stepCount - steps);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The branches do not remember their past, so this implementation restarts the TM
+     * and repeats all steps up to the given one.
+     */
+    @Override
+    public void seek(long step) {
+        builtOrThrow();
+
+        if (step < 0 || step > stepCount) {
+            throw new IllegalArgumentException("The TM can only go back to a step between "
+                    + "0 and " + stepCount + ".");
+        }
+        if (step == stepCount) {
+            return;
+        }
+
+        restart();
+        while (stepCount < step) {
+            performStep();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The configuration of this TM consists of all of its branches, so it cannot be
+     * restored directly and {@code null} is returned.
+     */
+    @Override
+    public MachineConfiguration getConfiguration() {
+        builtOrThrow();
+        return null;
+    }
+
+    @Override
+    public void setConfiguration(MachineConfiguration configuration) {
+        throw new IllegalStateException(
+                "A nondeterministic Turing machine cannot restore a configuration.");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The deciders only apply to deterministic TMs, so they are ignored by this
+     * implementation.
+     */
+    @Override
+    public void addNonHaltingDecider(NonHaltingDecider decider) {
+        // Looping branches die out because configurations are never explored twice.
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tapes of the branches are {@link PersistentTape}s, so the copy shares their
+     * content with this TM and forking takes time proportional to the amount of branches
+     * and known configurations, not to the length of the tapes.
+     */
+    @Override
+    public NondeterministicTuringMachine fork() {
+        final NondeterministicTuringMachine fork =
+                new NondeterministicTuringMachine(pool, maxBranches, maxConfigurations);
+
+        fork.status = status;
+        fork.initialStates.addAll(initialStates);
+        fork.transitions = transitions.copy();
+        fork.definition = definition;
+        fork.optimized = optimized;
+        fork.analysisResult = analysisResult;
+        fork.acceptingStates.addAll(acceptingStates);
+        fork.acceptingStateIds.or(acceptingStateIds);
+        fork.executionMode = executionMode;
+        fork.input.addAll(input);
+        fork.blank = blank;
+        fork.visited.addAll(visited);
+        fork.exhausted = exhausted;
+        fork.stepCount = stepCount;
+
+        // The tapes have to use the registry of the copied table.
+        final List<Branch> branches = new ArrayList<>(frontier.size());
+        for (Branch branch : frontier) {
+            branches.add(fork.rebase(branch));
+        }
+        fork.frontier = branches;
+        fork.current = (current == null) ? null : fork.rebase(current);
+
+        return fork;
+    }
+
+    /**
+     * Returns the amount of branches that are explored in the next step.
+     *
+     * @return The amount of current branches.
+     */
+    public int getBranchCount() {
+        return frontier.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the TM accepted, this is the tape of the accepting branch, otherwise the tape
+     * of one of the current branches.
+     */
+    @Override
+    public Deque<Symbol> getTapeContent() {
+        builtOrThrow();
+        return current.tape.getContent();
+    }
+
+    @Override
+    public Stream<Symbol> streamTapeContent() {
+        builtOrThrow();
+        return current.tape.stream();
+    }
+
+    @Override
+    public Stream<Symbol> streamTapeContent(int from, int to) {
+        builtOrThrow();
+        return current.tape.range(from, to);
+    }
+
+    @Override
+    public void appendTapeContent(StringBuilder builder, String separator) {
+        builtOrThrow();
+        current.tape.appendTo(builder, separator);
+    }
+
+    @Override
+    public Deque<Symbol> getInput() {
+        return new LinkedList<Symbol>(input);
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return current.tape.getHeadIndex();
+    }
+
+    @Override
+    public int getLeftmostIndex() {
+        return current.tape.getLeftmostIndex();
+    }
+
+    @Override
+    public int getRightmostIndex() {
+        return current.tape.getRightmostIndex();
+    }
+
+    @Override
+    public State getCurrentState() {
+        if (current == null) {
+            return null;
+        }
+        return transitions.states.get(current.state);
+    }
+
+    @Override
+    public boolean isAccepting() {
+        return status == TMState.ACCEPTING;
+    }
+
+    @Override
+    public boolean isDenying() {
+        return status == TMState.DENYING;
+    }
+
+    @Override
+    public boolean isUnbuilt() {
+        return status == TMState.MODIFIABLE;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return status == TMState.RUNNING;
+    }
+
+    /**
+     * Creates a branch with the same configuration as the given branch of another TM,
+     * whose tape uses the symbols of this TM.
+     *
+     * @param branch The branch of the other TM.
+     * @return The branch of this TM.
+     */
+    private Branch rebase(Branch branch) {
+        return new Branch(branch.state, branch.tape.copy(transitions.symbols));
+    }
+
+    /**
+     * Creates the exception that is thrown if a step exceeded the limits of this TM.
+     * 
+     * @return The exception.
+     */
+    private IllegalStateException limitExceeded() {
+        return new IllegalStateException("The TM exceeded its limit of " + maxBranches
+                + " branches or " + maxConfigurations + " configurations. Restart it to "
+                + "try again.");
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if the TM is not modifiable currently.
+     */
+    private void modifiableOrThrow() {
+        if (!isUnbuilt()) {
+            throw new IllegalStateException(
+                    "The TM has to be in its modifiable state to do that.");
+        }
+    }
+
+    /**
+     * Throws an {@link IllegalStateException} if the TM is not built.
+     */
+    private void builtOrThrow() {
+        if (isUnbuilt()) {
+            throw new IllegalStateException(
+                    "The TM has to be built in order to do that.");
+        }
+    }
+
+    /**
+     * One branch of the computation, consisting of a state and an own tape.
+     */
+    private static final class Branch {
+
+        /** The id of the current state of the branch. */
+        private final int state;
+
+        /** The tape of the branch. It is never modified once the branch exists. */
+        private final Tape tape;
+
+        /**
+         * Creates a new branch.
+         *
+         * @param state The id of the current state.
+         * @param tape The tape of the branch.
+         */
+        Branch(int state, Tape tape) {
+            this.state = state;
+            this.tape = tape;
+        }
+    }
+
+    /**
+     * The configuration of a branch in a form that can be compared. Blank cells at both
+     * ends of the tape are left out, because they do not distinguish configurations.
+     */
+    private static final class Configuration {
+
+        /** The id of the state. */
+        private final int state;
+
+        /** The index of the head. */
+        private final int head;
+
+        /** The index of the first non blank cell. */
+        private final int from;
+
+        /** The symbol ids from the first to the last non blank cell. */
+        private final int[] cells;
+
+        /** The hash code, computed once. */
+        private final int hash;
+
+        /**
+         * Creates the configuration of the given branch.
+         *
+         * @param branch The branch.
+         */
+        Configuration(Branch branch) {
+            final Tape tape = branch.tape;
+            final int leftmost = tape.getLeftmostIndex();
+            final int[] visited = new int[tape.getRightmostIndex() - leftmost + 1];
+            final PrimitiveIterator.OfInt ids = tape.ids(leftmost, leftmost + visited.length);
+
+            int first = visited.length;
+            int last = -1;
+            for (int i = 0; i < visited.length; i++) {
+                visited[i] = ids.nextInt();
+                if (visited[i] != tape.blankId) {
+                    first = Math.min(first, i);
+                    last = i;
+                }
+            }
+
+            this.state = branch.state;
+            this.head = tape.getHeadIndex();
+            this.from = (last < 0) ? 0 : leftmost + first;
+            this.cells = (last < 0) ? new int[0] : Arrays.copyOfRange(visited, first, last + 1);
+            this.hash = 31 * (31 * (31 * state + head) + from) + Arrays.hashCode(cells);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Configuration)) {
+                return false;
+            }
+
+            final Configuration other = (Configuration) obj;
+            return hash == other.hash && state == other.state && head == other.head
+                    && from == other.from && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Expands a range of the current branches into their successors. Large ranges are
+     * split in halves which are expanded in parallel.
+     */
+    private final class Expansion extends RecursiveTask<List<Branch>> {
+
+        /** Generated serial version UID. */
+        private static final long serialVersionUID = 7426170283641961893L;
+
+        /** The branches of the current step. */
+        private final List<Branch> branches;
+
+        /** The position of the first branch of the range. */
+        private final int from;
+
+        /** The position after the last branch of the range. */
+        private final int to;
+
+        /** The accepting branch, shared by all parts of the expansion. */
+        private final AtomicReference<Branch> accepted;
+
+        /** Whether the limits were exceeded, shared by all parts of the expansion. */
+        private final AtomicBoolean exceeded;
+
+        /** The amount of new branches, shared by all parts of the expansion. */
+        private final AtomicInteger produced;
+
+        /**
+         * Creates the expansion of a whole step.
+         *
+         * @param branches The branches of the current step.
+         * @param from The position of the first branch of the range.
+         * @param to The position after the last branch of the range.
+         */
+        Expansion(List<Branch> branches, int from, int to) {
+            this(branches, from, to, new AtomicReference<>(), new AtomicBoolean(),
+                    new AtomicInteger());
+        }
+
+        /**
+         * Creates the expansion of a part of a step.
+         *
+         * @param branches The branches of the current step.
+         * @param from The position of the first branch of the range.
+         * @param to The position after the last branch of the range.
+         * @param accepted The shared accepting branch.
+         * @param exceeded The shared flag for exceeded limits.
+         * @param produced The shared amount of new branches.
+         */
+        private Expansion(List<Branch> branches, int from, int to,
+                AtomicReference<Branch> accepted, AtomicBoolean exceeded,
+                AtomicInteger produced) {
+            this.branches = branches;
+            this.from = from;
+            this.to = to;
+            this.accepted = accepted;
+            this.exceeded = exceeded;
+            this.produced = produced;
+        }
+
+        @Override
+        protected List<Branch> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                final List<Branch> successors = new ArrayList<>();
+                for (int i = from; i < to && !isFinished(); i++) {
+                    expand(branches.get(i), successors);
+                }
+                return successors;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final Expansion left = new Expansion(branches, from, middle, accepted, exceeded,
+                    produced);
+            final Expansion right = new Expansion(branches, middle, to, accepted, exceeded,
+                    produced);
+            left.fork();
+
+            final List<Branch> successors = right.compute();
+            successors.addAll(0, left.join());
+            return successors;
+        }
+
+        /**
+         * Returns whether the expansion can stop, because a branch accepted or the
+         * limits were exceeded.
+         *
+         * @return {@code true} if no more branches have to be expanded.
+         */
+        private boolean isFinished() {
+            return accepted.get() != null || exceeded.get();
+        }
+
+        /**
+         * Applies all matching transitions to a branch and adds the successors that
+         * reach new configurations.
+         *
+         * @param branch The branch that should be expanded.
+         * @param successors The list the successors are added to.
+         */
+        private void expand(Branch branch, List<Branch> successors) {
+            if (acceptingStateIds.get(branch.state)) {
+                accepted.compareAndSet(null, branch);
+                return;
+            }
+
+            final int scanned = branch.tape.readId();
+            final int first = transitions.find(branch.state, scanned);
+            final int count = transitions.count(branch.state, scanned);
+
+            for (int position = first; position < first + count; position++) {
+                final Tape tape = branch.tape.copy();
+                tape.writeId(transitions.printSymbol(position));
+                tape.moveHead(transitions.move(position));
+
+                final Branch successor = new Branch(transitions.nextState(position), tape);
+                if (acceptingStateIds.get(successor.state)) {
+                    accepted.compareAndSet(null, successor);
+                    return;
+                }
+
+                if (visited.add(new Configuration(successor))) {
+                    if (produced.incrementAndGet() > maxBranches
+                            || visited.size() > maxConfigurations) {
+                        exceeded.set(true);
+                        return;
+                    }
+                    successors.add(successor);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A {@link Tape} whose content is split into chunks of fixed size, which are stored in
+ * the leaves of a trie. Copies of this tape share the trie with the original, so
+ * {@link #copy()} takes constant time. The nodes are only modified by the tape that
+ * owns them: When a tape writes to a shared chunk, it copies the chunk and the path to
+ * it from the root, so copying and modifying costs time proportional to the changes,
+ * not to the length of the tape.
+ * <p>
+ * The chunk the head is pointing at is cached, so reading, writing and moving the head
+ * only walk the trie when the head crosses the border of a chunk.
+ */
+public class PersistentTape extends Tape {
+
+    /** The binary logarithm of the amount of cells in a chunk. */
+    private static final int CHUNK_BITS = 6;
+
+    /** The amount of cells in a chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** The mask that extracts the position of a cell in its chunk from its index. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The binary logarithm of the amount of children of an inner node. */
+    private static final int BRANCH_BITS = 5;
+
+    /** The mask that extracts the position of a child from a chunk key. */
+    private static final int BRANCH_MASK = (1 << BRANCH_BITS) - 1;
+
+    /**
+     * The token that identifies the nodes this tape is allowed to modify. It is
+     * replaced whenever the tape is copied, so all nodes become shared.
+     */
+    private Object owner = new Object();
+
+    /** The root of the trie or {@code null} if the tape is blank. */
+    private Node root;
+
+    /** The amount of levels of inner nodes above the leaves. */
+    private int depth = 0;
+
+    /** The leaf containing the chunk of the head or {@code null} if it is blank. */
+    private Node leaf;
+
+    /** The index of the cell the head is pointing at. */
+    private int head = 0;
+
+    /** The index of the most left visited cell. */
+    private int leftmost = 0;
+
+    /** The index of the most right visited cell. */
+    private int rightmost = 0;
+
+    /**
+     * Creates a new Tape, which is initially filled with the given {@link BlankSymbol}.
+     *
+     * @param blank The blank symbol which will be on every position of the tape.
+     * @param symbols The registry that assigns the ids of the symbols.
+     */
+    PersistentTape(BlankSymbol blank, Registry<Symbol> symbols) {
+        super(blank, symbols);
+    }
+
+    @Override
+    public void moveHead(TapeMove direction) {
+        switch (direction) {
+        case LEFT:
+            if ((head-- & CHUNK_MASK) == 0) {
+                leaf = findLeaf(head);
+            }
+            if (head < leftmost) {
+                leftmost = head;
+            }
+            break;
+
+        case RIGHT:
+            if ((++head & CHUNK_MASK) == 0) {
+                leaf = findLeaf(head);
+            }
+            if (head > rightmost) {
+                rightmost = head;
+            }
+            break;
+
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void writeWord(Deque<Symbol> word) {
+        final int start = head;
+        final int visited = rightmost;
+
+        for (Symbol symbol : word) {
+            writeSymbol(symbol);
+            moveHead(TapeMove.RIGHT);
+        }
+
+        if (!word.isEmpty()) {
+            rightmost = Math.max(visited, start + word.size() - 1);
+            head = start;
+            leaf = findLeaf(head);
+        }
+    }
+
+    @Override
+    public Deque<Symbol> getContent() {
+        final Deque<Symbol> content = new LinkedList<>();
+        forEach(content::addLast);
+        return content;
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return head;
+    }
+
+    @Override
+    public int getLeftmostIndex() {
+        return leftmost;
+    }
+
+    @Override
+    public int getRightmostIndex() {
+        return rightmost;
+    }
+
+    @Override
+    int readId() {
+        return (leaf == null) ? blankId : leaf.cells[head & CHUNK_MASK];
+    }
+
+    @Override
+    void writeId(int id) {
+        if (leaf == null || leaf.owner != owner) {
+            if (leaf == null && id == blankId) {
+                return;
+            }
+            leaf = editLeaf(head);
+        }
+        leaf.cells[head & CHUNK_MASK] = id;
+    }
+
+    @Override
+    void restoreRange(int leftmost, int rightmost) {
+        this.leftmost = leftmost;
+        this.rightmost = rightmost;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The copy shares all chunks with this tape, so this takes constant time.
+     */
+    @Override
+    PersistentTape copy(Registry<Symbol> symbols) {
+        final PersistentTape copy = new PersistentTape(blank, symbols);
+        copy.root = root;
+        copy.depth = depth;
+        copy.leaf = leaf;
+        copy.head = head;
+        copy.leftmost = leftmost;
+        copy.rightmost = rightmost;
+
+        // From now on, neither tape may modify the shared nodes.
+        owner = new Object();
+        return copy;
+    }
+
+    @Override
+    PrimitiveIterator.OfInt ids(int from, int to) {
+        return new PrimitiveIterator.OfInt() {
+
+            /** The index of the cell that is returned next. */
+            private int index = from;
+
+            /** The leaf of the chunk of the next cell. */
+            private Node chunk = (from < to) ? findLeaf(from) : null;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final int cell = index++;
+                if ((cell & CHUNK_MASK) == 0 && cell != from) {
+                    chunk = findLeaf(cell);
+                }
+                return (chunk == null) ? blankId : chunk.cells[cell & CHUNK_MASK];
+            }
+        };
+    }
+
+    /**
+     * Computes the key of the chunk containing the given cell. Chunks left of the cell
+     * with index 0 get odd keys and the other ones even keys, so all keys are positive
+     * and small keys are close to the origin.
+     *
+     * @param index The index of the cell.
+     * @return The key of its chunk.
+     */
+    private static int keyOf(int index) {
+        final int chunk = index >> CHUNK_BITS;
+        return (chunk << 1) ^ (chunk >> 31);
+    }
+
+    /**
+     * Looks up the leaf containing the given cell without modifying the trie.
+     *
+     * @param index The index of the cell.
+     * @return The leaf or {@code null} if the chunk is blank.
+     */
+    private Node findLeaf(int index) {
+        final int key = keyOf(index);
+        if (root == null || (key >>> (depth * BRANCH_BITS)) != 0) {
+            return null;
+        }
+
+        Node node = root;
+        for (int level = depth; level > 0 && node != null; level--) {
+            node = node.children[(key >>> ((level - 1) * BRANCH_BITS)) & BRANCH_MASK];
+        }
+        return node;
+    }
+
+    /**
+     * Returns a leaf containing the given cell that is owned by this tape. Missing
+     * nodes are created and shared nodes on the path are copied.
+     *
+     * @param index The index of the cell.
+     * @return The leaf, which may be modified.
+     */
+    private Node editLeaf(int index) {
+        final int key = keyOf(index);
+
+        if (root == null) {
+            root = (depth == 0) ? newLeaf() : new Node(owner, new Node[1 << BRANCH_BITS]);
+        }
+        while ((key >>> (depth * BRANCH_BITS)) != 0) {
+            final Node grown = new Node(owner, new Node[1 << BRANCH_BITS]);
+            grown.children[0] = root;
+            root = grown;
+            depth++;
+        }
+
+        root = owned(root);
+        Node node = root;
+        for (int level = depth; level > 0; level--) {
+            final int position = (key >>> ((level - 1) * BRANCH_BITS)) & BRANCH_MASK;
+            Node child = node.children[position];
+
+            if (child == null) {
+                child = (level == 1) ? newLeaf() : new Node(owner, new Node[1 << BRANCH_BITS]);
+            } else {
+                child = owned(child);
+            }
+
+            node.children[position] = child;
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the given node if it is owned by this tape, otherwise a copy of it that is
+     * owned by this tape.
+     *
+     * @param node The node.
+     * @return A node with the same content that may be modified.
+     */
+    private Node owned(Node node) {
+        if (node.owner == owner) {
+            return node;
+        }
+        return (node.cells != null)
+                ? new Node(owner, node.cells.clone())
+                : new Node(owner, node.children.clone());
+    }
+
+    /**
+     * Creates a new blank leaf owned by this tape.
+     *
+     * @return The leaf.
+     */
+    private Node newLeaf() {
+        final int[] cells = new int[CHUNK_SIZE];
+        Arrays.fill(cells, blankId);
+        return new Node(owner, cells);
+    }
+
+    /**
+     * A node of the trie. Inner nodes have children, leaves contain the cells of a
+     * chunk.
+     */
+    private static final class Node {
+
+        /** The token of the tape that is allowed to modify this node. */
+        private final Object owner;
+
+        /** The children of an inner node or {@code null} for a leaf. */
+        private final Node[] children;
+
+        /** The symbol ids of the cells of a leaf or {@code null} for an inner node. */
+        private final int[] cells;
+
+        /**
+         * Creates a new inner node.
+         *
+         * @param owner The token of the owning tape.
+         * @param children The children of the node.
+         */
+        Node(Object owner, Node[] children) {
+            this.owner = owner;
+            this.children = children;
+            this.cells = null;
+        }
+
+        /**
+         * Creates a new leaf.
+         *
+         * @param owner The token of the owning tape.
+         * @param cells The symbol ids of the cells of the chunk.
+         */
+        Node(Object owner, int[] cells) {
+            this.owner = owner;
+            this.children = null;
+            this.cells = cells;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to the states or symbols of a Turing machine, so they can be
+ * used as indices into arrays. Two elements get the same id if they are equal. The
+ * element that was registered first is kept as the canonical instance of its id, so
+ * equal elements can be interned and compared by identity afterwards.
+ * <p>
+ * A registry can be used by multiple threads at once. Looking up registered elements
+ * does not block, only registering new elements is synchronized.
+ *
+ * @param <T> The type of the registered elements.
+ */
+final class Registry<T> {
+
+    /** The id of each registered element. */
+    private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * The registered elements, the position of each element is its id. The array is
+     * only replaced by a larger copy, so each element is visible to all threads that
+     * know its id.
+     */
+    private volatile Object[] elements = new Object[16];
+
+    /** The amount of registered elements. */
+    private volatile int size = 0;
+
+    /**
+     * Returns the id of the given element. If the element was not registered yet, it
+     * gets registered and receives the next free id.
+     *
+     * @param element The element, must not be {@code null}.
+     * @return The id of the element.
+     */
+    int idOf(T element) {
+        final Integer id = ids.get(element);
+
+        if (id != null) {
+            return id;
+        }
+
+        return register(element);
+    }
+
+    /**
+     * Returns the id of the given element without registering it.
+     *
+     * @param element The element, must not be {@code null}.
+     * @return The id of the element or {@code -1} if it was not registered yet.
+     */
+    int find(T element) {
+        final Integer id = ids.get(element);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * Returns the canonical instance of the given element, which is the equal element
+     * that was registered first. If the element was not registered yet, it gets
+     * registered and becomes the canonical instance.
+     *
+     * @param element The element, must not be {@code null}.
+     * @return The registered element equal to the given one.
+     */
+    T intern(T element) {
+        return get(idOf(element));
+    }
+
+    /**
+     * Returns the element with the given id.
+     *
+     * @param id The id of a registered element.
+     * @return The element that was registered first with this id.
+     */
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        if (id >= size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return (T) elements[id];
+    }
+
+    /**
+     * The amount of registered elements. All ids are smaller than this value.
+     *
+     * @return The amount of registered elements.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates a copy of this registry that assigns the same ids, but can be extended
+     * independently.
+     *
+     * @return The copy.
+     */
+    synchronized Registry<T> copy() {
+        final Registry<T> copy = new Registry<>();
+        copy.ids.putAll(ids);
+        copy.elements = Arrays.copyOf(elements, elements.length);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Removes all registered elements.
+     */
+    synchronized void clear() {
+        ids.clear();
+        elements = new Object[16];
+        size = 0;
+    }
+
+    /**
+     * Registers the given element unless another thread registered it in the meantime.
+     *
+     * @param element The element, must not be {@code null}.
+     * @return The id of the element.
+     */
+    private synchronized int register(T element) {
+        final Integer id = ids.get(element);
+
+        if (id != null) {
+            return id;
+        }
+
+        Object[] array = elements;
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = element;
+        elements = array;
+        size++;
+
+        ids.put(element, size - 1);
+        return size - 1;
+    }
+}
@@ -0,0 +1,453 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A {@link Tape} which stores its content as runs of identical symbols. The runs left
+ * and right of the head are kept on two stacks whose tops are next to the head, so
+ * moving the head only changes the counts of the topmost runs.
+ * <p>
+ * Besides saving memory on uniform tape regions, this allows to
+ * {@link #sweep(int, TapeMove, long) sweep} over a whole run of identical symbols in one
+ * operation.
+ */
+public class RunLengthTape extends Tape {
+
+    /** The amount of runs the stacks can hold initially. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The symbol ids of the runs left of the head. The last run is next to the head. */
+    private int[] leftSymbols = new int[INITIAL_CAPACITY];
+
+    /** The lengths of the runs left of the head. */
+    private int[] leftCounts = new int[INITIAL_CAPACITY];
+
+    /** The amount of runs left of the head. */
+    private int leftSize = 0;
+
+    /** The symbol ids of the runs right of the head. The last run is next to the head. */
+    private int[] rightSymbols = new int[INITIAL_CAPACITY];
+
+    /** The lengths of the runs right of the head. */
+    private int[] rightCounts = new int[INITIAL_CAPACITY];
+
+    /** The amount of runs right of the head. */
+    private int rightSize = 0;
+
+    /** The symbol id of the cell the head is pointing at. */
+    private int current;
+
+    /** The index of the cell the head is pointing at. */
+    private int headIndex = 0;
+
+    /** The index of the most left visited cell. */
+    private int leftmost = 0;
+
+    /** The index of the most right visited cell. */
+    private int rightmost = 0;
+
+    /**
+     * Creates a new Tape, which is initially filled with the given {@link BlankSymbol}.
+     *
+     * @param blank The blank symbol which will be on every position of the tape.
+     * @param symbols The registry that assigns the ids of the symbols.
+     */
+    RunLengthTape(BlankSymbol blank, Registry<Symbol> symbols) {
+        super(blank, symbols);
+        current = blankId;
+    }
+
+    @Override
+    public void moveHead(TapeMove direction) {
+        switch (direction) {
+        case LEFT:
+            pushRight(current, 1);
+            current = popLeft();
+            headIndex--;
+            break;
+
+        case RIGHT:
+            pushLeft(current, 1);
+            current = popRight();
+            headIndex++;
+            break;
+
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void writeWord(Deque<Symbol> word) {
+        int written = 0;
+
+        for (Symbol symbol : word) {
+            if (written++ > 0) {
+                moveHead(TapeMove.RIGHT);
+            }
+            writeSymbol(symbol);
+        }
+
+        while (--written > 0) {
+            moveHead(TapeMove.LEFT);
+        }
+    }
+
+    @Override
+    public Deque<Symbol> getContent() {
+        final Deque<Symbol> content = new LinkedList<>();
+        forEach(content::addLast);
+        return content;
+    }
+
+    @Override
+    public int getHeadIndex() {
+        return headIndex;
+    }
+
+    @Override
+    public int getLeftmostIndex() {
+        return leftmost;
+    }
+
+    @Override
+    public int getRightmostIndex() {
+        return rightmost;
+    }
+
+    @Override
+    int readId() {
+        return current;
+    }
+
+    @Override
+    void writeId(int id) {
+        current = id;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The forgotten cells are removed from the bottoms of the stacks.
+     */
+    @Override
+    void restoreRange(int leftmost, int rightmost) {
+        leftSize = dropBottom(leftSymbols, leftCounts, leftSize, leftmost - this.leftmost);
+        rightSize = dropBottom(rightSymbols, rightCounts, rightSize, 
+                this.rightmost - rightmost);
+        this.leftmost = leftmost;
+        this.rightmost = rightmost;
+    }
+
+    @Override
+    RunLengthTape copy(Registry<Symbol> symbols) {
+        final RunLengthTape copy = new RunLengthTape(blank, symbols);
+        copy.leftSymbols = leftSymbols.clone();
+        copy.leftCounts = leftCounts.clone();
+        copy.leftSize = leftSize;
+        copy.rightSymbols = rightSymbols.clone();
+        copy.rightCounts = rightCounts.clone();
+        copy.rightSize = rightSize;
+        copy.current = current;
+        copy.headIndex = headIndex;
+        copy.leftmost = leftmost;
+        copy.rightmost = rightmost;
+        return copy;
+    }
+
+    /**
+     * Applies a transition that keeps the state and moves the head in the given
+     * direction to the whole run of identical symbols starting at the head. Each cell of
+     * the run gets the printed symbol and the head ends up on the first cell after the
+     * run. If the run consists of blanks and reaches the unvisited part of the tape, the
+     * run is infinite and only limited by the given maximum.
+     *
+     * @param print The id of the symbol that is printed to each cell.
+     * @param direction The direction of the head, must not be {@link TapeMove#NONE}.
+     * @param max The maximum amount of cells that should be swept.
+     * @return The amount of swept cells, which equals the amount of performed steps.
+     */
+    long sweep(int print, TapeMove direction, long max) {
+        final boolean right = (direction == TapeMove.RIGHT);
+        final int scanned = current;
+        final int[] aheadSymbols = right ? rightSymbols : leftSymbols;
+        final int[] aheadCounts = right ? rightCounts : leftCounts;
+        final int aheadSize = right ? rightSize : leftSize;
+
+        // The cells ahead of the head that belong to the run, not counting the head cell.
+        long ahead = 0;
+        if (aheadSize > 0 && aheadSymbols[aheadSize - 1] == scanned) {
+            ahead = aheadCounts[aheadSize - 1];
+        }
+
+        final boolean endless = scanned == blankId && aheadSize - (ahead > 0 ? 1 : 0) == 0;
+        final long room = right ? (long) Integer.MAX_VALUE - rightmost
+                                : (long) leftmost - Integer.MIN_VALUE;
+        final long swept = Math.min(max, endless ? room : ahead + 1);
+
+        if (swept <= 0) {
+            return 0;
+        }
+
+        // Remove the visited cells of the run ahead of the head.
+        final long consumed = Math.min(swept, ahead);
+        if (consumed > 0) {
+            aheadCounts[aheadSize - 1] -= (int) consumed;
+            if (aheadCounts[aheadSize - 1] == 0) {
+                if (right) {
+                    rightSize--;
+                } else {
+                    leftSize--;
+                }
+            }
+        }
+
+        /*
+         * If the head stops inside the run, the last removed cell is the new head cell.
+         * Otherwise the head moves past the run and possibly over unvisited blank cells.
+         */
+        if (right) {
+            pushLeft(print, (int) swept);
+            current = (swept <= ahead) ? scanned : advanceRight(swept - ahead - 1);
+            headIndex += (int) swept;
+        } else {
+            pushRight(print, (int) swept);
+            current = (swept <= ahead) ? scanned : advanceLeft(swept - ahead - 1);
+            headIndex -= (int) swept;
+        }
+
+        return swept;
+    }
+
+    @Override
+    PrimitiveIterator.OfInt ids(int from, int to) {
+        return new PrimitiveIterator.OfInt() {
+
+            /** The index of the cell that is returned next. */
+            private int index = from;
+
+            /**
+             * The position of the current run in the sequence of all runs: first the
+             * left stack from bottom to top, then the head cell, then the right stack
+             * from top to bottom.
+             */
+            private int run = -1;
+
+            /** The cells of the current run that were not returned yet. */
+            private long remaining = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final int cell = index++;
+                if (cell < leftmost || cell > rightmost) {
+                    return blankId;
+                }
+
+                if (run < 0) {
+                    skipTo(cell - leftmost);
+                }
+                while (remaining == 0) {
+                    run++;
+                    remaining = countOf(run);
+                }
+
+                remaining--;
+                return symbolOf(run);
+            }
+
+            /**
+             * Positions this iterator on the cell with the given offset from the most
+             * left visited cell.
+             *
+             * @param offset The amount of cells that should be skipped.
+             */
+            private void skipTo(long offset) {
+                run = 0;
+                remaining = countOf(0);
+                while (offset >= remaining) {
+                    offset -= remaining;
+                    remaining = countOf(++run);
+                }
+                remaining -= offset;
+            }
+        };
+    }
+
+    /**
+     * Returns the length of a run in the sequence of all runs from left to right.
+     *
+     * @param run The position of the run in the sequence.
+     * @return The length of the run.
+     */
+    private int countOf(int run) {
+        if (run < leftSize) {
+            return leftCounts[run];
+        } else if (run == leftSize) {
+            return 1;
+        } else {
+            return rightCounts[rightSize - 1 - (run - leftSize - 1)];
+        }
+    }
+
+    /**
+     * Returns the symbol id of a run in the sequence of all runs from left to right.
+     *
+     * @param run The position of the run in the sequence.
+     * @return The symbol id of the run.
+     */
+    private int symbolOf(int run) {
+        if (run < leftSize) {
+            return leftSymbols[run];
+        } else if (run == leftSize) {
+            return current;
+        } else {
+            return rightSymbols[rightSize - 1 - (run - leftSize - 1)];
+        }
+    }
+
+    /**
+     * Moves the head over the given amount of never visited blank cells to the right
+     * and returns the symbol of the cell after them.
+     *
+     * @param blanks The amount of unvisited cells between the run and the new head cell.
+     * @return The symbol id of the new head cell.
+     */
+    private int advanceRight(long blanks) {
+        rightmost += (int) blanks;
+        return popRight();
+    }
+
+    /**
+     * Moves the head over the given amount of never visited blank cells to the left and
+     * returns the symbol of the cell after them.
+     *
+     * @param blanks The amount of unvisited cells between the run and the new head cell.
+     * @return The symbol id of the new head cell.
+     */
+    private int advanceLeft(long blanks) {
+        leftmost -= (int) blanks;
+        return popLeft();
+    }
+
+    /**
+     * Removes the given amount of cells from the bottom of a stack, which holds the cells
+     * farthest from the head.
+     *
+     * @param symbols The symbol ids of the runs of the stack.
+     * @param counts The lengths of the runs of the stack.
+     * @param size The amount of runs of the stack.
+     * @param cells The amount of cells that should be removed.
+     * @return The new amount of runs of the stack.
+     */
+    private static int dropBottom(int[] symbols, int[] counts, int size, int cells) {
+        int emptied = 0;
+
+        while (cells > 0) {
+            final int removed = Math.min(cells, counts[emptied]);
+            counts[emptied] -= removed;
+            cells -= removed;
+            if (counts[emptied] == 0) {
+                emptied++;
+            }
+        }
+
+        if (emptied > 0) {
+            System.arraycopy(symbols, emptied, symbols, 0, size - emptied);
+            System.arraycopy(counts, emptied, counts, 0, size - emptied);
+        }
+        return size - emptied;
+    }
+
+    /**
+     * Pushes cells onto the left stack, merging them with the topmost run if possible.
+     *
+     * @param symbol The symbol id of the cells.
+     * @param count The amount of cells.
+     */
+    private void pushLeft(int symbol, int count) {
+        if (leftSize > 0 && leftSymbols[leftSize - 1] == symbol) {
+            leftCounts[leftSize - 1] += count;
+            return;
+        }
+
+        if (leftSize == leftSymbols.length) {
+            leftSymbols = Arrays.copyOf(leftSymbols, leftSize * 2);
+            leftCounts = Arrays.copyOf(leftCounts, leftSize * 2);
+        }
+
+        leftSymbols[leftSize] = symbol;
+        leftCounts[leftSize++] = count;
+    }
+
+    /**
+     * Pushes cells onto the right stack, merging them with the topmost run if possible.
+     *
+     * @param symbol The symbol id of the cells.
+     * @param count The amount of cells.
+     */
+    private void pushRight(int symbol, int count) {
+        if (rightSize > 0 && rightSymbols[rightSize - 1] == symbol) {
+            rightCounts[rightSize - 1] += count;
+            return;
+        }
+
+        if (rightSize == rightSymbols.length) {
+            rightSymbols = Arrays.copyOf(rightSymbols, rightSize * 2);
+            rightCounts = Arrays.copyOf(rightCounts, rightSize * 2);
+        }
+
+        rightSymbols[rightSize] = symbol;
+        rightCounts[rightSize++] = count;
+    }
+
+    /**
+     * Removes the cell next to the head from the left stack. If the stack is empty, a
+     * new blank cell is visited.
+     *
+     * @return The symbol id of the removed cell.
+     */
+    private int popLeft() {
+        if (leftSize == 0) {
+            leftmost--;
+            return blankId;
+        }
+
+        final int symbol = leftSymbols[leftSize - 1];
+        if (--leftCounts[leftSize - 1] == 0) {
+            leftSize--;
+        }
+        return symbol;
+    }
+
+    /**
+     * Removes the cell next to the head from the right stack. If the stack is empty, a
+     * new blank cell is visited.
+     *
+     * @return The symbol id of the removed cell.
+     */
+    private int popRight() {
+        if (rightSize == 0) {
+            rightmost++;
+            return blankId;
+        }
+
+        final int symbol = rightSymbols[rightSize - 1];
+        if (--rightCounts[rightSize - 1] == 0) {
+            rightSize--;
+        }
+        return symbol;
+    }
+}
@@ -0,0 +1,159 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+/**
+ * The outcome of running a Turing machine for multiple calculation steps using
+ * {@link TuringMachine#run(long)} or {@link TuringMachine#run(long, boolean)}.
+ */
+public class RunResult {
+
+    /** The status of the Turing machine after the run. */
+    private final TMState status;
+
+    /** The amount of calculation steps that were executed during the run. */
+    private final long steps;
+
+    /** The time the run took in nanoseconds. */
+    private final long elapsedNanos;
+
+    /**
+     * The step of the run after which the configurations start repeating or {@code -1}
+     * if no cycle was found.
+     */
+    private final long cycleStart;
+
+    /** The amount of steps after which the configurations repeat or {@code -1}. */
+    private final long cyclePeriod;
+
+    /**
+     * The name of the {@link NonHaltingDecider} that proved that the Turing machine runs
+     * forever or {@code null}.
+     */
+    private final String provenBy;
+
+    /**
+     * Creates a new result of a run in which no cycle was found.
+     *
+     * @param status The status of the Turing machine after the run.
+     * @param steps The amount of executed calculation steps.
+     * @param elapsedNanos The time the run took in nanoseconds.
+     */
+    public RunResult(TMState status, long steps, long elapsedNanos) {
+        this(status, steps, elapsedNanos, -1, -1);
+    }
+
+    /**
+     * Creates a new result of a run.
+     *
+     * @param status The status of the Turing machine after the run.
+     * @param steps The amount of executed calculation steps.
+     * @param elapsedNanos The time the run took in nanoseconds.
+     * @param cycleStart The step after which the configurations start repeating or
+     *                   {@code -1} if no cycle was found.
+     * @param cyclePeriod The period of the cycle or {@code -1} if no cycle was found.
+     */
+    public RunResult(TMState status, long steps, long elapsedNanos, long cycleStart,
+            long cyclePeriod) {
+        this(status, steps, elapsedNanos, cycleStart, cyclePeriod, null);
+    }
+
+    /**
+     * Creates a new result of a run.
+     *
+     * @param status The status of the Turing machine after the run.
+     * @param steps The amount of executed calculation steps.
+     * @param elapsedNanos The time the run took in nanoseconds.
+     * @param cycleStart The step after which the configurations start repeating or
+     *                   {@code -1} if no cycle was found.
+     * @param cyclePeriod The period of the cycle or {@code -1} if no cycle was found.
+     * @param provenBy The name of the decider that proved that the Turing machine runs
+     *                 forever or {@code null}.
+     */
+    public RunResult(TMState status, long steps, long elapsedNanos, long cycleStart,
+            long cyclePeriod, String provenBy) {
+        this.status = status;
+        this.steps = steps;
+        this.elapsedNanos = elapsedNanos;
+        this.cycleStart = cycleStart;
+        this.cyclePeriod = cyclePeriod;
+        this.provenBy = provenBy;
+    }
+
+    /**
+     * Returns the status of the Turing machine after the run. If the status is
+     * {@link TMState#RUNNING}, the run was stopped because the step limit was reached.
+     *
+     * @return The final status of the run.
+     */
+    public TMState getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns whether the Turing machine terminated during the run.
+     *
+     * @return {@code true} if the TM accepted or denied the input.
+     */
+    public boolean hasTerminated() {
+        return status == TMState.ACCEPTING || status == TMState.DENYING;
+    }
+
+    /**
+     * Returns whether it was proven during the run that the Turing machine never
+     * terminates, either because one of its configurations repeated exactly or because
+     * a {@link NonHaltingDecider} succeeded.
+     *
+     * @return {@code true} if the TM runs forever.
+     */
+    public boolean isLooping() {
+        return cyclePeriod > 0 || provenBy != null;
+    }
+
+    /**
+     * Returns the name of the {@link NonHaltingDecider} that proved that the Turing
+     * machine runs forever.
+     *
+     * @return The name of the decider or {@code null} if no decider succeeded.
+     */
+    public String getProvenBy() {
+        return provenBy;
+    }
+
+    /**
+     * Returns the step of the run after which the configurations start repeating. The
+     * configuration after this step is the first one that is part of the cycle. It is
+     * negative if the cycle already started before the run, so use
+     * {@link #getCyclePeriod()} to check whether a cycle was found.
+     *
+     * @return The start of the cycle or {@code -1} if no cycle was found.
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * Returns the amount of steps after which the configurations of the cycle repeat.
+     *
+     * @return The period of the cycle or {@code -1} if no cycle was found.
+     */
+    public long getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    /**
+     * Returns the amount of calculation steps that were executed during the run.
+     *
+     * @return The amount of executed steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the time the run took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -31,14 +31,27 @@ public class State {
         return name;
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * States are interned by the registry of each Turing machine, so comparing a state
+     * with itself is checked first.
+     */
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof State) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof State) {
             State s = (State) obj;
             return s.toString().equals(name);
         } else {
             return false;
         }
     }
+    
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
 
 }
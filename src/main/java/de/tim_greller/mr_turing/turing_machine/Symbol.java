@@ -5,6 +5,9 @@ package de.tim_greller.mr_turing.turing_machine;
  */
 public class Symbol {
 
+    /** The shared symbols of the characters with a code below 256. */
+    private static final Symbol[] CHARACTERS = new Symbol[256];
+
     /** The representation of the symbol. */
     private final String content;
     
@@ -26,17 +29,52 @@ public class Symbol {
         this(Character.toString(content));
     }
 
+    /**
+     * Returns a symbol representing the given character. Symbols are immutable, so the
+     * symbols of common characters are shared instead of creating a new one for every
+     * character of an input word.
+     * 
+     * @param content The single character the symbol should represent.
+     * @return The symbol.
+     */
+    public static Symbol of(char content) {
+        if (content >= CHARACTERS.length) {
+            return new Symbol(content);
+        }
+
+        Symbol symbol = CHARACTERS[content];
+        if (symbol == null) {
+            // Racing threads may create duplicates, which are equal anyway.
+            symbol = new Symbol(content);
+            CHARACTERS[content] = symbol;
+        }
+        return symbol;
+    }
+
     @Override
     public String toString() {
         return content;
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Symbols are interned by the registry of each Turing machine, so comparing a
+     * symbol with itself is checked first.
+     */
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof Symbol) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof Symbol) {
             return ((Symbol) obj).toString().equals(toString());
         } else {
             return false;
         }
     }
+
+    @Override
+    public int hashCode() {
+        return content.hashCode();
+    }
 }
@@ -1,27 +1,42 @@
 package de.tim_greller.mr_turing.turing_machine;
 
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * This class models the Tape of a Turing machine which consists of {@link TapeCell}s.
+ * This class models the Tape of a Turing machine. The tape is infinite in both
+ * directions and initially filled with the blank symbol. Implementations only have to
+ * store the cells that were visited by the head or written by the input.
+ * <p>
+ * Internally, the symbols on a tape are identified by the ids assigned by the
+ * {@link Registry} of the Turing machine the tape belongs to.
  */
-public class Tape {
+public abstract class Tape implements Iterable<Symbol> {
     
     /** The blank symbol that is used for empty cells on this tape. */
     final BlankSymbol blank;
     
-    /** The cell on which the header is currently pointing at. */
-    private TapeCell currentCell;
+    /** The registry that assigns the ids of the symbols stored on this tape. */
+    final Registry<Symbol> symbols;
+    
+    /** The id of the blank symbol. */
+    final int blankId;
     
     /**
      * Creates a new Tape, which is initially filled with the given {@link BlankSymbol}.
      * 
      * @param blank The blank symbol which will be on every position of the tape.
+     * @param symbols The registry that assigns the ids of the symbols.
      */
-    public Tape(BlankSymbol blank) {
+    Tape(BlankSymbol blank, Registry<Symbol> symbols) {
         this.blank = blank;
-        currentCell = new TapeCell(blank);
+        this.symbols = symbols;
+        this.blankId = symbols.idOf(blank);
     }
     
     /**
@@ -29,20 +44,7 @@ public class Tape {
      * 
      * @param direction The direction in which the head should be moved on the tape.
      */
-    public void moveHead(TapeMove direction) {
-        switch (direction) {
-        case LEFT:
-            currentCell = currentCell.getLeftCell();
-            break;
-        
-        case RIGHT:
-            currentCell = currentCell.getRightCell();
-            break;
-            
-        default:
-            break;
-        }
-    }
+    public abstract void moveHead(TapeMove direction);
 
     /**
      * Reads the {@link Symbol} that is stored in the tape at the head position.
@@ -50,7 +52,7 @@ public class Tape {
      * @return The content of the current cell.
      */
     public Symbol readSymbol() {
-        return currentCell.read();
+        return symbols.get(readId());
     }
     
     /**
@@ -59,14 +61,14 @@ public class Tape {
      * @param symbol The symbol that should be written to the tape.
      */
     public void writeSymbol(Symbol symbol) {
-        currentCell.write(symbol);
+        writeId(symbols.idOf(symbol));
     }
     
     /**
      * Deletes the symbol at the current head position. The cell will then be blank again.
      */
     public void clearSymbol() {
-        writeSymbol(blank);
+        writeId(blankId);
     }
     
     /**
@@ -75,25 +77,215 @@ public class Tape {
      * 
      * @param word The word as a stack of symbols. The original stack won't get modified.
      */
-    public void writeWord(Deque<Symbol> word) {
-        currentCell.writeWord(new LinkedList<>(word));
-    }
+    public abstract void writeWord(Deque<Symbol> word);
     
     /**
      * Returns all symbols stored on the tape, ordered from left to right.
      * 
      * @return The tapes content as a stack of symbols.
      */
-    public Deque<Symbol> getContent() {
-        return currentCell.collectAll();
+    public abstract Deque<Symbol> getContent();
+    
+    /**
+     * Iterates lazily over the symbols from the most left to the most right visited
+     * cell. The tape must not be modified while the iterator is used.
+     * 
+     * @return An iterator over the tapes content.
+     */
+    @Override
+    public Iterator<Symbol> iterator() {
+        final PrimitiveIterator.OfInt ids = ids(getLeftmostIndex(), getRightmostIndex() + 1);
+        
+        return new Iterator<Symbol>() {
+            
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+            
+            @Override
+            public Symbol next() {
+                return symbols.get(ids.nextInt());
+            }
+        };
+    }
+    
+    /**
+     * Returns a lazy stream of the symbols from the most left to the most right visited
+     * cell. The tape must not be modified while the stream is consumed.
+     * 
+     * @return The tapes content as a stream of symbols.
+     */
+    public Stream<Symbol> stream() {
+        return range(getLeftmostIndex(), getRightmostIndex() + 1);
     }
+    
+    /**
+     * Returns a lazy stream of the symbols in the given range of cells. Cells that were
+     * never visited are returned as blank symbols. The tape must not be modified while
+     * the stream is consumed.
+     * 
+     * @param from The index of the first cell (inclusive).
+     * @param to The index after the last cell (exclusive).
+     * @return The symbols of the cells in the range ordered from left to right.
+     */
+    public Stream<Symbol> range(int from, int to) {
+        final int size = Math.max(0, to - from);
+        final Spliterator.OfInt spliterator = Spliterators.spliterator(ids(from, to), size,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        
+        return StreamSupport.intStream(spliterator, false).mapToObj(symbols::get);
+    }
+    
+    /**
+     * Appends the content of the tape to the given builder. Each symbol will be shown
+     * ordered from left to right and separated by the given separator. The separator
+     * will also appear as the pre- and suffix.
+     * 
+     * @param builder The builder to which the content is appended.
+     * @param separator The separator between each symbol.
+     */
+    public void appendTo(StringBuilder builder, String separator) {
+        final PrimitiveIterator.OfInt ids = ids(getLeftmostIndex(), getRightmostIndex() + 1);
+        
+        while (ids.hasNext()) {
+            builder.append(separator).append(symbols.get(ids.nextInt()));
+        }
+        builder.append(separator);
+    }
+    
+    /**
+     * Returns the content of the tape without the blank cells at both ends. The symbols
+     * are concatenated without a separator.
+     * 
+     * @return The word on the tape.
+     */
+    String toWord() {
+        final int from = getLeftmostIndex();
+        final int[] cells = new int[getRightmostIndex() - from + 1];
+        final PrimitiveIterator.OfInt ids = ids(from, from + cells.length);
+        int first = cells.length;
+        int last = -1;
+        
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = ids.nextInt();
+            if (cells[i] != blankId) {
+                first = Math.min(first, i);
+                last = i;
+            }
+        }
+        
+        final StringBuilder word = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            word.append(symbols.get(cells[i]));
+        }
+        return word.toString();
+    }
+    
+    /**
+     * The index of the most left cell that was visited by the head or written by the
+     * input.
+     * 
+     * @return The index of the most left visited cell.
+     */
+    public abstract int getLeftmostIndex();
+    
+    /**
+     * The index of the most right cell that was visited by the head or written by the
+     * input.
+     * 
+     * @return The index of the most right visited cell.
+     */
+    public abstract int getRightmostIndex();
 
     /**
      * The position of the head on the tape.
      * 
      * @return The index of the cell the head is pointing at.
      */
-    public int getHeadIndex() {
-        return currentCell.index;
+    public abstract int getHeadIndex();
+    
+    /**
+     * Returns the blank symbol of this tape.
+     * 
+     * @return The symbol that is used for empty cells.
+     */
+    public BlankSymbol getBlankSymbol() {
+        return blank;
+    }
+    
+    /**
+     * Reads the id of the symbol at the current head position.
+     * 
+     * @return The id of the content of the current cell.
+     */
+    abstract int readId();
+    
+    /**
+     * Writes the symbol with the given id to the tape at the current head position.
+     * 
+     * @param id The id of the symbol that should be written to the tape.
+     */
+    abstract void writeId(int id);
+    
+    /**
+     * Shrinks the range of visited cells to the given one, as if the cells outside of it
+     * were never visited. This is used to undo steps that visited new cells, so the cells
+     * outside of the range have to be blank and the head has to be inside of it.
+     * 
+     * @param leftmost The index of the most left visited cell.
+     * @param rightmost The index of the most right visited cell.
+     */
+    abstract void restoreRange(int leftmost, int rightmost);
+    
+    /**
+     * Creates an independent copy of this tape with the same content and head position.
+     * 
+     * @return The copy of this tape.
+     */
+    Tape copy() {
+        return copy(symbols);
     }
+    
+    /**
+     * Creates an independent copy of this tape with the same content and head position,
+     * which uses another registry for its symbols.
+     * 
+     * @param symbols The registry of the copy. It has to assign the same ids as the
+     *                registry of this tape.
+     * @return The copy of this tape.
+     */
+    abstract Tape copy(Registry<Symbol> symbols);
+    
+    /**
+     * Returns whether this tape has the same content as the given one. Cells that were
+     * never visited count as blank, so the ranges of visited cells may differ.
+     * 
+     * @param other The tape to compare with, using the same symbol ids.
+     * @return {@code true} if both tapes contain the same symbol in every cell.
+     */
+    boolean sameContent(Tape other) {
+        final int from = Math.min(getLeftmostIndex(), other.getLeftmostIndex());
+        final int to = Math.max(getRightmostIndex(), other.getRightmostIndex()) + 1;
+        final PrimitiveIterator.OfInt ids = ids(from, to);
+        final PrimitiveIterator.OfInt otherIds = other.ids(from, to);
+        
+        while (ids.hasNext()) {
+            if (ids.nextInt() != otherIds.nextInt()) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Iterates over the ids of the symbols in the given range of cells without copying
+     * them. Cells that were never visited are returned as the blank.
+     * 
+     * @param from The index of the first cell (inclusive).
+     * @param to The index after the last cell (exclusive).
+     * @return An iterator over the symbol ids ordered from left to right.
+     */
+    abstract PrimitiveIterator.OfInt ids(int from, int to);
 }
@@ -73,6 +73,20 @@ public class TapeCell {
         return (rightCell != null);
     }
     
+    /**
+     * Removes the cell left to this one, so it counts as never visited again.
+     */
+    void forgetLeftCell() {
+        leftCell = null;
+    }
+    
+    /**
+     * Removes the cell right to this one, so it counts as never visited again.
+     */
+    void forgetRightCell() {
+        rightCell = null;
+    }
+    
     /**
      * Returns the cell left to this one. If this cell was never visited before, it gets
      * created.
@@ -105,35 +119,36 @@ public class TapeCell {
      * @param word The word as a stack of symbols.
      */
     public void writeWord(Deque<Symbol> word) {
-        if (word.size() < 1) {
-            return;
-        }
-        
-        this.symbol = word.pop();
+        TapeCell cell = this;
         
-        // Avoid creating an additional cell if its not necessary.
-        if (word.size() > 0) {
-            getRightCell().writeWord(word);
+        while (word.size() > 0) {
+            cell.symbol = word.pop();
+            
+            // Avoid creating an additional cell if its not necessary.
+            if (word.size() > 0) {
+                cell = cell.getRightCell();
+            }
         }
     }
     
     /**
      * Get the content of the tape right to this cell (including the cell itself) as a
      * stack of {@link Symbol}s.
+     * <p>
+     * The cells are walked iteratively, so even very long tapes can be collected.
      * 
      * @return The word that is stored by the tape left to this cell as stack.
      */
     public Deque<Symbol> collect() {
-        Deque<Symbol> wordStack;
+        final Deque<Symbol> wordStack = new LinkedList<>();
+        TapeCell cell = this;
         
-        if (wasRightCellVisited()) {
-            wordStack = getRightCell().collect();
-        } else {
-            // Initialize the stack on the most right cell:
-            wordStack = new LinkedList<>();
+        wordStack.addLast(cell.read());
+        while (cell.wasRightCellVisited()) {
+            cell = cell.getRightCell();
+            wordStack.addLast(cell.read());
         }
         
-        wordStack.push(read());
         return wordStack;
     }
     
@@ -144,11 +159,13 @@ public class TapeCell {
      * @return The word that is stored on the tape as a stack.
      */
     public Deque<Symbol> collectAll() {
-        if (wasLeftCellVisited()) {
-            return getLeftCell().collectAll();
-        } else {
-            return collect();
+        TapeCell cell = this;
+        
+        while (cell.wasLeftCellVisited()) {
+            cell = cell.getLeftCell();
         }
+        
+        return cell.collect();
     }
     
     /**
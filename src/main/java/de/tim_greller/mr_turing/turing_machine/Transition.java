@@ -1,5 +1,7 @@
 package de.tim_greller.mr_turing.turing_machine;
 
+import java.util.Objects;
+
 /**
  * Instances of this class represent a transition of a valid Turing machine configuration
  * to another valid TM configuration. Applying a transition to a TM means to perform a
@@ -66,7 +68,9 @@ public class Transition {
     
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof Transition) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof Transition) {
             Transition t = (Transition) obj;
             return (t.matches(currentState, scannedSymbol) 
                     && t.printSymbol.equals(printSymbol)
@@ -76,4 +80,10 @@ public class Transition {
             return false;
         }
     }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(currentState, scannedSymbol, printSymbol, tapeMotion, 
+                nextState);
+    }
 }
@@ -0,0 +1,375 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores the transitions of a Turing machine. While the TM is modifiable,
+ * transitions are collected and checked for duplicates using a hash map. Once the TM
+ * gets built, the table is compiled into a dense array that is indexed by the ids of the
+ * current state and the scanned symbol, so looking up the transition for a calculation
+ * step takes constant time.
+ * <p>
+ * A table for a nondeterministic TM can contain multiple transitions with the same
+ * precondition. They are compiled to consecutive positions, so the index only has to
+ * store the first position and the amount of transitions.
+ */
+final class TransitionTable {
+
+    /** The value of an index entry if no transition exists for a precondition. */
+    static final int NO_TRANSITION = -1;
+
+    /** Assigns the ids of all states known to this table. */
+    final Registry<State> states;
+
+    /** Assigns the ids of all symbols known to this table. */
+    final Registry<Symbol> symbols;
+
+    /** Whether only one transition is allowed for each precondition. */
+    private final boolean deterministic;
+
+    /** All transitions in the order they were added. */
+    private final List<Transition> transitions = new ArrayList<>();
+
+    /** The transitions, mapped by the ids of their precondition. */
+    private final Map<Long, List<Transition>> byPrecondition = new HashMap<>();
+
+    /** The amount of symbols that had an id when the table was compiled. */
+    private int symbolCount;
+
+    /** The amount of states that had an id when the table was compiled. */
+    private int stateCount;
+
+    /**
+     * The compiled index. The entry at {@code state * symbolCount + symbol} contains the
+     * position of the matching transition in {@link #compiled} or {@link #NO_TRANSITION}.
+     */
+    private int[] index = new int[0];
+
+    /** The amount of transitions for each entry of the index. */
+    private int[] counts = new int[0];
+
+    /** The transitions in the order of their positions in the index. */
+    private Transition[] compiled = new Transition[0];
+
+    /** The id of the next state of each compiled transition. */
+    private int[] nextStates = new int[0];
+
+    /** The id of the printed symbol of each compiled transition. */
+    private int[] printSymbols = new int[0];
+
+    /** The tape motion of each compiled transition. */
+    private TapeMove[] moves = new TapeMove[0];
+
+    /**
+     * Whether each compiled transition is a sweep, meaning it keeps the state and moves
+     * the head, so it is applied again to every following cell with the same symbol.
+     */
+    private boolean[] sweeps = new boolean[0];
+
+    /**
+     * Creates a new empty table for a deterministic TM.
+     */
+    TransitionTable() {
+        this(true);
+    }
+
+    /**
+     * Creates a new empty table.
+     *
+     * @param deterministic Whether only one transition is allowed for each
+     *                      precondition.
+     */
+    TransitionTable(boolean deterministic) {
+        this(deterministic, new Registry<>(), new Registry<>());
+    }
+
+    /**
+     * Creates a new empty table using the given registries.
+     *
+     * @param deterministic Whether only one transition is allowed for each
+     *                      precondition.
+     * @param states The registry that assigns the ids of the states.
+     * @param symbols The registry that assigns the ids of the symbols.
+     */
+    private TransitionTable(boolean deterministic, Registry<State> states,
+            Registry<Symbol> symbols) {
+        this.deterministic = deterministic;
+        this.states = states;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Adds a transition to this table, unless an equal transition or, if the table is
+     * deterministic, a transition with the same precondition was already added. The
+     * stored transition uses the interned states and symbols of the registries.
+     *
+     * @param transition The transition that should be added.
+     * @return {@code true} if the transition was added, {@code false} if it was
+     *         rejected.
+     */
+    boolean add(Transition transition) {
+        final long key = key(
+                states.idOf(transition.currentState),
+                symbols.idOf(transition.scannedSymbol));
+        final List<Transition> alternatives = 
+                byPrecondition.computeIfAbsent(key, k -> new ArrayList<>());
+
+        if ((deterministic && !alternatives.isEmpty()) || alternatives.contains(transition)) {
+            return false;
+        }
+
+        final Transition interned = new Transition(
+                states.intern(transition.currentState),
+                symbols.intern(transition.scannedSymbol),
+                symbols.intern(transition.printSymbol),
+                transition.tapeMotion,
+                states.intern(transition.nextState));
+        alternatives.add(interned);
+        return transitions.add(interned);
+    }
+
+    /**
+     * Adds all given transitions to this table in their order, stopping at the first
+     * one that is rejected.
+     *
+     * @param additions The transitions that should be added.
+     * @return The first rejected transition or {@code null} if all were added.
+     * @see #add(Transition)
+     */
+    Transition addAll(List<Transition> additions) {
+        for (Transition transition : additions) {
+            if (!add(transition)) {
+                return transition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the added transitions into the dense index. This has to be done before
+     * the table is used to look up transitions and every time transitions were added.
+     */
+    void compile() {
+        stateCount = states.size();
+        symbolCount = symbols.size();
+        index = new int[stateCount * symbolCount];
+        counts = new int[index.length];
+        compiled = new Transition[transitions.size()];
+        nextStates = new int[compiled.length];
+        printSymbols = new int[compiled.length];
+        moves = new TapeMove[compiled.length];
+        sweeps = new boolean[compiled.length];
+        Arrays.fill(index, NO_TRANSITION);
+
+        // The transitions with the same precondition are placed next to each other.
+        int position = 0;
+        for (Transition transition : transitions) {
+            final int state = states.find(transition.currentState);
+            final int symbol = symbols.find(transition.scannedSymbol);
+            final int entry = state * symbolCount + symbol;
+
+            if (index[entry] == NO_TRANSITION) {
+                index[entry] = position;
+                for (Transition alternative : byPrecondition.get(key(state, symbol))) {
+                    compiled[position++] = alternative;
+                    counts[entry]++;
+                }
+            }
+        }
+
+        for (int i = 0; i < compiled.length; i++) {
+            final int state = states.find(compiled[i].currentState);
+            nextStates[i] = states.find(compiled[i].nextState);
+            printSymbols[i] = symbols.find(compiled[i].printSymbol);
+            moves[i] = compiled[i].tapeMotion;
+            sweeps[i] = (nextStates[i] == state) && (moves[i] != TapeMove.NONE);
+        }
+    }
+
+    /**
+     * Returns the position of the transition for the given precondition in the compiled
+     * index. States or symbols that were registered after the compilation never have a
+     * transition.
+     *
+     * @param state The id of the current state.
+     * @param symbol The id of the scanned symbol or {@code -1} for an unknown symbol.
+     * @return The position of the transition or {@link #NO_TRANSITION}.
+     */
+    int find(int state, int symbol) {
+        if (state >= stateCount || symbol < 0 || symbol >= symbolCount) {
+            return NO_TRANSITION;
+        }
+        return index[state * symbolCount + symbol];
+    }
+
+    /**
+     * Returns the amount of transitions for the given precondition. Their positions
+     * follow the one returned by {@link #find(int, int)}.
+     *
+     * @param state The id of the current state.
+     * @param symbol The id of the scanned symbol or {@code -1} for an unknown symbol.
+     * @return The amount of matching transitions.
+     */
+    int count(int state, int symbol) {
+        if (state >= stateCount || symbol < 0 || symbol >= symbolCount) {
+            return 0;
+        }
+        return counts[state * symbolCount + symbol];
+    }
+
+    /**
+     * The amount of states that had an id when the table was compiled. Only these states
+     * can have transitions.
+     *
+     * @return The amount of compiled states.
+     */
+    int stateCount() {
+        return stateCount;
+    }
+
+    /**
+     * The amount of symbols that had an id when the table was compiled. Only these
+     * symbols can be scanned by transitions.
+     *
+     * @return The amount of compiled symbols.
+     */
+    int symbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Returns the compiled transition at the given position.
+     *
+     * @param position A position returned by {@link #find(int, int)}.
+     * @return The transition at this position.
+     */
+    Transition get(int position) {
+        return compiled[position];
+    }
+
+    /**
+     * Returns the id of the next state of the compiled transition at the given position.
+     *
+     * @param position A position returned by {@link #find(int, int)}.
+     * @return The id of the state the TM is in after applying the transition.
+     */
+    int nextState(int position) {
+        return nextStates[position];
+    }
+
+    /**
+     * Returns the id of the printed symbol of the compiled transition at the given
+     * position.
+     *
+     * @param position A position returned by {@link #find(int, int)}.
+     * @return The id of the symbol that is written to the tape.
+     */
+    int printSymbol(int position) {
+        return printSymbols[position];
+    }
+
+    /**
+     * Returns the tape motion of the compiled transition at the given position.
+     *
+     * @param position A position returned by {@link #find(int, int)}.
+     * @return The direction in which the head is moved.
+     */
+    TapeMove move(int position) {
+        return moves[position];
+    }
+
+    /**
+     * Returns whether the compiled transition at the given position is a sweep, meaning
+     * it keeps the state and moves the head.
+     *
+     * @param position A position returned by {@link #find(int, int)}.
+     * @return {@code true} if the transition is applied to a whole run of symbols.
+     */
+    boolean isSweep(int position) {
+        return sweeps[position];
+    }
+
+    /**
+     * Creates a copy of this table that assigns the same ids and has the same compiled
+     * index, but can be modified independently. The compiled arrays are shared, because
+     * they are never modified, only replaced by {@link #compile()}.
+     *
+     * @return The copy.
+     */
+    TransitionTable copy() {
+        final TransitionTable copy = new TransitionTable(
+                deterministic, states.copy(), symbols.copy());
+        copy.transitions.addAll(transitions);
+        byPrecondition.forEach((key, alternatives) ->
+                copy.byPrecondition.put(key, new ArrayList<>(alternatives)));
+        copy.symbolCount = symbolCount;
+        copy.stateCount = stateCount;
+        copy.index = index;
+        copy.counts = counts;
+        copy.compiled = compiled;
+        copy.nextStates = nextStates;
+        copy.printSymbols = printSymbols;
+        copy.moves = moves;
+        copy.sweeps = sweeps;
+        return copy;
+    }
+
+    /**
+     * Creates an empty table of the same kind whose registries assign the same ids as
+     * the registries of this table.
+     *
+     * @return The empty table.
+     */
+    TransitionTable emptyCopy() {
+        return new TransitionTable(deterministic, states.copy(), symbols.copy());
+    }
+
+    /**
+     * Returns all transitions of this table in the order they were added.
+     *
+     * @return An unmodifiable view of the transitions.
+     */
+    List<Transition> transitions() {
+        return Collections.unmodifiableList(transitions);
+    }
+
+    /**
+     * Removes all transitions, states and symbols from this table.
+     */
+    void clear() {
+        transitions.clear();
+        byPrecondition.clear();
+        states.clear();
+        symbols.clear();
+        compile();
+    }
+
+    /**
+     * Creates the exception for a transition that was rejected while a whole definition
+     * was added.
+     *
+     * @param transition The rejected transition.
+     * @return The exception describing the transition.
+     */
+    static IllegalArgumentException rejected(Transition transition) {
+        return new IllegalArgumentException("The transition from state \""
+                + transition.currentState + "\" reading \"" + transition.scannedSymbol
+                + "\" was rejected, because it repeats or conflicts with another one.");
+    }
+
+    /**
+     * Combines the ids of a precondition into one hash key.
+     *
+     * @param state The id of the current state.
+     * @param symbol The id of the scanned symbol.
+     * @return The key of the precondition.
+     */
+    private static long key(int state, int symbol) {
+        return ((long) state << Integer.SIZE) | symbol;
+    }
+}
@@ -0,0 +1,276 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+
+/**
+ * This decider detects translated cyclers. A translated cycler repeats the same
+ * behavior over and over again, but shifted along the tape, so its configurations never
+ * repeat exactly. Typically it keeps extending the visited part of the tape in one
+ * direction.
+ * <p>
+ * The decider tracks the records of the TM, which are the steps in which the head visits
+ * a new cell at one of the edges of the visited part of the tape. Two records at the
+ * same edge in the same state prove that the TM runs forever if the cells the TM read in
+ * between look the same relative to the head: Every cell beyond the records is blank, so
+ * the TM will repeat what it did between the two records forever.
+ */
+public final class TranslatedCyclerDecider extends NonHaltingDecider {
+
+    /** The amount of steps that are simulated by default. */
+    public static final long DEFAULT_MAX_STEPS = 100_000;
+
+    /** The maximum amount of cells behind a record that are stored with it. */
+    private static final int MAX_WINDOW = 1024;
+
+    /** The amount of most recent records per state and edge that are compared. */
+    private static final int RECORDS_PER_STATE = 16;
+
+    /** The maximum amount of steps that are simulated. */
+    private final long maxSteps;
+
+    /**
+     * Creates a new translated cycler decider.
+     *
+     * @param maxSteps The maximum amount of steps that are simulated.
+     */
+    public TranslatedCyclerDecider(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    @Override
+    public String getName() {
+        return "translated cycler";
+    }
+
+    @Override
+    boolean decide(TransitionTable table, BitSet accepting, Tape original, int state) {
+        final Tape tape = original.copy();
+        final HeadHistory lowest = new HeadHistory(true);
+        final HeadHistory highest = new HeadHistory(false);
+        final Record[][] rightRecords = new Record[table.stateCount()][RECORDS_PER_STATE];
+        final Record[][] leftRecords = new Record[table.stateCount()][RECORDS_PER_STATE];
+        final int[] rightCounts = new int[table.stateCount()];
+        final int[] leftCounts = new int[table.stateCount()];
+
+        lowest.add(0, tape.getHeadIndex());
+        highest.add(0, tape.getHeadIndex());
+
+        for (long time = 1; time <= maxSteps; time++) {
+            final int leftmost = tape.getLeftmostIndex();
+            final int rightmost = tape.getRightmostIndex();
+            final int position = table.find(state, tape.readId());
+
+            if (position == TransitionTable.NO_TRANSITION) {
+                return false;
+            }
+
+            tape.writeId(table.printSymbol(position));
+            state = table.nextState(position);
+            tape.moveHead(table.move(position));
+
+            if (accepting.get(state)) {
+                return false;
+            }
+
+            final int head = tape.getHeadIndex();
+            lowest.add(time, head);
+            highest.add(time, head);
+
+            if (head > rightmost) {
+                final Record record = new Record(tape, time, true);
+                if (matchesAny(tape, record, rightRecords[state], lowest)) {
+                    return true;
+                }
+                rightRecords[state][rightCounts[state]++ % RECORDS_PER_STATE] = record;
+            } else if (head < leftmost) {
+                final Record record = new Record(tape, time, false);
+                if (matchesAny(tape, record, leftRecords[state], highest)) {
+                    return true;
+                }
+                leftRecords[state][leftCounts[state]++ % RECORDS_PER_STATE] = record;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the TM repeats what it did since one of the earlier records.
+     *
+     * @param tape The current tape, the head is on the new record.
+     * @param current The new record.
+     * @param earlier The earlier records in the same state at the same edge.
+     * @param history The extreme head positions in the opposite direction of the edge.
+     * @return {@code true} if the TM is proven to be a translated cycler.
+     */
+    private static boolean matchesAny(Tape tape, Record current, Record[] earlier,
+            HeadHistory history) {
+        for (Record record : earlier) {
+            if (record != null && record.repeatsUntil(tape, current, history)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A step in which the head visited a new cell at an edge of the visited part of the
+     * tape, together with the cells behind the head at that time.
+     */
+    private static final class Record {
+
+        /** The step in which the record was made. */
+        private final long time;
+
+        /** The index of the new cell. */
+        private final int head;
+
+        /** Whether the record was made at the right edge of the tape. */
+        private final boolean right;
+
+        /** The index of the first cell in {@link #cells}. */
+        private final int from;
+
+        /** The symbol ids of the cells behind the head, in ascending order of index. */
+        private final int[] cells;
+
+        /**
+         * Whether {@link #cells} reaches the opposite edge of the visited part of the
+         * tape. If so, all cells beyond were blank at the time of the record.
+         */
+        private final boolean complete;
+
+        /** The id of the blank symbol. */
+        private final int blankId;
+
+        /**
+         * Creates a record for the current configuration.
+         *
+         * @param tape The tape, the head has to be on the new cell.
+         * @param time The current step.
+         * @param right Whether the new cell is at the right edge.
+         */
+        Record(Tape tape, long time, boolean right) {
+            this.time = time;
+            this.head = tape.getHeadIndex();
+            this.right = right;
+            this.blankId = tape.blankId;
+
+            final long visited = (long) tape.getRightmostIndex() - tape.getLeftmostIndex() + 1;
+            final int length = (int) Math.min(MAX_WINDOW, visited);
+            this.complete = (length == visited);
+            this.from = right ? head - length + 1 : head;
+            this.cells = new int[length];
+
+            final PrimitiveIterator.OfInt ids = tape.ids(from, from + length);
+            for (int i = 0; i < length; i++) {
+                cells[i] = ids.nextInt();
+            }
+        }
+
+        /**
+         * Checks whether the cells the TM read since this record look the same relative
+         * to the head as the same cells at the time of this record.
+         *
+         * @param tape The current tape.
+         * @param current The current record, in the same state and at the same edge.
+         * @param history The extreme head positions in the opposite direction.
+         * @return {@code true} if the TM repeats the steps since this record forever.
+         */
+        boolean repeatsUntil(Tape tape, Record current, HeadHistory history) {
+            final int shift = current.head - head;
+            final long extreme = history.extremeSince(time);
+            final long lo = right ? extreme : head;
+            final long hi = right ? head : extreme;
+
+            if (!complete && (lo < from || hi >= from + cells.length)) {
+                return false;
+            }
+
+            final PrimitiveIterator.OfInt ids = tape.ids((int) lo + shift, (int) hi + shift + 1);
+            for (long index = lo; index <= hi; index++) {
+                final long offset = index - from;
+                final int then = (offset >= 0 && offset < cells.length)
+                        ? cells[(int) offset] : blankId;
+                if (then != ids.nextInt()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stores the head positions of a simulation so the lowest or highest position since
+     * any step can be queried. Only positions that are more extreme than all following
+     * ones are kept, so the stored positions are monotonic and can be binary searched.
+     */
+    private static final class HeadHistory {
+
+        /** Whether the lowest or the highest positions are tracked. */
+        private final boolean lowest;
+
+        /** The steps of the kept positions in ascending order. */
+        private long[] times = new long[64];
+
+        /** The kept positions. */
+        private int[] positions = new int[64];
+
+        /** The amount of kept positions. */
+        private int size = 0;
+
+        /**
+         * Creates a new empty history.
+         *
+         * @param lowest Whether the lowest or the highest positions are tracked.
+         */
+        HeadHistory(boolean lowest) {
+            this.lowest = lowest;
+        }
+
+        /**
+         * Adds the head position of the given step.
+         *
+         * @param time The step, which has to be greater than all added steps.
+         * @param position The head position after the step.
+         */
+        void add(long time, int position) {
+            while (size > 0 && (lowest ? positions[size - 1] >= position
+                                       : positions[size - 1] <= position)) {
+                size--;
+            }
+
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+
+            times[size] = time;
+            positions[size++] = position;
+        }
+
+        /**
+         * Returns the most extreme head position since the given step.
+         *
+         * @param time The first step that is considered.
+         * @return The lowest or highest head position since the step.
+         */
+        int extremeSince(long time) {
+            int low = 0;
+            int high = size - 1;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (times[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return positions[low];
+        }
+    }
+}
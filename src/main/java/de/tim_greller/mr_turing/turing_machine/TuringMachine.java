@@ -1,6 +1,12 @@
 package de.tim_greller.mr_turing.turing_machine;
 
 import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * An interface that defines how to interact with Turing machines. Implementations of this
@@ -96,6 +102,72 @@ public interface TuringMachine {
      */
     public void setBlankSymbol(BlankSymbol blank);
     
+    /**
+     * Sets the way the TM executes its steps when it is run. The execution mode only
+     * changes the speed of the TM, never its results.
+     * <p>
+     * The TM can only be modified when it is in its modifiable state.
+     * 
+     * @param mode The new execution mode.
+     */
+    public void setExecutionMode(ExecutionMode mode);
+    
+    /**
+     * Returns the way the TM executes its steps when it is run.
+     * 
+     * @return The current execution mode.
+     */
+    public ExecutionMode getExecutionMode();
+
+    /**
+     * Sets whether the transitions are simplified when the TM gets built. Unreachable
+     * states are removed, the transitions of states from which no accepting state can be
+     * reached are dropped and identical states are merged. The simplified TM accepts
+     * the same inputs, but can deny earlier and denies instead of running forever in
+     * states that cannot lead to acceptance.
+     * <p>
+     * The TM can only be modified when it is in its modifiable state.
+     *
+     * @param optimized Whether the transitions should be simplified.
+     */
+    public void setOptimized(boolean optimized);
+
+    /**
+     * Returns whether the transitions are simplified when the TM gets built.
+     *
+     * @return {@code true} if the TM is optimized.
+     */
+    public boolean isOptimized();
+
+    /**
+     * Returns what was simplified when the TM was built.
+     *
+     * @return The result of the analysis or {@code null} if the TM was not built with
+     *         optimization enabled.
+     */
+    public AnalysisResult getAnalysisResult();
+
+    /**
+     * Returns the definition of the TM as it was given, so the simplifications of an
+     * optimized TM are not part of it. Once the TM was built, the default initial and
+     * accepting states and blank symbol are part of it, if no others were set.
+     *
+     * @return The definition of the TM.
+     */
+    public MachineDefinition getDefinition();
+
+    /**
+     * Replaces the TM by a modifiable one with the given definition. This is equivalent
+     * to {@link #clear()} followed by setting each part of the definition, but the
+     * transitions are added in one operation. If the definition is rejected, the TM is
+     * not changed.
+     *
+     * @param definition The definition of the new TM.
+     * @throws IllegalArgumentException Thrown if the definition contains transitions
+     *                                  or initial states this TM does not accept.
+     */
+    public void define(MachineDefinition definition);
+
     /**
      * This blank symbol is used if no custom one was set.
      * 
@@ -123,6 +195,189 @@ public interface TuringMachine {
      */
     public void performStep();
     
+    /**
+     * If the Turing machine is running, this method performs calculation steps on it
+     * until it terminates or the given amount of steps was executed.
+     * <p>
+     * This is equivalent to calling {@link #performStep()} repeatedly, but allows the
+     * implementation to execute the steps in a tight loop.
+     * 
+     * @param maxSteps The maximum amount of steps that should be executed. {@code 0}
+     *                 signalizes no limitation.
+     * @return The outcome of the run.
+     */
+    public RunResult run(long maxSteps);
+    
+    /**
+     * Runs the Turing machine like {@link #run(long)}. If cycle detection is enabled,
+     * the run also stops as soon as a configuration of state, head position and tape
+     * content repeats exactly, because the TM would never terminate then. The start and
+     * period of the cycle are part of the result. Once the run took a while, the
+     * {@link NonHaltingDecider}s of this TM are consulted as well.
+     * <p>
+     * Consecutive runs with cycle detection continue the same observation, so a cycle
+     * may be reported that started before the current run. Then the start of the cycle
+     * in the result is negative.
+     * 
+     * @param maxSteps The maximum amount of steps that should be executed. {@code 0}
+     *                 signalizes no limitation.
+     * @param detectCycles Whether the run should stop when a cycle was found.
+     * @return The outcome of the run.
+     */
+    public RunResult run(long maxSteps, boolean detectCycles);
+    
+    /**
+     * Runs the Turing machine on each of the given input words, starting in its initial
+     * configuration. The TM itself is not changed, so it has to be built, but its input
+     * and current configuration are ignored.
+     * 
+     * @param inputs The input words.
+     * @param maxSteps The maximum amount of steps per input word. {@code 0} signalizes
+     *                 no limitation.
+     * @param listener Receives the outcome of each input word as soon as it is complete.
+     *                 It may be called from multiple threads at once.
+     * @return The counts of the outcomes.
+     */
+    public default BatchResult evaluate(List<String> inputs, long maxSteps, 
+            Consumer<Evaluation> listener) {
+        return evaluate(inputs, maxSteps, listener, () -> false);
+    }
+    
+    /**
+     * Runs the Turing machine on each of the given input words like
+     * {@link #evaluate(List, long, Consumer)}, but stops as soon as possible once the
+     * evaluation was cancelled.
+     * 
+     * @param inputs The input words.
+     * @param maxSteps The maximum amount of steps per input word. {@code 0} signalizes
+     *                 no limitation.
+     * @param listener Receives the outcome of each input word as soon as it is complete.
+     *                 It may be called from multiple threads at once.
+     * @param cancelled Returns whether the evaluation was cancelled. It is checked
+     *                  regularly from multiple threads at once.
+     * @return The counts of the outcomes.
+     * @throws CancellationException Thrown if the evaluation was cancelled before it
+     *                               completed.
+     */
+    public BatchResult evaluate(List<String> inputs, long maxSteps, 
+            Consumer<Evaluation> listener, BooleanSupplier cancelled);
+    
+    /**
+     * Runs the Turing machine on every word over the given alphabet up to the given
+     * length, starting in its initial configuration each time. The words are generated
+     * in shortlex order while they are evaluated, so they are never stored all at once.
+     * The TM itself is not changed, so it has to be built, but its input and current
+     * configuration are ignored.
+     * 
+     * @param alphabet The symbols of the words, in the order they should be enumerated
+     *                 in.
+     * @param maxLength The maximum length of the words.
+     * @param maxSteps The maximum amount of steps per word. {@code 0} signalizes no
+     *                 limitation.
+     * @param reference The language the TM should decide or {@code null} if the
+     *                  outcomes should not be compared. It may be called from multiple
+     *                  threads at once.
+     * @param maxSamples The maximum amount of accepted words and counterexamples that
+     *                   are kept in the result.
+     * @return The counts of the outcomes per length and the first accepted words and
+     *         counterexamples.
+     */
+    public default EnumerationResult enumerate(String alphabet, int maxLength, 
+            long maxSteps, Predicate<String> reference, int maxSamples) {
+        return enumerate(alphabet, maxLength, maxSteps, reference, maxSamples, 
+                () -> false);
+    }
+    
+    /**
+     * Runs the Turing machine on every word over the given alphabet up to the given
+     * length like {@link #enumerate(String, int, long, Predicate, int)}, but stops as
+     * soon as possible once the enumeration was cancelled.
+     * 
+     * @param alphabet The symbols of the words, in the order they should be enumerated
+     *                 in.
+     * @param maxLength The maximum length of the words.
+     * @param maxSteps The maximum amount of steps per word. {@code 0} signalizes no
+     *                 limitation.
+     * @param reference The language the TM should decide or {@code null} if the
+     *                  outcomes should not be compared. It may be called from multiple
+     *                  threads at once.
+     * @param maxSamples The maximum amount of accepted words and counterexamples that
+     *                   are kept in the result.
+     * @param cancelled Returns whether the enumeration was cancelled. It is checked
+     *                  regularly from multiple threads at once.
+     * @return The counts of the outcomes per length and the first accepted words and
+     *         counterexamples.
+     * @throws CancellationException Thrown if the enumeration was cancelled before it
+     *                               completed.
+     */
+    public EnumerationResult enumerate(String alphabet, int maxLength, long maxSteps,
+            Predicate<String> reference, int maxSamples, BooleanSupplier cancelled);
+    
+    /**
+     * Returns the amount of calculation steps the TM performed since it was built.
+     * 
+     * @return The current step count.
+     */
+    public long getStepCount();
+    
+    /**
+     * Brings the Turing machine back to the configuration it was in the given amount of
+     * steps ago. Everything that happened after that configuration is forgotten.
+     * 
+     * @param steps The amount of steps to go back.
+     */
+    public void stepBack(long steps);
+    
+    /**
+     * Brings the Turing machine back to the configuration it was in after the given
+     * amount of steps since it was built. Everything that happened after that
+     * configuration is forgotten.
+     * 
+     * @param step The step count of the configuration.
+     */
+    public void seek(long step);
+    
+    /**
+     * Returns the current configuration of the TM, so it can be restored later using
+     * {@link #setConfiguration(MachineConfiguration)}.
+     * 
+     * @return The configuration or {@code null} if this TM cannot restore its
+     *         configurations directly.
+     * @throws IllegalStateException Thrown if the TM was not built.
+     */
+    public MachineConfiguration getConfiguration();
+    
+    /**
+     * Brings the built TM into the given configuration, which was read from a TM with
+     * the same definition, without repeating the steps that led to it. The remembered
+     * past configurations are forgotten.
+     * 
+     * @param configuration The configuration.
+     * @throws IllegalStateException Thrown if the TM was not built or cannot restore
+     *                               configurations.
+     * @throws IllegalArgumentException Thrown if the configuration contains states or
+     *                                  symbols this TM does not know.
+     */
+    public void setConfiguration(MachineConfiguration configuration);
+    
+    /**
+     * Adds a {@link NonHaltingDecider} which is consulted by runs with cycle detection.
+     * The default deciders of {@link NonHaltingDecider#createDefaults()} are always
+     * present.
+     * 
+     * @param decider The decider that should be added.
+     */
+    public void addNonHaltingDecider(NonHaltingDecider decider);
+    
+    /**
+     * Creates an independent copy of this Turing machine in its current configuration.
+     * Performing steps on or modifying one of the machines does not affect the other
+     * one, so the copy can be used to explore what happens without changing this TM.
+     * 
+     * @return The copy of this TM.
+     */
+    public TuringMachine fork();
+    
     /**
      * Returns a stack containing the symbols currently stored on the tape.
      * 
@@ -130,6 +385,36 @@ public interface TuringMachine {
      */
     public Deque<Symbol> getTapeContent();
     
+    /**
+     * Returns a lazy stream of the symbols currently stored on the tape, ordered from
+     * left to right. Unlike {@link #getTapeContent()}, the content is not copied. The TM
+     * must not perform steps while the stream is consumed.
+     * 
+     * @return The content of the TMs tape as stream.
+     */
+    public Stream<Symbol> streamTapeContent();
+    
+    /**
+     * Returns a lazy stream of the symbols in the given range of cells of the tape.
+     * Cells that were never visited are returned as blank symbols. The TM must not
+     * perform steps while the stream is consumed.
+     * 
+     * @param from The index of the first cell (inclusive).
+     * @param to The index after the last cell (exclusive).
+     * @return The symbols of the cells in the range ordered from left to right.
+     */
+    public Stream<Symbol> streamTapeContent(int from, int to);
+    
+    /**
+     * Appends the content of the tape directly to the given builder. Each symbol will be
+     * shown ordered from left to right and separated by the given separator. The
+     * separator will also appear as the pre- and suffix.
+     * 
+     * @param builder The builder to which the tapes content is appended.
+     * @param separator The separator between each symbol.
+     */
+    public void appendTapeContent(StringBuilder builder, String separator);
+    
     /**
      * The position of the head on the tape.
      * 
@@ -137,6 +422,22 @@ public interface TuringMachine {
      */
     public int getHeadIndex();
     
+    /**
+     * The index of the most left cell that was visited by the head or written by the
+     * input.
+     * 
+     * @return The index of the most left visited cell.
+     */
+    public int getLeftmostIndex();
+    
+    /**
+     * The index of the most right cell that was visited by the head or written by the
+     * input.
+     * 
+     * @return The index of the most right visited cell.
+     */
+    public int getRightmostIndex();
+    
     /**
      * The current state of the TM.
      * 
@@ -0,0 +1,97 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import discord4j.common.util.Snowflake;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Dispatches commands that record when they run and checks the order of the commands of
+ * one channel and the parallelism between channels.
+ */
+class ChannelDispatcherTest {
+
+    /** The amount of commands per channel. */
+    private static final int COMMANDS = 50;
+
+    /** The time after which a test fails if its commands did not complete. */
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void commandsOfOneChannelRunInOrder() {
+        final ChannelDispatcher dispatcher = new ChannelDispatcher(Schedulers.parallel());
+        final Snowflake channel = Snowflake.of(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+
+        final List<Mono<Void>> completions = new ArrayList<>();
+        for (int i = 0; i < COMMANDS; i++) {
+            final int command = i;
+            // The publishers complete asynchronously, so the next command would overlap
+            // if the dispatcher did not wait for them.
+            completions.add(dispatcher.dispatch(channel, () -> Mono.fromRunnable(() -> {
+                assertEquals(1, running.incrementAndGet());
+                order.add(command);
+            }).then(Mono.delay(Duration.ofMillis(1)))
+                    .doOnSuccess(ignored -> running.decrementAndGet())));
+        }
+        Flux.merge(completions).blockLast(TIMEOUT);
+
+        assertEquals(COMMANDS, order.size());
+        for (int i = 0; i < COMMANDS; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void channelsRunInParallel() throws InterruptedException {
+        final ChannelDispatcher dispatcher =
+                new ChannelDispatcher(Schedulers.boundedElastic());
+        final CountDownLatch second = new CountDownLatch(1);
+
+        // The first command only completes once the command of the other channel ran.
+        final Mono<Void> blocked = dispatcher.dispatch(Snowflake.of(1), () ->
+                Mono.fromCallable(() -> second.await(TIMEOUT.toMillis(),
+                        TimeUnit.MILLISECONDS)).doOnNext(released -> assertTrue(released,
+                        "the other channel was not executed in parallel")));
+        final Mono<Void> other = dispatcher.dispatch(Snowflake.of(2),
+                () -> Mono.fromRunnable(second::countDown));
+
+        Flux.merge(blocked, other).blockLast(TIMEOUT);
+        assertEquals(0, second.getCount());
+    }
+
+    @Test
+    void failingCommandsDoNotBlockTheChannel() {
+        final ChannelDispatcher dispatcher = new ChannelDispatcher(Schedulers.parallel());
+        final Snowflake channel = Snowflake.of(1);
+        final AtomicInteger executed = new AtomicInteger();
+
+        final Mono<Void> thrown = dispatcher.dispatch(channel, () -> {
+            throw new IllegalStateException("thrown");
+        });
+        final Mono<Void> failed = dispatcher.dispatch(channel,
+                () -> Mono.error(new IllegalStateException("failed")));
+        final Mono<Void> next = dispatcher.dispatch(channel,
+                () -> Mono.fromRunnable(executed::incrementAndGet));
+
+        assertThrows(IllegalStateException.class, () -> thrown.block(TIMEOUT));
+        assertThrows(IllegalStateException.class, () -> failed.block(TIMEOUT));
+        next.block(TIMEOUT);
+        assertEquals(1, executed.get());
+    }
+}
@@ -0,0 +1,102 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.tim_greller.mr_turing.turing_machine.DeterministicTuringMachine;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * Parses definition scripts with {@link DefinitionParser}.
+ */
+class DefinitionParserTest {
+
+    @Test
+    void definitionAndCommandsAreSeparated() throws Exception {
+        final DefinitionParser.Script script = parse("```\n"
+                + "// Inverts the input.\n"
+                + "new\n"
+                + "add (S, 0) -> (S, 1, R)\n"
+                + "add (S,1)->(S,0,R) // trailing comment\n"
+                + "add (S, _) -> (F, _, N)\n"
+                + "input \"0110\"\n"
+                + "accept F, G\n"
+                + "mode rle\n"
+                + "build\n"
+                + "run\n"
+                + "```");
+
+        assertTrue(script.isReplacing());
+        assertEquals(List.of("build", "run"), script.getCommands());
+
+        final MachineDefinition definition =
+                script.applyTo(new DeterministicTuringMachine().getDefinition());
+        assertEquals(3, definition.getTransitions().size());
+        assertEquals(TapeMove.RIGHT, definition.getTransitions().get(1).tapeMotion);
+        assertEquals("0110", definition.getInput());
+        assertEquals(List.of(new State("F"), new State("G")),
+                definition.getAcceptingStates());
+        assertEquals(ExecutionMode.RUN_LENGTH, definition.getExecutionMode());
+    }
+
+    @Test
+    void scriptWithoutNewExtendsTheMachine() throws Exception {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        tm.define(parse("add (S, 0) -> (S, 1, R)").applyTo(tm.getDefinition()));
+
+        final DefinitionParser.Script script = parse("add (S, 1) -> (S, 0, R)");
+        assertFalse(script.isReplacing());
+        assertEquals(2, script.applyTo(tm.getDefinition()).getTransitions().size());
+    }
+
+    @Test
+    void errorsAreReportedWithLineAndColumn() {
+        final InvalidCommandSyntaxException e = assertThrows(
+                InvalidCommandSyntaxException.class,
+                () -> parse("new\n"
+                        + "add (S, 0 -> (S, 1, R)\n"
+                        + "add (S, 1) -> (S, 0, X)\n"
+                        + "  add (S, 1) -> (S, 0, R)\n"
+                        + "  add (S, 1) -> (S, 0, R)\n"
+                        + "mode turbo\n"));
+
+        final String[] lines = e.getMessage().split("\n");
+        assertEquals("The script contains 4 errors:", lines[0]);
+        assertEquals("Line 2, column 11: Expected \")\".", lines[1]);
+        assertTrue(lines[2].startsWith("Line 3, column 22: Unknown tape motion \"X\"."));
+        assertEquals("Line 5, column 3: This transition was already added.", lines[3]);
+        assertTrue(lines[4].startsWith("Line 6, column 6: "));
+    }
+
+    @Test
+    void linesAfterTheFirstCommandAreNotParsed() throws Exception {
+        final DefinitionParser.Script script = parse("build\nadd (broken");
+        assertFalse(script.changesDefinition());
+        assertEquals(List.of("build", "add (broken"), script.getCommands());
+    }
+
+    /**
+     * Parses a script.
+     *
+     * @param script The script.
+     * @return The parsed script.
+     * @throws IOException Never, because the script is read from a string.
+     * @throws InvalidCommandSyntaxException Thrown if the script contains errors.
+     */
+    private static DefinitionParser.Script parse(String script)
+            throws IOException, InvalidCommandSyntaxException {
+        return DefinitionParser.parse(new StringReader(script));
+    }
+}
@@ -0,0 +1,169 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.tim_greller.mr_turing.turing_machine.BlankSymbol;
+import de.tim_greller.mr_turing.turing_machine.DeterministicTuringMachine;
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.MachineDefinition;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+
+/**
+ * Encodes machines with {@link MachineArchive} and checks that they are decoded
+ * unchanged and that invalid files are rejected.
+ */
+class MachineArchiveTest {
+
+    @Test
+    void unbuiltMachineRoundTrips() throws IOException {
+        final TuringMachine tm = incrementer();
+        tm.setBlankSymbol(new BlankSymbol("_"));
+        tm.setAcceptingStates(new State("F"), new State("G"));
+        tm.setExecutionMode(ExecutionMode.RUN_LENGTH);
+        tm.setOptimized(true);
+
+        final MachineArchive archive =
+                MachineArchive.fromBytes(MachineArchive.of(tm).toBytes());
+        final MachineDefinition expected = tm.getDefinition();
+        final MachineDefinition actual = archive.getDefinition();
+
+        assertEquals(expected.getTransitions(), actual.getTransitions());
+        assertEquals(expected.getInitialStates(), actual.getInitialStates());
+        assertEquals(expected.getAcceptingStates(), actual.getAcceptingStates());
+        assertEquals(expected.getBlankSymbol(), actual.getBlankSymbol());
+        assertEquals(expected.getInput(), actual.getInput());
+        assertEquals(expected.getExecutionMode(), actual.getExecutionMode());
+        assertEquals(expected.isOptimized(), actual.isOptimized());
+        assertEquals(-1, archive.getSteps());
+    }
+
+    @Test
+    void builtMachineIsRestored() throws IOException {
+        final TuringMachine tm = incrementer();
+        tm.build();
+        tm.run(5);
+
+        final TuringMachine restored = new DeterministicTuringMachine();
+        MachineArchive.fromBytes(MachineArchive.of(tm).toBytes()).applyTo(restored);
+
+        assertEquals(tm.getStepCount(), restored.getStepCount());
+        assertEquals(tm.getCurrentState(), restored.getCurrentState());
+        assertEquals(tm.getHeadIndex(), restored.getHeadIndex());
+        assertEquals(tape(tm), tape(restored));
+        assertEquals(tm.getConfiguration(), restored.getConfiguration());
+    }
+
+    @Test
+    void longRunIsStoredAsItsConfiguration() throws IOException {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        MachineStoreTest.define(tm);
+        tm.build();
+        tm.run(1_000_000);
+
+        final byte[] bytes = MachineArchive.of(tm).toBytes();
+        final MachineArchive archive = MachineArchive.fromBytes(bytes);
+        assertEquals(tm.getConfiguration(), archive.getConfiguration());
+        assertEquals(1_000_000, archive.getSteps());
+        assertTrue(bytes.length < 1_000, "The tape is stored as runs.");
+
+        final TuringMachine restored = new DeterministicTuringMachine();
+        archive.applyTo(restored);
+        assertEquals(tm.getConfiguration(), restored.getConfiguration());
+
+        tm.run(1_000);
+        restored.run(1_000);
+        assertEquals(tm.getConfiguration(), restored.getConfiguration());
+    }
+
+    @Test
+    void encodingIsStable() throws IOException {
+        final byte[] bytes = MachineArchive.of(incrementer()).toBytes();
+        assertArrayEquals(bytes, MachineArchive.fromBytes(bytes).toBytes());
+    }
+
+    @Test
+    void invalidFilesAreRejected() {
+        final byte[] bytes = MachineArchive.of(incrementer()).toBytes();
+
+        assertThrows(IOException.class, () -> MachineArchive.fromBytes(new byte[0]));
+        assertThrows(IOException.class,
+                () -> MachineArchive.fromBytes("no machine".getBytes()));
+        assertThrows(IOException.class,
+                () -> MachineArchive.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IOException.class,
+                () -> MachineArchive.fromBytes(Arrays.copyOf(bytes, bytes.length + 1)));
+
+        final byte[] version = bytes.clone();
+        version[Integer.BYTES]++;
+        assertThrows(IOException.class, () -> MachineArchive.fromBytes(version));
+    }
+
+    @Test
+    void conflictingTransitionsAreRejected() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        final MachineDefinition definition = new MachineDefinition(
+                List.of(transition("S", "1", "S", "1", TapeMove.RIGHT),
+                        transition("S", "1", "F", "0", TapeMove.LEFT)),
+                List.of(), List.of(), null, "", ExecutionMode.INTERPRETED, false);
+
+        assertThrows(IllegalArgumentException.class, () -> tm.define(definition));
+    }
+
+    /**
+     * Creates an unbuilt machine that increments the binary number of its input.
+     *
+     * @return The machine.
+     */
+    private static TuringMachine incrementer() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        tm.addTransition(transition("S", "0", "S", "0", TapeMove.RIGHT));
+        tm.addTransition(transition("S", "1", "S", "1", TapeMove.RIGHT));
+        tm.addTransition(transition("S", "_", "Q", "_", TapeMove.LEFT));
+        tm.addTransition(transition("Q", "0", "F", "1", TapeMove.NONE));
+        tm.addTransition(transition("Q", "1", "Q", "0", TapeMove.LEFT));
+        tm.addTransition(transition("Q", "_", "F", "1", TapeMove.NONE));
+        tm.setInput("1011");
+        return tm;
+    }
+
+    /**
+     * Creates a transition.
+     *
+     * @param state The current state.
+     * @param scanned The scanned symbol.
+     * @param next The next state.
+     * @param print The printed symbol.
+     * @param move The tape motion.
+     * @return The transition.
+     */
+    private static Transition transition(String state, String scanned, String next,
+            String print, TapeMove move) {
+        return new Transition(new State(state), new Symbol(scanned), new Symbol(print),
+                move, new State(next));
+    }
+
+    /**
+     * Returns the content of the tape of a machine.
+     *
+     * @param tm The machine.
+     * @return The symbols of the tape separated by spaces.
+     */
+    private static String tape(TuringMachine tm) {
+        final StringBuilder tape = new StringBuilder();
+        tm.appendTapeContent(tape, " ");
+        return tape.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+import reactor.core.Disposable;
+
+/**
+ * Acquires machines from a {@link MachineCache}, spills them and loads them again.
+ */
+class MachineCacheTest {
+
+    /** The channel whose machine is loaded slowly. */
+    private static final Snowflake SLOW = Snowflake.of(1);
+
+    /** Another channel. */
+    private static final Snowflake OTHER = Snowflake.of(2);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledMachineIsLoadedAgain() {
+        final MachineCache cache = new MachineCache(new MachineStore(directory), 1,
+                Long.MAX_VALUE, Duration.ofDays(1));
+        final TuringMachine tm = cache.acquire(SLOW);
+        MachineStoreTest.define(tm);
+        tm.build();
+        tm.run(5_000);
+        final long steps = tm.getStepCount();
+        cache.release(SLOW);
+
+        cache.acquire(OTHER);
+        cache.release(OTHER);
+        assertEquals(1, cache.size());
+
+        final TuringMachine loaded = cache.acquire(SLOW);
+        assertNotSame(tm, loaded);
+        assertEquals(steps, loaded.getStepCount());
+        cache.release(SLOW);
+    }
+
+    @Test
+    void idleMachineIsSweptWithoutAcquiring() {
+        final MachineCache cache = new MachineCache(new MachineStore(directory), 8,
+                Long.MAX_VALUE, Duration.ofMillis(50));
+        MachineStoreTest.define(cache.acquire(SLOW));
+        cache.release(SLOW);
+        cache.acquire(OTHER);
+
+        final Path snapshot = directory.resolve(SLOW.asString() + ".snapshot");
+        final Disposable sweeping = cache.startSweeping(Duration.ofMillis(10));
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (!Files.exists(snapshot)) {
+                    Thread.sleep(10);
+                }
+            });
+        } finally {
+            sweeping.dispose();
+        }
+
+        // Loading the spilled machine again waits until the sweep completed.
+        final TuringMachine loaded = cache.acquire(SLOW);
+        assertEquals(7, loaded.getDefinition().getTransitions().size());
+        assertEquals(2, cache.size());
+        cache.release(SLOW);
+        cache.release(OTHER);
+    }
+
+    @Test
+    void loadingDoesNotBlockOtherChannels() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final MachineStore store = new MachineStore(directory) {
+            @Override
+            JournaledTuringMachine open(Snowflake channel) {
+                if (channel.equals(SLOW)) {
+                    loading.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.open(channel);
+            }
+        };
+        final MachineCache cache =
+                new MachineCache(store, 8, Long.MAX_VALUE, Duration.ofDays(1));
+
+        final CompletableFuture<TuringMachine> first =
+                CompletableFuture.supplyAsync(() -> cache.acquire(SLOW));
+        final CompletableFuture<TuringMachine> second =
+                CompletableFuture.supplyAsync(() -> cache.acquire(SLOW));
+        loading.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            cache.acquire(OTHER);
+            cache.release(OTHER);
+        });
+
+        proceed.countDown();
+        assertSame(first.get(), second.get());
+        assertEquals(2, cache.size());
+    }
+}
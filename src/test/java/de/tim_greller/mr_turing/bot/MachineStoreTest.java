@@ -0,0 +1,165 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tim_greller.mr_turing.turing_machine.ExecutionMode;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+
+/**
+ * Stores machines with a {@link MachineStore} and loads them again, from the journal and
+ * from the snapshot.
+ */
+class MachineStoreTest {
+
+    /** The channel the machines belong to. */
+    private static final Snowflake CHANNEL = Snowflake.of(42);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void runningMachineIsRestoredFromTheJournal() throws IOException {
+        final JournaledTuringMachine tm = new MachineStore(directory).open(CHANNEL);
+        define(tm);
+        tm.build();
+        tm.run(10_000);
+        tm.performStep();
+        tm.stepBack(3);
+        tm.close();
+
+        final JournaledTuringMachine loaded = new MachineStore(directory).open(CHANNEL);
+        assertEquals(tm.getConfiguration(), loaded.getConfiguration());
+        assertEquals(tm.getDefinition().getTransitions(),
+                loaded.getDefinition().getTransitions());
+    }
+
+    @Test
+    void runningMachineIsRestoredFromTheSnapshot() throws IOException {
+        final JournaledTuringMachine tm = new MachineStore(directory).open(CHANNEL);
+        define(tm);
+        tm.build();
+        tm.run(12_345);
+        tm.spill();
+
+        final JournaledTuringMachine loaded = new MachineStore(directory).open(CHANNEL);
+        assertEquals(tm.getConfiguration(), loaded.getConfiguration());
+
+        // Restarting drops the stored configuration.
+        loaded.restart();
+        loaded.close();
+        assertEquals(0, new MachineStore(directory).open(CHANNEL).getStepCount());
+    }
+
+    @Test
+    void stepsAreJournaledWithoutTheTape() throws IOException {
+        final JournaledTuringMachine tm = new MachineStore(directory).open(CHANNEL);
+        define(tm);
+        tm.build();
+        tm.run(100_000);
+        final long sizeBefore = Files.size(journal());
+        for (int i = 0; i < 100; i++) {
+            tm.performStep();
+        }
+        tm.close();
+
+        // Each step only appends its step count.
+        assertTrue(Files.size(journal()) - sizeBefore <= 100 * 16);
+        final JournaledTuringMachine loaded = new MachineStore(directory).open(CHANNEL);
+        assertEquals(tm.getConfiguration(), loaded.getConfiguration());
+    }
+
+    @Test
+    void journalIsTruncatedAtAMutationThatCannotBeReplayed() throws IOException {
+        final MachineStore store = new MachineStore(directory);
+        final JournaledTuringMachine tm = store.open(CHANNEL);
+        define(tm);
+        tm.close();
+        final long valid = Files.size(journal());
+
+        try (DataOutputStream out = store.openJournal(CHANNEL, 0)) {
+            Mutation.of(Mutation.Type.SET_EXECUTION_MODE, "UNKNOWN").write(out);
+            Mutation.of(Mutation.Type.BUILD).write(out);
+        }
+
+        final JournaledTuringMachine loaded = new MachineStore(directory).open(CHANNEL);
+        assertEquals(tm.getDefinition().getTransitions(),
+                loaded.getDefinition().getTransitions());
+        assertTrue(loaded.isUnbuilt());
+        assertEquals(valid, Files.size(journal()));
+    }
+
+    @Test
+    void failedJournalIsReplacedBySnapshot() throws IOException {
+        final JournaledTuringMachine tm = new MachineStore(directory).open(CHANNEL);
+        define(tm);
+        tm.close();
+        Files.delete(journal());
+        Files.createDirectory(journal());
+
+        // Neither the journal nor the snapshot can be completed.
+        assertThrows(IllegalStateException.class, tm::build);
+        Files.delete(journal());
+        tm.run(1_000);
+        tm.close();
+
+        final JournaledTuringMachine loaded = new MachineStore(directory).open(CHANNEL);
+        assertEquals(1_000, loaded.getStepCount());
+        assertEquals(tm.getConfiguration(), loaded.getConfiguration());
+    }
+
+    /**
+     * Returns the journal file of the channel.
+     *
+     * @return The path of the journal.
+     */
+    private Path journal() {
+        return directory.resolve(CHANNEL.asString() + ".journal");
+    }
+
+    /**
+     * Defines a binary counter that counts upwards forever in the run length mode.
+     *
+     * @param tm The machine.
+     */
+    static void define(TuringMachine tm) {
+        tm.addTransition(transition("S", "_", "_", TapeMove.LEFT, "C"));
+        tm.addTransition(transition("C", "1", "0", TapeMove.LEFT, "C"));
+        tm.addTransition(transition("C", "0", "1", TapeMove.RIGHT, "R"));
+        tm.addTransition(transition("C", "_", "1", TapeMove.RIGHT, "R"));
+        tm.addTransition(transition("R", "0", "0", TapeMove.RIGHT, "R"));
+        tm.addTransition(transition("R", "1", "1", TapeMove.RIGHT, "R"));
+        tm.addTransition(transition("R", "_", "_", TapeMove.LEFT, "C"));
+        tm.setExecutionMode(ExecutionMode.RUN_LENGTH);
+    }
+
+    /**
+     * Creates a transition.
+     *
+     * @param state The current state.
+     * @param scanned The scanned symbol.
+     * @param print The printed symbol.
+     * @param move The tape motion.
+     * @param next The next state.
+     * @return The transition.
+     */
+    private static Transition transition(String state, String scanned, String print,
+            TapeMove move, String next) {
+        return new Transition(new State(state), new Symbol(scanned), new Symbol(print),
+                move, new State(next));
+    }
+}
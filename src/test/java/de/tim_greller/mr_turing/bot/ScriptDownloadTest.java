@@ -0,0 +1,68 @@
+package de.tim_greller.mr_turing.bot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Downloads attached scripts from a local server, which does not announce their sizes.
+ */
+class ScriptDownloadTest {
+
+    /** The size of the chunks the server sends. */
+    private static final int CHUNK = 1 << 16;
+
+    /** Serves a small script and an endless one. */
+    private DisposableServer server;
+
+    @BeforeEach
+    void startServer() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/small", (request, response) ->
+                                response.sendByteArray(Flux.just(new byte[] {1, 2, 3})))
+                        .get("/endless", (request, response) ->
+                                response.sendByteArray(Flux.generate(
+                                        sink -> sink.next(new byte[CHUNK])))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.disposeNow();
+    }
+
+    @Test
+    void scriptWithinTheLimitIsDownloaded() {
+        assertArrayEquals(new byte[] {1, 2, 3},
+                Bot.download(url("/small"), 3).block(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void downloadStopsAtTheLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Bot.download(url("/endless"), 8 * CHUNK)
+                        .block(Duration.ofSeconds(10)));
+    }
+
+    /**
+     * Returns the URL of a path on the server.
+     *
+     * @param path The path.
+     * @return The URL.
+     */
+    private String url(String path) {
+        return "http://localhost:" + server.port() + path;
+    }
+}
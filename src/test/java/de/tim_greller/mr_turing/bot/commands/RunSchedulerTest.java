@@ -0,0 +1,268 @@
+package de.tim_greller.mr_turing.bot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.tim_greller.mr_turing.turing_machine.BatchResult;
+import de.tim_greller.mr_turing.turing_machine.DeterministicTuringMachine;
+import de.tim_greller.mr_turing.turing_machine.RunResult;
+import de.tim_greller.mr_turing.turing_machine.State;
+import de.tim_greller.mr_turing.turing_machine.Symbol;
+import de.tim_greller.mr_turing.turing_machine.TapeMove;
+import de.tim_greller.mr_turing.turing_machine.Transition;
+import de.tim_greller.mr_turing.turing_machine.TuringMachine;
+import discord4j.common.util.Snowflake;
+
+/**
+ * Executes runs and jobs with a {@link RunScheduler} and checks that they count against
+ * the quotas, can be cancelled, stop at their limits and report their progress.
+ */
+class RunSchedulerTest {
+
+    /** The server of the runs. */
+    private static final Snowflake GUILD = Snowflake.of(1);
+
+    /** The channel of the runs. */
+    private static final Snowflake CHANNEL = Snowflake.of(2);
+
+    /** The time after which a test fails. */
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void runStopsAtTheStepLimit() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+
+        final ScheduledRun run = scheduler.submit(GUILD, CHANNEL, counter(), 10_500)
+                .block(TIMEOUT);
+
+        assertEquals(ScheduledRun.Stop.STEP_LIMIT, run.getStop());
+        assertEquals(10_500, run.getResult().getSteps());
+        assertNull(scheduler.getProgress(CHANNEL));
+    }
+
+    @Test
+    void runReportsProgressAndCanBeCancelled() throws Exception {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = counter();
+
+        final CompletableFuture<ScheduledRun> pending =
+                scheduler.submit(GUILD, CHANNEL, tm, 0).toFuture();
+        ScheduledRun.Progress progress;
+        while ((progress = scheduler.getProgress(CHANNEL)) == null && !pending.isDone()) {
+            Thread.sleep(1);
+        }
+        assertFalse(pending.isDone());
+        assertTrue(progress.getSteps() >= 1_000);
+        assertEquals(0, progress.getSteps() % 1_000);
+        assertNotNull(progress.getState());
+
+        assertEquals(1, scheduler.getUsage(GUILD).getRuns());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.submit(GUILD, Snowflake.of(3), counter(), 0));
+
+        assertTrue(scheduler.cancel(CHANNEL));
+        final ScheduledRun run = pending.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertEquals(ScheduledRun.Stop.CANCELLED, run.getStop());
+        assertEquals(run.getResult().getSteps(), tm.getStepCount());
+        assertFalse(scheduler.cancel(CHANNEL));
+        assertEquals(0, scheduler.getUsage(GUILD).getRuns());
+        assertTrue(scheduler.getUsage(GUILD).getUsed().toNanos() > 0);
+    }
+
+    @Test
+    void exhaustedQuotaRejectsRuns() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMillis(100), Duration.ofHours(1));
+
+        final ScheduledRun run =
+                scheduler.submit(GUILD, CHANNEL, counter(), 0).block(TIMEOUT);
+
+        assertEquals(ScheduledRun.Stop.QUOTA, run.getStop());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.submit(GUILD, CHANNEL, counter(), 0));
+        // Other servers have their own quotas.
+        scheduler.submit(Snowflake.of(3), CHANNEL, counter(), 1_000).block(TIMEOUT);
+    }
+
+    @Test
+    void runStopsAtTheTimeLimit() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMillis(200),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+
+        final ScheduledRun run =
+                scheduler.submit(GUILD, CHANNEL, counter(), 0).block(TIMEOUT);
+
+        assertEquals(ScheduledRun.Stop.TIME_LIMIT, run.getStop());
+        assertTrue(run.getResult().getSteps() > 0);
+    }
+
+    @Test
+    void jobEmitsItsResult() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = walker();
+
+        final ScheduledJob<BatchResult> job = scheduler.submitJob(GUILD, CHANNEL,
+                cancelled -> tm.evaluate(Collections.nCopies(100, ""), 1_000,
+                        evaluation -> { }, cancelled))
+                .block(TIMEOUT);
+
+        assertEquals(ScheduledRun.Stop.TERMINATED, job.getStop());
+        assertEquals(100, job.getResult().getUnfinished());
+        assertEquals(0, scheduler.getUsage(GUILD).getRuns());
+        assertTrue(scheduler.getUsage(GUILD).getUsed().toNanos() > 0);
+    }
+
+    @Test
+    void jobCountsAsRunAndCanBeCancelled() throws Exception {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = walker();
+        final List<String> inputs = Collections.nCopies(1_000_000, "");
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CompletableFuture<ScheduledJob<BatchResult>> pending =
+                scheduler.submitJob(GUILD, CHANNEL, cancelled -> tm.evaluate(inputs,
+                        1_000_000, evaluation -> started.countDown(), cancelled))
+                        .toFuture();
+        started.await();
+
+        assertEquals(1, scheduler.getUsage(GUILD).getRuns());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.submitJob(GUILD, Snowflake.of(3), cancelled -> null));
+        assertNull(scheduler.getProgress(CHANNEL));
+
+        assertTrue(scheduler.cancel(CHANNEL));
+        final ScheduledJob<BatchResult> job =
+                pending.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertEquals(ScheduledRun.Stop.CANCELLED, job.getStop());
+        assertNull(job.getResult());
+        assertFalse(scheduler.cancel(CHANNEL));
+        assertEquals(0, scheduler.getUsage(GUILD).getRuns());
+    }
+
+    @Test
+    void jobStopsAtTheTimeLimit() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMillis(200),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = walker();
+
+        final ScheduledJob<BatchResult> job = scheduler.submitJob(GUILD, CHANNEL,
+                cancelled -> tm.evaluate(Collections.nCopies(1_000_000, ""), 1_000_000,
+                        evaluation -> { }, cancelled))
+                .block(TIMEOUT);
+
+        assertEquals(ScheduledRun.Stop.TIME_LIMIT, job.getStop());
+        assertTrue(job.getExecutionNanos() < TIMEOUT.toNanos());
+    }
+
+    @Test
+    void jobComputesOnAPoolOfTheSchedulerSize() {
+        final RunScheduler scheduler = new RunScheduler(3, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+
+        final ScheduledJob<Integer> job = scheduler.submitJob(GUILD, CHANNEL,
+                cancelled -> ForkJoinTask.getPool().getParallelism()).block(TIMEOUT);
+
+        assertEquals(3, job.getResult());
+        assertEquals(job.getCpuNanos(), scheduler.getUsage(GUILD).getUsed().toNanos());
+    }
+
+    @Test
+    void cancellationStopsRunningEvaluations() throws Exception {
+        final RunScheduler scheduler = new RunScheduler(2, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = walker();
+        final CountDownLatch started = new CountDownLatch(1);
+
+        // The runs have no step limit, so only the cancellation can stop them.
+        final CompletableFuture<ScheduledJob<BatchResult>> pending =
+                scheduler.submitJob(GUILD, CHANNEL, cancelled -> {
+                    started.countDown();
+                    return tm.evaluate(List.of("", "a"), 0, evaluation -> { }, cancelled);
+                }).toFuture();
+        started.await();
+
+        assertTrue(scheduler.cancel(CHANNEL));
+        final ScheduledJob<BatchResult> job =
+                pending.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertEquals(ScheduledRun.Stop.CANCELLED, job.getStop());
+        assertNull(job.getResult());
+        assertTrue(job.getCpuNanos() > 0);
+    }
+
+    @Test
+    void failedRunIsRemovedAndReported() {
+        final RunScheduler scheduler = new RunScheduler(1, 1_000, Duration.ofMinutes(1),
+                1, Duration.ofMinutes(1), Duration.ofHours(1));
+        final TuringMachine tm = new DeterministicTuringMachine() {
+            @Override
+            public RunResult run(long maxSteps, boolean detectCycles) {
+                throw new StackOverflowError();
+            }
+        };
+        tm.build();
+
+        assertThrows(StackOverflowError.class,
+                () -> scheduler.submit(GUILD, CHANNEL, tm, 0).block(TIMEOUT));
+        assertEquals(0, scheduler.getUsage(GUILD).getRuns());
+        assertNull(scheduler.getProgress(CHANNEL));
+
+        // The thread of the scheduler survived and the channel can run again.
+        final ScheduledRun run =
+                scheduler.submit(GUILD, CHANNEL, counter(), 1_000).block(TIMEOUT);
+        assertEquals(ScheduledRun.Stop.STEP_LIMIT, run.getStop());
+    }
+
+    /**
+     * Creates a built Turing machine that counts in binary until its 40 bits overflow,
+     * which takes far longer than any of the tests.
+     *
+     * @return The Turing machine.
+     */
+    private static TuringMachine counter() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        final String[] transitions = {
+            "S 1 0 RIGHT S", "S 0 1 LEFT B", "S _ _ NONE F",
+            "B 0 0 LEFT B", "B 1 1 LEFT B", "B _ _ RIGHT S",
+        };
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+        tm.setInput("0".repeat(40));
+        tm.build();
+        return tm;
+    }
+
+    /**
+     * Creates a built Turing machine that walks to the right forever.
+     *
+     * @return The Turing machine.
+     */
+    private static TuringMachine walker() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        tm.addTransition(new Transition(new State("S"), new Symbol("_"), new Symbol("_"),
+                TapeMove.RIGHT, new State("S")));
+        tm.build();
+        return tm;
+    }
+}
@@ -0,0 +1,99 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Evaluates random machines on batches of input words and compares each outcome with a
+ * run of the machine on the single word.
+ */
+class BatchEvaluationTest {
+
+    /** The amount of random machines. */
+    private static final int MACHINES = 20;
+
+    /** All words over {@code a} and {@code b} up to length 10. */
+    private static final List<String> INPUTS = words(10);
+
+    /** The maximum amount of steps per word. */
+    private static final long MAX_STEPS = 1_000;
+
+    @Test
+    void batchMatchesSingleRuns() {
+        final Random random = new Random(0);
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.build();
+
+            final Map<String, Evaluation> evaluations = new ConcurrentHashMap<>();
+            final BatchResult result = tm.evaluate(INPUTS, MAX_STEPS,
+                    evaluation -> evaluations.put(evaluation.getInput(), evaluation));
+            assertEquals(INPUTS.size(), evaluations.size(), "seed " + seed);
+
+            long accepted = 0;
+            long denied = 0;
+            long steps = 0;
+            for (String input : INPUTS) {
+                final String message = "seed " + seed + ", word " + input;
+                final Evaluation evaluation = evaluations.get(input);
+
+                final TuringMachine single = Machines.random(new Random(seed));
+                single.setInput(input);
+                single.build();
+                if (single.isRunning()) {
+                    single.run(MAX_STEPS);
+                }
+                assertEquals(status(single), evaluation.getStatus(), message);
+                assertEquals(single.getStepCount(), evaluation.getSteps(), message);
+
+                accepted += single.isAccepting() ? 1 : 0;
+                denied += single.isDenying() ? 1 : 0;
+                steps += single.getStepCount();
+            }
+
+            assertEquals(INPUTS.size(), result.getTotal());
+            assertEquals(accepted, result.getAccepted());
+            assertEquals(denied, result.getDenied());
+            assertEquals(INPUTS.size() - accepted - denied, result.getUnfinished());
+            assertEquals(steps, result.getSteps());
+        }
+    }
+
+    /**
+     * Returns the status of a built machine.
+     *
+     * @param tm The machine.
+     * @return Whether the machine accepted, denied or is still running.
+     */
+    private static TMState status(TuringMachine tm) {
+        if (tm.isAccepting()) {
+            return TMState.ACCEPTING;
+        }
+        return tm.isDenying() ? TMState.DENYING : TMState.RUNNING;
+    }
+
+    /**
+     * Creates all words over {@code a} and {@code b} up to the given length.
+     *
+     * @param maxLength The maximum length of the words.
+     * @return The words, ordered by their length.
+     */
+    private static List<String> words(int maxLength) {
+        final List<String> words = new ArrayList<>();
+        words.add("");
+        for (int i = 0; words.get(i).length() < maxLength; i++) {
+            words.add(words.get(i) + "a");
+            words.add(words.get(i) + "b");
+        }
+        return words;
+    }
+}
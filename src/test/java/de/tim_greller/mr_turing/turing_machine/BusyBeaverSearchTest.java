@@ -0,0 +1,91 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the outcomes of small busy beaver searches with the known champions.
+ */
+class BusyBeaverSearchTest {
+
+    /** The directory of the results files. */
+    @TempDir
+    Path directory;
+
+    @Test
+    void twoStatesTwoSymbols() throws IOException {
+        final BusyBeaverResult result = search(2, 2, 100);
+        assertEquals(6, result.getMostSteps());
+        assertEquals(4, result.getMostOnes());
+    }
+
+    @Test
+    void threeStatesTwoSymbols() throws IOException {
+        final BusyBeaverResult result = search(3, 2, 100);
+        assertEquals(21, result.getMostSteps());
+        assertEquals(6, result.getMostOnes());
+    }
+
+    @Test
+    void twoStatesThreeSymbols() throws IOException {
+        final BusyBeaverResult result = search(2, 3, 200);
+        assertEquals(38, result.getMostSteps());
+        assertEquals(9, result.getMostOnes());
+    }
+
+    @Test
+    void resumedSearchHasTheSameOutcome() throws IOException {
+        final Path file = directory.resolve("resumed.txt");
+        final BusyBeaverResult first =
+                new BusyBeaverSearch(3, 2, 100).search(file, ForkJoinPool.commonPool());
+        final BusyBeaverResult resumed =
+                new BusyBeaverSearch(3, 2, 100).search(file, ForkJoinPool.commonPool());
+
+        assertEquals(first.getMostSteps(), resumed.getMostSteps());
+        assertEquals(first.getMostOnes(), resumed.getMostOnes());
+        assertEquals(first.getHalted(), resumed.getHalted());
+        assertEquals(first.getSubtrees(), resumed.getResumed());
+    }
+
+    @Test
+    void cancelledSearchIsCompletedOnResume() throws IOException {
+        final Path file = directory.resolve("cancelled.txt");
+        final AtomicInteger checks = new AtomicInteger();
+        assertThrows(CancellationException.class, () -> new BusyBeaverSearch(3, 2, 100)
+                .search(file, ForkJoinPool.commonPool(),
+                        () -> checks.incrementAndGet() > 500));
+
+        final BusyBeaverResult resumed =
+                new BusyBeaverSearch(3, 2, 100).search(file, ForkJoinPool.commonPool());
+        assertEquals(21, resumed.getMostSteps());
+        assertEquals(6, resumed.getMostOnes());
+        assertEquals(search(3, 2, 100).getHalted(), resumed.getHalted());
+    }
+
+    /**
+     * Runs a fresh search.
+     *
+     * @param states The amount of states.
+     * @param symbols The amount of symbols.
+     * @param maxSteps The step limit per machine.
+     * @return The outcome of the search.
+     * @throws IOException Thrown if the results file cannot be written.
+     */
+    private BusyBeaverResult search(int states, int symbols, long maxSteps)
+            throws IOException {
+        final Path file = Files.createTempFile(directory, "bb", ".txt");
+        Files.delete(file);
+        return new BusyBeaverSearch(states, symbols, maxSteps)
+                .search(file, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,83 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Reads the configurations of random machines and restores them on other machines with
+ * the same definition in every {@link ExecutionMode}.
+ */
+class ConfigurationTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void restoredMachinesContinueIdentically(ExecutionMode mode) {
+        final Random random = new Random(500 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.setExecutionMode(mode);
+            tm.build();
+            tm.run(1 + random.nextInt(2_000));
+
+            final TuringMachine restored = Machines.random(new Random(seed));
+            restored.setExecutionMode(mode);
+            restored.build();
+            restored.setConfiguration(tm.getConfiguration());
+
+            final String message = "seed " + seed;
+            Machines.assertSameConfiguration(tm, restored, message);
+            assertEquals(tm.getConfiguration(), restored.getConfiguration(), message);
+
+            if (tm.isRunning()) {
+                tm.run(1_000);
+                restored.run(1_000);
+                Machines.assertSameConfiguration(tm, restored, message);
+            }
+        }
+    }
+
+    @Test
+    void unknownStatesAndSymbolsAreRejected() {
+        final TuringMachine tm = Machines.random(new Random(1));
+        tm.build();
+
+        final MachineConfiguration unknownState = new MachineConfiguration(
+                TMState.RUNNING, 5, new State("Z"), 0, 0, List.of(new Symbol("a")),
+                new int[] {1});
+        assertThrows(IllegalArgumentException.class,
+                () -> tm.setConfiguration(unknownState));
+
+        final MachineConfiguration unknownSymbol = new MachineConfiguration(
+                TMState.RUNNING, 5, new State("S"), 0, 0, List.of(new Symbol("x")),
+                new int[] {1});
+        assertThrows(IllegalArgumentException.class,
+                () -> tm.setConfiguration(unknownSymbol));
+    }
+
+    @Test
+    void invalidConfigurationsAreRejected() {
+        final List<Symbol> symbols = List.of(new Symbol("a"), new Symbol("b"));
+        final State state = new State("S");
+
+        assertThrows(IllegalArgumentException.class, () -> new MachineConfiguration(
+                TMState.MODIFIABLE, 0, state, 0, 0, symbols, new int[] {1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new MachineConfiguration(
+                TMState.RUNNING, 0, state, 0, 0, symbols, new int[] {1, 0}));
+        assertThrows(IllegalArgumentException.class, () -> new MachineConfiguration(
+                TMState.RUNNING, 0, state, 2, 0, symbols, new int[] {1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new MachineConfiguration(
+                TMState.RUNNING, 0, state, 1, 1, symbols, new int[] {1, 1}));
+    }
+}
@@ -0,0 +1,121 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Runs random machines with cycle detection in every {@link ExecutionMode}, split into
+ * runs of varying length, and checks the reported cycles by interpreting the machines.
+ */
+class CycleDetectionTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    /** The maximum amount of steps per machine. */
+    private static final long MAX_STEPS = 300_000;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void reportedCyclesAreExact(ExecutionMode mode) {
+        final Random random = new Random(200 + mode.ordinal());
+        int cycles = 0;
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            RunResult result = null;
+            long before = 0;
+            while (tm.isRunning() && tm.getStepCount() < MAX_STEPS) {
+                before = tm.getStepCount();
+                result = tm.run(1 + random.nextInt(20_000), true);
+                if (result.isLooping()) {
+                    break;
+                }
+            }
+
+            if (result == null || result.getCyclePeriod() < 0) {
+                continue;
+            }
+            cycles++;
+
+            final String message = "seed " + seed;
+            final long start = before + result.getCycleStart();
+            final long period = result.getCyclePeriod();
+            assertTrue(start >= 0 && start <= tm.getStepCount(), message);
+
+            // The configuration after the start repeats after the period ...
+            final TuringMachine reference = Machines.random(new Random(seed));
+            reference.build();
+            advance(reference, start);
+            final String first = configuration(reference);
+            for (long step = 1; step < period; step++) {
+                reference.performStep();
+                assertNotEquals(first, configuration(reference), message);
+            }
+            reference.performStep();
+            assertEquals(first, configuration(reference), message);
+
+            // ... but the one before it does not.
+            if (start > 0) {
+                final TuringMachine earlier = Machines.random(new Random(seed));
+                earlier.build();
+                advance(earlier, start - 1);
+                final String previous = configuration(earlier);
+                advance(earlier, period);
+                assertNotEquals(previous, configuration(earlier), message);
+            }
+        }
+
+        assertTrue(cycles > 0, "No machine looped.");
+    }
+
+    /**
+     * Runs a machine for exactly the given amount of steps, which may be 0.
+     *
+     * @param tm The running machine.
+     * @param steps The amount of steps.
+     */
+    private static void advance(TuringMachine tm, long steps) {
+        if (steps > 0) {
+            assertEquals(steps, tm.run(steps).getSteps());
+        }
+    }
+
+    /**
+     * Describes the configuration of a machine independently of the range of visited
+     * cells.
+     *
+     * @param tm The machine.
+     * @return The state, the head position and the non blank part of the tape.
+     */
+    private static String configuration(TuringMachine tm) {
+        final int from = Math.min(tm.getLeftmostIndex(), tm.getHeadIndex()) - 1;
+        final int to = Math.max(tm.getRightmostIndex(), tm.getHeadIndex()) + 2;
+        final List<String> cells = tm.streamTapeContent(from, to)
+                .map(Symbol::toString).collect(Collectors.toList());
+
+        // Blank cells at the edges only differ in whether they were visited.
+        int first = 0;
+        int last = cells.size();
+        while (first < last && cells.get(first).equals("_")) {
+            first++;
+        }
+        while (last > first && cells.get(last - 1).equals("_")) {
+            last--;
+        }
+        return tm.getCurrentState() + " " + tm.getHeadIndex() + " " + (from + first) + " "
+                + cells.subList(first, last);
+    }
+}
@@ -0,0 +1,87 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Runs small machines whose behavior is known with cycle detection in every
+ * {@link ExecutionMode} and checks the reported outcomes.
+ */
+class CycleDetectorTest {
+
+    /** The maximum amount of steps per run. */
+    private static final long MAX_STEPS = 10_000;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void cycleAfterPreludeIsFound(ExecutionMode mode) {
+        // Writes an a and then moves back and forth next to it.
+        final TuringMachine tm = machine(mode,
+                "S _ a RIGHT q1",
+                "q1 _ _ LEFT q2",
+                "q2 a a RIGHT q1");
+
+        final RunResult result = tm.run(MAX_STEPS, true);
+        assertTrue(result.isLooping());
+        assertFalse(result.hasTerminated());
+        assertEquals(1, result.getCycleStart());
+        assertEquals(2, result.getCyclePeriod());
+        assertTrue(tm.isRunning());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void machineMovingAwayHasNoCycle(ExecutionMode mode) {
+        // Never repeats a configuration, because the head position keeps growing, but
+        // it is a translated cycler.
+        final TuringMachine tm = machine(mode, "S _ a RIGHT S");
+
+        final RunResult result = tm.run(MAX_STEPS, true);
+        assertEquals(-1, result.getCyclePeriod());
+        assertTrue(result.isLooping());
+        assertEquals("translated cycler", result.getProvenBy());
+        assertTrue(tm.isRunning());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void terminatingMachineHasNoCycle(ExecutionMode mode) {
+        final TuringMachine tm = machine(mode,
+                "S _ a RIGHT q1",
+                "q1 _ a RIGHT F");
+
+        final RunResult result = tm.run(MAX_STEPS, true);
+        assertFalse(result.isLooping());
+        assertTrue(result.hasTerminated());
+        assertEquals(2, result.getSteps());
+        assertTrue(tm.isAccepting());
+    }
+
+    /**
+     * Creates a built deterministic machine with an empty input.
+     *
+     * @param mode The execution mode of the machine.
+     * @param transitions The transitions, each given as current state, scanned symbol,
+     *                    printed symbol, tape move and next state separated by spaces.
+     * @return The machine.
+     */
+    private static TuringMachine machine(ExecutionMode mode, String... transitions) {
+        final TuringMachine tm = new DeterministicTuringMachine();
+
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+
+        tm.setInput("");
+        tm.setExecutionMode(mode);
+        tm.build();
+        return tm;
+    }
+}
@@ -0,0 +1,71 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Runs random machines in every {@link ExecutionMode} and compares each configuration
+ * with the one reached by interpreting the same machine one step at a time.
+ */
+class ExecutionModeTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    /** The maximum amount of steps per machine. */
+    private static final int MAX_STEPS = 3_000;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void runMatchesSingleSteps(ExecutionMode mode) {
+        final Random random = new Random(mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine reference = Machines.random(new Random(seed));
+            final TuringMachine tm = Machines.random(new Random(seed));
+            reference.build();
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            // Runs of varying length, so segments end in the middle of sweeps and blocks.
+            while (tm.isRunning()) {
+                final int steps = 1 + random.nextInt(200);
+                tm.run(steps);
+                for (int step = 0; step < steps && reference.isRunning(); step++) {
+                    reference.performStep();
+                }
+                Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+                if (tm.getStepCount() >= MAX_STEPS) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void runWithCycleDetectionMatchesSingleSteps(ExecutionMode mode) {
+        final Random random = new Random(100 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine reference = Machines.random(new Random(seed));
+            final TuringMachine tm = Machines.random(new Random(seed));
+            reference.build();
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            final RunResult result = tm.run(MAX_STEPS, true);
+            for (long step = 0; step < result.getSteps(); step++) {
+                reference.performStep();
+            }
+            Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+            assertEquals(reference.isRunning(), !result.hasTerminated(), "seed " + seed);
+        }
+    }
+}
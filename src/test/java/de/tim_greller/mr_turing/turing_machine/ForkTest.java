@@ -0,0 +1,112 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Forks random machines in every {@link ExecutionMode} while they run and checks that
+ * the original and the fork continue independently of each other.
+ */
+class ForkTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    /** The maximum amount of steps per run. */
+    private static final int MAX_STEPS = 500;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void forkAndOriginalAreIndependent(ExecutionMode mode) {
+        final Random random = new Random(500 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            final TuringMachine reference = Machines.random(new Random(seed));
+            tm.setExecutionMode(mode);
+            tm.build();
+            reference.build();
+
+            final int before = random.nextInt(MAX_STEPS);
+            run(tm, before);
+            run(reference, before);
+
+            // Running the fork leaves the original where it was ...
+            final TuringMachine fork = tm.fork();
+            Machines.assertSameConfiguration(reference, fork, "seed " + seed);
+            run(fork, MAX_STEPS);
+            Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+
+            // ... and running the original does not change the fork.
+            final TuringMachine forked = reference.fork();
+            run(forked, MAX_STEPS);
+            run(tm, MAX_STEPS);
+            run(reference, MAX_STEPS);
+            Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+            Machines.assertSameConfiguration(forked, fork, "seed " + seed);
+
+            // A restarted fork starts from the input again.
+            fork.restart();
+            final TuringMachine fresh = Machines.random(new Random(seed));
+            fresh.build();
+            Machines.assertSameConfiguration(fresh, fork, "seed " + seed);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void clearingForkOfOptimizedMachineKeepsTheOriginal(ExecutionMode mode) {
+        final Random random = new Random(550 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = optimized(seed, mode);
+            run(tm, random.nextInt(MAX_STEPS));
+
+            // Clearing the fork leaves the defined transitions of the original intact ...
+            tm.fork().clear();
+            tm.restart();
+            final TuringMachine reference = optimized(seed, mode);
+            Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+            run(tm, MAX_STEPS);
+            run(reference, MAX_STEPS);
+            Machines.assertSameConfiguration(reference, tm, "seed " + seed);
+
+            // ... and clearing the original leaves those of the fork intact.
+            final TuringMachine fork = tm.fork();
+            tm.clear();
+            fork.restart();
+            Machines.assertSameConfiguration(optimized(seed, mode), fork, "seed " + seed);
+        }
+    }
+
+    /**
+     * Creates a built random machine with optimization enabled.
+     *
+     * @param seed The seed of the random machine.
+     * @param mode The execution mode of the machine.
+     * @return The machine.
+     */
+    private static TuringMachine optimized(long seed, ExecutionMode mode) {
+        final TuringMachine tm = Machines.random(new Random(seed));
+        tm.setExecutionMode(mode);
+        tm.setOptimized(true);
+        tm.build();
+        return tm;
+    }
+
+    /**
+     * Runs a machine unless it already terminated.
+     *
+     * @param tm The machine.
+     * @param steps The maximum amount of steps.
+     */
+    private static void run(TuringMachine tm, long steps) {
+        if (tm.isRunning() && steps > 0) {
+            tm.run(steps);
+        }
+    }
+}
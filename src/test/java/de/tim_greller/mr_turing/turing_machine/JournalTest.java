@@ -0,0 +1,91 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Steps random machines forward in every {@link ExecutionMode} and goes back again, by
+ * undoing single steps and by restoring checkpoints, and checks that each configuration
+ * equals the one the machine had before, including the range of visited cells.
+ */
+class JournalTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    /** The maximum amount of steps per machine. */
+    private static final int MAX_STEPS = 500;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void stepBackRestoresEarlierConfigurations(ExecutionMode mode) {
+        final Random random = new Random(300 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            final List<String> history = new ArrayList<>();
+            history.add(describe(tm));
+            while (tm.isRunning() && tm.getStepCount() < MAX_STEPS) {
+                tm.performStep();
+                history.add(describe(tm));
+            }
+
+            // Recent single steps are undone one by one.
+            while (tm.getStepCount() > 0) {
+                tm.stepBack(1);
+                assertEquals(history.get((int) tm.getStepCount()), describe(tm),
+                        "seed " + seed);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void seekRestoresEarlierConfigurations(ExecutionMode mode) {
+        final Random random = new Random(400 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = new DeterministicTuringMachine(8, 16, 1 << 10);
+            tm.define(Machines.random(new Random(seed)).getDefinition());
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            final List<String> history = new ArrayList<>();
+            history.add(describe(tm));
+            while (tm.isRunning() && tm.getStepCount() < MAX_STEPS) {
+                tm.performStep();
+                history.add(describe(tm));
+            }
+
+            // Far jumps restore checkpoints, short ones undo the deltas.
+            while (tm.getStepCount() > 0) {
+                final long target = Math.max(0, tm.getStepCount() - random.nextInt(24));
+                tm.seek(target);
+                assertEquals(history.get((int) target), describe(tm), "seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * Describes the configuration of a machine.
+     *
+     * @param tm The machine.
+     * @return The step count, state, head position and visited cells of the machine.
+     */
+    private static String describe(TuringMachine tm) {
+        return tm.getStepCount() + " " + tm.isRunning() + " " + tm.getCurrentState() + " "
+                + tm.getHeadIndex() + " " + tm.getLeftmostIndex() + " "
+                + Machines.tape(tm);
+    }
+}
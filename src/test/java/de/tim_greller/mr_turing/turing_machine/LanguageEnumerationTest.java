@@ -0,0 +1,141 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Enumerates the languages of machines and compares them with the words the machines
+ * are known to accept.
+ */
+class LanguageEnumerationTest {
+
+    /** The maximum length of the enumerated words. */
+    private static final int MAX_LENGTH = 8;
+
+    /** The maximum amount of steps per word. */
+    private static final long MAX_STEPS = 1_000;
+
+    /** Whether a word contains an even amount of {@code a}s. */
+    private static final Predicate<String> EVEN =
+            word -> word.chars().filter(c -> c == 'a').count() % 2 == 0;
+
+    @Test
+    void acceptedWordsAreEnumeratedInShortlexOrder() {
+        final TuringMachine tm = evenAmountOfAs();
+
+        final EnumerationResult result = tm.enumerate("ab", MAX_LENGTH, MAX_STEPS, EVEN,
+                1_000);
+
+        final List<String> words = words("ab", MAX_LENGTH);
+        assertEquals(words.stream().filter(EVEN).collect(Collectors.toList()),
+                result.getAcceptedWords());
+        assertTrue(result.isComplete());
+        assertTrue(result.isCompared());
+        assertTrue(result.getCounterexamples().isEmpty());
+        assertEquals(words.size(), result.getTotal());
+        assertEquals(0, result.getUnfinished());
+
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            // Half of the words of each positive length contain an even amount of as.
+            final long expected = (length == 0) ? 1 : (1L << length) / 2;
+            assertEquals(expected, result.getAccepted(length));
+            assertEquals((1L << length) - expected, result.getDenied(length));
+        }
+    }
+
+    @Test
+    void firstCounterexamplesAreKept() {
+        final TuringMachine tm = evenAmountOfAs();
+
+        // The order of the alphabet determines the shortlex order.
+        final EnumerationResult result = tm.enumerate("ba", MAX_LENGTH, MAX_STEPS,
+                word -> !word.contains("a"), 3);
+
+        assertEquals(List.of("", "b", "bb"), result.getAcceptedWords());
+        assertFalse(result.isComplete());
+        assertEquals(List.of("aa", "baa", "aba"), result.getCounterexamples().stream()
+                .map(Evaluation::getInput).collect(Collectors.toList()));
+    }
+
+    @Test
+    void enumerationMatchesBatchEvaluation() {
+        final Random random = new Random(0);
+        final List<String> words = words("ab", 6);
+
+        for (int i = 0; i < 20; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.build();
+
+            final Map<String, TMState> outcomes = new ConcurrentHashMap<>();
+            tm.evaluate(words, MAX_STEPS, evaluation ->
+                    outcomes.put(evaluation.getInput(), evaluation.getStatus()));
+            final EnumerationResult result = tm.enumerate("ab", 6, MAX_STEPS, null,
+                    words.size());
+
+            assertEquals(words.stream()
+                    .filter(word -> outcomes.get(word) == TMState.ACCEPTING)
+                    .collect(Collectors.toList()), result.getAcceptedWords(),
+                    "seed " + seed);
+            for (int length = 0; length <= 6; length++) {
+                final int size = length;
+                assertEquals(words.stream()
+                        .filter(word -> word.length() == size
+                                && outcomes.get(word) == TMState.DENYING)
+                        .count(), result.getDenied(length), "seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * Creates a built machine that accepts the words over {@code a} and {@code b} that
+     * contain an even amount of {@code a}s.
+     *
+     * @return The machine.
+     */
+    private static TuringMachine evenAmountOfAs() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        final String[] transitions = {
+            "S a _ RIGHT q", "S b _ RIGHT S", "q a _ RIGHT S", "q b _ RIGHT q",
+            "S _ _ NONE F",
+        };
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+        tm.setInput("");
+        tm.build();
+        return tm;
+    }
+
+    /**
+     * Creates all words over an alphabet up to the given length in shortlex order.
+     *
+     * @param alphabet The symbols in their order.
+     * @param maxLength The maximum length of the words.
+     * @return The words.
+     */
+    private static List<String> words(String alphabet, int maxLength) {
+        final List<String> words = new ArrayList<>();
+        words.add("");
+        for (int i = 0; words.get(i).length() < maxLength; i++) {
+            for (char symbol : alphabet.toCharArray()) {
+                words.add(words.get(i) + symbol);
+            }
+        }
+        return words;
+    }
+}
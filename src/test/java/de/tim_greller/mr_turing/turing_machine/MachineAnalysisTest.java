@@ -0,0 +1,144 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Builds machines with optimization enabled and checks that the simplified transitions
+ * decide the same language as the defined ones.
+ */
+class MachineAnalysisTest {
+
+    /** The amount of random machines. */
+    private static final int MACHINES = 100;
+
+    /** The maximum amount of steps per word. */
+    private static final long MAX_STEPS = 1_000;
+
+    @Test
+    void simplificationsAreCounted() {
+        final TuringMachine tm = machine(
+                // S and q1 behave identically and accept words of as.
+                "S a a RIGHT q1", "q1 a a RIGHT S", "S _ _ NONE F", "q1 _ _ NONE F",
+                // Once a b was read, the TM can never accept.
+                "S b b RIGHT D", "q1 b b RIGHT D", "D a a RIGHT D", "D b b RIGHT D",
+                // U cannot be reached from S.
+                "U a a RIGHT F");
+        tm.setOptimized(true);
+        tm.build();
+
+        final AnalysisResult result = tm.getAnalysisResult();
+        assertEquals(1, result.getUnreachableStates());
+        assertEquals(1, result.getDeadStates());
+        assertEquals(1, result.getMergedStates());
+        assertEquals(9, result.getOriginalTransitions());
+        assertTrue(result.getRemainingTransitions() < result.getOriginalTransitions());
+
+        tm.restart();
+        assertEquals(Map.of("", TMState.ACCEPTING, "aaa", TMState.ACCEPTING,
+                "aab", TMState.DENYING, "baaaaa", TMState.DENYING),
+                outcomes(tm, List.of("", "aaa", "aab", "baaaaa")));
+    }
+
+    @Test
+    void unoptimizedMachineHasNoAnalysis() {
+        final TuringMachine tm = machine("S a a RIGHT F");
+        tm.build();
+        assertNull(tm.getAnalysisResult());
+    }
+
+    @Test
+    void optimizedMachinesAcceptTheSameWords() {
+        final Random random = new Random(0);
+        final List<String> words = new ArrayList<>();
+        words.add("");
+        for (int i = 0; words.get(i).length() < 6; i++) {
+            words.add(words.get(i) + "a");
+            words.add(words.get(i) + "b");
+        }
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine original = Machines.random(new Random(seed));
+            final TuringMachine optimized = Machines.random(new Random(seed));
+            original.build();
+            optimized.setOptimized(true);
+            optimized.build();
+
+            final Map<String, Evaluation> expected = evaluations(original, words);
+            final Map<String, Evaluation> actual = evaluations(optimized, words);
+            for (String word : words) {
+                final String message = "seed " + seed + ", word " + word;
+                final Evaluation before = expected.get(word);
+                final Evaluation after = actual.get(word);
+
+                // Accepting runs stay the same, others may only deny earlier.
+                if (before.getStatus() == TMState.ACCEPTING) {
+                    assertEquals(TMState.ACCEPTING, after.getStatus(), message);
+                    assertEquals(before.getSteps(), after.getSteps(), message);
+                } else {
+                    assertNotEquals(TMState.ACCEPTING, after.getStatus(), message);
+                    assertTrue(after.getSteps() <= before.getSteps(), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an unbuilt deterministic machine.
+     *
+     * @param transitions The transitions, each given as current state, scanned symbol,
+     *                    printed symbol, tape move and next state separated by spaces.
+     * @return The machine.
+     */
+    private static TuringMachine machine(String... transitions) {
+        final TuringMachine tm = new DeterministicTuringMachine();
+
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+        return tm;
+    }
+
+    /**
+     * Evaluates a built machine on the given words.
+     *
+     * @param tm The machine.
+     * @param words The input words.
+     * @return The evaluation of each word.
+     */
+    private static Map<String, Evaluation> evaluations(TuringMachine tm,
+            List<String> words) {
+        final Map<String, Evaluation> evaluations = new ConcurrentHashMap<>();
+        tm.evaluate(words, MAX_STEPS,
+                evaluation -> evaluations.put(evaluation.getInput(), evaluation));
+        return evaluations;
+    }
+
+    /**
+     * Evaluates a built machine on the given words.
+     *
+     * @param tm The machine.
+     * @param words The input words.
+     * @return The status after the run on each word.
+     */
+    private static Map<String, TMState> outcomes(TuringMachine tm, List<String> words) {
+        final Map<String, TMState> outcomes = new ConcurrentHashMap<>();
+        evaluations(tm, words).forEach((word, evaluation) ->
+                outcomes.put(word, evaluation.getStatus()));
+        return outcomes;
+    }
+}
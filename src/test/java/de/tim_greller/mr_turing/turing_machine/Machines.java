@@ -0,0 +1,87 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+/**
+ * Creates the Turing machines used by the tests and compares their configurations.
+ */
+final class Machines {
+
+    /** The moves a random transition can have. */
+    private static final TapeMove[] MOVES = TapeMove.values();
+
+    /** Prevents instantiation. */
+    private Machines() {
+    }
+
+    /**
+     * Creates an unbuilt deterministic machine with random transitions over the states
+     * {@code S}, {@code q1}, {@code q2} and {@code F} and the symbols {@code _},
+     * {@code a} and {@code b}. Some preconditions have no transition, so the machine
+     * may deny, and some transitions lead to the accepting state {@code F}.
+     *
+     * @param random The source of the randomness.
+     * @return The machine, with a random input word.
+     */
+    static TuringMachine random(Random random) {
+        final String[] states = {"S", "q1", "q2"};
+        final String[] symbols = {"_", "a", "b"};
+        final TuringMachine tm = new DeterministicTuringMachine();
+
+        for (String state : states) {
+            for (String symbol : symbols) {
+                final int kind = random.nextInt(20);
+                if (kind == 0) {
+                    continue;
+                }
+                final String next = (kind == 1) ? "F" : states[random.nextInt(3)];
+
+                // Moves to the right are more likely, so the tape keeps growing.
+                final TapeMove move = (random.nextInt(3) == 0)
+                        ? MOVES[random.nextInt(MOVES.length)]
+                        : (random.nextBoolean() ? TapeMove.RIGHT : TapeMove.LEFT);
+                tm.addTransition(new Transition(new State(state), new Symbol(symbol),
+                        new Symbol(symbols[random.nextInt(3)]), move, new State(next)));
+            }
+        }
+
+        final StringBuilder input = new StringBuilder();
+        for (int i = random.nextInt(8); i > 0; i--) {
+            input.append(random.nextBoolean() ? 'a' : 'b');
+        }
+        tm.setInput(input.toString());
+        return tm;
+    }
+
+    /**
+     * Asserts that both machines are in the same configuration.
+     *
+     * @param expected The machine with the expected configuration.
+     * @param actual The machine that is checked.
+     * @param message The message shown if the configurations differ.
+     */
+    static void assertSameConfiguration(TuringMachine expected, TuringMachine actual,
+            String message) {
+        assertEquals(expected.getStepCount(), actual.getStepCount(), message);
+        assertEquals(expected.isRunning(), actual.isRunning(), message);
+        assertEquals(expected.isAccepting(), actual.isAccepting(), message);
+        assertEquals(expected.getCurrentState(), actual.getCurrentState(), message);
+        assertEquals(expected.getHeadIndex(), actual.getHeadIndex(), message);
+        assertEquals(tape(expected), tape(actual), message);
+    }
+
+    /**
+     * Returns the content of the tape of a machine from the leftmost to the rightmost
+     * visited cell.
+     *
+     * @param tm The machine.
+     * @return The symbols of the tape separated by spaces.
+     */
+    static String tape(TuringMachine tm) {
+        final StringBuilder tape = new StringBuilder();
+        tm.appendTapeContent(tape, " ");
+        return tape.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compares the {@link MacroEngine} with memos of different sizes against the
+ * interpreter, so memoized macro transitions and resets of a full memo never change the
+ * outcome of a run.
+ */
+class MacroEngineTest {
+
+    /** The amount of random machines checked per memo size. */
+    private static final int MACHINES = 300;
+
+    /** The maximum amount of steps each machine runs. */
+    private static final long MAX_STEPS = 20_000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 16, 256, MacroEngine.DEFAULT_MEMO_CAPACITY})
+    void engineMatchesInterpreter(int memoCapacity) {
+        final Random random = new Random(memoCapacity);
+
+        for (int i = 0; i < MACHINES; i++) {
+            final TuringMachine reference = Machines.random(random);
+            reference.setExecutionMode(ExecutionMode.INTERPRETED);
+            reference.build();
+
+            final TransitionTable table = new TransitionTable();
+            reference.getDefinition().getTransitions().forEach(table::add);
+            final int initial = table.states.idOf(new State("S"));
+            final BitSet accepting = new BitSet();
+            accepting.set(table.states.idOf(new State("F")));
+            table.compile();
+
+            final ArrayTape tape = new ArrayTape(new BlankSymbol("_"), table.symbols);
+            final LinkedList<Symbol> input = new LinkedList<>();
+            reference.getDefinition().getInput().chars()
+                    .forEach(c -> input.add(Symbol.of((char) c)));
+            tape.writeWord(input);
+
+            final MacroEngine engine = MacroEngine.create(table, accepting, memoCapacity);
+            final int[] configuration = {initial, MachineExecutor.RUNNING};
+            long steps = 0;
+
+            while (reference.isRunning() && steps < MAX_STEPS) {
+                final long chunk = 1 + random.nextInt(5_000);
+                final long before = reference.getStepCount();
+                reference.run(chunk);
+                final long performed = engine.execute(tape, configuration, chunk);
+                steps += performed;
+
+                final String message = "Machine " + i + " after " + steps + " steps";
+                assertEquals(reference.getStepCount() - before, performed, message);
+                assertEquals(reference.getCurrentState(),
+                        table.states.get(configuration[MachineExecutor.STATE]), message);
+                assertEquals(reference.isRunning(),
+                        configuration[MachineExecutor.STATUS] == MachineExecutor.RUNNING,
+                        message);
+                assertEquals(reference.getHeadIndex(), tape.getHeadIndex(), message);
+                assertEquals(Machines.tape(reference), tape(tape), message);
+            }
+        }
+    }
+
+    /**
+     * Returns the content of a tape from the leftmost to the rightmost visited cell.
+     *
+     * @param tape The tape.
+     * @return The symbols of the tape separated by spaces.
+     */
+    private static String tape(ArrayTape tape) {
+        final StringBuilder content = new StringBuilder();
+        tape.appendTo(content, " ");
+        return content.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the {@link NonHaltingDecider}s on small machines whose behavior is known and
+ * checks that no decider claims that a random machine runs forever if it terminates.
+ */
+class NonHaltingDeciderTest {
+
+    /** Writes {@code a} to every cell to the right of the start. */
+    private static final String[] TRANSLATED_CYCLER = {"S _ a RIGHT S"};
+
+    /**
+     * Extends a block of {@code a}s by one cell at the right end every time it crosses
+     * the block from its left end.
+     */
+    private static final String[] BOUNCER = {
+        "S _ a LEFT q1",
+        "q1 a a LEFT q1",
+        "q1 _ _ RIGHT q2",
+        "q2 a a RIGHT q2",
+        "q2 _ a LEFT q1",
+    };
+
+    /** Writes two cells and accepts. */
+    private static final String[] TERMINATING = {
+        "S _ a RIGHT q1",
+        "q1 _ b LEFT F",
+    };
+
+    /** The amount of random machines. */
+    private static final int MACHINES = 200;
+
+    /** The amount of steps a machine that was proven to run forever is executed. */
+    private static final long CHECKED_STEPS = 100_000;
+
+    @Test
+    void translatedCyclerIsDecided() {
+        assertTrue(decide(new TranslatedCyclerDecider(10_000), TRANSLATED_CYCLER));
+        assertFalse(decide(new TranslatedCyclerDecider(10_000), TERMINATING));
+    }
+
+    @Test
+    void bouncerIsDecided() {
+        assertTrue(decide(new BouncerDecider(10_000), BOUNCER));
+        assertFalse(decide(new BouncerDecider(10_000), TERMINATING));
+    }
+
+    @Test
+    void closedTapeLanguageIsFound() {
+        assertTrue(decide(new ClosedTapeLanguageDecider(1_000), TRANSLATED_CYCLER));
+        assertFalse(decide(new ClosedTapeLanguageDecider(1_000), TERMINATING));
+    }
+
+    @Test
+    void runReportsTheDecider() {
+        final TuringMachine tm = new DeterministicTuringMachine();
+        for (String transition : BOUNCER) {
+            tm.addTransition(transition(transition));
+        }
+        tm.setInput("");
+        tm.build();
+
+        final RunResult result = tm.run(10_000_000, true);
+        assertTrue(result.isLooping());
+        assertNotNull(result.getProvenBy());
+        assertTrue(tm.isRunning());
+    }
+
+    @Test
+    void terminatingMachinesAreNeverDecided() {
+        final Random random = new Random(0);
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.build();
+            if (!tm.run(CHECKED_STEPS, true).isLooping()) {
+                continue;
+            }
+
+            final TuringMachine reference = Machines.random(new Random(seed));
+            reference.build();
+            reference.run(CHECKED_STEPS);
+            assertTrue(reference.isRunning(), "seed " + seed);
+        }
+    }
+
+    /**
+     * Lets a decider decide whether a machine runs forever from its start on an empty
+     * tape.
+     *
+     * @param decider The decider.
+     * @param transitions The transitions of the machine in the format of
+     *                    {@link #transition(String)}. The accepting state is {@code F}.
+     * @return The decision.
+     */
+    private static boolean decide(NonHaltingDecider decider, String... transitions) {
+        final TransitionTable table = new TransitionTable();
+        for (String transition : transitions) {
+            table.add(transition(transition));
+        }
+        final int start = table.states.idOf(new State("S"));
+        final BitSet accepting = new BitSet();
+        accepting.set(table.states.idOf(new State("F")));
+        final Tape tape = new ArrayTape(new BlankSymbol("_"), table.symbols);
+        table.compile();
+
+        return decider.decide(table, accepting, tape, start);
+    }
+
+    /**
+     * Parses a transition.
+     *
+     * @param transition The current state, scanned symbol, printed symbol, tape move and
+     *                   next state separated by spaces.
+     * @return The transition.
+     */
+    private static Transition transition(String transition) {
+        final String[] parts = transition.split(" ");
+        return new Transition(new State(parts[0]), new Symbol(parts[1]),
+                new Symbol(parts[2]), TapeMove.valueOf(parts[3]), new State(parts[4]));
+    }
+}
@@ -0,0 +1,77 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs {@link NondeterministicTuringMachine}s that have to guess and checks whether they
+ * accept the expected words.
+ */
+class NondeterministicTuringMachineTest {
+
+    /** The maximum length of the checked input words. */
+    private static final int MAX_LENGTH = 8;
+
+    /** Guesses where the word {@code ab} starts. */
+    private static final String[] CONTAINS_AB = {
+        "S a a RIGHT S",
+        "S b b RIGHT S",
+        "S a a RIGHT q1",
+        "q1 b b RIGHT F",
+    };
+
+    @Test
+    void acceptsIfAnyBranchAccepts() {
+        for (int length = 0; length <= MAX_LENGTH; length++) {
+            for (int bits = 0; bits < (1 << length); bits++) {
+                final StringBuilder word = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    word.append(((bits >> i) & 1) == 0 ? 'a' : 'b');
+                }
+
+                final TuringMachine tm = machine(CONTAINS_AB);
+                tm.setInput(word.toString());
+                tm.build();
+                tm.run(0);
+                assertEquals(word.indexOf("ab") >= 0, tm.isAccepting(), word.toString());
+                assertEquals(word.indexOf("ab") < 0, tm.isDenying(), word.toString());
+            }
+        }
+    }
+
+    @Test
+    void loopingBranchesDieOut() {
+        // One branch moves back and forth forever, the other one gets stuck.
+        final TuringMachine tm = machine(
+                "S _ _ RIGHT q1",
+                "S _ a NONE q2",
+                "q1 _ _ LEFT S");
+        tm.setInput("");
+        tm.build();
+
+        tm.run(1_000);
+        assertTrue(tm.isDenying());
+    }
+
+    /**
+     * Creates a nondeterministic machine. Its initial state is {@code S} and its
+     * accepting state is {@code F}.
+     *
+     * @param transitions The transitions, each given as current state, scanned symbol,
+     *                    printed symbol, tape move and next state separated by spaces.
+     * @return The unbuilt machine.
+     */
+    private static TuringMachine machine(String... transitions) {
+        final TuringMachine tm = new NondeterministicTuringMachine();
+
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+        return tm;
+    }
+}
@@ -0,0 +1,116 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Goes back to earlier configurations of machines with the default journal limits and
+ * compares them with the configurations the machines had on their way forward.
+ */
+class StepBackTest {
+
+    /** The amount of random machines per execution mode. */
+    private static final int MACHINES = 40;
+
+    /** The maximum amount of steps per random machine. */
+    private static final int MAX_STEPS = 500;
+
+    /**
+     * The amount of steps the counter runs, which is more than the journal keeps as
+     * single steps, so far jumps have to restore checkpoints.
+     */
+    private static final int COUNTER_STEPS = 300_000;
+
+    /**
+     * The amount of cells on each side of the start that are compared. No machine can
+     * visit cells beyond them.
+     */
+    private static final int WINDOW = 1_024;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void stepBackUndoesSingleSteps(ExecutionMode mode) {
+        final Random random = new Random(600 + mode.ordinal());
+
+        for (int i = 0; i < MACHINES; i++) {
+            final long seed = random.nextLong();
+            final TuringMachine tm = Machines.random(new Random(seed));
+            tm.setExecutionMode(mode);
+            tm.build();
+
+            final List<String> history = new ArrayList<>();
+            history.add(describe(tm));
+            while (tm.isRunning() && tm.getStepCount() < MAX_STEPS) {
+                tm.performStep();
+                history.add(describe(tm));
+            }
+
+            while (tm.getStepCount() > 0) {
+                final long steps = Math.min(tm.getStepCount(), 1 + random.nextInt(3));
+                tm.stepBack(steps);
+                assertEquals(history.get((int) tm.getStepCount()), describe(tm),
+                        "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void seekRestoresCheckpoints() {
+        // A binary counter with the least significant bit at cell 0, which runs forever.
+        final TuringMachine tm = new DeterministicTuringMachine();
+        final String[] transitions = {
+            "S 1 0 RIGHT S", "S 0 1 LEFT B", "S _ 1 LEFT B",
+            "B 0 0 LEFT B", "B 1 1 LEFT B", "B _ _ RIGHT S",
+        };
+        for (String transition : transitions) {
+            final String[] parts = transition.split(" ");
+            tm.addTransition(new Transition(new State(parts[0]), new Symbol(parts[1]),
+                    new Symbol(parts[2]), TapeMove.valueOf(parts[3]),
+                    new State(parts[4])));
+        }
+        tm.setInput("");
+        tm.build();
+
+        final Random random = new Random(0);
+        final Map<Long, String> samples = new TreeMap<>();
+        samples.put(0L, describe(tm));
+        while (tm.getStepCount() < COUNTER_STEPS) {
+            tm.performStep();
+            if (random.nextInt(1_000) == 0) {
+                samples.put(tm.getStepCount(), describe(tm));
+            }
+        }
+
+        // The samples are restored from the last one to the first one.
+        final List<Long> steps = new ArrayList<>(samples.keySet());
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            tm.seek(steps.get(i));
+            assertEquals(steps.get(i), tm.getStepCount());
+            assertEquals(samples.get(steps.get(i)), describe(tm));
+        }
+    }
+
+    /**
+     * Describes the configuration of a machine independently of the range of visited
+     * cells.
+     *
+     * @param tm The machine.
+     * @return The state, the head position and the cells around the start of the tape.
+     */
+    private static String describe(TuringMachine tm) {
+        final StringBuilder description = new StringBuilder();
+        description.append(tm.isRunning()).append(' ').append(tm.getCurrentState())
+                .append(' ').append(tm.getHeadIndex()).append(' ');
+        tm.streamTapeContent(-WINDOW, WINDOW).forEach(description::append);
+        return description.toString();
+    }
+}
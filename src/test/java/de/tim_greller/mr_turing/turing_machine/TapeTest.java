@@ -0,0 +1,199 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Applies the same random operations to every kind of {@link Tape} and to a
+ * {@link LinkedTape}, which stores each visited cell on its own, and compares the
+ * results.
+ */
+class TapeTest {
+
+    /** The amount of random operations per tape. */
+    private static final int OPERATIONS = 20_000;
+
+    /** The blank symbol of the tapes. */
+    private static final BlankSymbol BLANK = new BlankSymbol("_");
+
+    /** The symbols that are written to the tapes. */
+    private static final Symbol[] SYMBOLS = {BLANK, new Symbol("a"), new Symbol("b")};
+
+    /**
+     * The kinds of tapes that are tested.
+     */
+    enum Kind {
+        /** A {@link LinkedTape}. */
+        LINKED,
+
+        /** An {@link ArrayTape}. */
+        ARRAY,
+
+        /** A {@link RunLengthTape}. */
+        RUN_LENGTH,
+
+        /** A {@link PersistentTape}. */
+        PERSISTENT;
+
+        /**
+         * Creates an empty tape of this kind.
+         *
+         * @param symbols The registry that assigns the ids of the symbols.
+         * @return The tape.
+         */
+        Tape create(Registry<Symbol> symbols) {
+            switch (this) {
+            case LINKED:
+                return new LinkedTape(BLANK, symbols);
+            case ARRAY:
+                return new ArrayTape(BLANK, symbols);
+            case RUN_LENGTH:
+                return new RunLengthTape(BLANK, symbols);
+            default:
+                return new PersistentTape(BLANK, symbols);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void randomOperationsMatchLinkedTape(Kind kind) {
+        final Random random = new Random(kind.ordinal());
+        final Tape reference = new LinkedTape(BLANK, new Registry<>());
+        final Tape tape = kind.create(new Registry<>());
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            switch (random.nextInt(8)) {
+            case 0:
+                final Symbol symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+                reference.writeSymbol(symbol);
+                tape.writeSymbol(symbol);
+                break;
+            case 1:
+                reference.clearSymbol();
+                tape.clearSymbol();
+                break;
+            case 2:
+                final Deque<Symbol> word = word(random);
+                reference.writeWord(word);
+                tape.writeWord(word);
+                break;
+            default:
+                // Moves are more likely, so the visited range keeps changing.
+                final TapeMove move = TapeMove.values()[random.nextInt(3)];
+                reference.moveHead(move);
+                tape.moveHead(move);
+            }
+
+            assertEquals(reference.readSymbol(), tape.readSymbol(), "operation " + i);
+            assertEquals(reference.getHeadIndex(), tape.getHeadIndex(), "operation " + i);
+        }
+
+        assertEquals(new ArrayList<>(reference.getContent()),
+                new ArrayList<>(tape.getContent()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void headGrowsTheTapeInBothDirections(Kind kind) {
+        final Tape tape = kind.create(new Registry<>());
+        final Symbol a = SYMBOLS[1];
+
+        for (int i = 0; i < 1_000; i++) {
+            tape.moveHead(TapeMove.LEFT);
+        }
+        tape.writeSymbol(a);
+        assertEquals(-1_000, tape.getHeadIndex());
+
+        for (int i = 0; i < 3_000; i++) {
+            tape.moveHead(TapeMove.RIGHT);
+        }
+        tape.writeSymbol(a);
+        assertEquals(2_000, tape.getHeadIndex());
+
+        final List<Symbol> content = new ArrayList<>(tape.getContent());
+        assertEquals(3_001, content.size());
+        assertEquals(a, content.get(0));
+        assertEquals(BLANK, content.get(1_000));
+        assertEquals(a, content.get(3_000));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void streamsContainTheVisitedCells(Kind kind) {
+        final Random random = new Random(10 + kind.ordinal());
+        final Tape tape = kind.create(new Registry<>());
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            tape.writeSymbol(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+            tape.moveHead(TapeMove.values()[random.nextInt(3)]);
+        }
+
+        final List<Symbol> content = new ArrayList<>(tape.getContent());
+        final int leftmost = tape.getLeftmostIndex();
+        final int rightmost = tape.getRightmostIndex();
+        assertEquals(content.size(), rightmost - leftmost + 1);
+        assertEquals(content, tape.stream().collect(Collectors.toList()));
+
+        final List<Symbol> iterated = new ArrayList<>();
+        tape.forEach(iterated::add);
+        assertEquals(content, iterated);
+
+        // Cells that were never visited are blank.
+        final List<Symbol> range = tape.range(leftmost - 2, rightmost + 3)
+                .collect(Collectors.toList());
+        assertEquals(List.of(BLANK, BLANK), range.subList(0, 2));
+        assertEquals(content, range.subList(2, range.size() - 2));
+        assertEquals(List.of(BLANK, BLANK),
+                range.subList(range.size() - 2, range.size()));
+        assertEquals(content.subList(1, 4), tape.range(leftmost + 1, leftmost + 4)
+                .collect(Collectors.toList()));
+
+        final StringBuilder builder = new StringBuilder();
+        tape.appendTo(builder, "|");
+        assertEquals(content.stream().map(Symbol::toString)
+                .collect(Collectors.joining("|", "|", "|")), builder.toString());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void longTapesAreStreamedWithoutRecursion(Kind kind) {
+        final Tape tape = kind.create(new Registry<>());
+        final int length = 1_000_000;
+
+        for (int i = 0; i < length; i++) {
+            tape.writeSymbol(SYMBOLS[1 + i % 2]);
+            tape.moveHead(TapeMove.RIGHT);
+        }
+
+        assertEquals(length + 1, tape.getContent().size());
+        assertEquals(length + 1, tape.stream().count());
+
+        final StringBuilder builder = new StringBuilder();
+        tape.appendTo(builder, "");
+        assertEquals(length + 1, builder.length());
+    }
+
+    /**
+     * Creates a short random word.
+     *
+     * @param random The source of the randomness.
+     * @return The symbols of the word.
+     */
+    private static Deque<Symbol> word(Random random) {
+        final Deque<Symbol> word = new ArrayDeque<>();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            word.addLast(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,154 @@
+package de.tim_greller.mr_turing.turing_machine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the ids assigned by a {@link Registry}, the interning of states and symbols and
+ * the lookups in a compiled {@link TransitionTable}.
+ */
+class TransitionTableTest {
+
+    @Test
+    void registryAssignsDenseIds() {
+        final Registry<State> registry = new Registry<>();
+        final State a = new State("a");
+
+        assertEquals(0, registry.idOf(a));
+        assertEquals(1, registry.idOf(new State("b")));
+        assertEquals(0, registry.idOf(new State("a")));
+        assertEquals(-1, registry.find(new State("c")));
+        assertEquals(2, registry.size());
+        assertSame(a, registry.get(0));
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertEquals(-1, registry.find(a));
+    }
+
+    @Test
+    void equalElementsHaveEqualHashCodes() {
+        assertEquals(new State("q1").hashCode(), new State("q1").hashCode());
+        assertEquals(new Symbol("_"), new BlankSymbol("_"));
+        assertEquals(new Symbol("_").hashCode(), new BlankSymbol("_").hashCode());
+        assertEquals(new Transition(new State("S"), new Symbol("a"), new Symbol("b"),
+                        TapeMove.LEFT, new State("F")).hashCode(),
+                new Transition(new State("S"), new Symbol("a"), new Symbol("b"),
+                        TapeMove.LEFT, new State("F")).hashCode());
+
+        assertSame(Symbol.of('a'), Symbol.of('a'));
+        assertEquals(new Symbol('a'), Symbol.of('a'));
+    }
+
+    @Test
+    void registryInternsEqualElements() {
+        final Registry<State> registry = new Registry<>();
+        final State first = new State("q");
+        final State second = new State("q");
+
+        assertNotSame(first, second);
+        assertSame(first, registry.intern(first));
+        assertSame(first, registry.intern(second));
+
+        // The table stores transitions with the interned states and symbols.
+        final TransitionTable table = new TransitionTable();
+        table.add(new Transition(new State("S"), new Symbol("a"),
+                new Symbol("a"), TapeMove.RIGHT, new State("S")));
+        table.compile();
+        final Transition transition = table.get(0);
+        assertSame(transition.currentState, transition.nextState);
+        assertSame(transition.scannedSymbol, transition.printSymbol);
+        assertSame(table.states.get(0), transition.currentState);
+    }
+
+    @Test
+    void concurrentRegistrationsGetDistinctIds() {
+        final Registry<Symbol> registry = new Registry<>();
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 10_000).parallel()
+                .forEach(i -> ids.add(registry.idOf(new Symbol("s" + i))));
+
+        assertEquals(10_000, registry.size());
+        assertEquals(10_000, ids.size());
+        final Set<String> names = new HashSet<>();
+        for (int id = 0; id < registry.size(); id++) {
+            assertEquals(id, registry.find(registry.get(id)));
+            names.add(registry.get(id).toString());
+        }
+        assertEquals(10_000, names.size());
+    }
+
+    @Test
+    void compiledIndexFindsEachTransition() {
+        final TransitionTable table = new TransitionTable();
+        final List<Transition> transitions = new ArrayList<>();
+        final String[] states = {"S", "q1", "q2"};
+        final String[] symbols = {"_", "a", "b"};
+
+        for (int state = 0; state < states.length; state++) {
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                final Transition transition = new Transition(new State(states[state]),
+                        new Symbol(symbols[symbol]), new Symbol(symbols[2 - symbol]),
+                        TapeMove.RIGHT, new State(states[(state + symbol) % 3]));
+                assertTrue(table.add(transition));
+                transitions.add(transition);
+            }
+        }
+        table.compile();
+
+        for (Transition transition : transitions) {
+            final int position = table.find(
+                    table.states.find(transition.currentState),
+                    table.symbols.find(transition.scannedSymbol));
+            assertEquals(transition, table.get(position));
+            assertEquals(table.states.find(transition.nextState),
+                    table.nextState(position));
+        }
+    }
+
+    @Test
+    void secondTransitionWithSamePreconditionIsRejected() {
+        final TransitionTable table = new TransitionTable();
+
+        assertTrue(table.add(new Transition(new State("S"), new Symbol("a"),
+                new Symbol("b"), TapeMove.RIGHT, new State("S"))));
+        assertFalse(table.add(new Transition(new State("S"), new Symbol("a"),
+                new Symbol("a"), TapeMove.LEFT, new State("F"))));
+    }
+
+    @Test
+    void preconditionsWithoutTransitionAreNotFound() {
+        final TransitionTable table = new TransitionTable();
+        table.add(new Transition(new State("S"), new Symbol("a"),
+                new Symbol("b"), TapeMove.RIGHT, new State("F")));
+        table.compile();
+
+        final int start = table.states.find(new State("S"));
+        final int accept = table.states.find(new State("F"));
+        final int b = table.symbols.find(new Symbol("b"));
+        assertEquals(TransitionTable.NO_TRANSITION, table.find(start, b));
+        assertEquals(TransitionTable.NO_TRANSITION, table.find(accept, b));
+        assertEquals(TransitionTable.NO_TRANSITION, table.find(start, -1));
+
+        // Ids that were assigned after the compilation are outside of the index.
+        final int later = table.states.idOf(new State("q"));
+        assertEquals(TransitionTable.NO_TRANSITION, table.find(later, b));
+
+        table.clear();
+        assertEquals(0, table.states.size());
+        assertEquals(TransitionTable.NO_TRANSITION, table.find(0, 0));
+    }
+}